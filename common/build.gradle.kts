@@ -189,6 +189,11 @@ android {
     }
 }
 
+// Benchmarks are skipped unless requested, eg. ./gradlew :common:testDebugUnitTest -Pbenchmark
+tasks.withType<Test>().configureEach {
+    systemProperty("benchmark", project.hasProperty("benchmark"))
+}
+
 tasks.getByName("clean").doFirst {
     delete(project.file("src/include"))
     delete(project.file("src/libs"))
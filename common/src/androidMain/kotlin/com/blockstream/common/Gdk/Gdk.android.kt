@@ -1,6 +1,5 @@
 package com.blockstream.common.gdk
 
-import com.blockstream.common.gdk.JsonConverter.Companion.JsonDeserializer
 import com.blockstream.common.gdk.data.AuthHandlerStatus
 import com.blockstream.common.gdk.data.Balance
 import com.blockstream.common.gdk.data.FeeEstimation
@@ -39,7 +38,6 @@ import com.blockstream.common.gdk.params.UpdateSubAccountParams
 import com.blockstream.common.gdk.params.ValidateAddresseesParams
 import com.blockstream.libgreenaddress.GDKJNI
 import kotlinx.serialization.json.JsonElement
-import kotlinx.serialization.json.decodeFromJsonElement
 
 class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
     private val _dataDir: String
@@ -71,7 +69,7 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
     override fun reconnectHint(session: GASession, hint: ReconnectHintParams) = GDKJNI.reconnect_hint(session, hint)
 
     override fun getProxySettings(session: GASession): ProxySettings {
-        return JsonDeserializer.decodeFromJsonElement(GDKJNI.get_proxy_settings(session) as JsonElement)
+        return (GDKJNI.get_proxy_settings(session) as RawJson).decode()
     }
 
     override fun registerUser(
@@ -91,11 +89,10 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
         connectionParams: ConnectionParams,
         loginCredentialsParams: LoginCredentialsParams
     ): LoginData {
-        return JsonDeserializer.decodeFromJsonElement(
-            GDKJNI.get_wallet_identifier(
+        return (GDKJNI.get_wallet_identifier(
             connectionParams,
             loginCredentialsParams
-        ) as JsonElement)
+        ) as RawJson).decode()
     }
 
     override fun validate(session: GASession, params: JsonElement): GAAuthHandler {
@@ -142,11 +139,10 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
 
 
     override fun getAssets(session: GASession, params: GetAssetsParams): LiquidAssets {
-        return JsonDeserializer.decodeFromJsonElement(
-            GDKJNI.get_assets(
-                session,
-                params
-            ) as JsonElement)
+        return (GDKJNI.get_assets(
+            session,
+            params
+        ) as RawJson).decode()
     }
 
     override fun getTransactions(session: GASession, details: TransactionParams): GAAuthHandler {
@@ -154,7 +150,7 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
     }
 
     override fun getTwoFactorConfig(session: GASession): TwoFactorConfig {
-        return JsonDeserializer.decodeFromJsonElement(GDKJNI.get_twofactor_config(session) as JsonElement)
+        return (GDKJNI.get_twofactor_config(session) as RawJson).decode()
     }
 
     override fun changeSettingsTwoFactor(
@@ -181,16 +177,16 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
     }
 
     override fun getSettings(session: GASession): Settings {
-        return JsonDeserializer.decodeFromJsonElement(GDKJNI.get_settings(session) as JsonElement)
+        return (GDKJNI.get_settings(session) as RawJson).decode()
     }
 
     @Throws
     override fun getAvailableCurrencies(session: GASession): List<Pricing> {
-        return Pricing.fromJsonElement(GDKJNI.get_available_currencies(session) as JsonElement)
+        return Pricing.fromJsonElement((GDKJNI.get_available_currencies(session) as RawJson).jsonElement)
     }
 
     override fun getAuthHandlerStatus(gaAuthHandler: GAAuthHandler): AuthHandlerStatus {
-        return JsonDeserializer.decodeFromJsonElement(GDKJNI.auth_handler_get_status(gaAuthHandler) as JsonElement)
+        return AuthHandlerStatus.from(GDKJNI.auth_handler_get_status(gaAuthHandler) as RawJson)
     }
 
     override fun authHandlerCall(gaAuthHandler: GAAuthHandler) = GDKJNI.auth_handler_call(gaAuthHandler)
@@ -235,7 +231,7 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
 
 
     override fun getFeeEstimates(session: GASession): FeeEstimation {
-        return JsonDeserializer.decodeFromJsonElement(GDKJNI.get_fee_estimates(session) as JsonElement)
+        return (GDKJNI.get_fee_estimates(session) as RawJson).decode()
     }
 
     override fun getSystemMessage(session: GASession): String? {
@@ -252,21 +248,21 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
 
     override fun convertAmount(session: GASession, amount: Convert): Balance {
         return Balance.fromJsonElement(
-            GDKJNI.convert_amount(session, amount) as JsonElement,
+            (GDKJNI.convert_amount(session, amount) as RawJson).jsonElement,
             amount
         )
     }
 
     override fun convertAmount(session: GASession, amount: Convert, assetConvert :JsonElement): Balance {
         return Balance.fromJsonElement(
-            GDKJNI.convert_amount(session, assetConvert) as JsonElement,
+            (GDKJNI.convert_amount(session, assetConvert) as RawJson).jsonElement,
             amount
         )
     }
 
     private var _cachedNetworks: Networks? = null
     override fun networks(): Networks {
-        return _cachedNetworks ?: Networks.fromJsonElement(GDKJNI.get_networks() as JsonElement).also {
+        return _cachedNetworks ?: Networks.fromJsonElement((GDKJNI.get_networks() as RawJson).jsonElement).also {
             _cachedNetworks = it
         }
     }
@@ -335,7 +331,7 @@ class AndroidGdk(log: Boolean, config: InitConfig) : GdkBinding {
 
 
     override fun httpRequest(session: GASession, data: JsonElement): JsonElement {
-        return GDKJNI.http_request(session, data) as JsonElement
+        return (GDKJNI.http_request(session, data) as RawJson).jsonElement
     }
 
     override fun generateMnemonic12(): String = GDKJNI.generate_mnemonic_12()
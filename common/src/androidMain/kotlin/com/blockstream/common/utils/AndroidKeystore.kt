@@ -210,6 +210,8 @@ class AndroidKeystore(val context: Context) : GreenKeystore {
         return false
     }
 
+    override fun isSecure(): Boolean = true
+
     companion object : Loggable() {
         private const val TRANSFORMATION =
             "${KeyProperties.KEY_ALGORITHM_AES}/${KeyProperties.BLOCK_MODE_CBC}/${KeyProperties.ENCRYPTION_PADDING_PKCS7}"
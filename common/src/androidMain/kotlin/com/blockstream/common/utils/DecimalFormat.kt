@@ -13,8 +13,36 @@ actual class DecimalFormat actual constructor(private val locale: String?) {
     actual var groupingSeparator: Char? = null
     actual var isDecimalSeparatorAlwaysShown: Boolean = false
 
+    private data class Config(
+        val locale: Locale,
+        val minimumFractionDigits: Int,
+        val maximumFractionDigits: Int,
+        val isGroupingUsed: Boolean,
+        val decimalSeparator: Char?,
+        val groupingSeparator: Char?,
+        val isDecimalSeparatorAlwaysShown: Boolean
+    )
+
+    // Building a java DecimalFormat is expensive, keep it until the configuration (or default locale) changes
+    private var cached: Pair<Config, DecimalFormat>? = null
+
+    private fun config() = Config(
+        locale = locale?.let { Locale.forLanguageTag(locale) } ?: Locale.getDefault(),
+        minimumFractionDigits = minimumFractionDigits,
+        maximumFractionDigits = maximumFractionDigits,
+        isGroupingUsed = isGroupingUsed,
+        decimalSeparator = decimalSeparator,
+        groupingSeparator = groupingSeparator,
+        isDecimalSeparatorAlwaysShown = isDecimalSeparatorAlwaysShown
+    )
+
     private fun decimalFormat(): DecimalFormat {
-        val locale = locale?.let { Locale.forLanguageTag(locale) } ?: Locale.getDefault()
+        val config = config()
+        cached?.takeIf { it.first == config }?.also {
+            return it.second
+        }
+
+        val locale = config.locale
         val df = (DecimalFormat.getInstance(locale) as DecimalFormat)
         df.minimumFractionDigits = minimumFractionDigits
         df.maximumFractionDigits = maximumFractionDigits
@@ -28,11 +56,14 @@ actual class DecimalFormat actual constructor(private val locale: String?) {
             }
         }
 
+        cached = config to df
+
         return df
     }
+
     actual fun format(double: Double) : String? {
         return try{
-            decimalFormat().format(double)
+            synchronized(this) { decimalFormat().format(double) }
         }catch (e: Exception){
             e.printStackTrace()
             null
@@ -41,7 +72,7 @@ actual class DecimalFormat actual constructor(private val locale: String?) {
 
     actual fun format(int: Int): String? {
         return try{
-            decimalFormat().format(int)
+            synchronized(this) { decimalFormat().format(int) }
         }catch (e: Exception){
             e.printStackTrace()
             null
@@ -50,7 +81,7 @@ actual class DecimalFormat actual constructor(private val locale: String?) {
 
     actual fun format(any: Any): String? {
         return try{
-            decimalFormat().format(any)
+            synchronized(this) { decimalFormat().format(any) }
         }catch (e: Exception){
             e.printStackTrace()
             null
@@ -60,7 +91,7 @@ actual class DecimalFormat actual constructor(private val locale: String?) {
     actual fun parseTo(input: String, format: com.blockstream.common.utils.DecimalFormat): Pair<String, Double>? {
         val position = ParsePosition(0)
 
-        return decimalFormat().parse(input, position).also {
+        return synchronized(this) { decimalFormat().parse(input, position) }.also {
             if (position.index != input.length) {
                 throw Exception("id_invalid_amount")
             }
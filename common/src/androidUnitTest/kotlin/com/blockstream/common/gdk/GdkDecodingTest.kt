@@ -0,0 +1,143 @@
+package com.blockstream.common.gdk
+
+import com.blockstream.common.gdk.JsonConverter.Companion.JsonDeserializer
+import com.blockstream.common.gdk.data.AuthHandlerStatus
+import com.blockstream.common.gdk.data.Transactions
+import com.blockstream.common.gdk.data.UnspentOutputs
+import kotlinx.serialization.json.JsonElement
+import kotlinx.serialization.json.decodeFromJsonElement
+import kotlinx.serialization.json.jsonObject
+import org.junit.Assume
+import java.lang.management.ManagementFactory
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+import kotlin.time.measureTime
+
+/*
+ * Checks that the direct string decoding of RawJson gives the same results as decoding a large done
+ * auth handler status the way it was done before, JSON string to a JsonElement tree to the typed result.
+ *
+ * The payloads repeat a transaction and an utxo, in the shape GDK returns them for a singlesig testnet
+ * wallet, up to multi-megabyte sizes.
+ *
+ * The benchmarks compare the time and allocations of both paths, they only run with -Pbenchmark.
+ */
+class GdkDecodingTest {
+
+    private val threadMXBean = ManagementFactory.getThreadMXBean() as com.sun.management.ThreadMXBean
+
+    private fun allocatedBytes() = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().id)
+
+    private class Sample(val allocatedBytes: Long, val millis: Long)
+
+    private fun measure(iterations: Int, block: () -> Unit): Sample {
+        // Warm up
+        repeat(3) { block() }
+
+        var allocated = 0L
+        var millis = 0L
+        repeat(iterations) {
+            val before = allocatedBytes()
+            millis += measureTime { block() }.inWholeMilliseconds
+            allocated += allocatedBytes() - before
+        }
+        return Sample(allocated / iterations, millis / iterations)
+    }
+
+    private fun benchmark(name: String, status: String, tree: () -> Any, raw: () -> Any) {
+        Assume.assumeTrue("Run with -Pbenchmark", System.getProperty("benchmark") == "true")
+
+        val withTree = measure(10) { tree() }
+        val direct = measure(10) { raw() }
+
+        println("$name ${status.length / 1024}KB: tree ${withTree.millis}ms ${withTree.allocatedBytes / 1024}KB allocated, direct ${direct.millis}ms ${direct.allocatedBytes / 1024}KB allocated")
+
+        assertTrue(direct.allocatedBytes < withTree.allocatedBytes, "$name allocates more with the direct decoding")
+    }
+
+    private fun transactionsStatus(count: Int) = buildString {
+        append("""{"action":"get_transactions","device":{},"methods":[],"name":"get_transactions","status":"done","result":{"transactions":[""")
+        repeat(count) { i ->
+            if (i > 0) append(',')
+            append(TRANSACTION.replace("TXHASH", i.toString().padStart(64, '0')))
+        }
+        append("]}}")
+    }
+
+    private fun unspentOutputsStatus(count: Int) = buildString {
+        append("""{"action":"get_unspent_outputs","device":{},"methods":[],"name":"get_unspent_outputs","status":"done","result":{"unspent_outputs":{"btc":[""")
+        repeat(count) { i ->
+            if (i > 0) append(',')
+            append(UTXO.replace("TXHASH", i.toString().padStart(64, '0')))
+        }
+        append("]}}}")
+    }
+
+    // The previous path, parseToJsonElement in the JNI converter then decodeFromJsonElement
+    private inline fun <reified T> decodeWithTree(status: String): T {
+        val tree = JsonDeserializer.parseToJsonElement(status)
+        JsonDeserializer.decodeFromJsonElement<AuthHandlerStatus>(tree)
+        val result: JsonElement = tree.jsonObject["result"]!!
+        return JsonDeserializer.decodeFromJsonElement<T>(result).also {
+            (it as GreenJson<*>).jsonElement = result
+        }
+    }
+
+    private inline fun <reified T> decodeRaw(status: String): T {
+        val rawResult = AuthHandlerStatus.from(RawJson(status)).rawResult!!
+        return rawResult.decode<T>().also {
+            (it as GreenJson<*>).setLazyJsonElement { rawResult.jsonElement }
+        }
+    }
+
+    @Test
+    fun `Test transactions`() {
+        val status = transactionsStatus(3_000)
+
+        val withTree = decodeWithTree<Transactions>(status)
+        val direct = decodeRaw<Transactions>(status)
+
+        assertEquals(3_000, direct.transactions.size)
+        assertEquals(withTree.transactions, direct.transactions)
+        assertEquals(withTree.jsonElement, direct.jsonElement)
+    }
+
+    @Test
+    fun `Test unspent outputs`() {
+        val status = unspentOutputsStatus(5_000)
+
+        val withTree = decodeWithTree<UnspentOutputs>(status).also { it.fillUtxosJsonElement() }
+        val direct = decodeRaw<UnspentOutputs>(status).also { it.fillUtxosJsonElement() }
+
+        assertEquals(5_000, direct.unspentOutputs["btc"]!!.size)
+        assertEquals(withTree.unspentOutputs, direct.unspentOutputs)
+        assertEquals(withTree.unspentOutputs["btc"]!![42].jsonElement, direct.unspentOutputs["btc"]!![42].jsonElement)
+        assertEquals(withTree.unspentOutputsAsJsonElement, direct.unspentOutputsAsJsonElement)
+    }
+
+    @Test
+    fun `Benchmark transactions`() {
+        val status = transactionsStatus(3_000)
+
+        benchmark("get_transactions", status, { decodeWithTree<Transactions>(status) }, { decodeRaw<Transactions>(status) })
+    }
+
+    @Test
+    fun `Benchmark unspent outputs`() {
+        val status = unspentOutputsStatus(5_000)
+
+        // As GdkSession does, each utxo gets its json
+        benchmark("get_unspent_outputs", status, {
+            decodeWithTree<UnspentOutputs>(status).also { it.fillUtxosJsonElement() }
+        }, {
+            decodeRaw<UnspentOutputs>(status).also { it.fillUtxosJsonElement() }
+        })
+    }
+
+    companion object {
+        private const val TRANSACTION = """{"block_height":2540283,"can_cpfp":false,"can_rbf":false,"created_at_ts":1700567443000000,"fee":1410,"fee_rate":10000,"inputs":[{"address":"","address_type":"p2wsh","is_internal":false,"is_output":false,"is_relevant":true,"is_spent":true,"pointer":31,"pt_idx":1,"satoshi":1027430,"script_type":14,"subaccount":0,"subtype":0,"txhash":"TXHASH"}],"memo":"","outputs":[{"address":"tb1qxz2zxkd0v5w3yylfy2ayu6u7nz5zzm0cpj3v6m","address_type":"p2wpkh","is_internal":false,"is_output":true,"is_relevant":false,"is_spent":false,"pointer":0,"pt_idx":0,"satoshi":10000,"script_type":11,"subaccount":0,"subtype":0},{"address":"tb1q7a5cns9e6yr8m2ypy0qv6x6gx0sxymhqgzdy4a9l6h7xzqgnlx2sa4p2ka","address_type":"p2wsh","is_internal":false,"is_output":true,"is_relevant":true,"is_spent":false,"pointer":32,"pt_idx":1,"satoshi":1016020,"script_type":14,"subaccount":0,"subtype":0}],"rbf_optin":true,"satoshi":{"btc":-11410},"spv_verified":"disabled","transaction_locktime":2540282,"transaction_outputs":[],"transaction_size":234,"transaction_vsize":141,"transaction_weight":564,"transaction_version":2,"txhash":"TXHASH","type":"outgoing"}"""
+
+        private const val UTXO = """{"address_type":"p2wsh","block_height":2540283,"expiry_height":2592123,"is_internal":false,"pointer":32,"prevout_script":"52210216bb8f4ae8e4c0a3c6c4f4e7e9e1bfd3cc1c3fcd66b87d6f6f5b7e8e8ab9aa2102a4e1ba3ac0e5e0d8aa9c7c3c1f4ab5d0bd7c6d5e7c2a5f4b1f8e9e6a4b5c7d8e52ae","pt_idx":1,"satoshi":1016020,"script_type":14,"subaccount":0,"subtype":0,"txhash":"TXHASH","user_path":[1,32]}"""
+    }
+}
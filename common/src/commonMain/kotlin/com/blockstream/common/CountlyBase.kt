@@ -12,6 +12,7 @@ import com.blockstream.common.data.SetupArgs
 import com.blockstream.common.database.Database
 import com.blockstream.common.database.LoginCredentials
 import com.blockstream.common.di.ApplicationScope
+import com.blockstream.common.gdk.GdkCall
 import com.blockstream.common.gdk.GdkSession
 import com.blockstream.common.gdk.JsonConverter
 import com.blockstream.common.gdk.data.Account
@@ -51,6 +52,7 @@ import kotlin.properties.Delegates
      abstract fun eventEnd(key: String, segmentation : Map<String, Any>? = null)
      abstract fun traceStart(key: String)
      abstract fun traceEnd(key: String)
+     abstract fun networkTrace(key: String, responsePayloadSize: Long, isError: Boolean, startTimestampMs: Long, endTimestampMs: Long)
      abstract fun setProxy(proxyUrl: String?)
      abstract fun updateUserWallets(wallets: Int)
      abstract fun getRemoteConfigValueAsString(key: String): String?
@@ -327,6 +329,16 @@ import kotlin.properties.Delegates
          }
      }
 
+     fun gdkCall(call: GdkCall) {
+         networkTrace(
+             key = "gdk_${call.method}",
+             responsePayloadSize = call.payloadBytes,
+             isError = call.isError,
+             startTimestampMs = call.startTimestampMs,
+             endTimestampMs = call.startTimestampMs + call.durationMs
+         )
+     }
+
      fun activeWalletStart(){
          traceStart(apmEvent(Events.WALLET_ACTIVE))
          eventCancel(Events.WALLET_ACTIVE.toString())
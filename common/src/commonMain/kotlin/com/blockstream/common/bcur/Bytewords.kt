@@ -0,0 +1,78 @@
+package com.blockstream.common.bcur
+
+/*
+ * Bytewords minimal encoding (BCR-2020-012), as used in UR parts: each byte is written as the first
+ * and last letter of its word, followed by the CRC32 of the data.
+ */
+object Bytewords {
+    private val WORDS = ("able acid also apex aqua arch atom aunt away axis back bald barn belt beta bias blue body " +
+            "brag brew bulb buzz calm cash cats chef city claw code cola cook cost crux curl cusp cyan dark data " +
+            "days deli dice diet door down draw drop drum dull duty each easy echo edge epic even exam exit eyes " +
+            "fact fair fern figs film fish fizz flap flew flux foxy free frog fuel fund gala game gear gems gift " +
+            "girl glow good gray grim guru gush gyro half hang hard hawk heat help high hill holy hope horn huts " +
+            "iced idea idle inch inky into iris iron item jade jazz join jolt jowl judo jugs jump junk jury keep " +
+            "keno kept keys kick kiln king kite kiwi knob lamb lava lazy leaf legs liar limp lion list logo loud " +
+            "love luau luck lung main many math maze memo menu meow mild mint miss monk nail navy need news next " +
+            "noon note numb obey oboe omit onyx open oval owls paid part peck play plus poem pool pose puff puma " +
+            "purr quad quiz race ramp real redo rich road rock roof ruby ruin runs rust safe saga scar sets silk " +
+            "skew slot soap solo song stub surf swan taco task taxi tent tied time tiny toil tomb toys trip tuna " +
+            "twin ugly undo unit urge user vast very veto vial vibe view visa void vows wall wand warm wasp wave " +
+            "waxy webs what when whiz wolf work yank yawn yell yoga yurt zaps zero zest zinc zone zoom").split(" ")
+
+    private val MINIMAL = WORDS.map { "${it.first()}${it.last()}" }
+
+    private val MINIMAL_INDEX = MINIMAL.withIndex().associate { it.value to it.index }
+
+    fun encodeMinimal(data: ByteArray): String {
+        val checksum = crc32(data)
+        val builder = StringBuilder((data.size + 4) * 2)
+        data.forEach {
+            builder.append(MINIMAL[it.toInt() and 0xff])
+        }
+        for (shift in 24 downTo 0 step 8) {
+            builder.append(MINIMAL[(checksum ushr shift).toInt() and 0xff])
+        }
+        return builder.toString()
+    }
+
+    fun decodeMinimal(encoded: String): ByteArray {
+        val lowercase = encoded.lowercase()
+        if (lowercase.length % 2 != 0 || lowercase.length < 10) {
+            throw Exception("Invalid bytewords length")
+        }
+
+        val bytes = ByteArray(lowercase.length / 2) {
+            val index = MINIMAL_INDEX[lowercase.substring(it * 2, it * 2 + 2)] ?: throw Exception("Invalid bytewords")
+            index.toByte()
+        }
+
+        val data = bytes.copyOfRange(0, bytes.size - 4)
+        var checksum = 0L
+        for (i in bytes.size - 4 until bytes.size) {
+            checksum = (checksum shl 8) or (bytes[i].toLong() and 0xff)
+        }
+
+        if (checksum != crc32(data)) {
+            throw Exception("Invalid bytewords checksum")
+        }
+
+        return data
+    }
+}
+
+private val CRC32_TABLE = LongArray(256) { n ->
+    var c = n.toLong()
+    repeat(8) {
+        c = if (c and 1L != 0L) 0xEDB88320L xor (c ushr 1) else c ushr 1
+    }
+    c
+}
+
+// CRC-32 (ISO-HDLC), the checksum used by UR messages and bytewords
+fun crc32(data: ByteArray): Long {
+    var crc = 0xFFFFFFFFL
+    data.forEach {
+        crc = CRC32_TABLE[((crc xor it.toLong()) and 0xff).toInt()] xor (crc ushr 8)
+    }
+    return crc xor 0xFFFFFFFFL
+}
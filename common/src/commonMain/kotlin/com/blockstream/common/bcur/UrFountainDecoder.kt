@@ -0,0 +1,209 @@
+package com.blockstream.common.bcur
+
+/*
+ * Streaming UR decoder (BCR-2020-005), every scanned frame is consumed as it arrives.
+ *
+ * Each part is a XOR of a known set of fragments, so the received parts form a linear system over
+ * GF(2). Parts are eliminated incrementally as they arrive, a part that adds no information (a
+ * duplicate frame or a mix of already known fragments) is discarded, and the message is complete as
+ * soon as the received parts determine every fragment, the minimum number of frames for those parts.
+ *
+ * Not thread safe, feed it from a single thread.
+ */
+class UrFountainDecoder {
+    var type: String? = null
+        private set
+
+    var sequenceLength: Int = 0
+        private set
+
+    private var messageLength: Int = 0
+    private var fragmentLength: Int = 0
+    private var checksum: Long = 0
+
+    // Sequence numbers received for the current message
+    private val received = mutableSetOf<Long>()
+
+    // Reduced rows by pivot fragment index, each row has no other row's pivot in its indexes
+    private val rows = mutableMapOf<Int, Row>()
+
+    private var message: ByteArray? = null
+
+    var receivedPartsCount: Int = 0
+        private set
+
+    var duplicatePartsCount: Int = 0
+        private set
+
+    // Fragments determined so far
+    val solvedCount: Int
+        get() = if (message != null) sequenceLength else rows.count { it.value.indexes.cardinality() == 1 }
+
+    // Exact progress, the received parts fix rank / sequenceLength of the message
+    val progress: Float
+        get() = if (sequenceLength == 0) 0f else rank / sequenceLength.toFloat()
+
+    val rank: Int
+        get() = if (message != null) sequenceLength else rows.size
+
+    val isComplete: Boolean
+        get() = message != null
+
+    // The message as a single-part UR, eg. to be decoded by GDK
+    val result: String?
+        get() = message?.let { "ur:$type/${Bytewords.encodeMinimal(it)}" }
+
+    val resultMessage: ByteArray?
+        get() = message?.copyOf()
+
+    private class Row(val indexes: BitSet, val fragment: ByteArray)
+
+    // Returns true if the part added information, throws if the part is invalid
+    fun receive(ur: String): Boolean {
+        if (message != null) {
+            return false
+        }
+
+        val part = UrPart.parse(ur)
+
+        if (part == null) {
+            // Single-part UR
+            val components = ur.lowercase().removePrefix("ur:").split("/")
+            if (!ur.startsWith("ur:", ignoreCase = true) || components.size != 2) {
+                throw Exception("Invalid UR")
+            }
+            reset()
+            type = components[0]
+            message = Bytewords.decodeMinimal(components[1])
+            sequenceLength = 1
+            receivedPartsCount = 1
+            return true
+        }
+
+        // A part of a different message, start over
+        if (part.type != type || part.checksum != checksum || part.sequenceLength != sequenceLength || part.messageLength != messageLength) {
+            reset()
+            type = part.type
+            checksum = part.checksum
+            sequenceLength = part.sequenceLength
+            messageLength = part.messageLength
+            fragmentLength = part.fragment.size
+        }
+
+        // Fragments are xored together, they must all have the same length
+        if (part.fragment.size != fragmentLength) {
+            throw Exception("Invalid UR part length")
+        }
+
+        if (!received.add(part.sequenceNumber)) {
+            duplicatePartsCount++
+            return false
+        }
+        receivedPartsCount++
+
+        val indexes = BitSet(sequenceLength).apply {
+            part.fragmentIndexes.forEach { set(it) }
+        }
+
+        return add(indexes, part.fragment.copyOf()).also {
+            if (rows.size == sequenceLength) {
+                complete()
+            }
+        }
+    }
+
+    fun reset() {
+        type = null
+        sequenceLength = 0
+        messageLength = 0
+        fragmentLength = 0
+        checksum = 0
+        received.clear()
+        rows.clear()
+        message = null
+        receivedPartsCount = 0
+        duplicatePartsCount = 0
+    }
+
+    private fun add(indexes: BitSet, fragment: ByteArray): Boolean {
+        // Eliminate the known pivots
+        for (pivot in rows.keys.toList()) {
+            if (indexes[pivot]) {
+                val row = rows.getValue(pivot)
+                indexes.xor(row.indexes)
+                xor(fragment, row.fragment)
+            }
+        }
+
+        val pivot = indexes.nextSetBit(0)
+        if (pivot < 0) {
+            // Linearly dependent on the received parts
+            return false
+        }
+
+        // Keep the rows reduced, so that solved fragments are single index rows
+        for (row in rows.values) {
+            if (row.indexes[pivot]) {
+                row.indexes.xor(indexes)
+                xor(row.fragment, fragment)
+            }
+        }
+        rows[pivot] = Row(indexes, fragment)
+
+        return true
+    }
+
+    private fun complete() {
+        val joined = ByteArray(fragmentLength * sequenceLength)
+        for (index in 0 until sequenceLength) {
+            rows.getValue(index).fragment.copyInto(joined, index * fragmentLength)
+        }
+
+        val decoded = joined.copyOf(messageLength)
+        if (crc32(decoded) != checksum) {
+            reset()
+            throw Exception("Invalid UR checksum")
+        }
+
+        message = decoded
+        rows.clear()
+    }
+
+    private fun xor(target: ByteArray, source: ByteArray) {
+        for (i in target.indices) {
+            target[i] = (target[i].toInt() xor source[i].toInt()).toByte()
+        }
+    }
+}
+
+// Fixed size bit set, kotlin common has no java.util.BitSet
+internal class BitSet(size: Int) {
+    private val words = LongArray((size + 63) / 64)
+
+    operator fun get(index: Int): Boolean = words[index ushr 6] and (1L shl index) != 0L
+
+    fun set(index: Int) {
+        words[index ushr 6] = words[index ushr 6] or (1L shl index)
+    }
+
+    fun xor(other: BitSet) {
+        for (i in words.indices) {
+            words[i] = words[i] xor other.words[i]
+        }
+    }
+
+    fun nextSetBit(from: Int): Int {
+        var i = from ushr 6
+        if (i >= words.size) return -1
+        var word = words[i] and (-1L shl from)
+        while (true) {
+            if (word != 0L) {
+                return i * 64 + word.countTrailingZeroBits()
+            }
+            if (++i == words.size) return -1
+            word = words[i]
+        }
+    }
+
+    fun cardinality(): Int = words.sumOf { it.countOneBits() }
+}
@@ -0,0 +1,110 @@
+package com.blockstream.common.bcur
+
+/*
+ * Rateless UR encoder (BCR-2020-005).
+ *
+ * The first sequenceLength parts carry the message fragments in order, every following part is a
+ * pseudo-random XOR mix of fragments, so parts can be emitted indefinitely and a scanner that missed
+ * some frames completes with whichever parts it catches next, instead of waiting for a full rotation.
+ */
+class UrFountainEncoder(
+    val type: String,
+    private val message: ByteArray,
+    maxFragmentLength: Int = DEFAULT_MAX_FRAGMENT_LENGTH,
+    minFragmentLength: Int = MIN_FRAGMENT_LENGTH
+) {
+    val checksum: Long = crc32(message)
+
+    val fragmentLength: Int = fragmentLength(message.size, minFragmentLength, maxFragmentLength)
+
+    val sequenceLength: Int = (message.size + fragmentLength - 1) / fragmentLength
+
+    // A message that fits one fragment is sent as a single-part UR
+    val isSinglePart: Boolean
+        get() = sequenceLength <= 1
+
+    private val fragments: Array<ByteArray> = Array(sequenceLength) {
+        // The last fragment is zero padded
+        message.copyOfRange(it * fragmentLength, minOf((it + 1) * fragmentLength, message.size)).copyOf(fragmentLength)
+    }
+
+    var sequenceNumber: Long = 0
+        private set
+
+    fun nextPart(): String = part(++sequenceNumber)
+
+    // Parts are deterministic, any part can be created ahead of time
+    fun part(sequenceNumber: Long): String {
+        if (isSinglePart) {
+            return "ur:$type/${Bytewords.encodeMinimal(message)}"
+        }
+
+        val fragment = ByteArray(fragmentLength)
+        UrPart.chooseFragments(sequenceNumber, sequenceLength, checksum).forEach { index ->
+            val source = fragments[index]
+            for (i in 0 until fragmentLength) {
+                fragment[i] = (fragment[i].toInt() xor source[i].toInt()).toByte()
+            }
+        }
+
+        return UrPart(
+            type = type,
+            sequenceNumber = sequenceNumber,
+            sequenceLength = sequenceLength,
+            messageLength = message.size,
+            checksum = checksum,
+            fragment = fragment
+        ).toUr()
+    }
+
+    companion object {
+        const val DEFAULT_MAX_FRAGMENT_LENGTH = 100
+        const val MIN_FRAGMENT_LENGTH = 10
+
+        // The smallest number of equally sized fragments that are no longer than maxFragmentLength
+        fun fragmentLength(messageLength: Int, minFragmentLength: Int, maxFragmentLength: Int): Int {
+            val maxFragmentCount = maxOf(1, messageLength / minFragmentLength)
+            var fragmentLength = messageLength
+            for (fragmentCount in 1..maxFragmentCount) {
+                fragmentLength = (messageLength + fragmentCount - 1) / fragmentCount
+                if (fragmentLength <= maxFragmentLength) {
+                    break
+                }
+            }
+            return maxOf(1, fragmentLength)
+        }
+
+        /*
+         * Recover the message of an already encoded UR, eg. from GDK bcur_encode, to re-encode it
+         * with a different fragment size. Multi-part URs must include all the pure parts.
+         */
+        fun fromParts(parts: List<String>, maxFragmentLength: Int = DEFAULT_MAX_FRAGMENT_LENGTH): UrFountainEncoder {
+            val first = parts.firstOrNull() ?: throw Exception("Empty UR")
+
+            val multiPart = parts.mapNotNull { UrPart.parse(it) }.filter { it.isPure }
+            if (multiPart.isEmpty()) {
+                // Single-part "ur:<type>/<bytewords>"
+                val components = first.lowercase().removePrefix("ur:").split("/")
+                if (!first.startsWith("ur:", ignoreCase = true) || components.size != 2) {
+                    throw Exception("Invalid UR")
+                }
+                return UrFountainEncoder(components[0], Bytewords.decodeMinimal(components[1]), maxFragmentLength)
+            }
+
+            val reference = multiPart.first()
+            val fragments = multiPart.associateBy { it.sequenceNumber }
+            val message = ByteArray(reference.fragment.size * reference.sequenceLength)
+            for (sequenceNumber in 1..reference.sequenceLength) {
+                val fragment = fragments[sequenceNumber.toLong()]?.fragment ?: throw Exception("Missing UR part $sequenceNumber")
+                fragment.copyInto(message, (sequenceNumber - 1) * reference.fragment.size)
+            }
+
+            return message.copyOf(reference.messageLength).let {
+                if (crc32(it) != reference.checksum) {
+                    throw Exception("Invalid UR checksum")
+                }
+                UrFountainEncoder(reference.type, it, maxFragmentLength)
+            }
+        }
+    }
+}
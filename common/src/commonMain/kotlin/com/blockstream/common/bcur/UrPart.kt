@@ -0,0 +1,198 @@
+package com.blockstream.common.bcur
+
+import co.touchlab.stately.collections.ConcurrentMutableMap
+
+/*
+ * A part of a multi-part UR: "ur:<type>/<seqNum>-<seqLen>/<bytewords>", where the bytewords carry
+ * the CBOR array [seqNum, seqLen, messageLen, checksum, fragment].
+ */
+class UrPart(
+    val type: String,
+    val sequenceNumber: Long,
+    val sequenceLength: Int,
+    val messageLength: Int,
+    val checksum: Long,
+    val fragment: ByteArray
+) {
+    val isPure: Boolean
+        get() = sequenceNumber <= sequenceLength
+
+    // The indexes of the message fragments mixed in this part
+    val fragmentIndexes: List<Int> by lazy {
+        chooseFragments(sequenceNumber, sequenceLength, checksum)
+    }
+
+    fun toCbor(): ByteArray = Cbor.Writer(fragment.size + 32).apply {
+        writeHead(Cbor.MAJOR_ARRAY, 5)
+        writeHead(Cbor.MAJOR_UNSIGNED, sequenceNumber)
+        writeHead(Cbor.MAJOR_UNSIGNED, sequenceLength.toLong())
+        writeHead(Cbor.MAJOR_UNSIGNED, messageLength.toLong())
+        writeHead(Cbor.MAJOR_UNSIGNED, checksum)
+        writeBytes(fragment)
+    }.toByteArray()
+
+    fun toUr(): String = "ur:$type/$sequenceNumber-$sequenceLength/${Bytewords.encodeMinimal(toCbor())}"
+
+    companion object {
+        // Parse a multi-part UR, returns null for single-part URs
+        fun parse(ur: String): UrPart? {
+            val components = ur.lowercase().removePrefix("ur:").split("/")
+            if (!ur.startsWith("ur:", ignoreCase = true) || components.size != 3) {
+                return null
+            }
+
+            val reader = Cbor.Reader(Bytewords.decodeMinimal(components[2]))
+            if (reader.readHead(Cbor.MAJOR_ARRAY) != 5L) {
+                throw Exception("Invalid UR part")
+            }
+
+            val sequenceNumber = reader.readHead(Cbor.MAJOR_UNSIGNED)
+            val sequenceLength = reader.readHead(Cbor.MAJOR_UNSIGNED)
+            val messageLength = reader.readHead(Cbor.MAJOR_UNSIGNED)
+            val checksum = reader.readHead(Cbor.MAJOR_UNSIGNED)
+            val fragment = reader.readBytes()
+
+            if ("$sequenceNumber-$sequenceLength" != components[1] || sequenceNumber < 1 || sequenceLength !in 1..MAX_SEQUENCE_LENGTH) {
+                throw Exception("Invalid UR part sequence")
+            }
+
+            // Decoders allocate per fragment, the lengths must describe exactly sequenceLength fragments
+            if (fragment.isEmpty() || messageLength !in (sequenceLength - 1) * fragment.size + 1..sequenceLength * fragment.size) {
+                throw Exception("Invalid UR part length")
+            }
+
+            return UrPart(
+                type = components[0],
+                sequenceNumber = sequenceNumber,
+                sequenceLength = sequenceLength.toInt(),
+                messageLength = messageLength.toInt(),
+                checksum = checksum,
+                fragment = fragment
+            )
+        }
+
+        fun chooseFragments(sequenceNumber: Long, sequenceLength: Int, checksum: Long): List<Int> {
+            // The first parts carry the fragments as they are
+            if (sequenceNumber <= sequenceLength) {
+                return listOf((sequenceNumber - 1).toInt())
+            }
+
+            val rng = Xoshiro256.forPart(sequenceNumber, checksum)
+            val degree = degreeSampler(sequenceLength).next(rng) + 1
+
+            // Shuffle all the indexes and keep the first degree ones
+            val remaining = MutableList(sequenceLength) { it }
+            val shuffled = ArrayList<Int>(sequenceLength)
+            while (remaining.isNotEmpty()) {
+                shuffled += remaining.removeAt(rng.nextInt(0, remaining.size - 1))
+            }
+
+            return shuffled.subList(0, degree)
+        }
+
+        // Parts of a longer sequence are rejected, so that a malformed frame can't exhaust memory
+        const val MAX_SEQUENCE_LENGTH = 10_000
+
+        // Only the sampler of the message being transferred is kept
+        private val samplers = ConcurrentMutableMap<Int, RandomSampler>()
+
+        // Degree d is chosen with probability proportional to 1/d
+        private fun degreeSampler(sequenceLength: Int): RandomSampler = samplers.block { map ->
+            map[sequenceLength] ?: RandomSampler(List(sequenceLength) { 1.0 / (it + 1) }).also {
+                map.clear()
+                map[sequenceLength] = it
+            }
+        }
+    }
+}
+
+// The minimal subset of CBOR needed for UR parts
+internal object Cbor {
+    const val MAJOR_UNSIGNED = 0
+    const val MAJOR_BYTES = 2
+    const val MAJOR_ARRAY = 4
+
+    class Writer(capacity: Int) {
+        private var buffer = ByteArray(capacity)
+        private var size = 0
+
+        private fun write(byte: Int) {
+            if (size == buffer.size) {
+                buffer = buffer.copyOf(buffer.size * 2 + 1)
+            }
+            buffer[size++] = byte.toByte()
+        }
+
+        fun writeHead(major: Int, value: Long) {
+            val type = major shl 5
+            when {
+                value < 24 -> write(type or value.toInt())
+                value < 0x100 -> {
+                    write(type or 24)
+                    write(value.toInt())
+                }
+                value < 0x10000 -> {
+                    write(type or 25)
+                    for (shift in 8 downTo 0 step 8) write((value ushr shift).toInt() and 0xff)
+                }
+                value < 0x100000000 -> {
+                    write(type or 26)
+                    for (shift in 24 downTo 0 step 8) write((value ushr shift).toInt() and 0xff)
+                }
+                else -> {
+                    write(type or 27)
+                    for (shift in 56 downTo 0 step 8) write((value ushr shift).toInt() and 0xff)
+                }
+            }
+        }
+
+        fun writeBytes(bytes: ByteArray) {
+            writeHead(MAJOR_BYTES, bytes.size.toLong())
+            bytes.forEach { write(it.toInt()) }
+        }
+
+        fun toByteArray(): ByteArray = buffer.copyOf(size)
+    }
+
+    class Reader(private val data: ByteArray) {
+        private var position = 0
+
+        private fun read(): Int {
+            if (position >= data.size) {
+                throw Exception("Truncated CBOR")
+            }
+            return data[position++].toInt() and 0xff
+        }
+
+        fun readHead(major: Int): Long {
+            val initial = read()
+            if (initial ushr 5 != major) {
+                throw Exception("Unexpected CBOR type")
+            }
+            val info = initial and 0x1f
+            val length = when (info) {
+                in 0..23 -> return info.toLong()
+                24 -> 1
+                25 -> 2
+                26 -> 4
+                27 -> 8
+                else -> throw Exception("Unsupported CBOR length")
+            }
+            var value = 0L
+            repeat(length) {
+                value = (value shl 8) or read().toLong()
+            }
+            return value
+        }
+
+        fun readBytes(): ByteArray {
+            val length = readHead(MAJOR_BYTES).toInt()
+            if (length < 0 || position + length > data.size) {
+                throw Exception("Truncated CBOR")
+            }
+            return data.copyOfRange(position, position + length).also {
+                position += length
+            }
+        }
+    }
+}
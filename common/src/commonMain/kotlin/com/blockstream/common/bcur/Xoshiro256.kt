@@ -0,0 +1,104 @@
+package com.blockstream.common.bcur
+
+import okio.ByteString.Companion.encodeUtf8
+import okio.ByteString.Companion.toByteString
+
+/*
+ * xoshiro256** seeded from a SHA-256 digest, the PRNG the UR fountain code uses to pick the
+ * fragments mixed in each part. Encoder and decoder must draw exactly the same numbers.
+ */
+@OptIn(ExperimentalUnsignedTypes::class)
+class Xoshiro256(digest: ByteArray) {
+    private val s = ULongArray(4) { i ->
+        var v = 0UL
+        for (j in 0 until 8) {
+            v = (v shl 8) or (digest[i * 8 + j].toULong() and 0xffUL)
+        }
+        v
+    }
+
+    constructor(seed: String) : this(seed.encodeUtf8().sha256().toByteArray())
+
+    fun next(): ULong {
+        val result = rotl(s[1] * 5UL, 7) * 9UL
+        val t = s[1] shl 17
+
+        s[2] = s[2] xor s[0]
+        s[3] = s[3] xor s[1]
+        s[1] = s[1] xor s[2]
+        s[0] = s[0] xor s[3]
+
+        s[2] = s[2] xor t
+        s[3] = rotl(s[3], 45)
+
+        return result
+    }
+
+    fun nextDouble(): Double = next().toDouble() / (ULong.MAX_VALUE.toDouble() + 1.0)
+
+    // Uniform in [low, high]
+    fun nextInt(low: Int, high: Int): Int = (nextDouble() * (high - low + 1)).toInt() + low
+
+    fun nextByte(): Byte = nextInt(0, 255).toByte()
+
+    private fun rotl(x: ULong, k: Int): ULong = (x shl k) or (x shr (64 - k))
+
+    companion object {
+        // Seed for the fragment choice of a part
+        fun forPart(sequenceNumber: Long, checksum: Long): Xoshiro256 {
+            val seed = ByteArray(8)
+            for (i in 0 until 4) {
+                seed[i] = (sequenceNumber ushr (24 - i * 8)).toByte()
+                seed[4 + i] = (checksum ushr (24 - i * 8)).toByte()
+            }
+            return Xoshiro256(seed.toByteString().sha256().toByteArray())
+        }
+    }
+}
+
+/*
+ * Walker-Vose alias method, samples an index with the given (unnormalized) probabilities
+ * using two draws of the generator.
+ */
+class RandomSampler(probabilities: List<Double>) {
+    private val probs: DoubleArray
+    private val aliases: IntArray
+
+    init {
+        val n = probabilities.size
+        val sum = probabilities.sum()
+        val p = DoubleArray(n) { probabilities[it] * n / sum }
+
+        val small = ArrayDeque<Int>()
+        val large = ArrayDeque<Int>()
+        for (i in n - 1 downTo 0) {
+            if (p[i] < 1.0) small.addLast(i) else large.addLast(i)
+        }
+
+        probs = DoubleArray(n)
+        aliases = IntArray(n)
+
+        while (small.isNotEmpty() && large.isNotEmpty()) {
+            val a = small.removeLast()
+            val g = large.removeLast()
+            probs[a] = p[a]
+            aliases[a] = g
+            p[g] += p[a] - 1.0
+            if (p[g] < 1.0) small.addLast(g) else large.addLast(g)
+        }
+
+        while (large.isNotEmpty()) {
+            probs[large.removeLast()] = 1.0
+        }
+        while (small.isNotEmpty()) {
+            probs[small.removeLast()] = 1.0
+        }
+    }
+
+    fun next(rng: Xoshiro256): Int {
+        val r1 = rng.nextDouble()
+        val r2 = rng.nextDouble()
+        val i = (probs.size * r1).toInt()
+        return if (r2 < probs[i]) i else aliases[i]
+    }
+}
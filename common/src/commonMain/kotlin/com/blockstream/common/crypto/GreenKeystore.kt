@@ -10,4 +10,6 @@ interface GreenKeystore {
     fun decryptData(encryptedData: EncryptedData): ByteArray
     fun decryptData(cipher: PlatformCipher, encryptedData: EncryptedData): ByteArray
     fun canUseBiometrics(): Boolean
+    // Whether data is encrypted with a key kept in a platform keystore, so that it can be persisted
+    fun isSecure(): Boolean
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.blockstream.common.data
+
+import com.blockstream.common.gdk.GreenJson
+import com.blockstream.common.gdk.data.Account
+import com.blockstream.common.gdk.data.Transaction
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+
+// Last known state of a wallet, persisted (encrypted) so that it can be displayed while GDK catches up.
+// Network and Account references are stripped and stored as ids, they are re-injected on restore.
+@Serializable
+data class WalletSnapshotData(
+    @SerialName("accounts") val accounts: List<SnapshotAccount> = listOf(),
+    @SerialName("wallet_assets") val walletAssets: Map<String, Long> = mapOf(),
+    @SerialName("wallet_transactions") val walletTransactions: List<SnapshotTransaction> = listOf(),
+) : GreenJson<WalletSnapshotData>() {
+    override fun kSerializer() = serializer()
+
+    companion object {
+        fun fromString(jsonString: String): WalletSnapshotData? {
+            return try {
+                json.decodeFromString(jsonString)
+            } catch (e: Exception) {
+                e.printStackTrace()
+                null
+            }
+        }
+    }
+}
+
+@Serializable
+data class SnapshotAccount(
+    @SerialName("network") val network: String,
+    @SerialName("account") val account: Account,
+    @SerialName("assets") val assets: Map<String, Long>? = null,
+    @SerialName("transactions") val transactions: List<Transaction> = listOf(),
+)
+
+@Serializable
+data class SnapshotTransaction(
+    @SerialName("account_id") val accountId: String,
+    @SerialName("transaction") val transaction: Transaction,
+)
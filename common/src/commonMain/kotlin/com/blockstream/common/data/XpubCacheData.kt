@@ -0,0 +1,24 @@
+package com.blockstream.common.data
+
+import com.blockstream.common.gdk.GreenJson
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+
+// Xpubs of a hardware wallet on a network keyed by derivation path, persisted (encrypted) across logins
+@Serializable
+data class XpubCacheData(
+    @SerialName("xpubs") val xpubs: Map<String, String> = mapOf(),
+) : GreenJson<XpubCacheData>() {
+    override fun kSerializer() = serializer()
+
+    companion object {
+        fun fromString(jsonString: String): XpubCacheData? {
+            return try {
+                json.decodeFromString(jsonString)
+            } catch (e: Exception) {
+                e.printStackTrace()
+                null
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.blockstream.common.database
 import app.cash.sqldelight.coroutines.asFlow
 import app.cash.sqldelight.db.SqlDriver
 import com.blockstream.common.data.CredentialType
+import com.blockstream.common.data.EncryptedData
 import com.blockstream.common.data.GreenWallet
 import com.blockstream.common.data.toGreenWallet
 import com.blockstream.common.managers.SettingsManager
@@ -14,6 +15,7 @@ import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.mapNotNull
 import kotlinx.coroutines.withContext
+import kotlinx.datetime.Clock
 
 const val DATABASE_NAME = "green.sqlite"
 
@@ -30,7 +32,9 @@ fun createDatabase(driverFactory: DriverFactory): GreenDB {
             pin_dataAdapter = pinDataAdapter,
             encrypted_dataAdapter = encryptedDataAdapter
         ),
-        walletAdapter = Wallet.Adapter(device_identifiersAdapter = deviceIdentifierAdapter, extrasAdapter = walletExtrasTypeAdapter)
+        walletAdapter = Wallet.Adapter(device_identifiersAdapter = deviceIdentifierAdapter, extrasAdapter = walletExtrasTypeAdapter),
+        walletSnapshotAdapter = WalletSnapshot.Adapter(encrypted_dataAdapter = encryptedDataAdapter),
+        xpubCacheAdapter = XpubCache.Adapter(encrypted_dataAdapter = encryptedDataAdapter)
     )
 
     return database
@@ -220,5 +224,35 @@ class Database(driverFactory: DriverFactory, val settingsManager: SettingsManage
         )
     }
 
+    suspend fun getWalletSnapshot(walletId: String) = io {
+        db.walletSnapshotQueries.getWalletSnapshot(wallet_id = walletId).executeAsOneOrNull()
+    }
+
+    suspend fun replaceWalletSnapshot(walletId: String, encryptedData: EncryptedData) = io {
+        db.walletSnapshotQueries.replaceWalletSnapshot(
+            wallet_id = walletId,
+            encrypted_data = encryptedData,
+            updated_at = Clock.System.now().toEpochMilliseconds()
+        )
+    }
+
+    suspend fun deleteWalletSnapshot(walletId: String) = io {
+        db.walletSnapshotQueries.deleteWalletSnapshot(wallet_id = walletId)
+    }
+
+    suspend fun getXpubCache(walletId: String, fingerprint: String) = io {
+        db.xpubCacheQueries.getXpubCache(wallet_id = walletId, fingerprint = fingerprint).executeAsList()
+    }
+
+    suspend fun replaceXpubCache(walletId: String, fingerprint: String, network: String, encryptedData: EncryptedData) = io {
+        db.xpubCacheQueries.replaceXpubCache(
+            wallet_id = walletId,
+            fingerprint = fingerprint,
+            network = network,
+            encrypted_data = encryptedData,
+            updated_at = Clock.System.now().toEpochMilliseconds()
+        )
+    }
+
     companion object : Loggable()
 }
\ No newline at end of file
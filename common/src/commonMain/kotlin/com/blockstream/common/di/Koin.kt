@@ -8,6 +8,8 @@ import com.blockstream.common.data.AppConfig
 import com.blockstream.common.data.AppInfo
 import com.blockstream.common.database.Database
 import com.blockstream.common.gdk.Gdk
+import com.blockstream.common.gdk.GdkMetrics
+import com.blockstream.common.gdk.InstrumentedGdkBinding
 import com.blockstream.common.gdk.getGdkBinding
 import com.blockstream.common.gdk.getWally
 import com.blockstream.common.gdk.params.InitConfig
@@ -64,7 +66,7 @@ private fun commonModules(appConfig: AppConfig): List<Module> {
             AssetManager()
         }
         single {
-            SessionManager(get(), get(), get(), get(), get(), get(), get(), get())
+            SessionManager(get(), get(), get(), get(), get(), get(), get(), get(), get(), get(), get())
         }
         single {
             LifecycleManager(get(), get(), get())
@@ -80,6 +82,9 @@ private fun commonModules(appConfig: AppConfig): List<Module> {
                 storeRateEnabled = appConfig.storeRateEnabled
             )
         }
+        single {
+            GdkMetrics()
+        }
         single {
             val config = InitConfig(
                 datadir = appConfig.gdkDataDir,
@@ -87,7 +92,7 @@ private fun commonModules(appConfig: AppConfig): List<Module> {
             )
             Gdk(
                 settings = get(),
-                gdkBinding = getGdkBinding(appConfig.isDebug, config)
+                gdkBinding = InstrumentedGdkBinding(getGdkBinding(appConfig.isDebug, config), get())
             )
         }
         single {
@@ -1,15 +1,18 @@
 package com.blockstream.common.gdk
 
-import com.blockstream.common.gdk.JsonConverter.Companion.JsonDeserializer
 import com.blockstream.common.gdk.data.AuthHandlerStatus
 import com.blockstream.common.gdk.data.DeviceRequiredData
 import com.blockstream.common.gdk.data.Network
 import com.blockstream.common.gdk.device.DeviceResolver
 import com.blockstream.common.gdk.device.GdkHardwareWallet
+import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.IO
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import kotlinx.serialization.json.JsonElement
-import kotlinx.serialization.json.decodeFromJsonElement
 
 interface TwoFactorResolver {
     suspend fun selectMethod(availableMethods: List<String>): CompletableDeferred<String>
@@ -35,7 +38,11 @@ class AuthHandler constructor(
     var isCompleted = false
         private set
 
-    var result: JsonElement? = null
+    @PublishedApi
+    internal var rawResult: RawJson? = null
+
+    val result: JsonElement?
+        get() = rawResult?.jsonElement
 
     private fun call() = gdk.authHandlerCall(gaAuthHandler)
     private fun requestCode(method: String) =
@@ -48,7 +55,11 @@ class AuthHandler constructor(
         return hardwareWalletResolver ?: gdkHwWallet?.let { gdkHwWallet -> DeviceResolver(gdkHwWallet) }
     }
 
-    fun resolve(
+    /*
+     * Resolves the auth handler without holding a thread while waiting on the resolvers, eg. for the user
+     * to enter a 2FA code. GDK calls run on a bounded dispatcher shared by all auth handlers.
+     */
+    suspend fun awaitResolve(
         twoFactorResolver: TwoFactorResolver? = null,
         hardwareWalletResolver: HardwareWalletResolver? = null,
         bcurResolver: BcurResolver? = null
@@ -56,49 +67,61 @@ class AuthHandler constructor(
         try {
             while (!isCompleted) {
 
-                val authHandlerStatus: AuthHandlerStatus = gdk.getAuthHandlerStatus(gaAuthHandler)
+                val authHandlerStatus: AuthHandlerStatus = withContext(AuthHandlerDispatcher) {
+                    gdk.getAuthHandlerStatus(gaAuthHandler)
+                }
 
                 when (authHandlerStatus.status) {
                     CALL -> {
-                        call()
+                        withContext(AuthHandlerDispatcher) {
+                            call()
+                        }
                     }
                     REQUEST_CODE -> {
                         twoFactorResolver?.also {
 
-                            if(authHandlerStatus.methods.size == 1) {
-                                requestCode(authHandlerStatus.methods.first())
+                            val method = if(authHandlerStatus.methods.size == 1) {
+                                authHandlerStatus.methods.first()
                             }else{
                                 try {
-                                    requestCode(runBlocking { it.selectMethod(authHandlerStatus.methods).await() })
+                                    it.selectMethod(authHandlerStatus.methods).await()
+                                }catch (e: CancellationException){
+                                    throw e
                                 }catch (e: Exception){
                                     throw Exception("id_action_canceled")
                                 }
                             }
 
+                            withContext(AuthHandlerDispatcher) {
+                                requestCode(method)
+                            }
+
                         } ?: run {
                             throw RuntimeException("TwoFactorMethodResolver was not provided")
                         }
 
                     }
                     RESOLVE_CODE -> {
-                        if (authHandlerStatus.requiredData == null) {
-                            bcurResolver?.also {
-                                resolveCode(runBlocking {
-                                    it.requestData().await()
-                                })
+                        val code = if (authHandlerStatus.requiredData == null) {
+                            bcurResolver?.let {
+                                it.requestData().await()
                             } ?:
-                            twoFactorResolver?.also {
+                            twoFactorResolver?.let {
                                 try {
-                                    resolveCode(runBlocking {
-                                        it.getCode(
+                                    val enable2faCallMethod = withContext(AuthHandlerDispatcher) {
+                                        session.getTwoFactorConfig(
                                             network = network,
-                                            enable2faCallMethod = session.getTwoFactorConfig(
-                                                network = network,
-                                                useCache = true
-                                            ).enabledMethods.let { it.size == 1 && it.firstOrNull() == "sms" },
-                                            authHandlerStatus = authHandlerStatus
-                                        ).await()
-                                    })
+                                            useCache = true
+                                        ).enabledMethods.let { it.size == 1 && it.firstOrNull() == "sms" }
+                                    }
+
+                                    it.getCode(
+                                        network = network,
+                                        enable2faCallMethod = enable2faCallMethod,
+                                        authHandlerStatus = authHandlerStatus
+                                    ).await()
+                                } catch (e: CancellationException) {
+                                    throw e
                                 } catch (e: Exception) {
                                     throw Exception("id_action_canceled")
                                 }
@@ -107,11 +130,17 @@ class AuthHandler constructor(
                                 throw RuntimeException("TwoFactorCodeResolver was not provided")
                             }
                         } else {
-                            hardwareWalletResolverOrDefault(hardwareWalletResolver)?.also {
-                                val dataFromDevice: String?
-
+                            hardwareWalletResolverOrDefault(hardwareWalletResolver)?.let {
+                                var request: CompletableDeferred<String>? = null
                                 try {
-                                    dataFromDevice = runBlocking{ it.requestDataFromDevice(network, authHandlerStatus.requiredData).await() }
+                                    // Device I/O blocks until the user acts on the device, keep it off the bounded dispatcher
+                                    withContext(Dispatchers.IO) {
+                                        it.requestDataFromDevice(network, authHandlerStatus.requiredData)
+                                    }.also { request = it }.await()
+                                } catch (e: CancellationException) {
+                                    // Drop the request if the device hasn't started it yet
+                                    request?.cancel()
+                                    throw e
                                 } catch (e: Exception){
                                     // eg. signing a message in Trezor on testnet network
                                     if(e.message?.lowercase()?.contains("cancelled") == true){
@@ -120,16 +149,14 @@ class AuthHandler constructor(
                                         throw e
                                     }
                                 }
-
-                                try {
-                                    resolveCode(dataFromDevice)
-                                }catch (e: Exception){
-                                    throw e
-                                }
                             } ?: run {
                                 throw RuntimeException("TwoFactorCodeResolver was not provided")
                             }
                         }
+
+                        withContext(AuthHandlerDispatcher) {
+                            resolveCode(code)
+                        }
                     }
                     ERROR -> {
                         isCompleted = true
@@ -137,7 +164,7 @@ class AuthHandler constructor(
                     }
                     DONE -> {
                         isCompleted = true
-                        result = authHandlerStatus.result
+                        rawResult = authHandlerStatus.rawResult
                     }
                 }
             }
@@ -149,6 +176,28 @@ class AuthHandler constructor(
         return this
     }
 
+    // Blocking variant for callers outside of a coroutine
+    fun resolve(
+        twoFactorResolver: TwoFactorResolver? = null,
+        hardwareWalletResolver: HardwareWalletResolver? = null,
+        bcurResolver: BcurResolver? = null
+    ): AuthHandler = runBlocking {
+        awaitResolve(twoFactorResolver, hardwareWalletResolver, bcurResolver)
+    }
+
+    suspend inline fun <reified T> awaitResult(
+        twoFactorResolver: TwoFactorResolver? = null,
+        hardwareWalletResolver: HardwareWalletResolver? = null,
+        bcurResolver: BcurResolver? = null
+    ): T {
+        if (!isCompleted) {
+            awaitResolve(twoFactorResolver, hardwareWalletResolverOrDefault(hardwareWalletResolver), bcurResolver)
+        }
+
+        return decodeResult()
+    }
+
+    // Blocking variant for callers outside of a coroutine
     inline fun <reified T> result(
         twoFactorResolver: TwoFactorResolver? = null,
         hardwareWalletResolver: HardwareWalletResolver? = null,
@@ -158,10 +207,16 @@ class AuthHandler constructor(
             resolve(twoFactorResolver, hardwareWalletResolverOrDefault(hardwareWalletResolver), bcurResolver)
         }
 
-        return result?.let { result ->
-            JsonDeserializer.decodeFromJsonElement<T>(result).let{
+        return decodeResult()
+    }
+
+    @PublishedApi
+    internal inline fun <reified T> decodeResult(): T {
+        // Decoded straight from the GDK json, the tree is only parsed if the json is accessed
+        return rawResult?.let { rawResult ->
+            rawResult.decode<T>().let{
                 if(it is GreenJson<*> && it.keepJsonElement()) {
-                    it.jsonElement = result
+                    it.setLazyJsonElement { rawResult.jsonElement }
                 }
                 it
             }
@@ -169,6 +224,12 @@ class AuthHandler constructor(
     }
 
     companion object {
+        // Bounds the threads polling and calling GDK on behalf of auth handlers
+        private const val AUTH_HANDLER_PARALLELISM = 4
+
+        @OptIn(ExperimentalCoroutinesApi::class)
+        private val AuthHandlerDispatcher = Dispatchers.IO.limitedParallelism(AUTH_HANDLER_PARALLELISM)
+
         const val CALL = "call"
         const val DONE = "done"
         const val ERROR = "error"
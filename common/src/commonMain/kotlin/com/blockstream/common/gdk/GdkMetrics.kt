@@ -0,0 +1,244 @@
+package com.blockstream.common.gdk
+
+import co.touchlab.stately.collections.ConcurrentMutableMap
+import com.blockstream.common.gdk.data.GdkCallStats
+import com.blockstream.common.gdk.data.GdkMetricsSnapshot
+import kotlinx.datetime.Clock
+import kotlin.math.ceil
+import kotlin.time.TimeMark
+import kotlin.time.TimeSource
+
+data class GdkCall(
+    val method: String,
+    val network: String?,
+    val startTimestampMs: Long,
+    val durationMs: Long,
+    val payloadBytes: Long,
+    val isError: Boolean
+)
+
+/*
+ * Latency histogram with exponential buckets, each one ~19% wider than the previous, from 10µs to 10
+ * minutes. Percentiles are reported as the upper bound of their bucket.
+ */
+internal class LatencyHistogram {
+    private val counts = LongArray(BOUNDS.size + 1)
+
+    var count: Long = 0
+        private set
+
+    fun record(micros: Long) {
+        counts[bucket(micros)]++
+        count++
+    }
+
+    fun reset() {
+        counts.fill(0)
+        count = 0
+    }
+
+    fun percentile(percentile: Double, maxMicros: Long): Long {
+        if (count == 0L) return 0
+
+        val rank = ceil(percentile * count).toLong().coerceIn(1, count)
+        var cumulative = 0L
+        for (i in counts.indices) {
+            cumulative += counts[i]
+            if (cumulative >= rank) {
+                return if (i < BOUNDS.size) minOf(BOUNDS[i], maxMicros) else maxMicros
+            }
+        }
+        return maxMicros
+    }
+
+    companion object {
+        private const val MIN_MICROS = 10.0
+        private const val MAX_MICROS = 600_000_000.0
+        private const val GROWTH = 1.19
+
+        // Inclusive upper bound of each bucket
+        val BOUNDS: LongArray = generateSequence(MIN_MICROS) { it * GROWTH }
+            .takeWhile { it < MAX_MICROS * GROWTH }
+            .map { it.toLong() }
+            .toList()
+            .toLongArray()
+
+        fun bucket(micros: Long): Int {
+            var low = 0
+            var high = BOUNDS.size
+            while (low < high) {
+                val mid = (low + high) ushr 1
+                if (BOUNDS[mid] < micros) low = mid + 1 else high = mid
+            }
+            return low
+        }
+    }
+}
+
+/*
+ * Call counts, latencies, result payload sizes and concurrency of GDK calls, per method and per network.
+ *
+ * Fed by InstrumentedGdkBinding. Auth handler calls are accounted to the method that created the handler,
+ * eg. get_transactions/call, and get_transactions/total spans the handler from creation to destruction,
+ * including the time spent waiting on resolvers.
+ */
+class GdkMetrics {
+    private data class Key(val method: String, val network: String?)
+
+    private class Stats {
+        var count = 0L
+        var errors = 0L
+        var inFlight = 0
+        var maxInFlight = 0
+        var totalMicros = 0L
+        var maxMicros = 0L
+        var payloadBytes = 0L
+        var maxPayloadBytes = 0L
+        val histogram = LatencyHistogram()
+    }
+
+    private class AuthHandlerOrigin(val method: String, val network: String?, val createdAt: TimeMark, val createdAtMs: Long)
+
+    private val stats = ConcurrentMutableMap<Key, Stats>()
+
+    private val sessionNetworks = ConcurrentMutableMap<GASession, String>()
+
+    private val authHandlers = ConcurrentMutableMap<GAAuthHandler, AuthHandlerOrigin>()
+
+    private var startedAt = Clock.System.now().toEpochMilliseconds()
+
+    // Forward each call to apmListener, eg. Countly
+    var isApmForwardingEnabled = false
+
+    var apmListener: ((GdkCall) -> Unit)? = null
+
+    fun setSessionNetwork(session: GASession, network: String) {
+        sessionNetworks[session] = network
+    }
+
+    fun removeSession(session: GASession) {
+        sessionNetworks.remove(session)
+    }
+
+    fun network(session: GASession?): String? = session?.let { sessionNetworks[it] }
+
+    // payloadBytes gives the size of the result, eg. the json of an auth handler result
+    fun <T> measure(method: String, network: String?, payloadBytes: ((T) -> Long)? = null, block: () -> T): T {
+        val key = Key(method, network)
+        val startedAtMs = Clock.System.now().toEpochMilliseconds()
+
+        stats.block { map ->
+            map.getOrPut(key) { Stats() }.apply {
+                inFlight++
+                maxInFlight = maxOf(maxInFlight, inFlight)
+            }
+        }
+
+        val mark = TimeSource.Monotonic.markNow()
+        var bytes = 0L
+        var isError = true
+        try {
+            return block().also {
+                bytes = payloadBytes?.invoke(it) ?: 0
+                isError = false
+            }
+        } finally {
+            val micros = mark.elapsedNow().inWholeMicroseconds
+            stats.block { map ->
+                map.getValue(key).apply {
+                    inFlight--
+                    record(micros, bytes, isError)
+                }
+            }
+            forward(method, network, startedAtMs, micros, bytes, isError)
+        }
+    }
+
+    fun trackAuthHandler(authHandler: GAAuthHandler, method: String, network: String?) {
+        authHandlers[authHandler] = AuthHandlerOrigin(method, network, TimeSource.Monotonic.markNow(), Clock.System.now().toEpochMilliseconds())
+    }
+
+    // The method and network the auth handler was created for
+    fun authHandlerOrigin(authHandler: GAAuthHandler): Pair<String, String?> {
+        return authHandlers[authHandler]?.let { it.method to it.network } ?: (UNKNOWN_AUTH_HANDLER to null)
+    }
+
+    fun untrackAuthHandler(authHandler: GAAuthHandler) {
+        authHandlers.remove(authHandler)?.also { origin ->
+            val method = "${origin.method}/total"
+            val micros = origin.createdAt.elapsedNow().inWholeMicroseconds
+            stats.block { map ->
+                map.getOrPut(Key(method, origin.network)) { Stats() }.record(micros, 0, isError = false)
+            }
+            forward(method, origin.network, origin.createdAtMs, micros, 0, false)
+        }
+    }
+
+    fun snapshot(): GdkMetricsSnapshot {
+        val calls = stats.block { map ->
+            map.map { (key, stats) ->
+                GdkCallStats(
+                    method = key.method,
+                    network = key.network,
+                    count = stats.count,
+                    errors = stats.errors,
+                    inFlight = stats.inFlight,
+                    maxInFlight = stats.maxInFlight,
+                    totalMs = stats.totalMicros / 1000,
+                    p50Ms = stats.histogram.percentile(0.50, stats.maxMicros) / 1000.0,
+                    p95Ms = stats.histogram.percentile(0.95, stats.maxMicros) / 1000.0,
+                    p99Ms = stats.histogram.percentile(0.99, stats.maxMicros) / 1000.0,
+                    maxMs = stats.maxMicros / 1000.0,
+                    payloadBytes = stats.payloadBytes,
+                    maxPayloadBytes = stats.maxPayloadBytes
+                )
+            }
+        }
+
+        return GdkMetricsSnapshot(
+            startedAt = startedAt,
+            createdAt = Clock.System.now().toEpochMilliseconds(),
+            calls = calls.sortedWith(compareBy({ it.method }, { it.network }))
+        )
+    }
+
+    fun reset() {
+        stats.block { map ->
+            // Keep the calls in flight, so that they can complete
+            map.entries.removeAll { it.value.inFlight == 0 }
+            map.values.forEach { it.reset() }
+        }
+        startedAt = Clock.System.now().toEpochMilliseconds()
+    }
+
+    private fun Stats.record(micros: Long, bytes: Long, isError: Boolean) {
+        count++
+        if (isError) errors++
+        totalMicros += micros
+        maxMicros = maxOf(maxMicros, micros)
+        histogram.record(micros)
+        payloadBytes += bytes
+        maxPayloadBytes = maxOf(maxPayloadBytes, bytes)
+    }
+
+    private fun Stats.reset() {
+        count = 0
+        errors = 0
+        maxInFlight = inFlight
+        totalMicros = 0
+        maxMicros = 0
+        payloadBytes = 0
+        maxPayloadBytes = 0
+        histogram.reset()
+    }
+
+    private fun forward(method: String, network: String?, startTimestampMs: Long, micros: Long, payloadBytes: Long, isError: Boolean) {
+        if (isApmForwardingEnabled) {
+            apmListener?.invoke(GdkCall(method, network, startTimestampMs, micros / 1000, payloadBytes, isError))
+        }
+    }
+
+    companion object {
+        const val UNKNOWN_AUTH_HANDLER = "auth_handler"
+    }
+}
@@ -9,13 +9,19 @@ import breez_sdk.SwapInfo
 import co.touchlab.kermit.Logger
 import com.blockstream.common.BTC_POLICY_ASSET
 import com.blockstream.common.CountlyBase
+import com.blockstream.common.crypto.GreenKeystore
 import com.blockstream.common.data.CountlyAsset
 import com.blockstream.common.data.EnrichedAsset
 import com.blockstream.common.data.ErrorReport
 import com.blockstream.common.data.ExceptionWithErrorReport
 import com.blockstream.common.data.GreenWallet
 import com.blockstream.common.data.LogoutReason
+import com.blockstream.common.data.SnapshotAccount
+import com.blockstream.common.data.SnapshotTransaction
+import com.blockstream.common.data.WalletSnapshotData
+import com.blockstream.common.data.XpubCacheData
 import com.blockstream.common.data.WatchOnlyCredentials
+import com.blockstream.common.database.Database
 import com.blockstream.common.database.LoginCredentials
 import com.blockstream.common.extensions.hasHistory
 import com.blockstream.common.extensions.isNotBlank
@@ -63,6 +69,7 @@ import com.blockstream.common.gdk.device.DeviceInterface
 import com.blockstream.common.gdk.device.DeviceState
 import com.blockstream.common.gdk.device.GdkHardwareWallet
 import com.blockstream.common.gdk.device.HardwareWalletInteraction
+import com.blockstream.common.gdk.device.XpubStore
 import com.blockstream.common.gdk.params.AssetsParams
 import com.blockstream.common.gdk.params.BalanceParams
 import com.blockstream.common.gdk.params.BcurDecodeParams
@@ -112,11 +119,13 @@ import com.blockstream.common.managers.AssetsProvider
 import com.blockstream.common.managers.NetworkAssetManager
 import com.blockstream.common.managers.SessionManager
 import com.blockstream.common.managers.SettingsManager
+import com.blockstream.common.utils.AmountConverter
 import com.blockstream.common.utils.Loggable
 import com.blockstream.common.utils.server
 import com.blockstream.common.utils.toAmountLook
 import com.blockstream.common.utils.toHex
 import com.rickclephas.kmp.nativecoroutines.NativeCoroutinesIgnore
+import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.CoroutineDispatcher
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.CoroutineStart
@@ -129,6 +138,7 @@ import kotlinx.coroutines.cancel
 import kotlinx.coroutines.cancelChildren
 import kotlinx.coroutines.channels.BufferOverflow
 import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
@@ -138,11 +148,15 @@ import kotlinx.coroutines.flow.drop
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.flow.receiveAsFlow
+import kotlinx.coroutines.flow.update
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.plus
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.supervisorScope
 import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.Semaphore
 import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.sync.withPermit
 import kotlinx.coroutines.withContext
 import kotlinx.serialization.json.JsonElement
 import kotlinx.serialization.json.add
@@ -168,7 +182,9 @@ class GdkSession constructor(
     private val assetManager: AssetManager,
     private val gdk: Gdk,
     private val wally: Wally,
-    private val countly: CountlyBase
+    private val countly: CountlyBase,
+    private val database: Database,
+    private val greenKeystore: GreenKeystore
 ) : HttpRequestHandler, HttpRequestProvider, AssetsProvider {
     fun createScope(dispatcher: CoroutineDispatcher = Dispatchers.Default) = CoroutineScope(SupervisorJob() + dispatcher + logException(countly))
 
@@ -199,12 +215,14 @@ class GdkSession constructor(
     private var _accountTransactionsStateFlow = mutableMapOf<AccountId, MutableStateFlow<List<Transaction>>>()
     private var _accountTransactionsPagerSharedFlow = mutableMapOf<AccountId, MutableSharedFlow<Boolean>>()
     private var _twoFactorConfigCache = mutableMapOf<Network, TwoFactorConfig>()
+    private val _utxoSnapshotCache = UtxoSnapshotCache<UnspentOutputs>()
     private var _blockStateFlow = mutableMapOf<Network, MutableStateFlow<Block>>()
     private var _settingsStateFlow = mutableMapOf<Network, MutableStateFlow<Settings?>>()
     private var _twoFactorResetStateFlow = mutableMapOf<Network, MutableStateFlow<TwoFactorReset?>>()
     private var _networkEventsStateFlow = mutableMapOf<Network, MutableStateFlow<NetworkEvent?>>()
     private val _networkErrors: Channel<Pair<Network, NetworkEvent>> = Channel()
     private var _failedNetworksStateFlow: MutableStateFlow<List<Network>> = MutableStateFlow(listOf())
+    private val _failedBalancesStateFlow: MutableStateFlow<Set<Network>> = MutableStateFlow(setOf())
     private var _systemMessageStateFlow : MutableStateFlow<List<Pair<Network, String>>> = MutableStateFlow(listOf())
     private var _allAccountsStateFlow = MutableStateFlow<List<Account>>(listOf())
     private var _accountsStateFlow = MutableStateFlow<List<Account>>(listOf())
@@ -220,6 +238,15 @@ class GdkSession constructor(
     var logoutReason: LogoutReason? = null
         private set
 
+    // Wallet whose snapshot is restored on login and kept up to date, null if it shouldn't be persisted
+    private var snapshotWalletId: String? = null
+    private val snapshotMutex = Mutex()
+    // Snapshot updates of a refresh are merged into a single write
+    private val _snapshotRequests = MutableSharedFlow<Unit>(extraBufferCapacity = 1, onBufferOverflow = BufferOverflow.DROP_OLDEST)
+
+    // Wallet the xpubs of the connected hardware wallet are persisted for, null if not persisted
+    private var xpubCacheWalletId: String? = null
+
     private fun networkEventsStateFlow(network: Network) = _networkEventsStateFlow.getOrPut(network) { MutableStateFlow(null) }
 
     private fun twoFactorResetStateFlow(network: Network) = _twoFactorResetStateFlow.getOrPut(network) { MutableStateFlow(null) }
@@ -263,6 +290,9 @@ class GdkSession constructor(
 
     val failedNetworks get() = _failedNetworksStateFlow.asStateFlow()
 
+    // Networks whose last balance update failed
+    val failedBalances get() = _failedBalancesStateFlow.asStateFlow()
+
     val systemMessage get() = _systemMessageStateFlow.asStateFlow()
 
     val allAccounts : StateFlow<List<Account>> get() = _allAccountsStateFlow.asStateFlow()
@@ -429,6 +459,26 @@ class GdkSession constructor(
 
     private val _tempAllowedServers = mutableListOf<String>()
 
+    private val amountConverter = AmountConverter()
+
+    // Merges the refreshes requested by bursts of block/transaction notifications
+    private val notificationRefreshScheduler = RefreshScheduler<Account>(scope = scope, key = { it.id }, onError = {
+        it.printStackTrace()
+        countly.recordException(it)
+    }) { kind, accounts ->
+        if (!isConnected) return@RefreshScheduler
+
+        when (kind) {
+            RefreshKind.ACCOUNT_TRANSACTIONS -> (accounts ?: this.accounts.value).forEach {
+                getTransactions(account = it, isReset = false, isLoadMore = false)
+            }
+            RefreshKind.BALANCES -> updateAccountsAndBalances(updateBalancesForAccounts = accounts)
+            RefreshKind.WALLET_TRANSACTIONS -> updateWalletTransactions(updateForAccounts = accounts)
+        }
+    }
+
+    val refreshStats: StateFlow<RefreshStats> get() = notificationRefreshScheduler.stats
+
     init {
         _accountsAndBalanceUpdatedSharedFlow.onEach {
             var walletBalance = 0L
@@ -447,6 +497,11 @@ class GdkSession constructor(
         isConnectedState.drop(1).onEach {
             sessionManager.fireConnectionChangeEvent()
         }.launchIn(scope)
+
+        _snapshotRequests.onEach {
+            delay(SNAPSHOT_DELAY)
+            writeSnapshot()
+        }.launchIn(scope + Dispatchers.IO + logException(countly))
     }
 
     private fun authHandler(network: Network, gaAuthHandler: GAAuthHandler): AuthHandler =
@@ -692,6 +747,7 @@ class GdkSession constructor(
         _accountAssetStateFlow.value = listOf()
         _systemMessageStateFlow.value = listOf()
         _failedNetworksStateFlow.value = listOf()
+        _failedBalancesStateFlow.value = setOf()
 
         _blockStateFlow = mutableMapOf()
         _settingsStateFlow = mutableMapOf()
@@ -709,6 +765,7 @@ class GdkSession constructor(
 
         // Clear Cache
         _twoFactorConfigCache = mutableMapOf()
+        _utxoSnapshotCache.clear()
 
         _walletHasHistorySharedFlow.value = false
 
@@ -728,6 +785,11 @@ class GdkSession constructor(
 
         _tempAllowedServers.clear()
 
+        amountConverter.clear()
+
+        snapshotWalletId = null
+        xpubCacheWalletId = null
+
         _walletActiveEventInvalidated = true
         _accountEmptiedEvent = null
 
@@ -1234,6 +1296,9 @@ class GdkSession constructor(
         this.isWatchOnly = loginCredentialsParams.isWatchOnly
         this.device = device
 
+        // Ephemeral (bip39 passphrase) wallets leave no trace, nor is the snapshot stored without a keystore
+        snapshotWalletId = wallet?.takeIf { !it.isEphemeral && initializeSession && greenKeystore.isSecure() }?.id
+
         _disableNotificationHandling = true
         _walletActiveEventInvalidated = true
 
@@ -1242,6 +1307,16 @@ class GdkSession constructor(
             initNetworks = initNetworks,
         )
 
+        device?.gdkHardwareWallet?.also {
+            // Ephemeral (bip39 passphrase) wallets leave no trace, nor are xpubs stored without a keystore
+            restoreXpubStore(
+                gdkHwWallet = it,
+                network = prominentNetwork,
+                hwInteraction = hwInteraction,
+                walletId = wallet?.takeIf { !it.isEphemeral && greenKeystore.isSecure() }?.id
+            )
+        }
+
         device?.deviceState?.onEach {
             // Device went offline
             if(it == DeviceState.DISCONNECTED){
@@ -1295,7 +1370,16 @@ class GdkSession constructor(
                     val hasGdkCache = if(isHardwareWallet || loginCredentialsParams.mnemonic.isNotBlank()){
                         try {
                             gdk.hasGdkCache(
-                                getWalletIdentifier(
+                                gdkHwWallet?.let {
+                                    // The master xpub may be requested from the device
+                                    it.requestArbiter.request(name = "get_wallet_identifier") {
+                                        getWalletIdentifier(
+                                            network = network,
+                                            loginCredentialsParams = loginCredentialsParams,
+                                            hwInteraction = hwInteraction
+                                        )
+                                    }
+                                } ?: getWalletIdentifier(
                                     network = network,
                                     loginCredentialsParams = loginCredentialsParams,
                                     hwInteraction = hwInteraction
@@ -1329,7 +1413,7 @@ class GdkSession constructor(
                             deviceParams = deviceParams,
                             loginCredentialsParams = loginCredentialsParams
                         )
-                    ).result<LoginData>(hardwareWalletResolver = hardwareWalletResolver).also { loginData ->
+                    ).awaitResult<LoginData>(hardwareWalletResolver = hardwareWalletResolver).also { loginData ->
                         // Mark it as active
                         activeSessions.add(network)
 
@@ -1430,18 +1514,14 @@ class GdkSession constructor(
 
             null
         })).let { list ->
-            list.let { deferred ->
-                if(isHardwareWallet){ // On hardware connection in series to avoid any race condition with the hw api
-                    deferred.map { it.await() }
-                }else{
-                    deferred.awaitAll()
-                }
-            }
+            // Device requests of hardware logins are serialized by the gdkHwWallet requestArbiter
+            list.awaitAll()
             .filterNotNull()
             .let {
                 it.firstOrNull() ?: throw exceptions.first() // Throw if all networks failed
             }.also{
                 _failedNetworksStateFlow.value = _failedNetworksStateFlow.value + failedNetworkLogins
+                saveXpubStore()
                 onLoginSuccess(
                     loginData = it,
                     initAccount = initAccount,
@@ -1452,6 +1532,91 @@ class GdkSession constructor(
         }
     }
 
+    // Verify the device fingerprint with a freshly fetched master xpub and attach the xpubs persisted for it
+    private suspend fun restoreXpubStore(
+        gdkHwWallet: GdkHardwareWallet,
+        network: Network,
+        hwInteraction: HardwareWalletInteraction?,
+        walletId: String?
+    ) {
+        try {
+            val masterXpub = getMasterXpub(gdkHwWallet, network, hwInteraction)
+
+            val fingerprint = wally.bip32Fingerprint(masterXpub) ?: return
+
+            val persisted = if (walletId != null) {
+                database.getXpubCache(walletId = walletId, fingerprint = fingerprint).mapNotNull { row ->
+                    try {
+                        XpubCacheData.fromString(greenKeystore.decryptData(row.encrypted_data).decodeToString())?.let {
+                            row.network to it.xpubs
+                        }
+                    } catch (e: Exception) {
+                        // Keystore key may have been invalidated, it will be overwritten
+                        e.printStackTrace()
+                        null
+                    }
+                }.toMap()
+            } else {
+                mapOf()
+            }
+
+            // Each network is trusted only if the device returns the same master xpub for it
+            val masterXpubs = mapOf(network.id to masterXpub) + persisted.keys.filter { it != network.id }.mapNotNull { id ->
+                try {
+                    getMasterXpub(gdkHwWallet, networks.getNetworkById(id), hwInteraction).takeIf {
+                        wally.bip32Fingerprint(it) == fingerprint
+                    }?.let { id to it }
+                } catch (e: Exception) {
+                    // Network not available on the device, eg. Ledger app of another chain
+                    e.printStackTrace()
+                    null
+                }
+            }
+
+            gdkHwWallet.xpubStore = XpubStore.restore(
+                fingerprint = fingerprint,
+                masterXpubs = masterXpubs,
+                persisted = persisted
+            ).also {
+                Logger.d { "Restored ${it.size} xpubs for device $fingerprint" }
+            }
+
+            xpubCacheWalletId = walletId
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
+    private suspend fun getMasterXpub(
+        gdkHwWallet: GdkHardwareWallet,
+        network: Network,
+        hwInteraction: HardwareWalletInteraction?
+    ): String = gdkHwWallet.requestArbiter.request(name = "get_master_xpub") {
+        gdkHwWallet.getXpubs(network, hwInteraction, listOf(listOf())).first()
+    }
+
+    private fun saveXpubStore() {
+        val walletId = xpubCacheWalletId ?: return
+        val store = gdkHwWallet?.xpubStore ?: return
+
+        scope.launch(context = Dispatchers.IO + logException(countly)) {
+            store.takeDirty().forEach { network ->
+                try {
+                    database.replaceXpubCache(
+                        walletId = walletId,
+                        fingerprint = store.fingerprint,
+                        network = network,
+                        encryptedData = greenKeystore.encryptData(
+                            XpubCacheData(xpubs = store.xpubs(network)).toJson().encodeToByteArray()
+                        )
+                    )
+                } catch (e: Exception) {
+                    e.printStackTrace()
+                }
+            }
+        }
+    }
+
     private suspend fun connectToGreenlight(mnemonic: String, checkCredentials: Boolean = false, quickResponse: Boolean = false){
         Logger.i { "Login into ${lightning?.id}" }
 
@@ -1502,6 +1667,8 @@ class GdkSession constructor(
 
         if(initializeSession) {
             countly.activeWalletStart()
+            // Show the last known state while GDK data is fetched
+            restoreSnapshot()
             initializeSessionData(initNetwork, initAccount)
         }
 
@@ -1555,6 +1722,110 @@ class GdkSession constructor(
         updateWalletTransactions()
     }
 
+    private suspend fun restoreSnapshot() {
+        val walletId = snapshotWalletId ?: return
+
+        try {
+            val snapshot = database.getWalletSnapshot(walletId)?.encrypted_data?.let {
+                WalletSnapshotData.fromString(greenKeystore.decryptData(it).decodeToString())
+            } ?: return
+
+            // Only restore accounts of networks we are logged in
+            val restoredAccounts = snapshot.accounts.mapNotNull { snapshotAccount ->
+                activeSessions.find { it.id == snapshotAccount.network }?.let { network ->
+                    snapshotAccount to snapshotAccount.account.copy(networkInjected = network)
+                }
+            }
+
+            if (restoredAccounts.isEmpty()) return
+
+            restoredAccounts.forEach { (snapshotAccount, account) ->
+                snapshotAccount.assets?.also {
+                    accountAssetsStateFlow(account).value = Assets(it)
+                }
+
+                if (snapshotAccount.transactions.isNotEmpty()) {
+                    accountTransactionsStateFlow(account).value = snapshotAccount.transactions.map {
+                        it.copy(accountInjected = account)
+                    }
+                }
+            }
+
+            val allAccounts = restoredAccounts.map { it.second }
+            _allAccountsStateFlow.value = allAccounts
+            _accountsStateFlow.value = allAccounts.filter { !it.hidden }
+
+            _accountAssetStateFlow.value = accounts.value.flatMap {
+                accountAssets(it).value.toAccountAsset(it)
+            }.sortedWith(::sortAccountAssets)
+
+            _walletAssetsFlow.value = Assets(snapshot.walletAssets)
+            _walletTotalBalanceSharedFlow.value = accounts.value.sumOf { accountAssets(it).value.policyAsset }
+
+            val accountsById = allAccounts.associateBy { it.id }
+            _walletTransactionsStateFlow.value = snapshot.walletTransactions.mapNotNull { snapshotTransaction ->
+                accountsById[snapshotTransaction.accountId]?.let {
+                    snapshotTransaction.transaction.copy(accountInjected = it)
+                }
+            }
+
+            if (_walletTransactionsStateFlow.value.isNotEmpty() || snapshot.walletAssets.values.sum() > 0L) {
+                _walletHasHistorySharedFlow.value = true
+            }
+        } catch (e: Exception) {
+            e.printStackTrace()
+            // Keystore key may have been invalidated, start over
+            database.deleteWalletSnapshot(walletId)
+        }
+    }
+
+    private fun saveSnapshot() {
+        if (snapshotWalletId == null) return
+        _snapshotRequests.tryEmit(Unit)
+    }
+
+    private suspend fun writeSnapshot() {
+        val walletId = snapshotWalletId ?: return
+
+        snapshotMutex.withLock {
+            // Session may have been disconnected in the meantime
+            if (!isConnected || walletId != snapshotWalletId) return@withLock
+
+            val accounts = allAccounts.value.filter { !it.isLightning }
+
+            if (accounts.isEmpty()) return@withLock
+
+            val snapshot = WalletSnapshotData(
+                accounts = accounts.map { account ->
+                    SnapshotAccount(
+                        network = account.networkId,
+                        account = account.copy(networkInjected = null),
+                        assets = accountAssets(account).value.assetsOrNull,
+                        transactions = accountTransactions(account).value
+                            .filter { !it.isLoadingTransaction }
+                            .take(TRANSACTIONS_PER_PAGE)
+                            .map { it.copy(accountInjected = null) }
+                    )
+                },
+                walletAssets = walletAssets.value.assets,
+                walletTransactions = walletTransactions.value.mapNotNull { transaction ->
+                    transaction.accountInjected?.takeIf { !it.isLightning && !transaction.isLoadingTransaction }?.let {
+                        SnapshotTransaction(accountId = it.id, transaction = transaction.copy(accountInjected = null))
+                    }
+                }
+            )
+
+            try {
+                database.replaceWalletSnapshot(
+                    walletId = walletId,
+                    encryptedData = greenKeystore.encryptData(snapshot.toJson().encodeToByteArray())
+                )
+            } catch (e: Exception) {
+                e.printStackTrace()
+            }
+        }
+    }
+
     fun updateLiquidAssets() {
         if (liquid != null) {
             networkAssetManager.updateAssetsIfNeeded(this)
@@ -1576,6 +1847,15 @@ class GdkSession constructor(
 
     fun setTransactionMemo(network: Network, txHash: String, memo: String) {
         gdk.setTransactionMemo(gdkSession(network), txHash, memo)
+
+        // Loaded transactions below the synced head are not fetched again
+        _accountTransactionsStateFlow.values.forEach { transactionsStateFlow ->
+            transactionsStateFlow.update { transactions ->
+                transactions.map {
+                    if (it.txHash == txHash && it.accountInjected?.network == network) it.copy(memo = memo) else it
+                }
+            }
+        }
     }
 
     fun getWalletIdentifier(
@@ -1588,7 +1868,7 @@ class GdkSession constructor(
         loginCredentialsParams = loginCredentialsParams?.takeIf { !it.mnemonic.isNullOrBlank() }
             ?: (gdkHwWallet ?: this.gdkHwWallet)?.let {
                 LoginCredentialsParams(
-                    masterXpub = it.getXpubs(network, hwInteraction, listOf(listOf())).first()
+                    masterXpub = it.getXpubsCached(network, hwInteraction, listOf(listOf())).first()
                 )
             }
             ?: loginCredentialsParams
@@ -1695,6 +1975,9 @@ class GdkSession constructor(
         }.also {
             _walletActiveEventInvalidated = true
 
+            // New account xpubs
+            saveXpubStore()
+
             // Update account list
             updateAccounts()
 
@@ -1905,47 +2188,38 @@ class GdkSession constructor(
                     // Update accounts
                     updateAccounts(refresh = refresh)
 
-                    for (account in this@GdkSession.allAccounts.value) {
-                        if((updateBalancesForAccounts == null && updateBalancesForNetwork == null) || updateBalancesForAccounts?.find { account.id == it.id } != null || account.network == updateBalancesForNetwork) {
-                            getBalance(account = account, cacheAssets = isInitialize).also {
-                                accountAssetsStateFlow(account).value = it
-                            }
-                        }
-                    }
-
-                    // Wallet Assets
-                    val walletAssets = linkedMapOf<String, Long>()
-
-                    // Fix for only LN + Liquid wallets when LN is not fully initialized.
-                    // The denomination Liquid based as we reside in the first key of _walletAssetsFlow to identify the main assetId
-                    if(hasLightning){
-                        walletAssets[BTC_POLICY_ASSET] = 0
+                    val accountsToUpdate = this@GdkSession.allAccounts.value.filter { account ->
+                        (updateBalancesForAccounts == null && updateBalancesForNetwork == null) || updateBalancesForAccounts?.find { account.id == it.id } != null || account.network == updateBalancesForNetwork
                     }
 
-                    accounts.value.forEach { account ->
-                        this@GdkSession.accountAssets(account).value.assets.forEach { (key, value) ->
-                            walletAssets[key] = (walletAssets[key] ?: 0) + value
-                        }
-                    }
-
-                    if(isInitialize) {
-                        // Cache wallet assets (again) + Enriched assets + liquid asset if network exists
-                        (walletAssets.keys +
-                                (enrichedAssets.value.takeIf { liquid != null }?.map { it.assetId } ?: emptyList()) +
-                                listOfNotNull(liquid?.policyAsset))
-                            .toSet().also {
-                                cacheAssets(it)
+                    // Fan out per network session, accounts of the same session are fetched in series.
+                    // Hardware wallets may have to resolve requests on the device, keep everything in series.
+                    val semaphore = Semaphore(if (isHardwareWallet) 1 else BALANCES_PARALLELISM)
+                    // A failing network is logged by logException and doesn't cancel the other networks
+                    supervisorScope {
+                        accountsToUpdate.groupBy { it.network }.forEach { (network, networkAccounts) ->
+                            launch(logException(countly)) {
+                                semaphore.withPermit {
+                                    try {
+                                        networkAccounts.forEach { account ->
+                                            getBalance(account = account, cacheAssets = isInitialize).also {
+                                                accountAssetsStateFlow(account).value = it
+                                            }
+
+                                            // Publish balances as they arrive
+                                            updateWalletAssets()
+                                        }
+                                        _failedBalancesStateFlow.update { it - network }
+                                    } catch (e: Exception) {
+                                        _failedBalancesStateFlow.update { it + network }
+                                        throw e
+                                    }
+                                }
                             }
+                        }
                     }
 
-
-                    walletAssets.toSortedLinkedHashMap(::sortAssets).also {
-                        _walletAssetsFlow.value = Assets(it)
-                    }
-
-                    val accountAndAssets = accounts.value.flatMap {
-                        this@GdkSession.accountAssets(it).value.toAccountAsset(it)
-                    }
+                    val walletAssets = updateWalletAssets(cacheAssets = isInitialize)
 
                     // Mark it if necessary
                     if(!walletHasHistory){
@@ -1954,9 +2228,9 @@ class GdkSession constructor(
                         }
                     }
 
-                    _accountAssetStateFlow.value = accountAndAssets.sortedWith(::sortAccountAssets)
-
                     _accountsAndBalanceUpdatedSharedFlow.emit(Unit)
+
+                    saveSnapshot()
                 }
             } catch (e: Exception) {
                 e.printStackTrace()
@@ -1968,6 +2242,45 @@ class GdkSession constructor(
         }
     }
 
+    private val walletAssetsMutex = Mutex()
+    // Aggregate the account balances into the wallet assets and publish them
+    private suspend fun updateWalletAssets(cacheAssets: Boolean = false): Map<String, Long> = walletAssetsMutex.withLock {
+        // Wallet Assets
+        val walletAssets = linkedMapOf<String, Long>()
+
+        // Fix for only LN + Liquid wallets when LN is not fully initialized.
+        // The denomination Liquid based as we reside in the first key of _walletAssetsFlow to identify the main assetId
+        if(hasLightning){
+            walletAssets[BTC_POLICY_ASSET] = 0
+        }
+
+        accounts.value.forEach { account ->
+            this@GdkSession.accountAssets(account).value.assets.forEach { (key, value) ->
+                walletAssets[key] = (walletAssets[key] ?: 0) + value
+            }
+        }
+
+        if(cacheAssets) {
+            // Cache wallet assets (again) + Enriched assets + liquid asset if network exists
+            (walletAssets.keys +
+                    (enrichedAssets.value.takeIf { liquid != null }?.map { it.assetId } ?: emptyList()) +
+                    listOfNotNull(liquid?.policyAsset))
+                .toSet().also {
+                    cacheAssets(it)
+                }
+        }
+
+        walletAssets.toSortedLinkedHashMap(::sortAssets).also {
+            _walletAssetsFlow.value = Assets(it)
+        }
+
+        _accountAssetStateFlow.value = accounts.value.flatMap {
+            this@GdkSession.accountAssets(it).value.toAccountAsset(it)
+        }.sortedWith(::sortAccountAssets)
+
+        walletAssets
+    }
+
     private val transactionsMutex = Mutex()
     fun getTransactions(account: Account, isReset : Boolean, isLoadMore: Boolean) {
         scope.launch(context = Dispatchers.IO + logException(countly)) {
@@ -1984,6 +2297,12 @@ class GdkSession constructor(
                         }
                     }
 
+                    // Refresh of an already loaded list, fetch only the new head and merge it
+                    if (!isReset && !isLoadMore && txSize > 0 && !account.isLightning) {
+                        syncTransactions(account, txSize)
+                        return@withLock
+                    }
+
                     var offset = 0
 
                     if (isReset) {
@@ -2018,6 +2337,44 @@ class GdkSession constructor(
         }
     }
 
+    // Fetch pages from the top until the already loaded list is reached and merge them into it
+    private suspend fun syncTransactions(account: Account, txSize: Int) {
+        val transactionsStateFlow = accountTransactionsStateFlow(account)
+        val existing = transactionsStateFlow.value.associateBy { it.txHash }
+        val tipHeight = blockStateFlow(account.network).value.height
+
+        val head = mutableListOf<Transaction>()
+        var isEndOfList = false
+        var isComplete = false
+
+        while (head.size < txSize + TRANSACTIONS_PER_PAGE) {
+            val page = getTransactions(
+                account,
+                TransactionParams(subaccount = account.pointer, offset = head.size, limit = TRANSACTIONS_PER_PAGE)
+            ).transactions
+
+            head += page
+
+            isEndOfList = page.size < TRANSACTIONS_PER_PAGE
+            if (isEndOfList || TransactionsSync.isSynced(existing = existing, head = head, tipHeight = tipHeight)) {
+                isComplete = true
+                break
+            }
+        }
+
+        if (isComplete) {
+            TransactionsSync.merge(existing = transactionsStateFlow.value, head = head, isEndOfList = isEndOfList).also {
+                // Leave the list untouched if nothing visible changed
+                if (!it.diff.isEmpty) {
+                    transactionsStateFlow.value = it.transactions
+                }
+            }
+        } else {
+            // Nothing in common with the loaded list, replace it
+            transactionsStateFlow.value = head
+        }
+    }
+
     private val walletTransactionsMutex = Mutex()
     private val _walletTransactions = mutableMapOf<AccountId, List<Transaction>>()
     fun updateWalletTransactions(updateForNetwork: Network? = null, updateForAccounts: Collection<Account>? = null) {
@@ -2064,6 +2421,8 @@ class GdkSession constructor(
                         _walletHasHistorySharedFlow.value = true
                     }
                     _walletTransactionsStateFlow.value = walletTransactions
+
+                    saveSnapshot()
                 }
 
             } catch (e: Exception) {
@@ -2287,7 +2646,15 @@ class GdkSession constructor(
                 }
                 gdk.convertAmount(gdkSession(network), convert, jsonElement)
             } else {
-                gdk.convertAmount(gdkSession(network), convert)
+                val pricing = getSettings(network)?.pricing
+
+                // Convert locally if possible, else use GDK and learn its exchange rate
+                (if (isAsset || convert.asset == null) amountConverter.convert(convert, pricing?.currency, pricing?.exchange) else null)
+                    ?: gdk.convertAmount(gdkSession(network), convert).also {
+                        if (!isAsset && it.isCurrent != false) {
+                            amountConverter.updateRate(it.fiatCurrency, pricing?.exchange, it.fiatRate)
+                        }
+                    }
             }
         }
     } catch (e: Exception) {
@@ -2313,11 +2680,20 @@ class GdkSession constructor(
         it.fillUtxosJsonElement()
     }
 
-    fun getUnspentOutputs(account: Account, isBump: Boolean = false): UnspentOutputs {
-        return getUnspentOutputs(account.network, BalanceParams(
+    // useCache reuses the account snapshot until a transaction or block notification invalidates it
+    fun getUnspentOutputs(account: Account, isBump: Boolean = false, useCache: Boolean = false): UnspentOutputs {
+        val params = BalanceParams(
             subaccount = account.pointer,
-            confirmations = if(isBump) 1 else 0)
+            confirmations = if(isBump) 1 else 0
         )
+
+        if(!useCache){
+            return getUnspentOutputs(account.network, params)
+        }
+
+        return _utxoSnapshotCache.getOrFetch(account.networkId, account.id, params.confirmations) {
+            getUnspentOutputs(account.network, params)
+        }
     }
 
     fun getUnspentOutputs(accounts: List<Account>): UnspentOutputs {
@@ -2340,7 +2716,7 @@ class GdkSession constructor(
         } else authHandler(
             network,
             gdk.createTransaction(gdkSession(network), params)
-        ).result<CreateTransaction>()
+        ).awaitResult<CreateTransaction>()
 
     private suspend fun generateLightningError(
         account: Account,
@@ -2431,34 +2807,34 @@ class GdkSession constructor(
         }
     }
 
-    fun createSwapTransaction(network: Network, params: CreateSwapParams, twoFactorResolver: TwoFactorResolver) = authHandler(
+    suspend fun createSwapTransaction(network: Network, params: CreateSwapParams, twoFactorResolver: TwoFactorResolver) = authHandler(
         network,
         gdk.createSwapTransaction(gdkSession(network), params)
-    ).result<CreateSwapTransaction>(twoFactorResolver = twoFactorResolver)
+    ).awaitResult<CreateSwapTransaction>(twoFactorResolver = twoFactorResolver)
 
-    fun completeSwapTransaction(network: Network, params: CompleteSwapParams, twoFactorResolver: TwoFactorResolver) = authHandler(
+    suspend fun completeSwapTransaction(network: Network, params: CompleteSwapParams, twoFactorResolver: TwoFactorResolver) = authHandler(
         network,
         gdk.completeSwapTransaction(gdkSession(network), params)
-    ).result<CreateTransaction>(twoFactorResolver = twoFactorResolver)
+    ).awaitResult<CreateTransaction>(twoFactorResolver = twoFactorResolver)
 
-    fun signMessage(network: Network, params: SignMessageParams, hardwareWalletResolver: HardwareWalletResolver? = null): SignMessage = authHandler(
+    suspend fun signMessage(network: Network, params: SignMessageParams, hardwareWalletResolver: HardwareWalletResolver? = null): SignMessage = authHandler(
         network,
         gdk.signMessage(gdkSession(network), params = params)
-    ).result(hardwareWalletResolver = hardwareWalletResolver)
+    ).awaitResult(hardwareWalletResolver = hardwareWalletResolver)
 
-    fun blindTransaction(network: Network, createTransaction: CreateTransaction) =
+    suspend fun blindTransaction(network: Network, createTransaction: CreateTransaction) =
         authHandler(
             network,
             gdk.blindTransaction(gdkSession(network), createTransaction = createTransaction.jsonElement!!)
-        ).result<CreateTransaction>()
+        ).awaitResult<CreateTransaction>()
 
-    fun signTransaction(network: Network, createTransaction: CreateTransaction): CreateTransaction = if(network.isLightning){
+    suspend fun signTransaction(network: Network, createTransaction: CreateTransaction): CreateTransaction = if(network.isLightning){
         createTransaction // no need to sign on gdk side
     }else{
         authHandler(
             network,
             gdk.signTransaction(gdkSession(network), createTransaction = createTransaction.jsonElement!!)
-        ).result<CreateTransaction>()
+        ).awaitResult<CreateTransaction>()
     }
 
     fun broadcastTransaction(network: Network, transaction: String) = SendTransactionSuccess(
@@ -2468,9 +2844,10 @@ class GdkSession constructor(
         )
     ).also {
         _walletActiveEventInvalidated = true
+        _utxoSnapshotCache.invalidateNetwork(network.id)
     }
 
-    fun sendTransaction(
+    suspend fun sendTransaction(
         account: Account,
         signedTransaction: CreateTransaction,
         twoFactorResolver: TwoFactorResolver
@@ -2549,7 +2926,10 @@ class GdkSession constructor(
         authHandler(
             account.network,
             gdk.sendTransaction(gdkSession(account.network), transaction = signedTransaction.jsonElement!!)
-        ).result<SendTransactionSuccess>(twoFactorResolver = twoFactorResolver).also {
+        ).awaitResult<SendTransactionSuccess>(twoFactorResolver = twoFactorResolver).also {
+            // Spent utxos may still be in the snapshot until the transaction notification arrives
+            _utxoSnapshotCache.invalidateAccounts(listOf(account.id))
+
             if(signedTransaction.isSendAll){
                 _accountEmptiedEvent = account
             }
@@ -2617,22 +2997,12 @@ class GdkSession constructor(
                     if(it.height > 0) {
                         blockStateFlow(network).value = it
 
+                        _utxoSnapshotCache.invalidateNetwork(network.id)
+
                         if(!_disableNotificationHandling) {
-                            // Update transactions
+                            // Update account & wallet transactions and balances
                             accounts.value.filter { it.network == network }.also { accounts ->
-                                accounts.forEach {
-                                    // Update account transactions
-                                    getTransactions(
-                                        account = it,
-                                        isReset = false,
-                                        isLoadMore = false
-                                    )
-                                }
-
-                                updateAccountsAndBalances(updateBalancesForAccounts = accounts)
-
-                                // Update wallet transactions
-                                updateWalletTransactions(updateForAccounts = accounts)
+                                notificationRefreshScheduler.scheduleAll(accounts)
                             }
                         }
                     }
@@ -2680,16 +3050,24 @@ class GdkSession constructor(
                 }
             }
             "ticker" -> {
+                notification.ticker?.also {
+                    amountConverter.updateRate(it)
+                }
+
                 // Update UI maybe
                 _tickerSharedFlow.tryEmit(Unit)
             }
             "subaccount" -> {
                 if(!_disableNotificationHandling && notification.subaccount?.isSynced == true) {
-                    updateAccountsAndBalances()
-                    updateWalletTransactions()
+                    notificationRefreshScheduler.schedule(RefreshKind.BALANCES)
+                    notificationRefreshScheduler.schedule(RefreshKind.WALLET_TRANSACTIONS)
                 }
             }
             "transaction" -> {
+                notification.transaction?.let { event ->
+                    _utxoSnapshotCache.invalidateAccounts(event.subaccounts.map { "${network.id}:$it" })
+                }
+
                 if (!_disableNotificationHandling) {
                     notification.transaction?.let { event ->
                         event.subaccounts.mapNotNull { subAccount ->
@@ -2697,15 +3075,8 @@ class GdkSession constructor(
                                 it.network == network && it.pointer == subAccount
                             }
                         }.toSet().also { accounts ->
-                            accounts.forEach {
-                                // Update account transactions
-                                getTransactions(account = it, isReset = false, isLoadMore = false)
-                            }
-
-                            updateAccountsAndBalances(updateBalancesForAccounts = accounts)
-
-                            // Update wallet transactions
-                            updateWalletTransactions(updateForAccounts = accounts)
+                            // Update account & wallet transactions and balances
+                            notificationRefreshScheduler.scheduleAll(accounts)
                         }
                     }
                 }
@@ -2774,7 +3145,7 @@ class GdkSession constructor(
             connect(network = network, initNetworks = listOf(network))
         }
 
-        return authHandler(network, gdk.bcurEncode(gdkSession(network), params)).result<BcurEncodedData>()
+        return authHandler(network, gdk.bcurEncode(gdkSession(network), params)).awaitResult<BcurEncodedData>()
     }
 
     suspend fun bcurDecode(params: BcurDecodeParams, bcurResolver: BcurResolver): BcurDecodedData {
@@ -2784,7 +3155,18 @@ class GdkSession constructor(
             connect(network = network, initNetworks = listOf(network))
         }
 
-        return authHandler(network, gdk.bcurDecode(gdkSession(network), params)).result<BcurDecodedData>(bcurResolver = bcurResolver)
+        return authHandler(network, gdk.bcurDecode(gdkSession(network), params)).awaitResult<BcurDecodedData>(bcurResolver = bcurResolver)
+    }
+
+    // Typed decode of a complete UR, eg. one reassembled by UrFountainDecoder, GDK is never asked for more parts
+    suspend fun bcurDecode(ur: String): BcurDecodedData {
+        return bcurDecode(BcurDecodeParams(part = ur), object : BcurResolver {
+            override fun requestData(): CompletableDeferred<String> {
+                return CompletableDeferred<String>().also {
+                    it.completeExceptionally(Exception("id_decoding_error_try_again_by_scanning"))
+                }
+            }
+        })
     }
 
     fun parseInput(input: String): Pair<Network, InputType?>? {
@@ -2803,12 +3185,19 @@ class GdkSession constructor(
 
     internal fun destroy() {
         disconnect()
+        notificationRefreshScheduler.close()
         scope.cancel("Destroy")
     }
 
     companion object: Loggable() {
         const val WALLET_OVERVIEW_TRANSACTIONS = 10
 
+        // Delay of a snapshot write, so that the updates of a refresh are written once
+        const val SNAPSHOT_DELAY = 3_000L
+
+        // Network sessions queried for balances concurrently
+        const val BALANCES_PARALLELISM = 3
+
         const val LIQUID_ASSETS_KEY = "liquid_assets"
         const val LIQUID_ASSETS_TESTNET_KEY = "liquid_assets_testnet"
 
@@ -17,7 +17,26 @@ abstract class GreenJson<T> {
     open fun keepJsonElement() = false
 
     @Transient
-    var jsonElement: JsonElement? = null
+    private var _jsonElement: JsonElement? = null
+
+    @Transient
+    private var jsonElementSource: (() -> JsonElement?)? = null
+
+    var jsonElement: JsonElement?
+        get() = _jsonElement ?: jsonElementSource?.invoke()?.also {
+            _jsonElement = it
+            jsonElementSource = null
+        }
+        set(value) {
+            _jsonElement = value
+            jsonElementSource = null
+        }
+
+    // Resolve jsonElement on first access, eg. parsing the raw GDK json only if it's used
+    fun setLazyJsonElement(source: () -> JsonElement?) {
+        _jsonElement = null
+        jsonElementSource = source
+    }
 
     abstract fun kSerializer(): KSerializer<T>
 
@@ -0,0 +1,269 @@
+package com.blockstream.common.gdk
+
+import com.blockstream.common.gdk.data.AuthHandlerStatus
+import com.blockstream.common.gdk.data.Balance
+import com.blockstream.common.gdk.data.FeeEstimation
+import com.blockstream.common.gdk.data.LiquidAssets
+import com.blockstream.common.gdk.data.LoginData
+import com.blockstream.common.gdk.data.Pricing
+import com.blockstream.common.gdk.data.ProxySettings
+import com.blockstream.common.gdk.data.Settings
+import com.blockstream.common.gdk.data.TwoFactorConfig
+import com.blockstream.common.gdk.data.TwoFactorMethodConfig
+import com.blockstream.common.gdk.params.AssetsParams
+import com.blockstream.common.gdk.params.BalanceParams
+import com.blockstream.common.gdk.params.BcurDecodeParams
+import com.blockstream.common.gdk.params.BcurEncodeParams
+import com.blockstream.common.gdk.params.ConnectionParams
+import com.blockstream.common.gdk.params.Convert
+import com.blockstream.common.gdk.params.CredentialsParams
+import com.blockstream.common.gdk.params.CsvParams
+import com.blockstream.common.gdk.params.DecryptWithPinParams
+import com.blockstream.common.gdk.params.DeviceParams
+import com.blockstream.common.gdk.params.EncryptWithPinParams
+import com.blockstream.common.gdk.params.GetAssetsParams
+import com.blockstream.common.gdk.params.Limits
+import com.blockstream.common.gdk.params.LoginCredentialsParams
+import com.blockstream.common.gdk.params.PreviousAddressParams
+import com.blockstream.common.gdk.params.ReceiveAddressParams
+import com.blockstream.common.gdk.params.ReconnectHintParams
+import com.blockstream.common.gdk.params.SignMessageParams
+import com.blockstream.common.gdk.params.SubAccountParams
+import com.blockstream.common.gdk.params.SubAccountsParams
+import com.blockstream.common.gdk.params.TransactionParams
+import com.blockstream.common.gdk.params.UnspentOutputsPrivateKeyParams
+import com.blockstream.common.gdk.params.UpdateSubAccountParams
+import com.blockstream.common.gdk.params.ValidateAddresseesParams
+import kotlinx.serialization.json.JsonElement
+
+/*
+ * GdkBinding decorator recording every GDK call in GdkMetrics, named after the GDK API.
+ *
+ * Sessions are attributed to their network on connect. Auth handler calls are attributed to the call that
+ * created the handler, with the size of its result json as payload.
+ */
+class InstrumentedGdkBinding constructor(
+    private val gdkBinding: GdkBinding,
+    val metrics: GdkMetrics
+) : GdkBinding by gdkBinding {
+
+    private fun <T> measure(method: String, session: GASession? = null, block: () -> T): T {
+        return metrics.measure(method = method, network = metrics.network(session), block = block)
+    }
+
+    private fun authHandler(method: String, session: GASession, block: () -> GAAuthHandler): GAAuthHandler {
+        val network = metrics.network(session)
+        return metrics.measure(method = method, network = network, block = block).also {
+            metrics.trackAuthHandler(it, method, network)
+        }
+    }
+
+    private fun <T> authHandlerCall(call: String, gaAuthHandler: GAAuthHandler, payloadBytes: ((T) -> Long)? = null, block: () -> T): T {
+        val (method, network) = metrics.authHandlerOrigin(gaAuthHandler)
+        return metrics.measure(method = "$method/$call", network = network, payloadBytes = payloadBytes, block = block)
+    }
+
+    override fun createSession(): GASession = measure("create_session") { gdkBinding.createSession() }
+
+    override fun destroySession(session: GASession) {
+        measure("destroy_session", session) { gdkBinding.destroySession(session) }
+        metrics.removeSession(session)
+    }
+
+    override fun connect(session: GASession, params: ConnectionParams) {
+        metrics.setSessionNetwork(session, params.networkName)
+        measure("connect", session) { gdkBinding.connect(session, params) }
+    }
+
+    override fun reconnectHint(session: GASession, hint: ReconnectHintParams) =
+        measure("reconnect_hint", session) { gdkBinding.reconnectHint(session, hint) }
+
+    override fun getProxySettings(session: GASession): ProxySettings =
+        measure("get_proxy_settings", session) { gdkBinding.getProxySettings(session) }
+
+    override fun registerUser(
+        session: GASession,
+        deviceParams: DeviceParams,
+        loginCredentialsParams: LoginCredentialsParams
+    ): GAAuthHandler = authHandler("register_user", session) {
+        gdkBinding.registerUser(session, deviceParams, loginCredentialsParams)
+    }
+
+    override fun loginUser(
+        session: GASession,
+        deviceParams: DeviceParams,
+        loginCredentialsParams: LoginCredentialsParams
+    ): GAAuthHandler = authHandler("login_user", session) {
+        gdkBinding.loginUser(session, deviceParams, loginCredentialsParams)
+    }
+
+    override fun getWalletIdentifier(
+        connectionParams: ConnectionParams,
+        loginCredentialsParams: LoginCredentialsParams
+    ): LoginData = metrics.measure(method = "get_wallet_identifier", network = connectionParams.networkName) {
+        gdkBinding.getWalletIdentifier(connectionParams, loginCredentialsParams)
+    }
+
+    override fun validate(session: GASession, params: JsonElement): GAAuthHandler =
+        authHandler("validate", session) { gdkBinding.validate(session, params) }
+
+    override fun validate(session: GASession, params: ValidateAddresseesParams): GAAuthHandler =
+        authHandler("validate", session) { gdkBinding.validate(session, params) }
+
+    override fun encryptWithPin(session: GASession, encryptWithPinParams: EncryptWithPinParams): GAAuthHandler =
+        authHandler("encrypt_with_pin", session) { gdkBinding.encryptWithPin(session, encryptWithPinParams) }
+
+    override fun decryptWithPin(session: GASession, decryptWithPinParams: DecryptWithPinParams): GAAuthHandler =
+        authHandler("decrypt_with_pin", session) { gdkBinding.decryptWithPin(session, decryptWithPinParams) }
+
+    override fun getCredentials(session: GASession, params: CredentialsParams): GAAuthHandler =
+        authHandler("get_credentials", session) { gdkBinding.getCredentials(session, params) }
+
+    override fun getReceiveAddress(session: GASession, params: ReceiveAddressParams): GAAuthHandler =
+        authHandler("get_receive_address", session) { gdkBinding.getReceiveAddress(session, params) }
+
+    override fun getPreviousAddress(session: GASession, params: PreviousAddressParams): GAAuthHandler =
+        authHandler("get_previous_addresses", session) { gdkBinding.getPreviousAddress(session, params) }
+
+    override fun refreshAssets(session: GASession, params: AssetsParams) =
+        measure("refresh_assets", session) { gdkBinding.refreshAssets(session, params) }
+
+    override fun getAssets(session: GASession, params: GetAssetsParams): LiquidAssets =
+        measure("get_assets", session) { gdkBinding.getAssets(session, params) }
+
+    override fun getTransactions(session: GASession, details: TransactionParams): GAAuthHandler =
+        authHandler("get_transactions", session) { gdkBinding.getTransactions(session, details) }
+
+    override fun getTwoFactorConfig(session: GASession): TwoFactorConfig =
+        measure("get_twofactor_config", session) { gdkBinding.getTwoFactorConfig(session) }
+
+    override fun changeSettingsTwoFactor(session: GASession, method: String, methodConfig: TwoFactorMethodConfig): GAAuthHandler =
+        authHandler("change_settings_twofactor", session) { gdkBinding.changeSettingsTwoFactor(session, method, methodConfig) }
+
+    override fun getWatchOnlyUsername(session: GASession): String? =
+        measure("get_watch_only_username", session) { gdkBinding.getWatchOnlyUsername(session) }
+
+    override fun setWatchOnly(session: GASession, username: String, password: String) =
+        measure("set_watch_only", session) { gdkBinding.setWatchOnly(session, username, password) }
+
+    override fun changeSettings(session: GASession, settings: Settings): GAAuthHandler =
+        authHandler("change_settings", session) { gdkBinding.changeSettings(session, settings) }
+
+    override fun setCsvTime(session: GASession, value: CsvParams): GAAuthHandler =
+        authHandler("set_csvtime", session) { gdkBinding.setCsvTime(session, value) }
+
+    override fun getSettings(session: GASession): Settings =
+        measure("get_settings", session) { gdkBinding.getSettings(session) }
+
+    override fun getAvailableCurrencies(session: GASession): List<Pricing> =
+        measure("get_available_currencies", session) { gdkBinding.getAvailableCurrencies(session) }
+
+    override fun getAuthHandlerStatus(gaAuthHandler: GAAuthHandler): AuthHandlerStatus =
+        authHandlerCall("status", gaAuthHandler, payloadBytes = { status: AuthHandlerStatus -> status.rawResult?.json?.length?.toLong() ?: 0 }) {
+            gdkBinding.getAuthHandlerStatus(gaAuthHandler)
+        }
+
+    override fun authHandlerCall(gaAuthHandler: GAAuthHandler) =
+        authHandlerCall("call", gaAuthHandler) { gdkBinding.authHandlerCall(gaAuthHandler) }
+
+    override fun authHandlerRequestCode(method: String, gaAuthHandler: GAAuthHandler) =
+        authHandlerCall("request_code", gaAuthHandler) { gdkBinding.authHandlerRequestCode(method, gaAuthHandler) }
+
+    override fun authHandlerResolveCode(code: String, gaAuthHandler: GAAuthHandler) =
+        authHandlerCall("resolve_code", gaAuthHandler) { gdkBinding.authHandlerResolveCode(code, gaAuthHandler) }
+
+    override fun destroyAuthHandler(gaAuthHandler: GAAuthHandler) {
+        try {
+            gdkBinding.destroyAuthHandler(gaAuthHandler)
+        } finally {
+            metrics.untrackAuthHandler(gaAuthHandler)
+        }
+    }
+
+    override fun twoFactorReset(session: GASession, email: String, isDispute: Boolean): GAAuthHandler =
+        authHandler("twofactor_reset", session) { gdkBinding.twoFactorReset(session, email, isDispute) }
+
+    override fun twoFactorUndoReset(session: GASession, email: String): GAAuthHandler =
+        authHandler("twofactor_undo_reset", session) { gdkBinding.twoFactorUndoReset(session, email) }
+
+    override fun twoFactorCancelReset(session: GASession): GAAuthHandler =
+        authHandler("twofactor_cancel_reset", session) { gdkBinding.twoFactorCancelReset(session) }
+
+    override fun twoFactorChangeLimits(session: GASession, limits: Limits): GAAuthHandler =
+        authHandler("twofactor_change_limits", session) { gdkBinding.twoFactorChangeLimits(session, limits) }
+
+    override fun bcurEncode(session: GASession, params: BcurEncodeParams): GAAuthHandler =
+        authHandler("bcur_encode", session) { gdkBinding.bcurEncode(session, params) }
+
+    override fun bcurDecode(session: GASession, params: BcurDecodeParams): GAAuthHandler =
+        authHandler("bcur_decode", session) { gdkBinding.bcurDecode(session, params) }
+
+    override fun sendNlocktimes(session: GASession) =
+        measure("send_nlocktimes", session) { gdkBinding.sendNlocktimes(session) }
+
+    override fun getFeeEstimates(session: GASession): FeeEstimation =
+        measure("get_fee_estimates", session) { gdkBinding.getFeeEstimates(session) }
+
+    override fun getSystemMessage(session: GASession): String? =
+        measure("get_system_message", session) { gdkBinding.getSystemMessage(session) }
+
+    override fun ackSystemMessage(session: GASession, message: String): GAAuthHandler =
+        authHandler("ack_system_message", session) { gdkBinding.ackSystemMessage(session, message) }
+
+    override fun setTransactionMemo(session: GASession, txHash: String, memo: String) =
+        measure("set_transaction_memo", session) { gdkBinding.setTransactionMemo(session, txHash, memo) }
+
+    override fun convertAmount(session: GASession, amount: Convert): Balance =
+        measure("convert_amount", session) { gdkBinding.convertAmount(session, amount) }
+
+    override fun convertAmount(session: GASession, amount: Convert, assetConvert: JsonElement): Balance =
+        measure("convert_amount", session) { gdkBinding.convertAmount(session, amount, assetConvert) }
+
+    override fun blindTransaction(session: GASession, createTransaction: JsonElement): GAAuthHandler =
+        authHandler("blind_transaction", session) { gdkBinding.blindTransaction(session, createTransaction) }
+
+    override fun signTransaction(session: GASession, createTransaction: JsonElement): GAAuthHandler =
+        authHandler("sign_transaction", session) { gdkBinding.signTransaction(session, createTransaction) }
+
+    override fun broadcastTransaction(session: GASession, transaction: String): String =
+        measure("broadcast_transaction", session) { gdkBinding.broadcastTransaction(session, transaction) }
+
+    override fun sendTransaction(session: GASession, transaction: JsonElement): GAAuthHandler =
+        authHandler("send_transaction", session) { gdkBinding.sendTransaction(session, transaction) }
+
+    override fun signMessage(session: GASession, params: SignMessageParams): GAAuthHandler =
+        authHandler("sign_message", session) { gdkBinding.signMessage(session, params) }
+
+    override fun createSubAccount(session: GASession, params: SubAccountParams): GAAuthHandler =
+        authHandler("create_subaccount", session) { gdkBinding.createSubAccount(session, params) }
+
+    override fun getSubAccounts(session: GASession, params: SubAccountsParams): GAAuthHandler =
+        authHandler("get_subaccounts", session) { gdkBinding.getSubAccounts(session, params) }
+
+    override fun getSubAccount(session: GASession, index: Long): GAAuthHandler =
+        authHandler("get_subaccount", session) { gdkBinding.getSubAccount(session, index) }
+
+    override fun updateSubAccount(session: GASession, params: UpdateSubAccountParams): GAAuthHandler =
+        authHandler("update_subaccount", session) { gdkBinding.updateSubAccount(session, params) }
+
+    override fun getBalance(session: GASession, details: BalanceParams): GAAuthHandler =
+        authHandler("get_balance", session) { gdkBinding.getBalance(session, details) }
+
+    override fun getUnspentOutputs(session: GASession, details: BalanceParams): GAAuthHandler =
+        authHandler("get_unspent_outputs", session) { gdkBinding.getUnspentOutputs(session, details) }
+
+    override fun getUnspentOutputsForPrivateKey(session: GASession, details: UnspentOutputsPrivateKeyParams): GAAuthHandler =
+        authHandler("get_unspent_outputs_for_private_key", session) { gdkBinding.getUnspentOutputsForPrivateKey(session, details) }
+
+    override fun createTransaction(session: GASession, params: GreenJson<*>): GAAuthHandler =
+        authHandler("create_transaction", session) { gdkBinding.createTransaction(session, params) }
+
+    override fun createSwapTransaction(session: GASession, params: GreenJson<*>): GAAuthHandler =
+        authHandler("create_swap_transaction", session) { gdkBinding.createSwapTransaction(session, params) }
+
+    override fun completeSwapTransaction(session: GASession, params: GreenJson<*>): GAAuthHandler =
+        authHandler("complete_swap_transaction", session) { gdkBinding.completeSwapTransaction(session, params) }
+
+    override fun httpRequest(session: GASession, data: JsonElement): JsonElement =
+        measure("http_request", session) { gdkBinding.httpRequest(session, data) }
+}
@@ -32,8 +32,9 @@ class JsonConverter constructor(val log: Boolean, val maskSensitiveFields: Boole
             }
         }
 
+        // Decoded by the caller straight into its type
         if (jsonString != null && jsonString != "null") {
-            return JsonDeserializer.parseToJsonElement(jsonString)
+            return RawJson(jsonString)
         }
         return null
     }
@@ -41,6 +42,8 @@ class JsonConverter constructor(val log: Boolean, val maskSensitiveFields: Boole
     fun toJSONString(any: Any?): String {
         return if(any is JsonElement){
             JsonDeserializer.encodeToString(any)
+        }else if(any is RawJson){
+            any.json
         }else{
             any.toString()
         }.also {
@@ -0,0 +1,92 @@
+package com.blockstream.common.gdk
+
+import com.blockstream.common.gdk.JsonConverter.Companion.JsonDeserializer
+import kotlinx.serialization.json.JsonElement
+
+/*
+ * A JSON document as returned by GDK.
+ *
+ * The string is decoded straight into the requested type, the JsonElement tree is only built if asked
+ * for, eg. by GreenJson types that keep their json for later use.
+ */
+class RawJson(val json: String) {
+
+    val jsonElement: JsonElement by lazy {
+        JsonDeserializer.parseToJsonElement(json)
+    }
+
+    inline fun <reified T> decode(): T = JsonDeserializer.decodeFromString(json)
+
+    // The value of a top level field, located by scanning the document instead of parsing it
+    fun field(name: String): RawJson? {
+        var i = skipWhitespace(0)
+        if (json.getOrNull(i) != '{') return null
+        i++
+
+        while (true) {
+            i = skipWhitespace(i)
+            if (json.getOrNull(i) != '"') return null
+
+            val keyEnd = skipString(i)
+            val isMatch = keyEnd - i - 2 == name.length && json.regionMatches(i + 1, name, 0, name.length)
+
+            i = skipWhitespace(keyEnd)
+            if (json.getOrNull(i) != ':') return null
+            i = skipWhitespace(i + 1)
+
+            val valueEnd = skipValue(i)
+            if (isMatch) {
+                return json.substring(i, valueEnd).takeIf { it != "null" }?.let { RawJson(it) }
+            }
+
+            i = skipWhitespace(valueEnd)
+            if (json.getOrNull(i) != ',') return null
+            i++
+        }
+    }
+
+    private fun skipWhitespace(from: Int): Int {
+        var i = from
+        while (i < json.length && json[i].isWhitespace()) i++
+        return i
+    }
+
+    // Index after the closing quote of the string starting at from
+    private fun skipString(from: Int): Int {
+        var i = from + 1
+        while (i < json.length && json[i] != '"') {
+            if (json[i] == '\\') i++
+            i++
+        }
+        return i + 1
+    }
+
+    private fun skipValue(from: Int): Int {
+        return when (json.getOrNull(from)) {
+            '"' -> skipString(from)
+            '{', '[' -> {
+                var depth = 0
+                var i = from
+                while (i < json.length) {
+                    when (json[i]) {
+                        '"' -> {
+                            i = skipString(i)
+                            continue
+                        }
+                        '{', '[' -> depth++
+                        '}', ']' -> if (--depth == 0) return i + 1
+                    }
+                    i++
+                }
+                i
+            }
+            else -> {
+                var i = from
+                while (i < json.length && json[i] !in ",}]" && !json[i].isWhitespace()) i++
+                i
+            }
+        }
+    }
+
+    override fun toString() = json
+}
@@ -0,0 +1,128 @@
+package com.blockstream.common.gdk
+
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+
+enum class RefreshKind {
+    ACCOUNT_TRANSACTIONS, BALANCES, WALLET_TRANSACTIONS
+}
+
+data class RefreshStats(
+    val scheduled: Long = 0,
+    val merged: Long = 0,
+    val executed: Long = 0
+)
+
+/*
+ * Debounces refresh requests, eg. those triggered by GDK notifications.
+ * Requests received within the time window are merged per kind and key (eg. account) and
+ * each refresh kind is executed once with the union of the requested targets.
+ * A null target means everything, and absorbs any other request of the same kind.
+ * A failing refresh is reported to onError and doesn't stop the following ones.
+ */
+class RefreshScheduler<T>(
+    scope: CoroutineScope,
+    private val windowMs: Long = DEFAULT_WINDOW_MS,
+    private val key: (T) -> String,
+    private val onError: (Exception) -> Unit = { it.printStackTrace() },
+    private val onRefresh: (kind: RefreshKind, targets: List<T>?) -> Unit
+) {
+    private class Request<T>(val kind: RefreshKind, val targets: Collection<T>?)
+
+    private class Pending<T> {
+        var all = false
+        val targets = linkedMapOf<String, T>()
+    }
+
+    private val requests = Channel<Request<T>>(Channel.UNLIMITED)
+
+    private val _stats = MutableStateFlow(RefreshStats())
+    val stats: StateFlow<RefreshStats> get() = _stats.asStateFlow()
+
+    init {
+        scope.launch {
+            for (request in requests) {
+                val pending = linkedMapOf<RefreshKind, Pending<T>>()
+                merge(pending, request)
+
+                // Let the burst settle, then take everything that arrived meanwhile
+                delay(windowMs)
+                while (true) {
+                    merge(pending, requests.tryReceive().getOrNull() ?: break)
+                }
+
+                execute(pending)
+            }
+        }
+    }
+
+    fun schedule(kind: RefreshKind, targets: Collection<T>? = null) {
+        requests.trySend(Request(kind, targets))
+    }
+
+    // Schedule all refresh kinds for the targets
+    fun scheduleAll(targets: Collection<T>? = null) {
+        RefreshKind.entries.forEach {
+            schedule(it, targets)
+        }
+    }
+
+    fun close() {
+        requests.close()
+    }
+
+    private fun merge(pending: MutableMap<RefreshKind, Pending<T>>, request: Request<T>) {
+        val kindPending = pending[request.kind]
+        var scheduled = 0L
+        var merged = 0L
+
+        if (request.targets == null) {
+            scheduled++
+            if (kindPending != null) {
+                merged++
+            }
+            pending.getOrPut(request.kind) { Pending() }.all = true
+        } else {
+            val p = kindPending ?: Pending<T>().also { pending[request.kind] = it }
+            request.targets.forEach {
+                scheduled++
+                if (p.all || p.targets.put(key(it), it) != null) {
+                    merged++
+                }
+            }
+        }
+
+        _stats.value = _stats.value.let {
+            it.copy(scheduled = it.scheduled + scheduled, merged = it.merged + merged)
+        }
+    }
+
+    private fun execute(pending: Map<RefreshKind, Pending<T>>) {
+        // Run in declaration order, eg. transactions are requested before balances
+        RefreshKind.entries.forEach { kind ->
+            pending[kind]?.also {
+                val targets = if (it.all) null else it.targets.values.toList()
+                if (targets?.isEmpty() != true) {
+                    try {
+                        onRefresh(kind, targets)
+                    } catch (e: CancellationException) {
+                        throw e
+                    } catch (e: Exception) {
+                        onError(e)
+                    }
+                    _stats.value = _stats.value.let { stats -> stats.copy(executed = stats.executed + 1) }
+                }
+            }
+        }
+    }
+
+    companion object {
+        const val DEFAULT_WINDOW_MS = 500L
+    }
+}
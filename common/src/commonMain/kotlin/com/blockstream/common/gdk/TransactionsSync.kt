@@ -0,0 +1,99 @@
+package com.blockstream.common.gdk
+
+import com.blockstream.common.gdk.data.Transaction
+
+// Changes applied to an account transaction list by a merge
+data class TransactionsDiff(
+    val inserted: List<Transaction> = listOf(),
+    val updated: List<Transaction> = listOf(),
+    val removed: List<Transaction> = listOf()
+) {
+    val isEmpty
+        get() = inserted.isEmpty() && updated.isEmpty() && removed.isEmpty()
+}
+
+data class TransactionsMerge(val transactions: List<Transaction>, val diff: TransactionsDiff)
+
+object TransactionsSync {
+
+    // SPV verification and reorgs settle within a few blocks, transactions buried deeper than this are
+    // not fetched again on a refresh. Memo edits are patched into the loaded list when they are made.
+    const val REVALIDATION_DEPTH = 6
+
+    /*
+     * Whether a head fetched from the top of the list can be merged into the existing list: it reaches
+     * an existing confirmed transaction whose block height is unchanged, so nothing new is beyond it,
+     * and it goes REVALIDATION_DEPTH blocks deep so recent confirmations are revalidated.
+     * The depth is not enforced while the tip is unknown.
+     */
+    fun isSynced(existing: Map<String, Transaction>, head: List<Transaction>, tipHeight: Long): Boolean {
+        val isAnchored = head.any { tx ->
+            tx.blockHeight > 0 && existing[tx.txHash]?.blockHeight == tx.blockHeight
+        }
+
+        val lastHeight = head.lastOrNull()?.blockHeight ?: 0
+        val isDeepEnough = tipHeight <= 0 || (lastHeight > 0 && tipHeight - lastHeight + 1 >= REVALIDATION_DEPTH)
+
+        return isAnchored && isDeepEnough
+    }
+
+    /*
+     * Merge a freshly fetched head of the transaction list into the existing list.
+     *
+     * GDK lists unconfirmed transactions first, then by block height descending, so new and
+     * re-confirmed transactions always appear in the head. The head must reach a transaction
+     * already in the list (or the end of the list), otherwise there is a gap and the caller has
+     * to fetch more.
+     *
+     * Existing instances are kept for entries whose state didn't change, unconfirmed entries
+     * that are no longer in the head were replaced or dropped and are removed.
+     */
+    fun merge(existing: List<Transaction>, head: List<Transaction>, isEndOfList: Boolean): TransactionsMerge {
+        val existingByHash = existing.associateBy { it.txHash }
+        val headHashes = head.mapTo(HashSet(head.size)) { it.txHash }
+
+        val inserted = mutableListOf<Transaction>()
+        val updated = mutableListOf<Transaction>()
+        val removed = mutableListOf<Transaction>()
+
+        val merged = ArrayList<Transaction>(head.size + existing.size)
+
+        head.forEach { tx ->
+            val old = existingByHash[tx.txHash]
+            when {
+                old == null -> tx.also { inserted += it }
+                isSameState(old, tx) -> old
+                else -> tx.also { updated += it }
+            }.also {
+                merged += it
+            }
+        }
+
+        // If the head is made of unconfirmed transactions only, there may be more of them further down
+        val headCoversUnconfirmed = isEndOfList || head.any { it.blockHeight > 0 }
+
+        existing.forEach { tx ->
+            if (!headHashes.contains(tx.txHash)) {
+                if (tx.isLoadingTransaction || (tx.blockHeight == 0L && headCoversUnconfirmed)) {
+                    removed += tx
+                } else {
+                    merged += tx
+                }
+            }
+        }
+
+        return TransactionsMerge(
+            transactions = merged,
+            diff = TransactionsDiff(inserted = inserted, updated = updated, removed = removed)
+        )
+    }
+
+    // Whether the fetched transaction has changes that are visible in the list
+    private fun isSameState(old: Transaction, new: Transaction) =
+        old.blockHeight == new.blockHeight &&
+                old.spvVerified == new.spvVerified &&
+                old.canRBF == new.canRBF &&
+                old.canCPFP == new.canCPFP &&
+                old.memo == new.memo &&
+                old.satoshi == new.satoshi
+}
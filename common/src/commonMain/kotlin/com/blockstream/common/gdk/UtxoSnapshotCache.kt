@@ -0,0 +1,71 @@
+package com.blockstream.common.gdk
+
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.update
+
+data class UtxoSnapshotStats(
+    val hits: Long = 0,
+    val misses: Long = 0,
+    val invalidations: Long = 0
+)
+
+/*
+ * Per account snapshots of the unspent outputs, so that repeated createTransaction calls
+ * (eg. fee previews while typing an amount) reuse the same, already serialized, utxos instead of
+ * fetching them from GDK each time.
+ *
+ * Snapshots are dropped when the account (transaction notification) or its network (block
+ * notification) changes. A snapshot fetched while an invalidation happened is returned to its
+ * caller but not stored, as it may already be stale.
+ */
+class UtxoSnapshotCache<T : Any> {
+    private data class Key(val networkId: String, val accountId: AccountId, val confirmations: Int)
+
+    private class State<T>(val snapshots: Map<Key, T> = mapOf(), val generation: Long = 0)
+
+    private val state = MutableStateFlow(State<T>())
+
+    private val _stats = MutableStateFlow(UtxoSnapshotStats())
+    val stats: StateFlow<UtxoSnapshotStats> get() = _stats.asStateFlow()
+
+    fun getOrFetch(networkId: String, accountId: AccountId, confirmations: Int, fetch: () -> T): T {
+        val key = Key(networkId = networkId, accountId = accountId, confirmations = confirmations)
+        val current = state.value
+
+        current.snapshots[key]?.also { snapshot ->
+            _stats.update { it.copy(hits = it.hits + 1) }
+            return snapshot
+        }
+
+        _stats.update { it.copy(misses = it.misses + 1) }
+
+        return fetch().also { snapshot ->
+            state.update {
+                if (it.generation == current.generation) State(it.snapshots + (key to snapshot), it.generation) else it
+            }
+        }
+    }
+
+    fun invalidateNetwork(networkId: String) {
+        invalidate { it.networkId == networkId }
+    }
+
+    fun invalidateAccounts(accountIds: Collection<AccountId>) {
+        if (accountIds.isNotEmpty()) {
+            invalidate { accountIds.contains(it.accountId) }
+        }
+    }
+
+    fun clear() {
+        invalidate { true }
+    }
+
+    private fun invalidate(predicate: (Key) -> Boolean) {
+        state.update { current ->
+            State(current.snapshots.filterKeys { !predicate(it) }, current.generation + 1)
+        }
+        _stats.update { it.copy(invalidations = it.invalidations + 1) }
+    }
+}
@@ -1,9 +1,10 @@
 package com.blockstream.common.gdk.data
 
 import com.blockstream.common.gdk.GreenJson
+import com.blockstream.common.gdk.RawJson
 import kotlinx.serialization.SerialName
 import kotlinx.serialization.Serializable
-import kotlinx.serialization.json.Json
+import kotlinx.serialization.Transient
 import kotlinx.serialization.json.JsonElement
 
 @Serializable
@@ -12,7 +13,6 @@ data class AuthHandlerStatus constructor(
     @SerialName("methods") val methods: List<String> = listOf(),
     @SerialName("method") val method: String? = null,
     @SerialName("status") val status: String,
-    @SerialName("result") val result: JsonElement? = null,
     @SerialName("error") val error: String? = null,
 
     @SerialName("attempts_remaining") val attemptsRemaining: Int? = null,
@@ -21,11 +21,22 @@ data class AuthHandlerStatus constructor(
     // Wait for a fix #535
     @SerialName("auth_data") val authData: JsonElement? = null,
 ) : GreenJson<AuthHandlerStatus>() {
+    // The result is kept as GDK returned it, to be decoded once into the type the caller expects
+    @Transient
+    var rawResult: RawJson? = null
+
+    val result: JsonElement?
+        get() = rawResult?.jsonElement
+
     override fun keepJsonElement() = true
 
     override fun kSerializer() = serializer()
 
     companion object {
-        fun from(jsonString: String): AuthHandlerStatus = Json.decodeFromString(jsonString)
+        fun from(jsonString: String): AuthHandlerStatus = from(RawJson(jsonString))
+
+        fun from(rawJson: RawJson): AuthHandlerStatus = rawJson.decode<AuthHandlerStatus>().also {
+            it.rawResult = rawJson.field("result")
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.blockstream.common.gdk.data
+
+import com.blockstream.common.gdk.GreenJson
+import kotlinx.serialization.SerialName
+import kotlinx.serialization.Serializable
+
+@Serializable
+data class GdkCallStats(
+    @SerialName("method") val method: String,
+    @SerialName("network") val network: String? = null,
+    @SerialName("count") val count: Long,
+    @SerialName("errors") val errors: Long,
+    @SerialName("in_flight") val inFlight: Int,
+    @SerialName("max_in_flight") val maxInFlight: Int,
+    @SerialName("total_ms") val totalMs: Long,
+    @SerialName("p50_ms") val p50Ms: Double,
+    @SerialName("p95_ms") val p95Ms: Double,
+    @SerialName("p99_ms") val p99Ms: Double,
+    @SerialName("max_ms") val maxMs: Double,
+    @SerialName("payload_bytes") val payloadBytes: Long,
+    @SerialName("max_payload_bytes") val maxPayloadBytes: Long,
+) : GreenJson<GdkCallStats>() {
+
+    override fun kSerializer() = serializer()
+}
+
+@Serializable
+data class GdkMetricsSnapshot(
+    @SerialName("started_at") val startedAt: Long,
+    @SerialName("created_at") val createdAt: Long,
+    @SerialName("calls") val calls: List<GdkCallStats>
+) : GreenJson<GdkMetricsSnapshot>() {
+
+    // Where the time went, most expensive first
+    val byTotalTime: List<GdkCallStats>
+        get() = calls.sortedByDescending { it.totalMs }
+
+    override fun kSerializer() = serializer()
+}
@@ -13,4 +13,5 @@ data class Notification(
     @SerialName("network") val network: NetworkEvent? = null,
     @SerialName("transaction") val transaction: TransactionEvent? = null,
     @SerialName("subaccount") val subaccount: SubaccountEvent? = null,
+    @SerialName("ticker") val ticker: TickerEvent? = null,
 )
\ No newline at end of file
@@ -15,11 +15,13 @@ data class UnspentOutputs(
     val unspentOutputsAsJsonElement: JsonElement
         get() = jsonElement!!.jsonObject["unspent_outputs"]!!
 
+    // Lazily, so that the json is only parsed if an utxo json is used
     fun fillUtxosJsonElement(){
         unspentOutputs.forEach { (k, utxos) ->
-            val jsonArray = unspentOutputsAsJsonElement.jsonObject[k]!!.jsonArray
             utxos.forEachIndexed { index, utxo ->
-                utxo.jsonElement = jsonArray[index].jsonObject
+                utxo.setLazyJsonElement {
+                    unspentOutputsAsJsonElement.jsonObject[k]!!.jsonArray[index].jsonObject
+                }
             }
         }
     }
@@ -0,0 +1,149 @@
+package com.blockstream.common.gdk.device
+
+import co.touchlab.kermit.Logger
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.IO
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.launch
+import kotlin.time.TimeSource
+
+enum class DeviceRequestPriority {
+    // User facing requests, eg. signing
+    HIGH,
+    NORMAL
+}
+
+data class DeviceRequestTiming(
+    val name: String,
+    val priority: DeviceRequestPriority,
+    val waitMs: Long,
+    val durationMs: Long,
+    val isCancelled: Boolean
+)
+
+/*
+ * Single owner of a hardware wallet connection.
+ *
+ * Device requests from concurrent callers (eg. the login of each network) are queued and executed one at a
+ * time by a single worker, highest priority first, so that callers only suspend while waiting for the
+ * device instead of being serialized as a whole. Requests cancelled before they start are skipped.
+ */
+class DeviceRequestArbiter {
+    private class Request<T>(
+        val name: String,
+        val priority: DeviceRequestPriority,
+        val block: () -> T,
+        val deferred: CompletableDeferred<T>
+    ) {
+        private val queuedAt = TimeSource.Monotonic.markNow()
+
+        // Timing is reported before the caller is resumed
+        fun run(onTiming: (DeviceRequestTiming) -> Unit) {
+            val waitMs = queuedAt.elapsedNow().inWholeMilliseconds
+
+            if (deferred.isCancelled) {
+                onTiming(DeviceRequestTiming(name, priority, waitMs, 0, isCancelled = true))
+                return
+            }
+
+            val startedAt = TimeSource.Monotonic.markNow()
+            val result = runCatching { block() }
+            onTiming(DeviceRequestTiming(name, priority, waitMs, startedAt.elapsedNow().inWholeMilliseconds, isCancelled = false))
+
+            result.onSuccess {
+                deferred.complete(it)
+            }.onFailure {
+                deferred.completeExceptionally(it)
+            }
+        }
+    }
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private val requests = Channel<Request<*>>(Channel.UNLIMITED)
+
+    private val _timings = MutableStateFlow<List<DeviceRequestTiming>>(listOf())
+
+    // Timings of the most recent requests, oldest first
+    val timings: StateFlow<List<DeviceRequestTiming>> = _timings.asStateFlow()
+
+    init {
+        scope.launch {
+            work()
+        }
+    }
+
+    fun <T> enqueue(
+        name: String,
+        priority: DeviceRequestPriority = DeviceRequestPriority.NORMAL,
+        block: () -> T
+    ): CompletableDeferred<T> {
+        return CompletableDeferred<T>().also { deferred ->
+            if (requests.trySend(Request(name, priority, block, deferred)).isFailure) {
+                deferred.completeExceptionally(Exception("id_disconnected"))
+            }
+        }
+    }
+
+    // Suspends until the request is executed, cancelling the caller removes a request not yet started
+    suspend fun <T> request(
+        name: String,
+        priority: DeviceRequestPriority = DeviceRequestPriority.NORMAL,
+        block: () -> T
+    ): T {
+        val deferred = enqueue(name, priority, block)
+        return try {
+            deferred.await()
+        } catch (e: CancellationException) {
+            deferred.cancel()
+            throw e
+        }
+    }
+
+    private suspend fun work() {
+        val pending = DeviceRequestPriority.entries.associateWith { ArrayDeque<Request<*>>() }
+
+        try {
+            while (true) {
+                if (pending.values.all { it.isEmpty() }) {
+                    requests.receive().also { pending.getValue(it.priority).addLast(it) }
+                }
+
+                // Take in everything queued meanwhile, to pick the highest priority
+                while (true) {
+                    requests.tryReceive().getOrNull()?.also { pending.getValue(it.priority).addLast(it) } ?: break
+                }
+
+                val request = pending.values.first { it.isNotEmpty() }.removeFirst()
+
+                request.run { timing ->
+                    _timings.value = (_timings.value + timing).takeLast(MAX_TIMINGS)
+                    Logger.d { "Device request ${timing.name} (${timing.priority}) waited ${timing.waitMs}ms, took ${timing.durationMs}ms${if (timing.isCancelled) ", cancelled" else ""}" }
+                }
+            }
+        } finally {
+            pending.values.forEach { queue -> queue.forEach { it.deferred.cancel() } }
+        }
+    }
+
+    // Cancel the pending requests and stop the worker
+    fun close() {
+        requests.close()
+        scope.cancel()
+        while (true) {
+            requests.tryReceive().getOrNull()?.deferred?.cancel() ?: break
+        }
+    }
+
+    companion object {
+        const val MAX_TIMINGS = 50
+    }
+}
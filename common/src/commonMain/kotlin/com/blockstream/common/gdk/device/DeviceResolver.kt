@@ -12,12 +12,15 @@ class DeviceResolver constructor(
 ) : HardwareWalletResolver {
 
     override fun requestDataFromDevice(network: Network, requiredData: DeviceRequiredData): CompletableDeferred<String> {
-        return CompletableDeferred<String>().also { deferred ->
-            try {
-                deferred.complete(requestData(network, requiredData))
-            } catch (e: Exception) {
-                deferred.completeExceptionally(e)
+        // Queued with the requests of other callers, the device handles one at a time
+        return gdkHardwareWallet.requestArbiter.enqueue(
+            name = requiredData.action,
+            priority = when (requiredData.action) {
+                "sign_message", "sign_tx" -> DeviceRequestPriority.HIGH
+                else -> DeviceRequestPriority.NORMAL
             }
+        ) {
+            requestData(network, requiredData)
         }
     }
 
@@ -25,7 +28,7 @@ class DeviceResolver constructor(
 
         return when (requiredData.action) {
             "get_xpubs" -> {
-                gdkHardwareWallet.getXpubs(
+                gdkHardwareWallet.getXpubsCached(
                     network = network,
                     hwInteraction = hwInteraction,
                     paths = requiredData.paths?.map {
@@ -89,52 +92,37 @@ class DeviceResolver constructor(
             }
 
             "get_blinding_nonces" -> {
-                val nonces = mutableListOf<String>()
-                val blindingPublicKeys = mutableListOf<String>()
-
                 val scripts = requiredData.scripts
                 val publicKeys = requiredData.publicKeys
 
                 if (scripts != null && publicKeys != null && scripts.size == publicKeys.size) {
-                    for (i in 0 until (scripts.size)) {
-                        nonces.add(
-                            gdkHardwareWallet.getBlindingNonce(
+                    DeviceResolvedData(
+                        nonces = gdkHardwareWallet.getBlindingNonces(
+                            hwInteraction = hwInteraction,
+                            pubkeys = publicKeys,
+                            scriptHexes = scripts
+                        ),
+                        publicKeys = if (requiredData.blindingKeysRequired == true) {
+                            gdkHardwareWallet.getBlindingKeysCached(
                                 hwInteraction = hwInteraction,
-                                pubkey = publicKeys[i],
-                                scriptHex = scripts[i]
-                            )
-                        )
-
-                        if (requiredData.blindingKeysRequired == true) {
-                            blindingPublicKeys.add(
-                                gdkHardwareWallet.getBlindingKey(
-                                    hwInteraction = hwInteraction,
-                                    scriptHex = scripts[i]
-                                )
+                                scriptHexes = scripts
                             )
+                        } else {
+                            listOf()
                         }
-                    }
+                    )
+                } else {
+                    DeviceResolvedData(nonces = listOf(), publicKeys = listOf())
                 }
-
-                DeviceResolvedData(
-                    nonces = nonces,
-                    publicKeys = blindingPublicKeys
-                )
             }
 
             "get_blinding_public_keys" -> {
-                val publicKeys = mutableListOf<String>()
-
-                for (script in requiredData.scripts ?: listOf()) {
-                    publicKeys.add(
-                        gdkHardwareWallet.getBlindingKey(
-                            hwInteraction = hwInteraction,
-                            scriptHex = script
-                        )
+                DeviceResolvedData(
+                    publicKeys = gdkHardwareWallet.getBlindingKeysCached(
+                        hwInteraction = hwInteraction,
+                        scriptHexes = requiredData.scripts ?: listOf()
                     )
-                }
-
-                DeviceResolvedData(publicKeys = publicKeys)
+                )
             }
             else -> {
                 throw RuntimeException("Unsupported action")
@@ -1,5 +1,6 @@
 package com.blockstream.common.gdk.device
 
+import co.touchlab.stately.collections.ConcurrentMutableMap
 import com.blockstream.common.gdk.data.Account
 import com.blockstream.common.gdk.data.Device
 import com.blockstream.common.gdk.data.InputOutput
@@ -29,6 +30,33 @@ abstract class GdkHardwareWallet {
         paths: List<List<Int>>
     ): List<String>
 
+    // Serializes the device requests of concurrent callers, eg. the login of each network
+    val requestArbiter: DeviceRequestArbiter by lazy { DeviceRequestArbiter() }
+
+    // Persisted xpubs of this device, set at login once its fingerprint is verified
+    var xpubStore: XpubStore? = null
+
+    // As getXpubs, but only requests from the device those xpubs not already in the xpubStore
+    fun getXpubsCached(
+        network: Network,
+        hwInteraction: HardwareWalletInteraction?,
+        paths: List<List<Int>>
+    ): List<String> {
+        val store = xpubStore ?: return getXpubs(network = network, hwInteraction = hwInteraction, paths = paths)
+
+        val missing = paths.distinct().filter { store.get(network.id, it) == null }
+
+        val fetched = if (missing.isNotEmpty()) {
+            missing.zip(getXpubs(network = network, hwInteraction = hwInteraction, paths = missing)).toMap().onEach { (path, xpub) ->
+                store.put(network.id, path, xpub)
+            }
+        } else {
+            mapOf()
+        }
+
+        return paths.map { store.get(network.id, it) ?: fetched.getValue(it) }
+    }
+
     // Sign message with the key resulting from path, and return it as hex encoded DER
     // If using Anti-Exfil protocol, also return the signerCommitment (if not this can be null).
     abstract fun signMessage(
@@ -68,6 +96,48 @@ abstract class GdkHardwareWallet {
         hwInteraction: HardwareWalletInteraction?,
         scriptHex: String): String
 
+    // Batch variant of getBlindingNonce, results in the same order as the given pubkeys/scripts
+    // Override to pipeline or combine device calls, default requests each nonce in turn
+    open fun getBlindingNonces(
+        hwInteraction: HardwareWalletInteraction?,
+        pubkeys: List<String>, scriptHexes: List<String>): List<String> {
+        return pubkeys.zip(scriptHexes).map { (pubkey, scriptHex) ->
+            getBlindingNonce(hwInteraction = hwInteraction, pubkey = pubkey, scriptHex = scriptHex)
+        }
+    }
+
+    // Batch variant of getBlindingKey, results in the same order as the given scripts
+    // Override to pipeline or combine device calls, default requests each key in turn
+    open fun getBlindingKeys(
+        hwInteraction: HardwareWalletInteraction?,
+        scriptHexes: List<String>): List<String> {
+        return scriptHexes.map { scriptHex ->
+            getBlindingKey(hwInteraction = hwInteraction, scriptHex = scriptHex)
+        }
+    }
+
+    // Blinding keys are deterministic per script, so are kept for the lifetime of the device connection
+    private val blindingKeys = ConcurrentMutableMap<String, String>()
+
+    // As getBlindingKeys, but only requests from the device those keys not already known
+    fun getBlindingKeysCached(
+        hwInteraction: HardwareWalletInteraction?,
+        scriptHexes: List<String>): List<String> {
+        val missing = scriptHexes.distinct().filter { !blindingKeys.containsKey(it) }
+
+        val fetched = if (missing.isNotEmpty()) {
+            missing.zip(getBlindingKeys(hwInteraction = hwInteraction, scriptHexes = missing)).toMap().onEach { (scriptHex, key) ->
+                if (key.isNotBlank()) {
+                    blindingKeys[scriptHex] = key
+                }
+            }
+        } else {
+            mapOf()
+        }
+
+        return scriptHexes.map { blindingKeys[it] ?: fetched.getValue(it) }
+    }
+
     @Throws(Exception::class)
     abstract fun getGreenAddress(
         network: Network,
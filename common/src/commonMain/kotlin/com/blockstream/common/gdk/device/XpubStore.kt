@@ -0,0 +1,69 @@
+package com.blockstream.common.gdk.device
+
+import co.touchlab.stately.collections.ConcurrentMutableMap
+import co.touchlab.stately.collections.ConcurrentMutableSet
+
+/*
+ * Xpubs of a hardware wallet keyed by (network, path), shared across logins of the same device.
+ *
+ * Xpubs are deterministic for a given seed, so once the device fingerprint is verified against a fresh
+ * master xpub, stored xpubs can be returned without asking the device.
+ */
+class XpubStore constructor(
+    val fingerprint: String,
+    xpubs: Map<String, Map<String, String>> = mapOf()
+) {
+    private val xpubs = ConcurrentMutableMap<String, ConcurrentMutableMap<String, String>>().also { map ->
+        xpubs.forEach { (network, paths) ->
+            map[network] = ConcurrentMutableMap<String, String>().also { it.putAll(paths) }
+        }
+    }
+
+    // Networks with xpubs not yet persisted
+    private val dirty = ConcurrentMutableSet<String>()
+
+    val size: Int
+        get() = xpubs.values.sumOf { it.size }
+
+    fun get(network: String, path: List<Int>): String? = xpubs[network]?.get(pathKey(path))
+
+    fun put(network: String, path: List<Int>, xpub: String) {
+        val previous = xpubs.getOrPut(network) { ConcurrentMutableMap() }.put(pathKey(path), xpub)
+        if (previous != xpub) {
+            dirty.add(network)
+        }
+    }
+
+    fun xpubs(network: String): Map<String, String> = xpubs[network]?.toMap() ?: mapOf()
+
+    // Networks changed since the last call, to be persisted
+    fun takeDirty(): Set<String> = dirty.toSet().also {
+        dirty.removeAll(it)
+    }
+
+    companion object {
+        fun pathKey(path: List<Int>) = path.joinToString("/") { it.toUInt().toString() }
+
+        /*
+         * Restore the persisted xpubs of a device, validated per network against the master xpubs freshly
+         * fetched from the device. The xpubs of a network are kept only if its stored master xpub matches, eg.
+         * a fingerprint colliding with another seed discards them. Networks without a fresh master xpub can't
+         * be verified, they are neither restored nor overwritten.
+         */
+        fun restore(
+            fingerprint: String,
+            masterXpubs: Map<String, String>,
+            persisted: Map<String, Map<String, String>>
+        ): XpubStore {
+            val root = pathKey(listOf())
+            val valid = persisted.filter { (network, xpubs) ->
+                masterXpubs[network]?.let { it == xpubs[root] } == true
+            }
+
+            return XpubStore(fingerprint, valid).also {
+                // Marks as dirty the networks with stale entries, to be overwritten
+                masterXpubs.forEach { (network, masterXpub) -> it.put(network, listOf(), masterXpub) }
+            }
+        }
+    }
+}
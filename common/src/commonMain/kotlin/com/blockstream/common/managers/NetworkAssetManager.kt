@@ -1,6 +1,7 @@
 package com.blockstream.common.managers
 
 import co.touchlab.kermit.Logger
+import co.touchlab.stately.collections.ConcurrentMutableMap
 import com.blockstream.common.gdk.data.Asset
 import com.blockstream.common.gdk.params.AssetsParams
 import com.blockstream.common.gdk.params.GetAssetsParams
@@ -31,8 +32,9 @@ class NetworkAssetManager constructor(
 ) {
     private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
 
-    private val metadata = mutableMapOf<String, Asset?>()
-    private val icons = mutableMapOf<String, ByteArray?>()
+    // Accessed from the UI while assets are cached in the background
+    private val metadata = ConcurrentMutableMap<String, Asset?>()
+    private val icons = ConcurrentMutableMap<String, ByteArray?>()
 
     private val _statusStateFlow = MutableStateFlow(AssetStatus())
     private val _status get() = _statusStateFlow.value
@@ -1,14 +1,18 @@
 package com.blockstream.common.managers
 
 import com.blockstream.common.CountlyBase
+import com.blockstream.common.crypto.GreenKeystore
 import com.blockstream.common.data.AppInfo
 import com.blockstream.common.data.GreenWallet
 import com.blockstream.common.data.LogoutReason
+import com.blockstream.common.database.Database
 import com.blockstream.common.extensions.logException
 import com.blockstream.common.gdk.GASession
 import com.blockstream.common.gdk.Gdk
+import com.blockstream.common.gdk.GdkMetrics
 import com.blockstream.common.gdk.GdkSession
 import com.blockstream.common.gdk.JsonConverter.Companion.JsonDeserializer
+import com.blockstream.common.gdk.RawJson
 import com.blockstream.common.gdk.Wally
 import com.blockstream.common.gdk.data.Network
 import com.blockstream.common.gdk.data.TorEvent
@@ -43,7 +47,10 @@ class SessionManager constructor(
     private val assetManager: AssetManager,
     private var countly: CountlyBase,
     private val gdk: Gdk,
-    private val wally: Wally
+    private val gdkMetrics: GdkMetrics,
+    private val wally: Wally,
+    private val database: Database,
+    private val greenKeystore: GreenKeystore
 ) {
     private val userAgent = "${appInfo.userAgent}_${appInfo.version}_${appInfo.type}"
 
@@ -127,12 +134,14 @@ class SessionManager constructor(
             torEnabled = it.tor
         }.launchIn(CoroutineScope(context = Dispatchers.Default))
 
+        gdkMetrics.apmListener = { countly.gdkCall(it) }
+
         gdk.setNotificationHandler { gaSession: GASession, jsonObject: Any ->
             try {
                 gdkSessions.forEach {
                     it.onNewNotification(
                         gaSession,
-                        JsonDeserializer.decodeFromJsonElement(jsonObject as JsonElement)
+                        if (jsonObject is RawJson) jsonObject.decode() else JsonDeserializer.decodeFromJsonElement(jsonObject as JsonElement)
                     )
                 }
             } catch (e: Exception) {
@@ -263,7 +272,9 @@ class SessionManager constructor(
             assetManager = assetManager,
             gdk = gdk,
             wally = wally,
-            countly = countly
+            countly = countly,
+            database = database,
+            greenKeystore = greenKeystore
         )
 
         gdkSessions.add(session)
@@ -1,19 +1,21 @@
 package com.blockstream.common.models.abstract
 
 import co.touchlab.kermit.Logger
+import com.blockstream.common.bcur.UrFountainDecoder
 import com.blockstream.common.data.GreenWallet
 import com.blockstream.common.data.ScanResult
 import com.blockstream.common.events.Event
 import com.blockstream.common.events.Events
 import com.blockstream.common.extensions.logException
-import com.blockstream.common.gdk.BcurResolver
-import com.blockstream.common.gdk.params.BcurDecodeParams
 import com.blockstream.common.models.GreenViewModel
 import com.blockstream.common.sideeffects.SideEffects
 import com.rickclephas.kmm.viewmodel.coroutineScope
-import kotlinx.coroutines.CompletableDeferred
+import com.rickclephas.kmp.nativecoroutines.NativeCoroutinesState
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.IO
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
@@ -21,7 +23,13 @@ abstract class AbstractScannerViewModel(val isDecodeContinuous: Boolean = false,
 
     private var isScanComplete = false
 
-    private var bcurPartEmitter: CompletableDeferred<String>? = null
+    // Frames are handled in order on the event dispatcher
+    private val urDecoder = UrFountainDecoder()
+
+    private val _scanProgress: MutableStateFlow<Int?> = MutableStateFlow(null)
+    // Percent of a multi-part UR that can be recovered from the scanned parts
+    @NativeCoroutinesState
+    val scanProgress: StateFlow<Int?> = _scanProgress.asStateFlow()
 
     abstract fun setScanResult(scanResult: ScanResult)
 
@@ -36,6 +44,8 @@ abstract class AbstractScannerViewModel(val isDecodeContinuous: Boolean = false,
 
     internal fun resetScanner(){
         isScanComplete = false
+        urDecoder.reset()
+        _scanProgress.value = null
     }
 
     override fun handleEvent(event: Event) {
@@ -45,20 +55,27 @@ abstract class AbstractScannerViewModel(val isDecodeContinuous: Boolean = false,
             val scannedText = event.scannedText
 
             if(!isScanComplete) {
-                if ((isDecodeContinuous && scannedText.startsWith(prefix = "ur:", ignoreCase = true)) || bcurPartEmitter != null) {
-                    if (bcurPartEmitter == null) {
+                if (isDecodeContinuous && scannedText.startsWith(prefix = "ur:", ignoreCase = true)) {
+                    if (urDecoder.isComplete) {
+                        // Typed decode in progress
+                        return
+                    }
+
+                    try {
+                        if (urDecoder.receive(scannedText) && urDecoder.sequenceLength > 1) {
+                            _scanProgress.value = (urDecoder.progress * 100).toInt()
+                        }
+                    } catch (e: Exception) {
+                        // A misread frame, keep scanning
+                        e.printStackTrace()
+                        return
+                    }
+
+                    urDecoder.result?.also { ur ->
                         viewModelScope.coroutineScope.launch(context = logException(countly)) {
                             try {
                                 val bcurDecodedData = withContext(context = Dispatchers.IO) {
-                                    session.bcurDecode(
-                                        BcurDecodeParams(part = scannedText),
-                                        object : BcurResolver {
-                                            override fun requestData(): CompletableDeferred<String> {
-                                                return CompletableDeferred<String>().also {
-                                                    bcurPartEmitter = it
-                                                }
-                                            }
-                                        })
+                                    session.bcurDecode(ur)
                                 }
 
                                 barcodeScannerResult(ScanResult.from(bcurDecodedData))
@@ -66,13 +83,10 @@ abstract class AbstractScannerViewModel(val isDecodeContinuous: Boolean = false,
                                 e.printStackTrace()
                                 postSideEffect(SideEffects.ErrorDialog(e))
                             } finally {
-                                bcurPartEmitter = null
+                                urDecoder.reset()
+                                _scanProgress.value = null
                             }
                         }
-                    } else {
-                        if (bcurPartEmitter?.isCompleted == false) {
-                            bcurPartEmitter?.complete(scannedText)
-                        }
                     }
                 } else {
                     barcodeScannerResult(ScanResult(scannedText))
@@ -80,4 +94,4 @@ abstract class AbstractScannerViewModel(val isDecodeContinuous: Boolean = false,
             }
         }
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package com.blockstream.common.models.jade
 
 import com.blockstream.common.Urls
+import com.blockstream.common.bcur.UrFountainEncoder
 import com.blockstream.common.data.GreenWallet
 import com.blockstream.common.data.NavAction
 import com.blockstream.common.data.NavData
@@ -22,6 +23,7 @@ import com.blockstream.common.utils.Loggable
 import com.rickclephas.kmm.viewmodel.coroutineScope
 import com.rickclephas.kmp.nativecoroutines.NativeCoroutinesState
 import kotlinx.coroutines.Job
+import kotlinx.coroutines.currentCoroutineContext
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
@@ -53,6 +55,10 @@ abstract class JadeQRViewModelAbstract(val isLightningMnemonicExport: Boolean =
     @NativeCoroutinesState
     abstract val urPart: StateFlow<String?>
 
+    // The parts that will be displayed next, so that their frames can be rendered ahead of time
+    @NativeCoroutinesState
+    abstract val urPartsAhead: StateFlow<List<String>>
+
     abstract val scenario: Scenario
 }
 
@@ -66,10 +72,12 @@ class JadeQRViewModel(
 ) {
     private var _urParts = MutableStateFlow<List<String>?>(null)
 
-    private var _urPartIndex = 0
     private val _urPart: MutableStateFlow<String?> = MutableStateFlow(null)
     override val urPart: StateFlow<String?> = _urPart.asStateFlow()
 
+    private val _urPartsAhead: MutableStateFlow<List<String>> = MutableStateFlow(listOf())
+    override val urPartsAhead: StateFlow<List<String>> = _urPartsAhead.asStateFlow()
+
     private var _step = 0
 
     override val scenario: Scenario = if(isLightningMnemonicExport) ExportLightningScenario else PinUnlockScenario
@@ -104,24 +112,14 @@ class JadeQRViewModel(
         _urParts.onEach { parts ->
             _job?.cancel()
 
-            _urPartIndex = 0
-
             _urPart.value = parts?.firstOrNull()
+            _urPartsAhead.value = listOf()
 
             _isValid.value = false
 
             _job = viewModelScope.coroutineScope.launch(context = logException(countly)) {
-                // Rotate qr codes
                 if (parts != null && parts.size > 1) {
-                    while (isActive) {
-                        if (_urPartIndex >= parts.size) {
-                            _urPartIndex = 0
-                            _isValid.value = true
-                        }
-                        _urPart.value = parts[_urPartIndex]
-                        _urPartIndex++
-                        delay(1000L)
-                    }
+                    animate(parts)
                 } else {
                     delay(3000L)
                     _isValid.value = true
@@ -135,6 +133,41 @@ class JadeQRViewModel(
         bootstrap()
     }
 
+    private suspend fun animate(parts: List<String>) {
+        // Re-encode the GDK parts as an unbounded fountain, fall back to rotating them as they are
+        val encoder = try {
+            UrFountainEncoder.fromParts(parts, maxFragmentLength = UR_FRAGMENT_LENGTH)
+        } catch (e: Exception) {
+            e.printStackTrace()
+            null
+        }
+
+        val sequenceLength = encoder?.sequenceLength ?: parts.size
+        val nextPart: () -> String = encoder?.let { { it.nextPart() } } ?: run {
+            var index = 0
+            { parts[index++ % parts.size] }
+        }
+
+        val upcoming = ArrayDeque<String>()
+        var shown = 0
+
+        while (currentCoroutineContext().isActive) {
+            while (upcoming.size <= UR_FRAMES_AHEAD) {
+                upcoming.addLast(nextPart())
+            }
+
+            _urPart.value = upcoming.removeFirst()
+            _urPartsAhead.value = upcoming.toList()
+
+            // Every fragment has been displayed at least once
+            if (++shown >= sequenceLength) {
+                _isValid.value = true
+            }
+
+            delay(1000L / UR_FRAMES_PER_SECOND)
+        }
+    }
+
     private fun restart(){
         _step = 0
         _stepInfo.value = scenario.steps.first()
@@ -219,6 +252,12 @@ class JadeQRViewModel(
     }
 
     companion object : Loggable() {
+        // Fragment size of the animated QR parts, smaller fragments make less dense, easier to scan codes
+        const val UR_FRAGMENT_LENGTH = 100
+        const val UR_FRAMES_PER_SECOND = 4
+        // Parts exposed ahead of display for pre-rendering
+        const val UR_FRAMES_AHEAD = 4
+
         val ExportLightningScenario = Scenario(listOf(
             StepInfo(
                 title = "id_scan_qr_with_jade",
@@ -267,6 +306,7 @@ class JadeQRViewModelPreview() : JadeQRViewModelAbstract() {
     override val stepInfo: StateFlow<StepInfo> = MutableStateFlow(StepInfo())
     override val urPart: StateFlow<String?> =
         MutableStateFlow("Lorem ipsum dolor sit amet, consectetur adipiscing elit.")
+    override val urPartsAhead: StateFlow<List<String>> = MutableStateFlow(listOf())
 
     override val scenario: Scenario = ExportLightningScenario
 
@@ -0,0 +1,105 @@
+package com.blockstream.common.utils
+
+import co.touchlab.stately.collections.ConcurrentMutableMap
+import com.blockstream.common.gdk.data.Asset
+import com.blockstream.common.gdk.data.Balance
+import com.blockstream.common.gdk.data.TickerEvent
+import com.blockstream.common.gdk.params.Convert
+import kotlin.math.absoluteValue
+import kotlin.math.roundToLong
+
+/*
+ * Converts satoshi amounts locally, producing the same Balance as GDK convert_amount.
+ * Exchange rates are learnt from GDK conversions and ticker notifications, keyed by currency and exchange.
+ * If no rate is known for the requested pricing, conversion returns null and GDK should be used.
+ */
+class AmountConverter {
+    private val rates = ConcurrentMutableMap<String, String>()
+
+    fun updateRate(currency: String?, exchange: String?, rate: String?) {
+        if (currency.isNullOrBlank() || exchange.isNullOrBlank() || rate.isNullOrBlank()) return
+        // Validate before caching
+        rate.toDoubleOrNull() ?: return
+        rates[key(currency, exchange)] = rate
+    }
+
+    fun updateRate(ticker: TickerEvent) = updateRate(ticker.currency, ticker.exchange, ticker.rate)
+
+    fun rate(currency: String, exchange: String): String? = rates[key(currency, exchange)]
+
+    fun clear() {
+        rates.clear()
+    }
+
+    // Only plain satoshi conversions can be done locally
+    fun canConvert(convert: Convert): Boolean = convert.satoshi != null &&
+            convert.assetAmount == null &&
+            convert.btc == null && convert.mbtc == null && convert.bits == null && convert.sats == null && convert.fiat == null
+
+    fun convert(convert: Convert, currency: String?, exchange: String?): Balance? {
+        if (!canConvert(convert)) return null
+        val satoshi = convert.satoshi ?: return null
+
+        convert.asset?.also {
+            return convertAsset(satoshi, it)
+        }
+
+        if (currency == null || exchange == null) return null
+        return rate(currency, exchange)?.let {
+            convert(satoshi = satoshi, fiatCurrency = currency, fiatRate = it, pricingCurrency = currency)
+        }
+    }
+
+    companion object {
+        private fun key(currency: String, exchange: String) = "${currency.uppercase()}:${exchange.lowercase()}"
+
+        // As GDK, the balance is current only if it is in the pricing currency of the session
+        fun convert(satoshi: Long, fiatCurrency: String, fiatRate: String, pricingCurrency: String?): Balance? {
+            val rate = fiatRate.toDoubleOrNull() ?: return null
+
+            return Balance(
+                bits = decimal(satoshi, 2),
+                btc = decimal(satoshi, 8),
+                fiat = fiat(satoshi, rate),
+                fiatCurrency = fiatCurrency,
+                fiatRate = fiatRate,
+                mbtc = decimal(satoshi, 5),
+                satoshi = satoshi,
+                sats = satoshi.toString(),
+                ubtc = decimal(satoshi, 2),
+                isCurrent = fiatCurrency.equals(pricingCurrency, ignoreCase = true)
+            )
+        }
+
+        fun convertAsset(satoshi: Long, asset: Asset): Balance {
+            return Balance.fromAssetWithoutMetadata(Convert(satoshi = satoshi)).also {
+                it.assetInfo = asset
+                it.assetValue = decimal(satoshi, asset.precision)
+            }
+        }
+
+        // Decimal string of an integer amount with 'scale' decimal places, eg. decimal(1234567, 5) = "12.34567"
+        internal fun decimal(value: Long, scale: Int): String {
+            val sign = if (value < 0) "-" else ""
+            val digits = value.absoluteValue.toString()
+
+            if (scale <= 0) {
+                return sign + digits
+            }
+
+            val padded = digits.padStart(scale + 1, '0')
+            return sign + padded.substring(0, padded.length - scale) + "." + padded.substring(padded.length - scale)
+        }
+
+        // Fiat value with 2 decimal places, rounded half up
+        internal fun fiat(satoshi: Long, rate: Double): String {
+            val cents = (satoshi.absoluteValue.toDouble() * rate / 1_000_000.0).let {
+                // Guard against binary representation errors, eg. 0.125 * 100 = 12.499999...
+                (it + 1e-9).roundToLong()
+            }
+
+            val sign = if (satoshi < 0 && cents != 0L) "-" else ""
+            return sign + decimal(cents, 2)
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.blockstream.common.utils
 
+import co.touchlab.stately.collections.ConcurrentMutableMap
 import com.blockstream.common.BITS_UNIT
 import com.blockstream.common.BTC_UNIT
 import com.blockstream.common.MBTC_UNIT
@@ -65,23 +66,50 @@ fun getDecimals(unit: String): Int {
     }
 }
 
-fun gdkNumberFormat(decimals: Int, withDecimalSeparator: Boolean = false) = (DecimalFormat(GDK_LOCALE)).apply {
-    minimumFractionDigits = if(withDecimalSeparator) decimals else 0
-    maximumFractionDigits = decimals
-    isGroupingUsed = false
-    decimalSeparator = '.'
-    groupingSeparator = ','
+private data class NumberFormatKey(
+    val isGdk: Boolean,
+    val decimals: Int,
+    val withDecimalSeparator: Boolean,
+    val withGrouping: Boolean = false,
+    val withMinimumDigits: Boolean = false,
+    val locale: String? = null
+)
+
+// Formatters are shared, do not modify the returned instances
+private val numberFormats = ConcurrentMutableMap<NumberFormatKey, DecimalFormat>()
+
+fun gdkNumberFormat(decimals: Int, withDecimalSeparator: Boolean = false) = numberFormats.getOrPut(
+    NumberFormatKey(isGdk = true, decimals = decimals, withDecimalSeparator = withDecimalSeparator)
+) {
+    (DecimalFormat(GDK_LOCALE)).apply {
+        minimumFractionDigits = if(withDecimalSeparator) decimals else 0
+        maximumFractionDigits = decimals
+        isGroupingUsed = false
+        decimalSeparator = '.'
+        groupingSeparator = ','
+    }
 }
 
 fun userNumberFormat(decimals: Int,
                     withDecimalSeparator: Boolean,
                     withGrouping: Boolean = false,
                     withMinimumDigits:Boolean = false,
-                    locale: String? = null) = DecimalFormat(locale).apply {
-    minimumFractionDigits = if(withDecimalSeparator || withMinimumDigits) decimals else 0
-    maximumFractionDigits = decimals
-    isDecimalSeparatorAlwaysShown = withDecimalSeparator
-    isGroupingUsed = withGrouping
+                    locale: String? = null) = numberFormats.getOrPut(
+    NumberFormatKey(
+        isGdk = false,
+        decimals = decimals,
+        withDecimalSeparator = withDecimalSeparator,
+        withGrouping = withGrouping,
+        withMinimumDigits = withMinimumDigits,
+        locale = locale
+    )
+) {
+    DecimalFormat(locale).apply {
+        minimumFractionDigits = if(withDecimalSeparator || withMinimumDigits) decimals else 0
+        maximumFractionDigits = decimals
+        isDecimalSeparatorAlwaysShown = withDecimalSeparator
+        isGroupingUsed = withGrouping
+    }
 }
 
 fun CreateTransaction.feeRateKBWithUnit(): String? {
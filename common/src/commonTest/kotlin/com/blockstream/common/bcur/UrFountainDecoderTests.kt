@@ -0,0 +1,142 @@
+package com.blockstream.common.bcur
+
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertFalse
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class UrFountainDecoderTests {
+
+    private fun message(length: Int, seed: String = "Wolf"): ByteArray {
+        val rng = Xoshiro256(seed)
+        return ByteArray(length) { rng.nextByte() }
+    }
+
+    @Test
+    fun `test pure parts`() {
+        val message = message(1000)
+        val encoder = UrFountainEncoder("psbt", message, maxFragmentLength = 100)
+        val decoder = UrFountainDecoder()
+
+        repeat(encoder.sequenceLength - 1) {
+            assertTrue(decoder.receive(encoder.nextPart()))
+            assertFalse(decoder.isComplete)
+            assertNull(decoder.result)
+        }
+        assertEquals(0.9f, decoder.progress)
+
+        assertTrue(decoder.receive(encoder.nextPart()))
+        assertTrue(decoder.isComplete)
+        assertEquals(1f, decoder.progress)
+        assertContentEquals(message, decoder.resultMessage)
+        assertEquals("ur:psbt/${Bytewords.encodeMinimal(message)}", decoder.result)
+    }
+
+    @Test
+    fun `test duplicate frames`() {
+        val encoder = UrFountainEncoder("psbt", message(1000), maxFragmentLength = 100)
+        val decoder = UrFountainDecoder()
+
+        val part = encoder.nextPart()
+        assertTrue(decoder.receive(part))
+        assertFalse(decoder.receive(part))
+        assertFalse(decoder.receive(part.uppercase()))
+
+        assertEquals(1, decoder.receivedPartsCount)
+        assertEquals(2, decoder.duplicatePartsCount)
+        assertEquals(1, decoder.rank)
+    }
+
+    @Test
+    fun `test mixed parts only`() {
+        val message = message(2000)
+        val encoder = UrFountainEncoder("psbt", message, maxFragmentLength = 100)
+        val decoder = UrFountainDecoder()
+
+        // Skip all the pure parts
+        var sequenceNumber = encoder.sequenceLength.toLong()
+        while (!decoder.isComplete) {
+            decoder.receive(encoder.part(++sequenceNumber))
+        }
+
+        assertContentEquals(message, decoder.resultMessage)
+    }
+
+    @Test
+    fun `test frames to complete with dropped frames`() {
+        val message = message(2000)
+        val encoder = UrFountainEncoder("psbt", message, maxFragmentLength = 100)
+
+        val runs = 50
+        var totalReceived = 0
+        repeat(runs) { run ->
+            val drops = Xoshiro256("run$run")
+            val decoder = UrFountainDecoder()
+            var sequenceNumber = 0L
+            while (!decoder.isComplete) {
+                sequenceNumber++
+                if (drops.nextDouble() < 0.3) continue
+                decoder.receive(encoder.part(sequenceNumber))
+            }
+            assertContentEquals(message, decoder.resultMessage)
+            totalReceived += decoder.receivedPartsCount
+        }
+
+        // Completes as soon as the received parts determine the message, some mixed parts are
+        // linearly dependent so the overhead over sequenceLength parts is small but not zero
+        val average = totalReceived / runs.toDouble()
+        assertTrue(average < encoder.sequenceLength * 1.25, "$average received parts")
+    }
+
+    @Test
+    fun `test new message resets`() {
+        val first = UrFountainEncoder("psbt", message(1000, seed = "first"), maxFragmentLength = 100)
+        val second = message(1000, seed = "second")
+        val secondEncoder = UrFountainEncoder("psbt", second, maxFragmentLength = 100)
+        val decoder = UrFountainDecoder()
+
+        repeat(5) { decoder.receive(first.nextPart()) }
+        assertEquals(5, decoder.rank)
+
+        while (!decoder.isComplete) {
+            decoder.receive(secondEncoder.nextPart())
+        }
+        assertContentEquals(second, decoder.resultMessage)
+        assertEquals(secondEncoder.sequenceLength, decoder.receivedPartsCount)
+    }
+
+    @Test
+    fun `test invalid parts`() {
+        val encoder = UrFountainEncoder("psbt", message(1000), maxFragmentLength = 100)
+        val decoder = UrFountainDecoder()
+        decoder.receive(encoder.nextPart())
+
+        // Oversized sequence, rejected before the decoder is reset for it
+        val oversized = UrPart.parse(encoder.part(2))!!.let {
+            UrPart(it.type, it.sequenceNumber, 1_000_000, 1_000_000 * it.fragment.size, it.checksum, it.fragment)
+        }
+        assertFailsWith<Exception> { decoder.receive(oversized.toUr()) }
+        assertEquals(1, decoder.rank)
+
+        // Fragment of another length for the same message
+        val padded = UrPart.parse(encoder.part(2))!!.let {
+            UrPart(it.type, it.sequenceNumber, it.sequenceLength, it.messageLength, it.checksum, it.fragment.copyOf(it.fragment.size + 1))
+        }
+        assertFailsWith<Exception> { decoder.receive(padded.toUr()) }
+        assertEquals(1, decoder.rank)
+    }
+
+    @Test
+    fun `test single part`() {
+        val message = message(20)
+        val decoder = UrFountainDecoder()
+
+        assertTrue(decoder.receive("ur:jade-pin/${Bytewords.encodeMinimal(message)}"))
+        assertTrue(decoder.isComplete)
+        assertEquals("jade-pin", decoder.type)
+        assertContentEquals(message, decoder.resultMessage)
+    }
+}
@@ -0,0 +1,94 @@
+package com.blockstream.common.bcur
+
+import kotlin.test.Test
+import kotlin.test.assertContentEquals
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class UrFountainEncoderTests {
+
+    // 256 random bytes wrapped in a CBOR byte string, the "bytes" UR of the reference test vectors
+    private fun message(length: Int, seed: String = "Wolf"): ByteArray {
+        val rng = Xoshiro256(seed)
+        val bytes = ByteArray(length) { rng.nextByte() }
+        return Cbor.Writer(length + 3).apply { writeBytes(bytes) }.toByteArray()
+    }
+
+    @Test
+    fun `test rng`() {
+        val rng = Xoshiro256("Wolf")
+        assertEquals(listOf(42, 81, 85, 8, 82, 84, 76, 73, 70, 88, 2, 74), List(12) { (rng.next() % 100UL).toInt() })
+    }
+
+    @Test
+    fun `test bytewords`() {
+        val data = byteArrayOf(0, 1, 2, 0x80.toByte(), 0xff.toByte())
+        val encoded = Bytewords.encodeMinimal(data)
+        assertEquals("aeadaolazmjendeoti", encoded)
+        assertContentEquals(data, Bytewords.decodeMinimal(encoded))
+    }
+
+    @Test
+    fun `test reference parts`() {
+        val encoder = UrFountainEncoder("bytes", message(256), maxFragmentLength = 30)
+        val parts = List(20) { encoder.nextPart() }
+
+        assertEquals(9, encoder.sequenceLength)
+        assertEquals("ur:bytes/1-9/lpadascfadaxcywenbpljkhdcahkadaemejtswhhylkepmykhhtsytsnoyoyaxaedsuttydmmhhpktpmsrjtdkgslpgh", parts[0])
+        assertEquals("ur:bytes/2-9/lpaoascfadaxcywenbpljkhdcagwdpfnsboxgwlbaawzuefywkdplrsrjynbvygabwjldapfcsgmghhkhstlrdcxaefz", parts[1])
+        assertEquals("ur:bytes/10-9/lpbkascfadaxcywenbpljkhdcahkadaemejtswhhylkepmykhhtsytsnoyoyaxaedsuttydmmhhpktpmsrjtwdkiplzs", parts[9])
+        assertEquals("ur:bytes/20-9/lpbbascfadaxcywenbpljkhdcayapmrleeleaxpasfrtrdkncffwjyjzgyetdmlewtkpktgllepfrltataztksmhkbot", parts[19])
+
+        // Parts can be created ahead of time
+        assertEquals(parts[14], encoder.part(15))
+    }
+
+    @Test
+    fun `test fragment choice`() {
+        val checksum = crc32(message(256))
+        assertEquals(listOf(0), UrPart.chooseFragments(10, 9, checksum))
+        assertEquals(listOf(6, 2), UrPart.chooseFragments(12, 9, checksum))
+        assertEquals(listOf(3, 7, 8), UrPart.chooseFragments(13, 9, checksum))
+    }
+
+    @Test
+    fun `test re-encode from gdk parts`() {
+        val message = message(1000, seed = "gdk")
+        val gdkParts = UrFountainEncoder("jade-pin", message, maxFragmentLength = 100).let { encoder ->
+            List(encoder.sequenceLength) { encoder.nextPart() }
+        }
+
+        val encoder = UrFountainEncoder.fromParts(gdkParts, maxFragmentLength = 200)
+        assertEquals("jade-pin", encoder.type)
+        assertTrue(encoder.fragmentLength <= 200)
+        assertEquals(crc32(message), encoder.checksum)
+
+        val single = UrFountainEncoder.fromParts(listOf("ur:jade-pin/${Bytewords.encodeMinimal(message)}"), maxFragmentLength = 200)
+        assertEquals(encoder.part(42), single.part(42))
+    }
+
+    @Test
+    fun `test invalid parts`() {
+        val part = UrPart.parse(UrFountainEncoder("bytes", message(256), maxFragmentLength = 30).part(12))!!
+
+        fun UrPart.with(sequenceLength: Int = this.sequenceLength, messageLength: Int = this.messageLength) =
+            UrPart(type, sequenceNumber, sequenceLength, messageLength, checksum, fragment).toUr()
+
+        // Oversized sequence, it would size the decoder tables
+        assertFailsWith<Exception> { UrPart.parse(part.with(sequenceLength = 1_000_000, messageLength = 1_000_000 * part.fragment.size)) }
+        // Message length not matching the fragments
+        assertFailsWith<Exception> { UrPart.parse(part.with(messageLength = part.messageLength * 2)) }
+        assertFailsWith<Exception> { UrPart.parse(part.with(messageLength = 1)) }
+
+        assertEquals(part.toUr(), UrPart.parse(part.toUr())?.toUr())
+    }
+
+    @Test
+    fun `test single part`() {
+        val encoder = UrFountainEncoder("bytes", message(16), maxFragmentLength = 100)
+        assertTrue(encoder.isSinglePart)
+        assertEquals(encoder.nextPart(), encoder.nextPart())
+        assertTrue(encoder.part(1).startsWith("ur:bytes/"))
+    }
+}
@@ -0,0 +1,99 @@
+package com.blockstream.common.bcur
+
+import com.blockstream.common.models.jade.JadeQRViewModel.Companion.UR_FRAGMENT_LENGTH
+import com.blockstream.common.models.jade.JadeQRViewModel.Companion.UR_FRAMES_PER_SECOND
+import kotlin.test.Test
+import kotlin.test.assertTrue
+
+/*
+ * Simulates a scanner that misses frames of an animated QR and counts the frames shown until it can
+ * recover the message, for a fixed rotation of the pure parts and for the fountain parts.
+ */
+class UrTransferBenchmarkTests {
+
+    // Peeling decoder on the fragment indexes, enough to know when the message is recoverable
+    private class Scanner(private val sequenceLength: Int) {
+        private val known = BooleanArray(sequenceLength)
+        private var knownCount = 0
+        private val mixed = mutableListOf<MutableSet<Int>>()
+
+        val isComplete: Boolean
+            get() = knownCount == sequenceLength
+
+        fun receive(indexes: List<Int>) {
+            mixed += indexes.filterNot { known[it] }.toMutableSet()
+            var progress = true
+            while (progress) {
+                progress = false
+                val iterator = mixed.iterator()
+                while (iterator.hasNext()) {
+                    val set = iterator.next()
+                    set.removeAll { known[it] }
+                    if (set.size <= 1) {
+                        iterator.remove()
+                        set.firstOrNull()?.also {
+                            known[it] = true
+                            knownCount++
+                            progress = true
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private fun framesToComplete(
+        sequenceLength: Int,
+        checksum: Long,
+        dropRate: Double,
+        seed: String,
+        fountain: Boolean
+    ): Int {
+        val drops = Xoshiro256(seed)
+        val scanner = Scanner(sequenceLength)
+        var frame = 0L
+        while (!scanner.isComplete && frame < MAX_FRAMES) {
+            frame++
+            if (drops.nextDouble() < dropRate) continue
+
+            val sequenceNumber = if (fountain) frame else (frame - 1) % sequenceLength + 1
+            scanner.receive(UrPart.chooseFragments(sequenceNumber, sequenceLength, checksum))
+        }
+        return frame.toInt()
+    }
+
+    @Test
+    fun `benchmark transfer with dropped frames`() {
+        val message = Xoshiro256("benchmark").let { rng -> ByteArray(2000) { rng.nextByte() } }
+        val encoder = UrFountainEncoder("jade-pin", message, maxFragmentLength = UR_FRAGMENT_LENGTH)
+
+        for (dropRate in listOf(0.1, 0.3, 0.5)) {
+            val runs = 20
+            val rotation = (1..runs).sumOf {
+                framesToComplete(encoder.sequenceLength, encoder.checksum, dropRate, "run$it", fountain = false)
+            } / runs.toDouble()
+            val fountain = (1..runs).sumOf {
+                framesToComplete(encoder.sequenceLength, encoder.checksum, dropRate, "run$it", fountain = true)
+            } / runs.toDouble()
+
+            val transfer = "at ${(dropRate * 100).toInt()}% dropped frames, fountain $fountain frames (${seconds(fountain)}s), " +
+                    "rotation $rotation frames (${seconds(rotation)}s)"
+
+            // Both schemes recover the message, none with fewer frames than fragments
+            assertTrue(rotation >= encoder.sequenceLength && rotation < MAX_FRAMES, transfer)
+            assertTrue(fountain >= encoder.sequenceLength && fountain < MAX_FRAMES, transfer)
+
+            // A missed pure part is only shown again after a whole rotation, any fountain part can replace it
+            if (dropRate >= 0.3) {
+                assertTrue(fountain < rotation, transfer)
+            }
+        }
+    }
+
+    // Transfer time at the rate the animated QR is displayed
+    private fun seconds(frames: Double) = (frames / UR_FRAMES_PER_SECOND * 10).toLong() / 10.0
+
+    companion object {
+        const val MAX_FRAMES = 100_000
+    }
+}
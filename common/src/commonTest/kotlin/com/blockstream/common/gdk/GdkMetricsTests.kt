@@ -0,0 +1,136 @@
+package com.blockstream.common.gdk
+
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class GdkMetricsTests {
+
+    @Test
+    fun `test histogram percentiles`() {
+        val histogram = LatencyHistogram()
+
+        // 1ms..100ms
+        for (ms in 1..100) {
+            histogram.record(ms * 1000L)
+        }
+
+        assertEquals(100, histogram.count)
+
+        // Upper bound of the bucket, at most 19% above the exact value
+        histogram.percentile(0.50, 100_000).also { assertTrue(it in 50_000..59_500, "p50 $it") }
+        histogram.percentile(0.95, 100_000).also { assertTrue(it in 95_000..100_000, "p95 $it") }
+        histogram.percentile(0.99, 100_000).also { assertTrue(it in 99_000..100_000, "p99 $it") }
+
+        histogram.reset()
+        assertEquals(0, histogram.percentile(0.99, 0))
+    }
+
+    @Test
+    fun `test histogram bounds`() {
+        assertEquals(0, LatencyHistogram.bucket(0))
+        assertEquals(0, LatencyHistogram.bucket(10))
+        assertEquals(LatencyHistogram.BOUNDS.size, LatencyHistogram.bucket(Long.MAX_VALUE))
+
+        val histogram = LatencyHistogram()
+        histogram.record(Long.MAX_VALUE)
+        assertEquals(42, histogram.percentile(0.5, 42))
+    }
+
+    @Test
+    fun `test calls per method and network`() {
+        val metrics = GdkMetrics()
+        val mainnet = Any()
+        val liquid = Any()
+
+        metrics.setSessionNetwork(mainnet, "mainnet")
+        metrics.setSessionNetwork(liquid, "liquid")
+
+        repeat(3) { metrics.measure("get_settings", metrics.network(mainnet)) { } }
+        metrics.measure("get_settings", metrics.network(liquid)) { }
+        metrics.measure("create_session", null) { }
+
+        assertFailsWith<IllegalStateException> {
+            metrics.measure("get_fee_estimates", metrics.network(mainnet)) { error("timeout") }
+        }
+
+        val calls = metrics.snapshot().calls.associateBy { it.method to it.network }
+
+        assertEquals(3, calls.getValue("get_settings" to "mainnet").count)
+        assertEquals(1, calls.getValue("get_settings" to "liquid").count)
+        assertEquals(1, calls.getValue("create_session" to null).count)
+        calls.getValue("get_fee_estimates" to "mainnet").also {
+            assertEquals(1, it.count)
+            assertEquals(1, it.errors)
+            assertEquals(0, it.inFlight)
+        }
+
+        metrics.removeSession(mainnet)
+        assertEquals(null, metrics.network(mainnet))
+    }
+
+    @Test
+    fun `test in flight`() {
+        val metrics = GdkMetrics()
+
+        metrics.measure("get_transactions", "mainnet") {
+            metrics.measure("get_transactions", "mainnet") {
+                val calls = metrics.snapshot().calls
+                assertEquals(2, calls.single().inFlight)
+
+                // Reset keeps the calls in flight
+                metrics.reset()
+            }
+        }
+
+        metrics.snapshot().calls.single().also {
+            assertEquals(2, it.count)
+            assertEquals(0, it.inFlight)
+            assertEquals(2, it.maxInFlight)
+        }
+    }
+
+    @Test
+    fun `test auth handler calls`() {
+        val metrics = GdkMetrics()
+        val forwarded = mutableListOf<GdkCall>()
+        metrics.apmListener = { forwarded += it }
+
+        val authHandler = Any()
+        metrics.trackAuthHandler(authHandler, "get_transactions", "testnet")
+
+        val (method, network) = metrics.authHandlerOrigin(authHandler)
+        repeat(2) {
+            metrics.measure("$method/status", network, payloadBytes = { it: String -> it.length.toLong() }) { "{\"transactions\":[]}" }
+        }
+
+        // Not forwarded unless enabled
+        assertTrue(forwarded.isEmpty())
+        metrics.isApmForwardingEnabled = true
+
+        metrics.untrackAuthHandler(authHandler)
+        assertEquals(GdkMetrics.UNKNOWN_AUTH_HANDLER to null, metrics.authHandlerOrigin(authHandler))
+
+        val calls = metrics.snapshot().calls.associateBy { it.method }
+        calls.getValue("get_transactions/status").also {
+            assertEquals("testnet", it.network)
+            assertEquals(2, it.count)
+            assertEquals(38, it.payloadBytes)
+            assertEquals(19, it.maxPayloadBytes)
+        }
+        assertEquals(1, calls.getValue("get_transactions/total").count)
+
+        assertEquals(listOf("get_transactions/total"), forwarded.map { it.method })
+    }
+
+    @Test
+    fun `test snapshot json`() {
+        val metrics = GdkMetrics()
+        metrics.measure("get_subaccounts", "mainnet") { }
+
+        val json = metrics.snapshot().toJson()
+        assertTrue(json.contains("\"method\":\"get_subaccounts\""), json)
+        assertTrue(json.contains("\"p95_ms\""), json)
+    }
+}
@@ -0,0 +1,48 @@
+package com.blockstream.common.gdk
+
+import kotlinx.serialization.json.jsonArray
+import kotlinx.serialization.json.jsonObject
+import kotlinx.serialization.json.jsonPrimitive
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+class RawJsonTests {
+
+    @Test
+    fun `test top level field`() {
+        val json = RawJson("""{"action":"get_transactions","methods":[],"status":"done","result":{"transactions":[{"txhash":"ab","memo":"}]{\"result\":1"}]},"error":""}""")
+
+        val result = json.field("result")!!
+        assertEquals("""{"transactions":[{"txhash":"ab","memo":"}]{\"result\":1"}]}""", result.json)
+        assertEquals("ab", result.jsonElement.jsonObject["transactions"]!!.jsonArray[0].jsonObject["txhash"]!!.jsonPrimitive.content)
+
+        assertEquals("\"done\"", json.field("status")!!.json)
+        assertEquals("[]", json.field("methods")!!.json)
+        assertEquals("\"\"", json.field("error")!!.json)
+    }
+
+    @Test
+    fun `test nested fields are not matched`() {
+        val json = RawJson("""{"status":"resolve_code","required_data":{"result":{"xpubs":[]}}}""")
+
+        assertNull(json.field("result"))
+    }
+
+    @Test
+    fun `test whitespace and primitives`() {
+        val json = RawJson(" {\n \"attempts_remaining\" : 3 ,\n \"result\" : null, \"done\":true }")
+
+        assertEquals("3", json.field("attempts_remaining")!!.json)
+        assertEquals("true", json.field("done")!!.json)
+        assertNull(json.field("result"))
+        assertNull(json.field("missing"))
+    }
+
+    @Test
+    fun `test not an object`() {
+        assertNull(RawJson("[]").field("result"))
+        assertNull(RawJson("\"result\"").field("result"))
+        assertNull(RawJson("").field("result"))
+    }
+}
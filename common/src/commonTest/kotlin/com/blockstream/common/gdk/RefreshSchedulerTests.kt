@@ -0,0 +1,104 @@
+package com.blockstream.common.gdk
+
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.test.advanceTimeBy
+import kotlinx.coroutines.test.runCurrent
+import kotlinx.coroutines.test.runTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+
+@OptIn(ExperimentalCoroutinesApi::class)
+class RefreshSchedulerTests {
+
+    @Test
+    fun `test burst is merged per kind and key`() = runTest {
+        val executed = mutableListOf<Pair<RefreshKind, List<String>?>>()
+        val scheduler = RefreshScheduler<String>(scope = backgroundScope, windowMs = 100, key = { it }) { kind, targets ->
+            executed += kind to targets
+        }
+
+        // New block on two networks, followed by transactions touching the same accounts
+        scheduler.scheduleAll(listOf("btc:0", "btc:1"))
+        scheduler.scheduleAll(listOf("liquid:0"))
+        scheduler.scheduleAll(listOf("btc:1"))
+        scheduler.scheduleAll(listOf("liquid:0", "btc:0"))
+
+        runCurrent()
+        assertEquals(0, executed.size)
+
+        advanceTimeBy(101)
+
+        assertEquals(RefreshKind.entries.size, executed.size)
+        executed.forEachIndexed { index, (kind, targets) ->
+            assertEquals(RefreshKind.entries[index], kind)
+            assertEquals(listOf("btc:0", "btc:1", "liquid:0"), targets)
+        }
+
+        scheduler.stats.value.also {
+            assertEquals(6L * RefreshKind.entries.size, it.scheduled)
+            assertEquals(3L * RefreshKind.entries.size, it.merged)
+            assertEquals(RefreshKind.entries.size.toLong(), it.executed)
+        }
+    }
+
+    @Test
+    fun `test refresh all absorbs keyed requests`() = runTest {
+        val executed = mutableListOf<Pair<RefreshKind, List<String>?>>()
+        val scheduler = RefreshScheduler<String>(scope = backgroundScope, windowMs = 100, key = { it }) { kind, targets ->
+            executed += kind to targets
+        }
+
+        scheduler.schedule(RefreshKind.BALANCES, listOf("btc:0"))
+        scheduler.schedule(RefreshKind.BALANCES)
+        scheduler.schedule(RefreshKind.BALANCES, listOf("btc:1"))
+
+        advanceTimeBy(101)
+
+        assertEquals(1, executed.size)
+        assertEquals(RefreshKind.BALANCES, executed[0].first)
+        assertNull(executed[0].second)
+        assertEquals(2L, scheduler.stats.value.merged)
+    }
+
+    @Test
+    fun `test separate windows execute separately`() = runTest {
+        var executed = 0
+        val scheduler = RefreshScheduler<String>(scope = backgroundScope, windowMs = 100, key = { it }) { _, _ ->
+            executed++
+        }
+
+        scheduler.schedule(RefreshKind.WALLET_TRANSACTIONS, listOf("btc:0"))
+        advanceTimeBy(101)
+        scheduler.schedule(RefreshKind.WALLET_TRANSACTIONS, listOf("btc:0"))
+        advanceTimeBy(101)
+
+        assertEquals(2, executed)
+        assertEquals(0L, scheduler.stats.value.merged)
+    }
+
+    @Test
+    fun `test failing refresh doesn't stop the scheduler`() = runTest {
+        val executed = mutableListOf<RefreshKind>()
+        val errors = mutableListOf<Exception>()
+        val scheduler = RefreshScheduler<String>(scope = backgroundScope, windowMs = 100, key = { it }, onError = { errors += it }) { kind, _ ->
+            executed += kind
+            if (kind == RefreshKind.ACCOUNT_TRANSACTIONS) {
+                throw Exception("gdk error")
+            }
+        }
+
+        scheduler.scheduleAll(listOf("btc:0"))
+        advanceTimeBy(101)
+
+        // The other kinds of the window still run
+        assertEquals(RefreshKind.entries, executed)
+        assertEquals(listOf("gdk error"), errors.map { it.message })
+
+        scheduler.schedule(RefreshKind.BALANCES, listOf("btc:0"))
+        advanceTimeBy(101)
+
+        assertEquals(RefreshKind.BALANCES, executed.last())
+        assertEquals(RefreshKind.entries.size.toLong() + 1, scheduler.stats.value.executed)
+    }
+}
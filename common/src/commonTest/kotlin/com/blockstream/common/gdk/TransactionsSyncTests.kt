@@ -0,0 +1,100 @@
+package com.blockstream.common.gdk
+
+import com.blockstream.common.gdk.data.Transaction
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertSame
+import kotlin.test.assertTrue
+
+class TransactionsSyncTests {
+
+    private fun tx(hash: String, blockHeight: Long) = Transaction.LoadingTransaction.copy(txHash = hash, blockHeight = blockHeight)
+
+    @Test
+    fun `test new transactions are prepended`() {
+        val existing = listOf(tx("c", 100), tx("b", 90), tx("a", 80))
+        val head = listOf(tx("e", 0), tx("d", 101), tx("c", 100))
+
+        val merge = TransactionsSync.merge(existing = existing, head = head, isEndOfList = false)
+
+        assertEquals(listOf("e", "d", "c", "b", "a"), merge.transactions.map { it.txHash })
+        assertEquals(listOf("e", "d"), merge.diff.inserted.map { it.txHash })
+        assertTrue(merge.diff.updated.isEmpty())
+        assertTrue(merge.diff.removed.isEmpty())
+
+        // Unchanged entries keep their instances
+        assertSame(existing[0], merge.transactions[2])
+        assertSame(existing[2], merge.transactions[4])
+    }
+
+    @Test
+    fun `test confirmation is patched`() {
+        val existing = listOf(tx("c", 0), tx("b", 90))
+        val head = listOf(tx("c", 91), tx("b", 90))
+
+        val merge = TransactionsSync.merge(existing = existing, head = head, isEndOfList = true)
+
+        assertEquals(listOf("c", "b"), merge.transactions.map { it.txHash })
+        assertEquals(91L, merge.transactions[0].blockHeight)
+        assertEquals(listOf("c"), merge.diff.updated.map { it.txHash })
+        assertSame(existing[1], merge.transactions[1])
+        assertTrue(merge.diff.inserted.isEmpty())
+    }
+
+    @Test
+    fun `test replaced unconfirmed transaction is removed`() {
+        val existing = listOf(tx("rbf", 0), tx("b", 90), tx("a", 80))
+        val head = listOf(tx("bumped", 0), tx("b", 90))
+
+        val merge = TransactionsSync.merge(existing = existing, head = head, isEndOfList = false)
+
+        assertEquals(listOf("bumped", "b", "a"), merge.transactions.map { it.txHash })
+        assertEquals(listOf("rbf"), merge.diff.removed.map { it.txHash })
+    }
+
+    @Test
+    fun `test unconfirmed transactions beyond the head are kept`() {
+        val existing = listOf(tx("u1", 0), tx("u2", 0))
+        val head = listOf(tx("u3", 0), tx("u1", 0))
+
+        val merge = TransactionsSync.merge(existing = existing, head = head, isEndOfList = false)
+
+        assertEquals(listOf("u3", "u1", "u2"), merge.transactions.map { it.txHash })
+        assertTrue(merge.diff.removed.isEmpty())
+    }
+
+    @Test
+    fun `test head is synced at an unchanged confirmed transaction`() {
+        val existing = listOf(tx("u", 0), tx("c", 100), tx("b", 90)).associateBy { it.txHash }
+
+        // Unconfirmed transactions may have been replaced, they don't anchor the head
+        assertFalse(TransactionsSync.isSynced(existing, listOf(tx("d", 101), tx("u", 0)), tipHeight = 0))
+        // Reorged, something else may have been mined at its old height
+        assertFalse(TransactionsSync.isSynced(existing, listOf(tx("d", 101), tx("c", 99)), tipHeight = 0))
+        assertTrue(TransactionsSync.isSynced(existing, listOf(tx("d", 101), tx("c", 100)), tipHeight = 0))
+    }
+
+    @Test
+    fun `test head is synced once recent confirmations are revalidated`() {
+        val existing = listOf(tx("c", 100), tx("b", 90)).associateBy { it.txHash }
+        // c has REVALIDATION_DEPTH confirmations
+        val tipHeight = 100L + TransactionsSync.REVALIDATION_DEPTH - 1
+
+        assertTrue(TransactionsSync.isSynced(existing, listOf(tx("c", 100)), tipHeight = tipHeight))
+        assertFalse(TransactionsSync.isSynced(existing, listOf(tx("c", 100)), tipHeight = tipHeight - 1))
+        assertTrue(TransactionsSync.isSynced(existing, listOf(tx("c", 100), tx("b", 90)), tipHeight = tipHeight - 1))
+    }
+
+    @Test
+    fun `test transactions below the head are kept as loaded`() {
+        // Beyond the revalidation depth state changes are not picked up by a merge
+        val existing = listOf(tx("c", 100), tx("b", 90).copy(spvVerified = "in_progress"))
+        val head = listOf(tx("c", 100))
+
+        val merge = TransactionsSync.merge(existing = existing, head = head, isEndOfList = false)
+
+        assertSame(existing[1], merge.transactions[1])
+        assertTrue(merge.diff.isEmpty)
+    }
+}
@@ -0,0 +1,65 @@
+package com.blockstream.common.gdk
+
+import kotlin.test.Test
+import kotlin.test.assertEquals
+
+class UtxoSnapshotCacheTests {
+
+    @Test
+    fun `test snapshot is reused until invalidated`() {
+        val cache = UtxoSnapshotCache<String>()
+        var fetches = 0
+
+        repeat(10) {
+            assertEquals("utxos", cache.getOrFetch("mainnet", "mainnet:0", 0) { fetches++; "utxos" })
+        }
+        assertEquals(1, fetches)
+
+        // Bump uses a different set of utxos
+        cache.getOrFetch("mainnet", "mainnet:0", 1) { fetches++; "confirmed" }
+        assertEquals(2, fetches)
+
+        cache.invalidateAccounts(listOf("mainnet:0"))
+        assertEquals("new", cache.getOrFetch("mainnet", "mainnet:0", 0) { fetches++; "new" })
+        assertEquals(3, fetches)
+
+        cache.stats.value.also {
+            assertEquals(9L, it.hits)
+            assertEquals(3L, it.misses)
+            assertEquals(1L, it.invalidations)
+        }
+    }
+
+    @Test
+    fun `test block invalidates only its network`() {
+        val cache = UtxoSnapshotCache<String>()
+        var fetches = 0
+
+        cache.getOrFetch("mainnet", "mainnet:0", 0) { fetches++; "btc" }
+        cache.getOrFetch("liquid", "liquid:0", 0) { fetches++; "liquid" }
+
+        cache.invalidateNetwork("mainnet")
+
+        cache.getOrFetch("mainnet", "mainnet:0", 0) { fetches++; "btc" }
+        cache.getOrFetch("liquid", "liquid:0", 0) { fetches++; "liquid" }
+
+        assertEquals(3, fetches)
+    }
+
+    @Test
+    fun `test snapshot fetched during an invalidation is not stored`() {
+        val cache = UtxoSnapshotCache<String>()
+        var fetches = 0
+
+        assertEquals("stale", cache.getOrFetch("mainnet", "mainnet:0", 0) {
+            fetches++
+            // Transaction notification arrives while GDK is listing the utxos
+            cache.invalidateAccounts(listOf("mainnet:0"))
+            "stale"
+        })
+
+        assertEquals("fresh", cache.getOrFetch("mainnet", "mainnet:0", 0) { fetches++; "fresh" })
+        assertEquals("fresh", cache.getOrFetch("mainnet", "mainnet:0", 0) { fetches++; "other" })
+        assertEquals(2, fetches)
+    }
+}
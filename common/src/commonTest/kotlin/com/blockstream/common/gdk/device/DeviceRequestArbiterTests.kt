@@ -0,0 +1,82 @@
+package com.blockstream.common.gdk.device
+
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.test.runTest
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertFailsWith
+import kotlin.test.assertTrue
+
+class DeviceRequestArbiterTests {
+
+    @Test
+    fun `test requests are serialized`() = runTest {
+        val arbiter = DeviceRequestArbiter()
+        var running = 0
+        var maxRunning = 0
+
+        (1..10).map { i ->
+            async {
+                arbiter.request(name = "request$i") {
+                    maxRunning = maxOf(maxRunning, ++running)
+                    Thread.sleep(2)
+                    running--
+                    i
+                }
+            }
+        }.awaitAll().also {
+            assertEquals((1..10).toList(), it)
+        }
+
+        assertEquals(1, maxRunning)
+        assertEquals(10, arbiter.timings.value.size)
+        arbiter.close()
+    }
+
+    @Test
+    fun `test priority and cancellation`() = runTest {
+        val arbiter = DeviceRequestArbiter()
+        val started = CompletableDeferred<Unit>()
+        val gate = CompletableDeferred<Unit>()
+        val executed = mutableListOf<String>()
+
+        // Keep the device busy until everything is queued
+        val busy = arbiter.enqueue(name = "busy") {
+            started.complete(Unit)
+            runBlocking { gate.await() }
+            executed += "busy"
+        }
+        started.await()
+
+        val cancelled = arbiter.enqueue(name = "get_xpubs_cancelled") { executed += "get_xpubs_cancelled" }
+        val normal = arbiter.enqueue(name = "get_xpubs") { executed += "get_xpubs" }
+        val high = arbiter.enqueue(name = "sign_tx", priority = DeviceRequestPriority.HIGH) { executed += "sign_tx" }
+
+        cancelled.cancel()
+        gate.complete(Unit)
+
+        listOf(busy, normal, high).awaitAll()
+
+        assertEquals(listOf("busy", "sign_tx", "get_xpubs"), executed)
+        assertTrue(arbiter.timings.value.single { it.name == "get_xpubs_cancelled" }.isCancelled)
+        arbiter.close()
+    }
+
+    @Test
+    fun `test errors and close`() = runTest {
+        val arbiter = DeviceRequestArbiter()
+
+        assertFailsWith<Exception> {
+            arbiter.request(name = "failing") { throw Exception("id_action_canceled") }
+        }
+
+        arbiter.close()
+
+        assertFailsWith<Exception> {
+            arbiter.request(name = "after_close") { }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.blockstream.common.gdk.device
+
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNull
+import kotlin.test.assertTrue
+
+class XpubStoreTests {
+
+    private val persisted = mapOf(
+        "electrum-mainnet" to mapOf("" to "xpubMaster", "2147483732/2147483648/2147483648" to "xpubAccount"),
+        "electrum-liquid" to mapOf("" to "xpubLiquidMaster")
+    )
+
+    private val masterXpubs = mapOf("electrum-mainnet" to "xpubMaster", "electrum-liquid" to "xpubLiquidMaster")
+
+    @Test
+    fun `test restore`() {
+        val store = XpubStore.restore(
+            fingerprint = "01020304",
+            masterXpubs = masterXpubs,
+            persisted = persisted
+        )
+
+        assertEquals("xpubAccount", store.get("electrum-mainnet", listOf(0x80000054.toInt(), 0x80000000.toInt(), 0x80000000.toInt())))
+        assertEquals("xpubLiquidMaster", store.get("electrum-liquid", listOf()))
+        assertTrue(store.takeDirty().isEmpty())
+    }
+
+    @Test
+    fun `test restore with different master xpub`() {
+        val store = XpubStore.restore(
+            fingerprint = "01020304",
+            masterXpubs = masterXpubs + ("electrum-mainnet" to "xpubOtherMaster"),
+            persisted = persisted
+        )
+
+        assertEquals("xpubOtherMaster", store.get("electrum-mainnet", listOf()))
+        assertNull(store.get("electrum-mainnet", listOf(0x80000054.toInt(), 0x80000000.toInt(), 0x80000000.toInt())))
+        // Every network is verified on its own
+        assertEquals("xpubLiquidMaster", store.get("electrum-liquid", listOf()))
+        // Stale entries are overwritten
+        assertEquals(setOf("electrum-mainnet"), store.takeDirty())
+    }
+
+    @Test
+    fun `test restore without master xpub`() {
+        val store = XpubStore.restore(
+            fingerprint = "01020304",
+            masterXpubs = mapOf("electrum-mainnet" to "xpubMaster"),
+            persisted = persisted
+        )
+
+        assertEquals("xpubAccount", store.get("electrum-mainnet", listOf(0x80000054.toInt(), 0x80000000.toInt(), 0x80000000.toInt())))
+        // Unverified networks are neither restored nor overwritten
+        assertNull(store.get("electrum-liquid", listOf()))
+        assertTrue(store.takeDirty().isEmpty())
+    }
+
+    @Test
+    fun `test dirty networks`() {
+        val store = XpubStore.restore(
+            fingerprint = "01020304",
+            masterXpubs = masterXpubs,
+            persisted = persisted
+        )
+
+        store.put("electrum-liquid", listOf(1, 2), "xpubNew")
+        store.put("electrum-mainnet", listOf(), "xpubMaster")
+
+        assertEquals(setOf("electrum-liquid"), store.takeDirty())
+        assertTrue(store.takeDirty().isEmpty())
+        assertEquals(mapOf("" to "xpubLiquidMaster", "1/2" to "xpubNew"), store.xpubs("electrum-liquid"))
+    }
+}
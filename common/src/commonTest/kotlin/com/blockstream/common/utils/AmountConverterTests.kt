@@ -0,0 +1,111 @@
+package com.blockstream.common.utils
+
+import com.blockstream.common.gdk.data.Asset
+import com.blockstream.common.gdk.data.TickerEvent
+import com.blockstream.common.gdk.params.Convert
+import kotlin.test.Test
+import kotlin.test.assertEquals
+import kotlin.test.assertNotNull
+import kotlin.test.assertNull
+
+class AmountConverterTests {
+
+    @Test
+    fun `test bitcoin units`() {
+        // Expected values follow from the unit definitions, formatted as GDK convert_amount formats them:
+        // btc 8 decimals, mbtc 5, ubtc and bits 2, sats none, fiat rounded half up to 2
+        AmountConverter.convert(satoshi = 1234567, fiatCurrency = "USD", fiatRate = "30000.00", pricingCurrency = "USD")!!.also {
+            assertEquals("0.01234567", it.btc)
+            assertEquals("12.34567", it.mbtc)
+            assertEquals("12345.67", it.ubtc)
+            assertEquals("12345.67", it.bits)
+            assertEquals("1234567", it.sats)
+            assertEquals("370.37", it.fiat)
+            assertEquals("USD", it.fiatCurrency)
+            assertEquals("30000.00", it.fiatRate)
+            assertEquals(1234567L, it.satoshi)
+            assertEquals(true, it.isCurrent)
+        }
+
+        AmountConverter.convert(satoshi = 0, fiatCurrency = "EUR", fiatRate = "27123.45", pricingCurrency = "EUR")!!.also {
+            assertEquals("0.00000000", it.btc)
+            assertEquals("0.00000", it.mbtc)
+            assertEquals("0.00", it.bits)
+            assertEquals("0", it.sats)
+            assertEquals("0.00", it.fiat)
+        }
+
+        AmountConverter.convert(satoshi = 2_100_000_000_000_000, fiatCurrency = "USD", fiatRate = "1.00", pricingCurrency = "USD")!!.also {
+            assertEquals("21000000.00000000", it.btc)
+            assertEquals("21000000.00", it.fiat)
+        }
+    }
+
+    @Test
+    fun `test negative amounts`() {
+        AmountConverter.convert(satoshi = -150000, fiatCurrency = "USD", fiatRate = "20000", pricingCurrency = "USD")!!.also {
+            assertEquals("-0.00150000", it.btc)
+            assertEquals("-1.50000", it.mbtc)
+            assertEquals("-30.00", it.fiat)
+        }
+    }
+
+    @Test
+    fun `test is current`() {
+        assertEquals(true, AmountConverter.convert(1, "usd", "1", pricingCurrency = "USD")?.isCurrent)
+        assertEquals(false, AmountConverter.convert(1, "EUR", "1", pricingCurrency = "USD")?.isCurrent)
+        assertEquals(false, AmountConverter.convert(1, "EUR", "1", pricingCurrency = null)?.isCurrent)
+    }
+
+    @Test
+    fun `test fiat rounding`() {
+        // 1 sat at 12500 = 0.000125 -> 0.00, 1000 sats at 12500 = 0.125 -> 0.13
+        assertEquals("0.00", AmountConverter.fiat(1, 12500.0))
+        assertEquals("0.13", AmountConverter.fiat(1000, 12500.0))
+        assertEquals("0.12", AmountConverter.fiat(999, 12500.0))
+    }
+
+    @Test
+    fun `test asset precision`() {
+        val asset = Asset(name = "Tether", assetId = "ce091c998b83c78bb71a632313ba3760f1763d9cfcffae02258ffa9865a37bd2", precision = 8)
+        AmountConverter.convertAsset(123456789, asset).also {
+            assertEquals("1.23456789", it.assetValue)
+            assertEquals(asset, it.assetInfo)
+        }
+
+        AmountConverter.convertAsset(42, asset.copy(precision = 0)).also {
+            assertEquals("42", it.assetValue)
+        }
+
+        AmountConverter.convertAsset(5, asset.copy(precision = 2)).also {
+            assertEquals("0.05", it.assetValue)
+        }
+    }
+
+    @Test
+    fun `test rate cache`() {
+        val converter = AmountConverter()
+
+        // No rate known yet, use GDK
+        assertNull(converter.convert(Convert(satoshi = 100000000), "USD", "BITFINEX"))
+
+        converter.updateRate(TickerEvent(exchange = "BITFINEX", currency = "USD", rate = "43210.98"))
+
+        converter.convert(Convert(satoshi = 100000000), "USD", "bitfinex").also {
+            assertEquals("43210.98", it?.fiat)
+            assertEquals(true, it?.isCurrent)
+        }
+        assertNull(converter.convert(Convert(satoshi = 100000000), "EUR", "BITFINEX"))
+
+        // Only satoshi conversions
+        assertNull(converter.convert(Convert(btc = "1"), "USD", "BITFINEX"))
+
+        // Invalid rates are ignored
+        converter.updateRate("EUR", "BITFINEX", "n/a")
+        assertNull(converter.rate("EUR", "BITFINEX"))
+
+        converter.clear()
+        assertNull(converter.rate("USD", "BITFINEX"))
+        assertNotNull(AmountConverter.convert(1, "USD", "1", pricingCurrency = "USD"))
+    }
+}
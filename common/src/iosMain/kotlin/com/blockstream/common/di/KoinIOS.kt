@@ -69,6 +69,9 @@ fun initKoinIos(
                 override fun traceEnd(key: String) {
                 }
 
+                override fun networkTrace(key: String, responsePayloadSize: Long, isError: Boolean, startTimestampMs: Long, endTimestampMs: Long) {
+                }
+
                 override fun setProxy(proxyUrl: String?) {
                 }
 
@@ -119,6 +122,9 @@ fun initKoinIos(
                     TODO("Not yet implemented")
                 }
 
+                // Data is stored in plain text
+                override fun isSecure(): Boolean = false
+
             }
         }
         single {
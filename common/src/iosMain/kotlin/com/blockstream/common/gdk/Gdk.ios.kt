@@ -649,7 +649,7 @@ class IOSGdkBinding constructor(config: InitConfig) : GdkBinding {
                     call = gaAuthHandler.asGAAuthHandler(), output = gaJson.ptr
                 ).okOrThrow {
                     gaJson.toJsonString(this).let {
-                        JsonConverter.JsonDeserializer.decodeFromString(it)
+                        AuthHandlerStatus.from(it)
                     }
                 }
             }
@@ -20,6 +20,7 @@ import androidx.compose.foundation.layout.height
 import androidx.compose.foundation.layout.padding
 import androidx.compose.foundation.shape.CircleShape
 import androidx.compose.foundation.shape.RoundedCornerShape
+import androidx.compose.material3.LinearProgressIndicator
 import androidx.compose.runtime.Composable
 import androidx.compose.runtime.DisposableEffect
 import androidx.compose.runtime.getValue
@@ -42,6 +43,7 @@ import androidx.compose.ui.viewinterop.AndroidView
 import androidx.core.view.isVisible
 import androidx.lifecycle.Lifecycle
 import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.compose.collectAsStateWithLifecycle
 import com.blockstream.common.events.Events
 import com.blockstream.common.extensions.logException
 import com.blockstream.common.models.abstract.AbstractScannerViewModel
@@ -200,6 +202,17 @@ fun BarcodeScanner(
         }
 
 
+        val scanProgress by viewModel.scanProgress.collectAsStateWithLifecycle()
+        scanProgress?.also {
+            LinearProgressIndicator(
+                progress = { it / 100f },
+                modifier = Modifier
+                    .fillMaxWidth()
+                    .align(Alignment.TopCenter)
+                    .padding(horizontal = 8.dp)
+            )
+        }
+
         val hasFlash = remember {
             context.packageManager?.hasSystemFeature(PackageManager.FEATURE_CAMERA_FLASH) ?: false
         }
@@ -0,0 +1,74 @@
+package com.blockstream.compose.components
+
+import androidx.compose.foundation.Image
+import androidx.compose.foundation.layout.Box
+import androidx.compose.foundation.layout.aspectRatio
+import androidx.compose.foundation.layout.fillMaxHeight
+import androidx.compose.foundation.layout.fillMaxWidth
+import androidx.compose.foundation.layout.padding
+import androidx.compose.foundation.layout.widthIn
+import androidx.compose.material3.Card
+import androidx.compose.material3.CardDefaults
+import androidx.compose.runtime.Composable
+import androidx.compose.runtime.LaunchedEffect
+import androidx.compose.runtime.remember
+import androidx.compose.ui.Alignment
+import androidx.compose.ui.Modifier
+import androidx.compose.ui.graphics.Color
+import androidx.compose.ui.graphics.FilterQuality
+import androidx.compose.ui.graphics.asImageBitmap
+import androidx.compose.ui.graphics.painter.BitmapPainter
+import androidx.compose.ui.unit.dp
+import com.blockstream.compose.utils.QrFrameCache
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+
+// Animated QR code, the upcoming frames are rendered in the background before they are displayed
+@Composable
+fun GreenUrQR(
+    modifier: Modifier = Modifier,
+    data: String?,
+    dataAhead: List<String> = listOf()
+) {
+    val frameCache = remember { QrFrameCache() }
+
+    LaunchedEffect(dataAhead) {
+        withContext(Dispatchers.Default) {
+            frameCache.prerender(dataAhead)
+        }
+    }
+
+    // Falls back to rendering in place only if the frame was not rendered ahead
+    val frame = remember(data) {
+        data?.let { frameCache.getOrRender(it) }?.asImageBitmap()
+    }
+
+    Box(
+        modifier = Modifier
+            .fillMaxWidth()
+            .then(modifier)
+    ) {
+        Card(
+            colors = CardDefaults.cardColors(
+                containerColor = Color.White,
+                contentColor = Color.White
+            ),
+            modifier = Modifier
+                .align(Alignment.Center)
+                .widthIn(100.dp, 300.dp)
+                .aspectRatio(1f)
+        ) {
+            if (frame != null) {
+                Image(
+                    // One pixel per module, scale without filtering to keep the modules sharp
+                    painter = remember(frame) { BitmapPainter(frame, filterQuality = FilterQuality.None) },
+                    contentDescription = "QR",
+                    modifier = Modifier
+                        .fillMaxWidth()
+                        .fillMaxHeight()
+                        .padding(12.dp)
+                )
+            }
+        }
+    }
+}
@@ -37,7 +37,7 @@ import com.blockstream.compose.components.GreenButton
 import com.blockstream.compose.components.GreenButtonSize
 import com.blockstream.compose.components.GreenButtonType
 import com.blockstream.compose.components.GreenColumn
-import com.blockstream.compose.components.GreenQR
+import com.blockstream.compose.components.GreenUrQR
 import com.blockstream.compose.navigation.resultKey
 import com.blockstream.compose.navigation.setNavigationResult
 import com.blockstream.compose.sheets.BottomSheetNavigatorM3
@@ -135,6 +135,7 @@ fun JadeQRScreen(
 
 
         val qrCode by viewModel.urPart.collectAsState()
+        val qrCodesAhead by viewModel.urPartsAhead.collectAsState()
         val onProgress by viewModel.onProgress.collectAsStateWithLifecycle()
         Box(
             modifier = Modifier
@@ -160,8 +161,10 @@ fun JadeQRScreen(
                             .align(Alignment.Center)
                     )
                 } else {
-                    GreenQR(
-                        data = qrCode, modifier = Modifier
+                    GreenUrQR(
+                        data = qrCode,
+                        dataAhead = qrCodesAhead,
+                        modifier = Modifier
                             .align(Alignment.Center)
                             .fillMaxWidth()
                     )
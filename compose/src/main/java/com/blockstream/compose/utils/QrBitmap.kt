@@ -0,0 +1,64 @@
+package com.blockstream.compose.utils
+
+import android.graphics.Bitmap
+import android.graphics.Color
+import android.util.LruCache
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel
+import com.google.zxing.qrcode.encoder.Encoder
+
+// Render a QR code with one pixel per module, the whole bitmap is written at once
+fun renderQrBitmap(
+    content: String,
+    errorCorrectionLevel: ErrorCorrectionLevel = ErrorCorrectionLevel.M
+): Bitmap? {
+    return try {
+        val matrix = Encoder.encode(content, errorCorrectionLevel).matrix
+        val width = matrix.width
+        val height = matrix.height
+        val modules = matrix.array
+
+        val pixels = IntArray(width * height)
+        for (y in 0 until height) {
+            val row = modules[y]
+            val offset = y * width
+            for (x in 0 until width) {
+                pixels[offset + x] = if (row[x].toInt() == 1) Color.BLACK else Color.WHITE
+            }
+        }
+
+        Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888).also {
+            it.setPixels(pixels, 0, width, 0, 0, width, height)
+        }
+    } catch (e: Exception) {
+        e.printStackTrace()
+        null
+    }
+}
+
+/*
+ * Rendered frames of an animated QR code, keyed by content, so that frames can be rendered ahead of
+ * display off the main thread.
+ */
+class QrFrameCache(
+    maxFrames: Int = DEFAULT_MAX_FRAMES,
+    private val errorCorrectionLevel: ErrorCorrectionLevel = ErrorCorrectionLevel.L
+) {
+    private val frames = LruCache<String, Bitmap>(maxFrames)
+
+    fun get(content: String): Bitmap? = frames.get(content)
+
+    fun getOrRender(content: String): Bitmap? = frames.get(content) ?: renderQrBitmap(content, errorCorrectionLevel)?.also {
+        frames.put(content, it)
+    }
+
+    // Call it off the main thread
+    fun prerender(contents: List<String>) {
+        contents.forEach {
+            getOrRender(it)
+        }
+    }
+
+    companion object {
+        const val DEFAULT_MAX_FRAMES = 32
+    }
+}
@@ -0,0 +1,101 @@
+package com.blockstream.green.utils
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import com.blockstream.common.gdk.GASession
+import com.blockstream.common.gdk.GdkBinding
+import com.blockstream.common.gdk.data.Asset
+import com.blockstream.common.gdk.data.Balance
+import com.blockstream.common.gdk.getGdkBinding
+import com.blockstream.common.gdk.params.ConnectionParams
+import com.blockstream.common.gdk.params.Convert
+import com.blockstream.common.gdk.params.InitConfig
+import com.blockstream.common.utils.AmountConverter
+import org.junit.After
+import org.junit.Assert
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Local conversions must produce the same Balance strings as GDK convert_amount.
+ */
+@RunWith(AndroidJUnit4::class)
+class AmountConverterGdkTests {
+    private val SATOSHIS = listOf(
+        0L, 1L, 5L, 49L, 50L, 99L, 100L, 12_345L, 99_999L, 100_000L, 1_234_567L, 99_999_999L, 100_000_000L,
+        123_456_789_012L, 2_100_000_000_000_000L
+    ).let { amounts -> amounts + amounts.filter { it != 0L }.map { -it } }
+
+    // Currency and rate pairs, rates with and without decimals, small and large
+    private val FIATS = listOf(
+        "USD" to "30000.00", "EUR" to "27123.45", "JPY" to "4000000", "GBP" to "0.5", "USD" to "1.00", "CHF" to "33333.33"
+    )
+
+    private val PRECISIONS = listOf(0, 1, 2, 3, 5, 8)
+
+    private lateinit var gdk: GdkBinding
+    private lateinit var bitcoinSession: GASession
+    private lateinit var liquidSession: GASession
+
+    @Before
+    fun setup() {
+        val context = InstrumentationRegistry.getInstrumentation().targetContext
+        gdk = getGdkBinding(false, InitConfig(datadir = context.filesDir.absolutePath))
+        bitcoinSession = connect("electrum-mainnet")
+        liquidSession = connect("electrum-liquid")
+    }
+
+    @After
+    fun tearDown() {
+        gdk.destroySession(bitcoinSession)
+        gdk.destroySession(liquidSession)
+    }
+
+    private fun connect(network: String) = gdk.createSession().also {
+        gdk.connect(it, ConnectionParams(networkName = network, useTor = false, userAgent = "green_android_test", proxy = ""))
+    }
+
+    @Test
+    fun test_bitcoin_units_and_fiat() {
+        for ((currency, rate) in FIATS) {
+            for (satoshi in SATOSHIS) {
+                val expected = gdk.convertAmount(bitcoinSession, Convert(satoshi = satoshi, fiatCurrency = currency, fiatRate = rate))
+                val actual = AmountConverter.convert(satoshi = satoshi, fiatCurrency = currency, fiatRate = rate, pricingCurrency = null)
+
+                assertSameStrings("$satoshi $currency@$rate", expected, actual!!)
+            }
+        }
+    }
+
+    @Test
+    fun test_asset_precisions() {
+        for (precision in PRECISIONS) {
+            val asset = Asset(name = "Test", assetId = ASSET_ID, precision = precision, ticker = "TEST")
+            for (satoshi in SATOSHIS) {
+                val convert = Convert(satoshi = satoshi, asset = asset)
+                val expected = gdk.convertAmount(liquidSession, convert)
+                val actual = AmountConverter.convertAsset(satoshi, asset)
+
+                Assert.assertEquals("$satoshi at precision $precision", expected.assetValue, actual.assetValue)
+            }
+        }
+    }
+
+    // isCurrent depends on the pricing of a logged in session, it is covered by the unit tests
+    private fun assertSameStrings(message: String, expected: Balance, actual: Balance) {
+        Assert.assertEquals(message, expected.btc, actual.btc)
+        Assert.assertEquals(message, expected.mbtc, actual.mbtc)
+        Assert.assertEquals(message, expected.ubtc, actual.ubtc)
+        Assert.assertEquals(message, expected.bits, actual.bits)
+        Assert.assertEquals(message, expected.sats, actual.sats)
+        Assert.assertEquals(message, expected.satoshi, actual.satoshi)
+        Assert.assertEquals(message, expected.fiat, actual.fiat)
+        Assert.assertEquals(message, expected.fiatCurrency, actual.fiatCurrency)
+        Assert.assertEquals(message, expected.fiatRate, actual.fiatRate)
+    }
+
+    companion object {
+        private const val ASSET_ID = "ce091c998b83c78bb71a632313ba3760f1763d9cfcffae02258ffa9865a37bd2"
+    }
+}
@@ -200,6 +200,10 @@ class Countly constructor(
         _apm.endTrace(key, mutableMapOf())
     }
 
+    override fun networkTrace(key: String, responsePayloadSize: Long, isError: Boolean, startTimestampMs: Long, endTimestampMs: Long) {
+        _apm.recordNetworkTrace(key, if (isError) 500 else 200, 0, responsePayloadSize.toInt(), startTimestampMs, endTimestampMs)
+    }
+
     override fun sendFeedbackWidgetData(widget: CountlyFeedbackWidget, data: Map<String, Any>?){
         _feedback.reportFeedbackWidgetManually(widget, null, data)
         // can't use updateFeedback() as the data are sent async
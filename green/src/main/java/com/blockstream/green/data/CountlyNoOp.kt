@@ -94,6 +94,10 @@ class CountlyNoOp constructor(
 
     }
 
+    override fun networkTrace(key: String, responsePayloadSize: Long, isError: Boolean, startTimestampMs: Long, endTimestampMs: Long) {
+
+    }
+
     override fun setProxy(proxyUrl: String?) {
 
     }
@@ -172,6 +172,7 @@ class Device constructor(
     override fun disconnect() {
         bleDisposables.clear()
         scope.cancel()
+        gdkHardwareWallet?.requestArbiter?.close()
         gdkHardwareWallet?.disconnect()
         gdkHardwareWallet = null
 
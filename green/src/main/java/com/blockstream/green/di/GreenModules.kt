@@ -11,6 +11,7 @@ import com.blockstream.green.GreenApplication
 import com.blockstream.green.R
 import com.blockstream.green.devices.DeviceManagerAndroid
 import com.blockstream.green.managers.NotificationManager
+import com.blockstream.green.utils.AssetIconCache
 import com.blockstream.green.utils.isDebug
 import com.blockstream.green.utils.isDevelopmentOrDebug
 import com.pandulapeter.beagle.Beagle
@@ -61,6 +62,9 @@ val greenModules = module {
     single {
         RxBleClient.create(androidContext())
     }
+    single {
+        AssetIconCache(androidContext())
+    }
     single {
         androidContext().getSystemService(Context.USB_SERVICE) as UsbManager
     }
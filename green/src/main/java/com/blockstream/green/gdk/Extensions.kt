@@ -20,16 +20,17 @@ import com.blockstream.common.gdk.data.Network
 import com.blockstream.common.managers.SessionManager
 import com.blockstream.compose.extensions.getNetworkIcon
 import com.blockstream.green.R
-import com.blockstream.green.extensions.toBitmap
 import com.blockstream.green.extensions.toBitmapDrawable
+import com.blockstream.green.utils.AssetIconCache
+import org.koin.mp.KoinPlatformTools
 
-// Should we cache BitmapDrawable/Bitmap
 fun GdkSession.getAssetDrawableOrNull(context: Context, assetId: String): Drawable? {
-    networkAssetManager.getAssetIcon(assetId, this)?.let {
-        return it.toBitmap()?.toBitmapDrawable(context)
-    }
+    return KoinPlatformTools.defaultContext().get().get<AssetIconCache>().get(this, assetId)?.toBitmapDrawable(context)
+}
 
-    return null
+// Decode the asset icons ahead of binding, call it off the main thread
+fun GdkSession.prefetchAssetIcons(assetIds: Collection<String>) {
+    KoinPlatformTools.defaultContext().get().get<AssetIconCache>().prefetch(this, assetIds.filter { !it.isPolicyAsset(this) })
 }
 
 suspend fun GdkSession.getWallet(database: Database, sessionManager: SessionManager): GreenWallet? {
@@ -57,11 +57,12 @@ class TransactionLook constructor(val tx: Transaction, val session: GdkSession):
 
     override fun getUtxoView(index: Int): UtxoView? = tx.utxoViews.getOrNull(index)
 
+    // amount is precomputed off the main thread, see TransactionRenderModel
     fun setTransactionAssetToBinding(
-        scope: CoroutineScope,
         session: GdkSession,
         index: Int,
-        binding: TransactionAssetLayoutBinding
+        binding: TransactionAssetLayoutBinding,
+        amount: String
     ) {
         tx.assets.getOrNull(index)?.also { asset ->
             binding.directionColor = asset.second.getDirectionColor(binding.root.context, isFailed = tx.isRefundableSwap)
@@ -69,19 +70,7 @@ class TransactionLook constructor(val tx: Transaction, val session: GdkSession):
             binding.index = index
             binding.type = tx.txType
             binding.confirmations = tx.getConfirmations(session)
-            binding.amount = ""
-            scope.launch {
-                binding.amount = session.starsOrNull ?: withContext(context = Dispatchers.IO) {
-                    asset.second.toAmountLookOrNa(
-                        session = session,
-                        assetId = asset.first,
-                        withUnit = true,
-                        withDirection = true,
-                        withGrouping = true,
-                        withMinimumDigits = false
-                    )
-                }
-            }
+            binding.amount = session.starsOrNull ?: amount
 
             if (tx.spv.disabledOrUnconfirmedOrVerified()) {
                 binding.spv.isVisible = false
@@ -0,0 +1,84 @@
+package com.blockstream.green.looks
+
+import com.blockstream.common.gdk.GdkSession
+import com.blockstream.common.gdk.data.Transaction
+import com.blockstream.green.utils.toAmountLookOrNa
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.merge
+import kotlinx.coroutines.flow.scan
+import java.util.IdentityHashMap
+
+// Display values of a transaction list row, computed off the main thread so that binding only sets them.
+// Confirmations are not part of the model as they change with every block.
+data class TransactionRenderModel constructor(
+    val tx: Transaction,
+    val date: String = "",
+    val memo: String = "",
+    val amounts: List<String> = listOf()
+) {
+    companion object {
+        val Loading = TransactionRenderModel(tx = Transaction.LoadingTransaction)
+
+        suspend fun create(tx: Transaction, session: GdkSession): TransactionRenderModel {
+            if (tx.isLoadingTransaction) {
+                return TransactionRenderModel(tx = tx)
+            }
+
+            val look = TransactionLook(tx, session)
+
+            return TransactionRenderModel(
+                tx = tx,
+                date = look.date,
+                memo = look.memo,
+                amounts = tx.assets.map { asset ->
+                    asset.second.toAmountLookOrNa(
+                        session = session,
+                        assetId = asset.first,
+                        withUnit = true,
+                        withDirection = true,
+                        withGrouping = true,
+                        withMinimumDigits = false
+                    )
+                }
+            )
+        }
+    }
+}
+
+/*
+ * Map each emitted transaction list to render models on a background dispatcher.
+ *
+ * Models are reused for transaction instances that didn't change since the previous emission
+ * (TransactionsSync keeps the instances of unchanged transactions), and all of them are rebuilt when
+ * amounts may be formatted differently, eg. on denomination, exchange rate or asset metadata changes.
+ */
+fun Flow<List<Transaction>>.toRenderModels(session: GdkSession): Flow<List<TransactionRenderModel>> {
+    var cache = IdentityHashMap<Transaction, TransactionRenderModel>()
+    var cacheGeneration = 0L
+
+    val generations = merge(session.accountsAndBalanceUpdated, session.networkAssetManager.assetsUpdateFlow)
+        .scan(0L) { generation, _ -> generation + 1 }
+
+    return combine(this, generations) { transactions, generation ->
+        transactions to generation
+    }.conflate().map { (transactions, generation) ->
+        if (generation != cacheGeneration) {
+            cache = IdentityHashMap()
+            cacheGeneration = generation
+        }
+
+        val models = IdentityHashMap<Transaction, TransactionRenderModel>(transactions.size)
+        transactions.map { tx ->
+            (cache[tx] ?: TransactionRenderModel.create(tx, session)).also {
+                models[tx] = it
+            }
+        }.also {
+            cache = models
+        }
+    }.flowOn(Dispatchers.Default)
+}
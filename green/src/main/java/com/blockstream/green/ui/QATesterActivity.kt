@@ -4,10 +4,12 @@ import android.content.Intent
 import android.os.Bundle
 import android.view.LayoutInflater
 import androidx.appcompat.app.AppCompatActivity
+import androidx.core.app.ShareCompat
 import androidx.lifecycle.lifecycleScope
 import com.blockstream.common.data.LogoutReason
 import com.blockstream.common.di.ApplicationScope
 import com.blockstream.common.gdk.Gdk
+import com.blockstream.common.gdk.GdkMetrics
 import com.blockstream.common.gdk.data.Network
 import com.blockstream.common.gdk.data.NetworkEvent
 import com.blockstream.common.gdk.data.Notification
@@ -49,6 +51,8 @@ class QATesterActivity : AppCompatActivity(), FilterableDataProvider {
 
     private val settingsManager: SettingsManager by inject()
 
+    private val gdkMetrics: GdkMetrics by inject()
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
 
@@ -105,6 +109,42 @@ class QATesterActivity : AppCompatActivity(), FilterableDataProvider {
             FilterBottomSheetDialogFragment.show(withDivider = false, fragmentManager = supportFragmentManager)
         }
 
+        binding.switchGdkApm.isChecked = gdkMetrics.isApmForwardingEnabled
+        binding.switchGdkApm.setOnCheckedChangeListener { _, isChecked ->
+            gdkMetrics.isApmForwardingEnabled = isChecked
+        }
+
+        binding.buttonGdkMetrics.setOnClickListener {
+            val snapshot = gdkMetrics.snapshot()
+
+            val calls = snapshot.byTotalTime.joinToString("\n\n") {
+                "${it.method} (${it.network ?: "-"})\n" +
+                        "count ${it.count}, errors ${it.errors}, in flight ${it.inFlight}/${it.maxInFlight}\n" +
+                        "total ${it.totalMs}ms, p50 ${it.p50Ms}ms, p95 ${it.p95Ms}ms, p99 ${it.p99Ms}ms, max ${it.maxMs}ms\n" +
+                        "payload ${it.payloadBytes / 1024}KB, max ${it.maxPayloadBytes / 1024}KB"
+            }
+
+            MaterialAlertDialogBuilder(this)
+                .setTitle("GDK calls")
+                .setMessage(calls.ifBlank { "No calls recorded" })
+                .setPositiveButton(android.R.string.ok, null)
+                .show()
+        }
+
+        binding.buttonGdkMetricsShare.setOnClickListener {
+            val builder = ShareCompat.IntentBuilder(this)
+                .setType("application/json")
+                .setText(gdkMetrics.snapshot().toJson())
+
+            startActivity(Intent.createChooser(builder.intent, "GDK metrics"))
+        }
+
+        binding.buttonGdkMetricsReset.setOnClickListener {
+            gdkMetrics.reset()
+
+            Snackbar.make(binding.coordinator, "GDK metrics were reset", Snackbar.LENGTH_SHORT).show()
+        }
+
         binding.buttonClearGdk.setOnClickListener {
             @Suppress("DEPRECATION")
             lifecycleScope.launchWhenStarted {
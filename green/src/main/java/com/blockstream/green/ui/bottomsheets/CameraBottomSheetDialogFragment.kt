@@ -16,10 +16,9 @@ import androidx.core.view.isVisible
 import androidx.fragment.app.FragmentManager
 import androidx.lifecycle.lifecycleScope
 import androidx.navigation.fragment.findNavController
+import com.blockstream.common.bcur.UrFountainDecoder
 import com.blockstream.common.data.ScanResult
 import com.blockstream.common.extensions.logException
-import com.blockstream.common.gdk.BcurResolver
-import com.blockstream.common.gdk.params.BcurDecodeParams
 import com.blockstream.common.managers.SessionManager
 import com.blockstream.green.R
 import com.blockstream.green.databinding.CameraBottomSheetBinding
@@ -37,7 +36,6 @@ import com.journeyapps.barcodescanner.BarcodeResult
 import com.journeyapps.barcodescanner.CaptureManager
 import com.journeyapps.barcodescanner.DefaultDecoderFactory
 import com.journeyapps.barcodescanner.MixedDecoder
-import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
@@ -73,45 +71,49 @@ class CameraBottomSheetDialogFragment : AbstractBottomSheetDialogFragment<Camera
             }
         }
 
-    var bcurPartEmitter: CompletableDeferred<String>? = null
+    // Barcode callbacks are delivered on the main thread
+    private val urDecoder = UrFountainDecoder()
 
     private val callback: BarcodeCallback = object : BarcodeCallback {
         override fun barcodeResult(result: BarcodeResult) {
 
             if (isDecodeContinuous && result.text.startsWith(prefix = "ur:", ignoreCase = true)) {
 
-                if (bcurPartEmitter == null) {
+                if (urDecoder.isComplete) {
+                    // Typed decode in progress
+                    return
+                }
+
+                try {
+                    if (urDecoder.receive(result.text) && urDecoder.sequenceLength > 1) {
+                        binding.progress = (urDecoder.progress * 100).toInt()
+                    }
+                } catch (e: Exception) {
+                    // A misread frame, keep scanning
+                    e.printStackTrace()
+                    return
+                }
+
+                urDecoder.result?.also { ur ->
                     lifecycleScope.launch(context = logException(countly)) {
                         try {
                             val bcurDecodedData = withContext(context = Dispatchers.IO) {
-                                session.bcurDecode(
-                                    BcurDecodeParams(part = result.text),
-                                    object : BcurResolver {
-                                        override fun requestData(): CompletableDeferred<String> {
-                                            return CompletableDeferred<String>().also {
-                                                bcurPartEmitter = it
-                                            }
-                                        }
-                                    })
+                                session.bcurDecode(ur)
                             }
 
                             // Stop capturing
                             capture.onPause()
-                            bcurPartEmitter = null
 
                             setResultAndDismiss(
                                 ScanResult.from(bcurDecodedData)
                             )
                         } catch (e: Exception) {
                             e.printStackTrace()
-                            bcurPartEmitter = null
+                            urDecoder.reset()
+                            binding.progress = null
                             errorDialog(e)
                         }
                     }
-                } else {
-                    if (bcurPartEmitter?.isCompleted == false) {
-                        bcurPartEmitter?.complete(result.text)
-                    }
                 }
             } else {
                 setResultAndDismiss(ScanResult(result.text))
@@ -6,6 +6,7 @@ import androidx.fragment.app.FragmentManager
 import androidx.lifecycle.lifecycleScope
 import com.blockstream.common.data.EnrichedAsset
 import com.blockstream.common.gdk.GdkSession
+import com.blockstream.green.gdk.prefetchAssetIcons
 import com.blockstream.green.ui.AppFragment
 import com.blockstream.green.ui.items.AssetListItem
 import com.blockstream.green.ui.wallet.AbstractWalletFragment
@@ -58,6 +59,8 @@ class EnrichedAssetsBottomSheetDialogFragment : FilterBottomSheetDialogFragment(
         session.enrichedAssets.onEach {
             lifecycleScope.launch(context = Dispatchers.IO) {
                 createEnrichedAssets().also {
+                    session.prefetchAssetIcons(it.filter { asset -> !asset.isAnyAsset }.map { asset -> asset.assetId })
+
                     withContext(context = Dispatchers.Main) {
                         binding.showLoader = false
                         assetsAdapter.set(it)
@@ -8,16 +8,16 @@ import com.blockstream.green.R
 import com.blockstream.green.databinding.ListItemTransactionBinding
 import com.blockstream.green.databinding.TransactionAssetLayoutBinding
 import com.blockstream.common.gdk.GdkSession
+import com.blockstream.common.extensions.getConfirmations
 import com.blockstream.common.extensions.getConfirmationsMax
 import com.blockstream.green.looks.TransactionLook
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import com.blockstream.green.looks.TransactionRenderModel
 import mu.KLogging
 
-// Confirmation is used as part of the data class so that we can identify if the item needs to be re-draw
+// The render model is used as part of the data class so that we can identify if the item needs to be re-draw
 // based on equal() method of the implemented data class
 data class TransactionListItem constructor(
-    val tx: Transaction,
+    val model: TransactionRenderModel,
     val session: GdkSession,
     val showAccount: Boolean = false,
 ) : AbstractBindingItem<ListItemTransactionBinding>() {
@@ -25,13 +25,15 @@ data class TransactionListItem constructor(
     override val type: Int
         get() = R.id.fastadapter_transaction_item_id
 
+    val tx: Transaction get() = model.tx
+
     private val look: TransactionLook
 
     val confirmations : Int get() = tx.getConfirmationsMax(session)
 
-    override fun createScope(): CoroutineScope {
-        return session.createScope(dispatcher = Dispatchers.Main)
-    }
+    // Whether a new block changes how this item is displayed
+    val isConfirming: Boolean
+        get() = !tx.isLoadingTransaction && tx.blockHeight > 0 && confirmations <= tx.network.confirmationsRequired
 
     init {
         // Same tx hash can appear on two accounts of the same wallet.
@@ -46,28 +48,38 @@ data class TransactionListItem constructor(
             return
         }
 
-        binding.isLoading = false
         binding.confirmations = confirmations
+
+        if (payloads.contains(PAYLOAD_CONFIRMATIONS)) {
+            // Only the confirmations changed, leave the rest of the views untouched
+            for (i in 0 until binding.assetWrapper.size) {
+                binding.assetWrapper.getChildAt(i)?.let { TransactionAssetLayoutBinding.bind(it) }?.confirmations = tx.getConfirmations(session)
+            }
+            return
+        }
+
+        binding.isLoading = false
         binding.confirmationsRequired = tx.network.confirmationsRequired
-        binding.date = look.date
-        binding.memo = look.memo
+        binding.date = model.date
+        binding.memo = model.memo
         binding.account = tx.account.takeIf { showAccount }
         binding.tx = tx
 
+        look.setTransactionAssetToBinding(session, 0, binding.firstValue, model.amounts.getOrElse(0) { "" })
 
-
-        look.setTransactionAssetToBinding(scope, session,0, binding.firstValue)
-
-        // remove all view other than main value
-        while (binding.assetWrapper.size > 1) {
-            binding.assetWrapper.removeViewAt(1)
+        // Reuse the asset views of a previous binding, only add or remove the difference
+        while (binding.assetWrapper.size > look.assetSize.coerceAtLeast(1)) {
+            binding.assetWrapper.removeViewAt(binding.assetWrapper.size - 1)
         }
 
         for (i in 1 until look.assetSize) {
-            TransactionAssetLayoutBinding.inflate(LayoutInflater.from(binding.root.context)).also {
+            val assetBinding = binding.assetWrapper.getChildAt(i)?.let {
+                TransactionAssetLayoutBinding.bind(it)
+            } ?: TransactionAssetLayoutBinding.inflate(LayoutInflater.from(binding.root.context)).also {
                 binding.assetWrapper.addView(it.root)
-                look.setTransactionAssetToBinding(scope, session, i, it)
             }
+
+            look.setTransactionAssetToBinding(session, i, assetBinding, model.amounts.getOrElse(i) { "" })
         }
     }
 
@@ -78,5 +90,7 @@ data class TransactionListItem constructor(
         return ListItemTransactionBinding.inflate(inflater, parent, false)
     }
 
-    companion object : KLogging()
-}
\ No newline at end of file
+    companion object : KLogging() {
+        const val PAYLOAD_CONFIRMATIONS = "confirmations"
+    }
+}
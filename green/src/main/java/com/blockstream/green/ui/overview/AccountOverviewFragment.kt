@@ -16,7 +16,7 @@ import com.blockstream.common.data.CountlyAsset
 import com.blockstream.common.data.EnrichedAsset
 import com.blockstream.common.extensions.needs2faActivation
 import com.blockstream.common.gdk.data.AccountAsset
-import com.blockstream.common.gdk.data.Transaction
+import com.blockstream.green.looks.TransactionRenderModel
 import com.blockstream.common.lightning.isLoading
 import com.blockstream.common.lightning.onchainBalanceSatoshi
 import com.blockstream.common.data.SetupArgs
@@ -489,9 +489,9 @@ class AccountOverviewFragment : AbstractAccountWalletFragment<AccountOverviewFra
             it.disable()
         }
 
-        val transactionAdapter = ModelAdapter<Transaction, TransactionListItem> {
+        val transactionAdapter = ModelAdapter<TransactionRenderModel, TransactionListItem> {
             TransactionListItem(it, session)
-        }.observeList(viewLifecycleOwner, viewModel.transactionsLiveData)
+        }.observeTransactions(lifecycleScope, viewModel.transactionRenderModels)
 
         viewModel.transactionsPagerLiveData.observe(viewLifecycleOwner) { hasMoreTransactions ->
             transactionsFooterAdapter.clear()
@@ -525,13 +525,21 @@ class AccountOverviewFragment : AbstractAccountWalletFragment<AccountOverviewFra
         }
 
         // Notify when 1) account & balance are update and when 2) assets are updated
+        // Transactions are not rebound, their render models are recomputed in the background on the same events
         merge(session.accountsAndBalanceUpdated, session.networkAssetManager.assetsUpdateFlow).onEach {
-            fastAdapter.notifyAdapterDataSetChanged()
+            fastAdapter.getPreItemCountByOrder(transactionAdapter.order).takeIf { it > 0 }?.also {
+                fastAdapter.notifyAdapterItemRangeChanged(0, it)
+            }
         }.launchIn(lifecycleScope)
 
-        // Update transactions
+        // Update only the confirmations of the transactions that are still confirming
         session.block(network).onEach {
-            fastAdapter.notifyAdapterDataSetChanged()
+            val offset = fastAdapter.getPreItemCountByOrder(transactionAdapter.order)
+            transactionAdapter.adapterItems.forEachIndexed { index, item ->
+                if (item.isConfirming) {
+                    fastAdapter.notifyAdapterItemChanged(offset + index, TransactionListItem.PAYLOAD_CONFIRMATIONS)
+                }
+            }
         }.launchIn(lifecycleScope)
 
         fastAdapter.addClickListener<ListItemLightningInfoBinding, GenericItem>({ binding -> binding.buttonIncreaseInbound }) { _, _, _, _ ->
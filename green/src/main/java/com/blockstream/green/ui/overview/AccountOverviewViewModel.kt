@@ -13,11 +13,15 @@ import com.blockstream.common.gdk.data.AccountAsset
 import com.blockstream.common.gdk.data.Transaction
 import com.blockstream.common.lightning.fromSwapInfo
 import com.blockstream.common.sideeffects.SideEffects
+import com.blockstream.green.looks.TransactionRenderModel
+import com.blockstream.green.looks.toRenderModels
 import com.blockstream.green.ui.items.AlertType
 import com.blockstream.green.ui.wallet.AbstractAccountWalletViewModel
 import com.rickclephas.kmm.viewmodel.coroutineScope
 import com.rickclephas.kmm.viewmodel.stateIn
+import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.emptyFlow
 import kotlinx.coroutines.flow.flowOf
@@ -41,6 +45,11 @@ class AccountOverviewViewModel constructor(
         MutableLiveData(listOf(Transaction.LoadingTransaction))
     val transactionsLiveData: LiveData<List<Transaction>> get() = _transactionsLiveData
 
+    private val _transactionsStateFlow = MutableStateFlow(listOf(Transaction.LoadingTransaction))
+    val transactionRenderModels: StateFlow<List<TransactionRenderModel>> = _transactionsStateFlow
+        .toRenderModels(session)
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(), listOf(TransactionRenderModel.Loading))
+
     private val _transactionsPagerLiveData: MutableLiveData<Boolean?> = MutableLiveData(null)
     val transactionsPagerLiveData: LiveData<Boolean?> get() = _transactionsPagerLiveData
     val transactionsPager: Boolean? get() = _transactionsPagerLiveData.value
@@ -88,6 +97,7 @@ class AccountOverviewViewModel constructor(
                 } + transactions
             }.onEach {
                 _transactionsLiveData.value = it
+                _transactionsStateFlow.value = it
             }.launchIn(viewModelScope.coroutineScope)
 
             session.accountTransactionsPager(account).onEach {
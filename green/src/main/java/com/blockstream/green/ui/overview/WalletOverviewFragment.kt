@@ -16,6 +16,7 @@ import com.blockstream.common.extensions.logException
 import com.blockstream.common.gdk.data.Account
 import com.blockstream.common.gdk.data.AccountAsset
 import com.blockstream.common.gdk.data.Transaction
+import com.blockstream.green.looks.TransactionRenderModel
 import com.blockstream.common.lightning.isLoading
 import com.blockstream.common.events.Events
 import com.blockstream.common.data.LogoutReason
@@ -56,6 +57,7 @@ import com.blockstream.green.utils.AppReviewHelper
 import com.blockstream.green.utils.StringHolder
 import com.blockstream.green.utils.getClipboard
 import com.blockstream.green.utils.observeList
+import com.blockstream.green.utils.observeTransactions
 import com.blockstream.green.utils.openBrowser
 import com.blockstream.green.views.AccordionListener
 import com.blockstream.green.views.NpaLinearLayoutManager
@@ -486,10 +488,10 @@ class WalletOverviewFragment : AbstractWalletFragment<WalletOverviewFragmentBind
 
         }.launchIn(lifecycleScope)
 
-        val walletTransactionAdapter = ModelAdapter<Transaction, TransactionListItem> {
+        val walletTransactionAdapter = ModelAdapter<TransactionRenderModel, TransactionListItem> {
             // use getConfirmationsMax to avoid animations after a tx is confirmed
             TransactionListItem(it, session, showAccount = true)
-        }.observeList(lifecycleScope, viewModel.walletTransactionsFlow)
+        }.observeTransactions(lifecycleScope, viewModel.walletTransactionRenderModels)
 
         val adapters = listOf(
             totalBalanceAdapter,
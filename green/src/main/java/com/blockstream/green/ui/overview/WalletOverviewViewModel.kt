@@ -14,12 +14,18 @@ import com.blockstream.common.gdk.data.Network
 import com.blockstream.common.gdk.data.SwapProposal
 import com.blockstream.common.gdk.data.Transaction
 import com.blockstream.common.gdk.device.DeviceResolver
+import com.blockstream.green.gdk.prefetchAssetIcons
+import com.blockstream.green.looks.TransactionRenderModel
+import com.blockstream.green.looks.toRenderModels
 import com.blockstream.green.ui.items.AlertType
 import com.blockstream.green.ui.wallet.AbstractWalletViewModel
 import com.rickclephas.kmm.viewmodel.coroutineScope
+import com.rickclephas.kmm.viewmodel.stateIn
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.SharingStarted
 import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.flowOn
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.withContext
@@ -74,6 +80,10 @@ class WalletOverviewViewModel constructor(
 
     val walletTransactionsFlow: StateFlow<List<Transaction>> get() = session.walletTransactions
 
+    val walletTransactionRenderModels: StateFlow<List<TransactionRenderModel>> = session.walletTransactions
+        .toRenderModels(session)
+        .stateIn(viewModelScope, SharingStarted.WhileSubscribed(), listOf(TransactionRenderModel.Loading))
+
     val zeroAccounts: StateFlow<Boolean>
         get() = session.zeroAccounts
 
@@ -82,6 +92,11 @@ class WalletOverviewViewModel constructor(
 
     init {
 
+        // Decode the asset icons before the asset list binds them
+        session.walletAssets.onEach {
+            session.prefetchAssetIcons(it.assets.keys)
+        }.flowOn(Dispatchers.IO).launchIn(viewModelScope.coroutineScope)
+
         session
             .allAccounts
             .onEach { accounts ->
@@ -362,7 +362,8 @@ class SendViewModel constructor(
         val unspentOutputs = if(isSweep){
             session.getUnspentOutputs(accountValue.network, recipients.value?.get(0)?.address?.value?.trim() ?: "")
         }else{
-            session.getUnspentOutputs(accountValue, isBump)
+            // Reuse the snapshot across fee previews, it's refreshed on new transactions and blocks
+            session.getUnspentOutputs(accountValue, isBump, useCache = true)
         }
 
         return when{
@@ -123,7 +123,7 @@ open class WalletSettingsViewModel constructor(
     fun setLimits(network: Network, limits: Limits, twoFactorResolver: DialogTwoFactorResolver) {
         doUserAction({
             session.twofactorChangeLimits(network, limits)
-                .result<Limits>(twoFactorResolver = twoFactorResolver)
+                .awaitResult<Limits>(twoFactorResolver = twoFactorResolver)
         }, onSuccess = {
             updateTwoFactorConfig()
         })
@@ -157,7 +157,7 @@ open class WalletSettingsViewModel constructor(
                         isSmsBackup = isSmsBackup
                     )
                 )
-                .resolve(twoFactorResolver = twoFactorResolver)
+                .awaitResolve(twoFactorResolver = twoFactorResolver)
 
             // Enable legacy recovery emails
             if (action == TwoFactorSetupAction.SETUP_EMAIL) {
@@ -192,7 +192,7 @@ open class WalletSettingsViewModel constructor(
                     method.gdkType,
                     TwoFactorMethodConfig(enabled = false)
                 )
-                .resolve(twoFactorResolver = twoFactorResolver)
+                .awaitResolve(twoFactorResolver = twoFactorResolver)
         }, onSuccess = {
             updateTwoFactorConfig()
             postSideEffect(SideEffects.Success())
@@ -208,7 +208,7 @@ open class WalletSettingsViewModel constructor(
         doUserAction({
             session
                 .twoFactorReset(network, email, isDispute)
-                .result<TwoFactorReset>(twoFactorResolver = twoFactorResolver)
+                .awaitResult<TwoFactorReset>(twoFactorResolver = twoFactorResolver)
         }, onSuccess = {
             logout(LogoutReason.USER_ACTION)
         })
@@ -218,7 +218,7 @@ open class WalletSettingsViewModel constructor(
         doUserAction({
             session
                 .twofactorUndoReset(network, email)
-                .resolve(twoFactorResolver = twoFactorResolver)
+                .awaitResolve(twoFactorResolver = twoFactorResolver)
         }, onSuccess = {
             logout(LogoutReason.USER_ACTION)
         })
@@ -228,7 +228,7 @@ open class WalletSettingsViewModel constructor(
         doUserAction({
             session
                 .twofactorCancelReset(network)
-                .resolve(twoFactorResolver = twoFactorResolver)
+                .awaitResolve(twoFactorResolver = twoFactorResolver)
         }, onSuccess = {
             logout(LogoutReason.USER_ACTION)
         })
@@ -292,7 +292,7 @@ open class WalletSettingsViewModel constructor(
 
     fun setCsvTime(network: Network, csvTime: Int, twoFactorResolver: DialogTwoFactorResolver) {
         doUserAction({
-            session.setCsvTime(network, CsvParams(csvTime)).resolve(twoFactorResolver = twoFactorResolver)
+            session.setCsvTime(network, CsvParams(csvTime)).awaitResolve(twoFactorResolver = twoFactorResolver)
             session.updateSettings(network)
         }, onSuccess = {
             postSideEffect(SideEffects.Success())
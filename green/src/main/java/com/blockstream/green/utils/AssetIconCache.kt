@@ -0,0 +1,216 @@
+package com.blockstream.green.utils
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.util.LruCache
+import co.touchlab.kermit.Logger
+import com.blockstream.common.gdk.GdkSession
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+data class AssetIconCacheStats(
+    val hits: Long,
+    val misses: Long,
+    val diskHits: Long,
+    val decodes: Long
+) {
+    val hitRate: Float
+        get() = if (hits + misses == 0L) 0f else hits.toFloat() / (hits + misses)
+}
+
+/*
+ * Decoded asset icons, downsampled to the largest size they are displayed at.
+ *
+ * Bitmaps are kept in a memory LRU bounded by their allocation size, backed by a disk cache of the
+ * downsampled icons, so that after process death icons are decoded from small files instead of
+ * the registry PNGs. Disk entries expire after DISK_TTL_MS and the oldest are trimmed above
+ * MAX_DISK_BYTES. Lists should prefetch their icons off the main thread so that binding only
+ * hits memory.
+ */
+class AssetIconCache(context: Context, maxBytes: Int = defaultMaxBytes()) {
+    private val iconSize = context.toPixels(ICON_SIZE_DP)
+    private val directory = File(context.cacheDir, "asset_icons")
+
+    private val memory = object : LruCache<String, Bitmap>(maxBytes) {
+        override fun sizeOf(key: String, value: Bitmap): Int = value.allocationByteCount
+    }
+
+    // Assets without an icon and when they were looked up, retried after MISSING_TTL_MS as the
+    // registry may have been updated
+    private val missing = ConcurrentHashMap<String, Long>()
+
+    private val hits = AtomicLong()
+    private val misses = AtomicLong()
+    private val diskHits = AtomicLong()
+    private val decodes = AtomicLong()
+
+    val stats
+        get() = AssetIconCacheStats(
+            hits = hits.get(),
+            misses = misses.get(),
+            diskHits = diskHits.get(),
+            decodes = decodes.get()
+        )
+
+    fun get(session: GdkSession, assetId: String): Bitmap? {
+        memory.get(assetId)?.also {
+            hits.incrementAndGet()
+            return it
+        }
+
+        misses.incrementAndGet()
+
+        if (isKnownMissing(assetId)) {
+            return null
+        }
+
+        return load(session, assetId)
+    }
+
+    // Load the icons into memory, call it off the main thread
+    fun prefetch(session: GdkSession, assetIds: Collection<String>) {
+        var loaded = 0
+        assetIds.forEach { assetId ->
+            if (memory.get(assetId) == null && !isKnownMissing(assetId) && load(session, assetId) != null) {
+                loaded++
+            }
+        }
+
+        trimDisk()
+
+        Logger.d { "Asset icons prefetched: $loaded/${assetIds.size} $stats" }
+    }
+
+    fun clearMemory() {
+        memory.evictAll()
+    }
+
+    private fun isKnownMissing(assetId: String): Boolean {
+        val since = missing[assetId] ?: return false
+        if (System.currentTimeMillis() - since < MISSING_TTL_MS) {
+            return true
+        }
+        missing.remove(assetId, since)
+        return false
+    }
+
+    private fun load(session: GdkSession, assetId: String): Bitmap? {
+        val file = File(directory, "$assetId.png")
+
+        val bitmap = readDisk(file)?.also {
+            diskHits.incrementAndGet()
+        } ?: session.networkAssetManager.getAssetIcon(assetId, session)?.let { bytes ->
+            decode(bytes)?.also {
+                decodes.incrementAndGet()
+                writeDisk(file, it)
+            }
+        }
+
+        if (bitmap == null) {
+            missing[assetId] = System.currentTimeMillis()
+        } else {
+            memory.put(assetId, bitmap)
+        }
+
+        return bitmap
+    }
+
+    private fun decode(bytes: ByteArray): Bitmap? = try {
+        val options = BitmapFactory.Options().apply {
+            inJustDecodeBounds = true
+        }
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.size, options)
+
+        // Decode at the smallest power of two that is still larger than the display size
+        var sampleSize = 1
+        while (options.outWidth / (sampleSize * 2) >= iconSize && options.outHeight / (sampleSize * 2) >= iconSize) {
+            sampleSize *= 2
+        }
+
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.size, BitmapFactory.Options().apply {
+            inSampleSize = sampleSize
+        })?.let { decoded ->
+            if (decoded.width > iconSize || decoded.height > iconSize) {
+                val scale = iconSize.toFloat() / maxOf(decoded.width, decoded.height)
+                Bitmap.createScaledBitmap(
+                    decoded,
+                    maxOf(1, (decoded.width * scale).toInt()),
+                    maxOf(1, (decoded.height * scale).toInt()),
+                    true
+                ).also {
+                    if (it != decoded) {
+                        decoded.recycle()
+                    }
+                }
+            } else {
+                decoded
+            }
+        }
+    } catch (e: Exception) {
+        e.printStackTrace()
+        null
+    }
+
+    private fun readDisk(file: File): Bitmap? = try {
+        if (!file.exists()) {
+            null
+        } else if (System.currentTimeMillis() - file.lastModified() > DISK_TTL_MS) {
+            // Expired, the registry icon may have changed
+            file.delete()
+            null
+        } else {
+            BitmapFactory.decodeFile(file.path)
+        }
+    } catch (e: Exception) {
+        e.printStackTrace()
+        null
+    }
+
+    private fun writeDisk(file: File, bitmap: Bitmap) {
+        try {
+            directory.mkdirs()
+            // Write to a temporary file first, a concurrent reader should never see a partial icon
+            val tmp = File(directory, "${file.name}.${Thread.currentThread().id}.tmp")
+            tmp.outputStream().use {
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, it)
+            }
+            if (!tmp.renameTo(file)) {
+                tmp.delete()
+            }
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
+    // Delete the oldest icons until the disk cache fits in MAX_DISK_BYTES
+    private fun trimDisk() {
+        try {
+            val files = directory.listFiles()?.filter { it.isFile } ?: return
+            var size = files.sumOf { it.length() }
+            if (size <= MAX_DISK_BYTES) return
+
+            files.sortedBy { it.lastModified() }.forEach { file ->
+                if (size <= MAX_DISK_BYTES) return
+                val length = file.length()
+                if (file.delete()) {
+                    size -= length
+                }
+            }
+        } catch (e: Exception) {
+            e.printStackTrace()
+        }
+    }
+
+    companion object {
+        // Largest size an asset icon is displayed at
+        const val ICON_SIZE_DP = 40
+
+        const val DISK_TTL_MS = 7 * 24 * 60 * 60 * 1000L
+        const val MAX_DISK_BYTES = 8L * 1024 * 1024
+        const val MISSING_TTL_MS = 60 * 60 * 1000L
+
+        private fun defaultMaxBytes(): Int = (Runtime.getRuntime().maxMemory() / 16).coerceAtMost(16L * 1024 * 1024).toInt()
+    }
+}
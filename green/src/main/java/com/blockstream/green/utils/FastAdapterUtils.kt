@@ -2,13 +2,19 @@ package com.blockstream.green.utils
 
 import androidx.lifecycle.LifecycleOwner
 import androidx.lifecycle.LiveData
+import androidx.recyclerview.widget.DiffUtil
+import com.blockstream.green.looks.TransactionRenderModel
+import com.blockstream.green.ui.items.TransactionListItem
 import com.mikepenz.fastadapter.GenericItem
 import com.mikepenz.fastadapter.adapters.ModelAdapter
 import com.mikepenz.fastadapter.diff.FastAdapterDiffUtil
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.conflate
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.withContext
 
 /**
 Helper function to set data from LiveData
@@ -42,6 +48,49 @@ fun <Model, Item : GenericItem> ModelAdapter<Model, Item>.observeList(
     return this
 }
 
+/**
+Helper function to set a transaction list, items are created and diffed off the main thread
+ */
+fun ModelAdapter<TransactionRenderModel, TransactionListItem>.observeTransactions(
+    scope: CoroutineScope,
+    flow: Flow<List<TransactionRenderModel>>
+): ModelAdapter<TransactionRenderModel, TransactionListItem> {
+    // Emissions are applied one after the other, so that each diff is calculated against the items
+    // currently in the adapter, intermediate emissions are skipped while a diff is in progress
+    flow.conflate().onEach {
+        setInBackground(it)
+    }.launchIn(scope)
+    return this
+}
+
+private suspend fun <Model, Item : GenericItem> ModelAdapter<Model, Item>.setInBackground(models: List<Model>) {
+    val oldItems = ArrayList(adapterItems)
+
+    val (items, result) = withContext(Dispatchers.Default) {
+        val items = intercept(models)
+        items to DiffUtil.calculateDiff(object : DiffUtil.Callback() {
+            override fun getOldListSize() = oldItems.size
+
+            override fun getNewListSize() = items.size
+
+            override fun areItemsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                oldItems[oldItemPosition].identifier == items[newItemPosition].identifier
+
+            override fun areContentsTheSame(oldItemPosition: Int, newItemPosition: Int) =
+                oldItems[oldItemPosition] == items[newItemPosition]
+        }, true)
+    }
+
+    // Same as FastAdapterDiffUtil.set, with the diff already calculated
+    if (isUseIdDistributor) {
+        idDistributor.checkIds(items)
+    }
+    mapPossibleTypes(items)
+    adapterItems.clear()
+    adapterItems.addAll(items)
+    FastAdapterDiffUtil.set(this, result)
+}
+
 fun <Model, Item : GenericItem, T> ModelAdapter<Model, Item>.observeLiveData(
     lifecycleOwner: LifecycleOwner, liveData: LiveData<T>,
     toList: (T) -> List<Model>,
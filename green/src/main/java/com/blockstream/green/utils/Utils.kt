@@ -4,7 +4,6 @@ import android.content.ClipData
 import android.content.ClipboardManager
 import android.content.Context
 import android.graphics.Bitmap
-import android.graphics.Color
 import android.graphics.Typeface
 import android.net.Uri
 import android.os.Build
@@ -28,12 +27,12 @@ import com.blockstream.common.Urls
 import com.blockstream.common.data.ApplicationSettings
 import com.blockstream.common.data.ErrorReport
 import com.blockstream.common.managers.SettingsManager
+import com.blockstream.compose.utils.renderQrBitmap
 import com.blockstream.green.BuildConfig
 import com.blockstream.green.R
 import com.blockstream.green.ui.AppFragment
 import com.google.android.material.dialog.MaterialAlertDialogBuilder
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel
-import com.google.zxing.qrcode.encoder.Encoder
 import com.mohamedrejeb.ksoup.entities.KsoupEntities
 
 fun Fragment.openNewTicket(
@@ -134,29 +133,8 @@ fun clearClipboard(context: Context) {
     }
 }
 
-fun createQrBitmap(content: String, errorCorrectionLevel: ErrorCorrectionLevel = ErrorCorrectionLevel.M): Bitmap? {
-    try {
-        val matrix = Encoder.encode(content, errorCorrectionLevel).matrix
-
-        val height: Int = matrix.height
-        val width: Int = matrix.width
-        val bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
-        for (x in 0 until width) {
-            for (y in 0 until height) {
-                bitmap.setPixel(
-                    x,
-                    y,
-                    if (matrix[x, y].toInt() == 1) Color.BLACK else Color.WHITE
-                )
-            }
-        }
-
-        return bitmap
-    } catch (e: Exception) {
-        e.printStackTrace()
-        return null
-    }
-}
+fun createQrBitmap(content: String, errorCorrectionLevel: ErrorCorrectionLevel = ErrorCorrectionLevel.M): Bitmap? =
+    renderQrBitmap(content, errorCorrectionLevel)
 
 fun Int.dp(context: Context) =
     TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, this.toFloat(), context.resources.displayMetrics).toInt()
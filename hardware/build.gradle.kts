@@ -25,6 +25,11 @@ kotlin {
     jvmToolchain(17)
 }
 
+// Benchmarks are skipped unless requested, eg. ./gradlew :hardware:testDebugUnitTest -Pbenchmark
+tasks.withType<Test>().configureEach {
+    systemProperty("benchmark", project.hasProperty("benchmark"))
+}
+
 dependencies {
     /**  --- Modules ---------------------------------------------------------------------------- */
     implementation(project(":common"))
@@ -33,7 +33,9 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class BTChipDongle implements BTChipConstants {
 
@@ -359,6 +361,9 @@ public class BTChipDongle implements BTChipConstants {
 	private static final int OK_OR_NOT_SUPPORTED[] = { SW_OK, SW_INS_NOT_SUPPORTED };
 	private static final byte DUMMY[] = { 0 };
 
+	// Trusted inputs computed on this connection, by previous tx hash, output index and segwit flag
+	private final Map<String, byte[]> trustedInputs = new HashMap<>();
+
 	public BTChipDongle(BTChipTransport transport, boolean supportScreen) {
 		this.transport = transport;
 		this.supportScreen = supportScreen;
@@ -374,6 +379,7 @@ public class BTChipDongle implements BTChipConstants {
 
 	public void setTransport(BTChipTransport transport) {
 		this.transport = transport;
+		clearTrustedInputCache();
 	}
 
 	private byte[] exchange(byte[] apdu) throws BTChipException {
@@ -448,6 +454,10 @@ public class BTChipDongle implements BTChipConstants {
 		return result;
 	}
 
+	private static long countSplitApdus(int length) {
+		return (length + 254) / 255;
+	}
+
 	private byte[] exchangeApduSplit2(byte cla, byte ins, byte p1, byte p2, byte[] data, byte[] data2, int acceptedSW[]) throws BTChipException {
 		// If data is empty, just send data2 immediately
 		if (data.length == 0) {
@@ -580,6 +590,37 @@ public class BTChipDongle implements BTChipConstants {
 		return new BTChipInput(response, sequenceBuf.toByteArray(), true, segwit);
 	}
 
+	/**
+	 * Trusted input for an output of the given previous transaction, reusing the one computed earlier on this
+	 * connection if available. Trusted inputs don't depend on the sequence, which is set per call.
+	 */
+	public BTChipInput getTrustedInput(String txHash, BitcoinTransaction transaction, long index, long sequence, boolean segwit) throws BTChipException {
+		BTChipInput input = getCachedTrustedInput(txHash, index, sequence, segwit);
+		if (input == null) {
+			input = getTrustedInput(transaction, index, sequence, segwit);
+			trustedInputs.put(trustedInputKey(txHash, index, segwit), input.getValue());
+		}
+		return input;
+	}
+
+	public BTChipInput getCachedTrustedInput(String txHash, long index, long sequence, boolean segwit) {
+		byte[] value = trustedInputs.get(trustedInputKey(txHash, index, segwit));
+		if (value == null) {
+			return null;
+		}
+		ByteArrayOutputStream sequenceBuf = new ByteArrayOutputStream();
+		BufferUtils.writeUint32LE(sequenceBuf, sequence);
+		return new BTChipInput(value, sequenceBuf.toByteArray(), true, segwit);
+	}
+
+	public void clearTrustedInputCache() {
+		trustedInputs.clear();
+	}
+
+	private static String trustedInputKey(String txHash, long index, boolean segwit) {
+		return txHash + ":" + index + ":" + segwit;
+	}
+
 	public BTChipInput createInput(byte[] value, byte[] sequence, boolean trusted, boolean segwit) {
 		return new BTChipInput(value, sequence, trusted, segwit);
 	}
@@ -615,6 +656,19 @@ public class BTChipDongle implements BTChipConstants {
 		}
 	}
 
+	/**
+	 * Number of APDUs startUntrustedTransaction sends for the same arguments: a header, then per input its
+	 * prefix and its script and sequence in 255 byte chunks.
+	 */
+	public static long countUntrustedTransactionApdus(long inputIndex, BTChipInput usedInputList[], byte[] redeemScript) {
+		long apdus = 1;
+		for (int i = 0; i < usedInputList.length; ++i) {
+			final int scriptLength = (i == inputIndex ? redeemScript.length : 0);
+			apdus += 1 + countSplitApdus(scriptLength + usedInputList[i].getSequence().length);
+		}
+		return apdus;
+	}
+
 	public void startUntrustedLiquidTransaction(long txVersion, boolean newTransaction, long inputIndex, BTChipLiquidInput usedInputList[], byte[] redeemScript) throws BTChipException {
 		// Start building a fake transaction with the passed inputs
 		ByteArrayOutputStream data = new ByteArrayOutputStream();
@@ -865,6 +919,13 @@ public class BTChipDongle implements BTChipConstants {
 		return finalizeInputFull(data, null, false);
 	}
 
+	/**
+	 * Number of APDUs finalizeInputFull(data) sends: the change path, then the outputs in 255 byte chunks.
+	 */
+	public static long countFinalizeInputFullApdus(byte[] data) {
+		return 1 + countSplitApdus(data.length);
+	}
+
 	public BTChipOutput finalizeLiquidInputFull(List<byte[]> data) throws BTChipException {
 		return finalizeInputLiquidFull(data, null, false);
 	}
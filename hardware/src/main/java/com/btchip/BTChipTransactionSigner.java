@@ -0,0 +1,174 @@
+package com.btchip;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signs a bitcoin transaction with the cheapest hashing protocol the connected firmware supports
+ * for each input.
+ */
+public class BTChipTransactionSigner {
+
+	public enum Strategy {
+		// BIP143 hashing: inputs and outputs are streamed once, then each input is signed in a single-input pass
+		SEGWIT,
+		// Pre-segwit hashing: the whole transaction is streamed again to sign each input
+		LEGACY
+	}
+
+	public interface ConfirmationListener {
+		void onConfirmationRequested();
+	}
+
+	private static final byte SIGHASH_ALL = 1;
+
+	private final BTChipDongle dongle;
+	private final long version;
+	private final long lockTime;
+	private final boolean[] segwit;
+	private final byte[][] scripts;
+	private final List<List<Integer>> paths;
+	private final byte[] outputData;
+	private final BTChipDongle.BTChipInput[] segwitInputs;
+	private final BTChipDongle.BTChipInput[] legacyInputs;
+
+	/**
+	 * @param segwit whether each input is segwit (native or p2sh-wrapped)
+	 * @param scripts the prevout script of each input
+	 * @param paths the user path of each input
+	 * @param outputData the serialized outputs
+	 * @param segwitInputs the inputs for segwit hashing, only needed if there are segwit inputs
+	 * @param legacyInputs the inputs for legacy hashing, only needed if there are legacy inputs
+	 */
+	public BTChipTransactionSigner(BTChipDongle dongle, long version, long lockTime, boolean[] segwit, byte[][] scripts,
+								   List<List<Integer>> paths, byte[] outputData,
+								   BTChipDongle.BTChipInput[] segwitInputs, BTChipDongle.BTChipInput[] legacyInputs) {
+		this.dongle = dongle;
+		this.version = version;
+		this.lockTime = lockTime;
+		this.segwit = segwit;
+		this.scripts = scripts;
+		this.paths = paths;
+		this.outputData = outputData;
+		this.segwitInputs = segwitInputs;
+		this.legacyInputs = legacyInputs;
+	}
+
+	public Strategy getStrategy(int index) throws BTChipException {
+		if (!segwit[index]) {
+			// The signature commits to the pre-segwit hash, it can't be computed any other way
+			return Strategy.LEGACY;
+		}
+		// Sanity check on the firmware version, in case devices have been swapped
+		if (!dongle.shouldUseNewSigningApi()) {
+			throw new BTChipException("Segwit not supported");
+		}
+		return Strategy.SEGWIT;
+	}
+
+	private boolean hasInputs(Strategy strategy) throws BTChipException {
+		for (int i = 0; i < segwit.length; ++i) {
+			if (getStrategy(i) == strategy) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Number of APDUs sign() exchanges to sign the inputs of the given strategy, so callers can warn before
+	 * starting a long legacy signing session: legacy hashing streams every input again for each signature,
+	 * which grows with the square of the number of inputs.
+	 */
+	public long estimateApdus(Strategy strategy) throws BTChipException {
+		if (!hasInputs(strategy)) {
+			return 0;
+		}
+		long apdus = 0;
+		if (strategy == Strategy.SEGWIT) {
+			apdus += BTChipDongle.countUntrustedTransactionApdus(0, segwitInputs, scripts[0]);
+			apdus += BTChipDongle.countFinalizeInputFullApdus(outputData);
+		}
+		final BTChipDongle.BTChipInput[] singleInput = new BTChipDongle.BTChipInput[1];
+		for (int i = 0; i < segwit.length; ++i) {
+			if (getStrategy(i) != strategy) {
+				continue;
+			}
+			if (strategy == Strategy.SEGWIT) {
+				singleInput[0] = segwitInputs[i];
+				apdus += BTChipDongle.countUntrustedTransactionApdus(0, singleInput, scripts[i]);
+			} else {
+				apdus += BTChipDongle.countUntrustedTransactionApdus(i, legacyInputs, scripts[i]);
+				apdus += BTChipDongle.countFinalizeInputFullApdus(outputData);
+			}
+			// The signature
+			apdus++;
+		}
+		return apdus;
+	}
+
+	public long estimateApdus() throws BTChipException {
+		return estimateApdus(Strategy.SEGWIT) + estimateApdus(Strategy.LEGACY);
+	}
+
+	/**
+	 * Signs all inputs, returning the signatures in input order.
+	 * The listener is notified before the device may ask the user to confirm the outputs.
+	 */
+	public List<byte[]> sign(ConfirmationListener listener) throws BTChipException {
+		final byte[][] sigs = new byte[segwit.length][];
+		if (hasInputs(Strategy.SEGWIT)) {
+			signSegwit(listener, sigs);
+		}
+		if (hasInputs(Strategy.LEGACY)) {
+			signLegacy(listener, sigs);
+		}
+
+		final List<byte[]> result = new ArrayList<>(sigs.length);
+		for (byte[] sig : sigs) {
+			result.add(sig);
+		}
+		return result;
+	}
+
+	private void signSegwit(ConfirmationListener listener, byte[][] sigs) throws BTChipException {
+		// Prepare the pseudo transaction
+		// Provide the first script instead of a null script to initialize the P2SH confirmation logic
+		dongle.startUntrustedTransaction(version, true, 0, segwitInputs, scripts[0], true);
+		notify(listener);
+		dongle.finalizeInputFull(outputData);
+
+		// Sign each input
+		final BTChipDongle.BTChipInput[] singleInput = new BTChipDongle.BTChipInput[1];
+		for (int i = 0; i < segwit.length; ++i) {
+			if (getStrategy(i) != Strategy.SEGWIT) {
+				continue;
+			}
+			singleInput[0] = segwitInputs[i];
+			dongle.startUntrustedTransaction(version, false, 0, singleInput, scripts[i], true);
+			sigs[i] = dongle.untrustedHashSign(paths.get(i), "0", lockTime, SIGHASH_ALL);
+		}
+	}
+
+	private void signLegacy(ConfirmationListener listener, byte[][] sigs) throws BTChipException {
+		// Each signature needs its own pass over the whole transaction, but only for the inputs
+		// signed this way - segwit inputs are signed above
+		boolean newTransaction = true;
+		for (int i = 0; i < segwit.length; ++i) {
+			if (getStrategy(i) != Strategy.LEGACY) {
+				continue;
+			}
+			dongle.startUntrustedTransaction(version, newTransaction, i, legacyInputs, scripts[i], false);
+			notify(listener);
+			dongle.finalizeInputFull(outputData);
+			sigs[i] = dongle.untrustedHashSign(paths.get(i), "0", lockTime, SIGHASH_ALL);
+			newTransaction = false;
+		}
+	}
+
+	private void notify(ConfirmationListener listener) {
+		if (listener != null) {
+			listener.onConfirmationRequested();
+		}
+	}
+}
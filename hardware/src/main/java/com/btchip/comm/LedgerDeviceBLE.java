@@ -5,7 +5,6 @@ import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.List;
-import java.io.ByteArrayOutputStream;
 
 import android.bluetooth.BluetoothGatt;
 import android.bluetooth.BluetoothGattDescriptor;
@@ -236,7 +235,6 @@ public class LedgerDeviceBLE implements BTChipTransport {
   @Override
   public Future<byte[]> exchange(byte[] apdu) throws LedgerException {
     GattCallback.GattEvent event = null;
-    ByteArrayOutputStream response = new ByteArrayOutputStream();
     byte[] responseData = null;
     int offset = 0;
     int responseSize;
@@ -269,7 +267,8 @@ public class LedgerDeviceBLE implements BTChipTransport {
     if (!event.getEventType().equals(GattCallback.GattEventType.GATT_CHARACTERISTIC_CHANGED)) {
       event = null;
     }
-    int packageSize = mtu;
+    // Each notification is a single frame, reassembled as it arrives
+    LedgerFramer framer = new LedgerFramer();
     while (responseData == null) {
       if (event == null) {
         event = waitEvent(GattCallback.GattEventType.GATT_CHARACTERISTIC_CHANGED, NOTIFY_CHARACTERISTIC_UUID);
@@ -279,10 +278,9 @@ public class LedgerDeviceBLE implements BTChipTransport {
         Log.d(LOG_STRING, "<= Fragment " + Dump.dump(data));
       }
 
-      response.write(data, 0, data.length);
-      responseData = LedgerWrapper.unwrapResponseAPDU(response.toByteArray(), packageSize);
-      if (responseData == null)
-        packageSize = data.length;
+      if (framer.feed(data)) {
+        responseData = framer.getResponse();
+      }
       event = null;
     }
     if (debug) {
@@ -0,0 +1,144 @@
+package com.btchip.comm;
+
+/**
+ * Incremental Ledger framing of APDUs over packet based bearers (HID reports, BLE notifications)
+ *
+ * Each packet is [channel (2 bytes, HID only)] [tag] [sequence (2 bytes)] [data], the first packet of a
+ * message also carries the message length (2 bytes) before the data.
+ *
+ * Responses are reassembled packet by packet into a buffer allocated once from the length header.
+*/
+public class LedgerFramer {
+	private static final int TAG_APDU = 0x05;
+
+	private final int channel;
+	private final boolean hasChannel;
+
+	private byte[] response;
+	private int received;
+	private int sequenceIdx;
+
+	/**
+	 * @param channel channel to expect in each packet
+	 * @param hasChannel set to true if this bearer includes channel information
+	 */
+	public LedgerFramer(int channel, boolean hasChannel) {
+		this.channel = channel;
+		this.hasChannel = hasChannel;
+	}
+
+	/**
+	 * Reassembler for bearers without channel information
+	 */
+	public LedgerFramer() {
+		this(0, false);
+	}
+
+	/**
+	 * Prepare an APDU to be sent over the chosen bearer
+	 * @param channel dummy channel to use
+	 * @param command APDU to send
+	 * @param packetSize maximum size of a packet for this bearer
+	 * @param hasChannel set to true if this bearer includes channel information
+	 * @return packets to be sent over the chosen bearer, padded to a whole number of packets
+	 */
+	public static byte[] wrap(int channel, byte[] command, int packetSize, boolean hasChannel) throws LedgerException {
+		if (packetSize < 3) {
+			throw new LedgerException(LedgerException.ExceptionReason.INVALID_PARAMETER, "Can't handle Ledger framing with less than 3 bytes for the report");
+		}
+		int headerSize = (hasChannel ? 7 : 5);
+		int firstBlockSize = packetSize - headerSize;
+		int blockSize = firstBlockSize + 2;
+		int packets = 1;
+		if (command.length > firstBlockSize) {
+			packets += (command.length - firstBlockSize + blockSize - 1) / blockSize;
+		}
+
+		byte[] output = new byte[packets * packetSize];
+		int offset = 0;
+		for (int sequenceIdx = 0; sequenceIdx < packets; ++sequenceIdx) {
+			int position = sequenceIdx * packetSize;
+			if (hasChannel) {
+				output[position++] = (byte)(channel >> 8);
+				output[position++] = (byte)channel;
+			}
+			output[position++] = TAG_APDU;
+			output[position++] = (byte)(sequenceIdx >> 8);
+			output[position++] = (byte)sequenceIdx;
+			int length;
+			if (sequenceIdx == 0) {
+				output[position++] = (byte)(command.length >> 8);
+				output[position++] = (byte)command.length;
+				length = Math.min(command.length, firstBlockSize);
+			} else {
+				length = Math.min(command.length - offset, blockSize);
+			}
+			System.arraycopy(command, offset, output, position, length);
+			offset += length;
+		}
+		return output;
+	}
+
+	/**
+	 * Start reassembling a new response
+	 */
+	public void reset() {
+		response = null;
+		received = 0;
+		sequenceIdx = 0;
+	}
+
+	/**
+	 * Consume the next packet received over the bearer
+	 * @param packet buffer holding the packet
+	 * @param offset start of the packet in the buffer
+	 * @param length size of the packet, any data past the end of the response is padding
+	 * @return true once the response is complete
+	 */
+	public boolean feed(byte[] packet, int offset, int length) throws LedgerException {
+		if (isComplete()) {
+			throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Unexpected packet");
+		}
+		int end = offset + length;
+		int headerSize = (hasChannel ? 5 : 3) + (sequenceIdx == 0 ? 2 : 0);
+		if (length < headerSize) {
+			throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Truncated packet");
+		}
+		if (hasChannel) {
+			if (packet[offset++] != (byte)(channel >> 8) || packet[offset++] != (byte)channel) {
+				throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid channel");
+			}
+		}
+		if (packet[offset++] != TAG_APDU) {
+			throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid tag");
+		}
+		if (packet[offset++] != (byte)(sequenceIdx >> 8) || packet[offset++] != (byte)sequenceIdx) {
+			throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid sequence");
+		}
+		if (sequenceIdx == 0) {
+			int responseLength = ((packet[offset++] & 0xff) << 8) | (packet[offset++] & 0xff);
+			response = new byte[responseLength];
+		}
+		sequenceIdx++;
+
+		int blockSize = Math.min(response.length - received, end - offset);
+		System.arraycopy(packet, offset, response, received, blockSize);
+		received += blockSize;
+		return isComplete();
+	}
+
+	public boolean feed(byte[] packet) throws LedgerException {
+		return feed(packet, 0, packet.length);
+	}
+
+	public boolean isComplete() {
+		return response != null && received == response.length;
+	}
+
+	/**
+	 * @return the reassembled response, or null if still incomplete
+	 */
+	public byte[] getResponse() {
+		return isComplete() ? response : null;
+	}
+}
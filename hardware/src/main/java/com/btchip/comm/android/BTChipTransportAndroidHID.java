@@ -28,6 +28,7 @@ import android.util.Log;
 
 import com.btchip.BTChipException;
 import com.btchip.comm.BTChipTransport;
+import com.btchip.comm.LedgerFramer;
 import com.btchip.comm.LedgerWrapper;
 import com.btchip.utils.Dump;
 import com.btchip.utils.FutureUtils;
@@ -47,6 +48,7 @@ public class BTChipTransportAndroidHID implements BTChipTransport {
 	private boolean debug;
 	private boolean ledger;
 	private UsbDevice mUsb;
+	private final LedgerFramer framer = new LedgerFramer(LEDGER_DEFAULT_CHANNEL, true);
 	
 	public BTChipTransportAndroidHID(UsbDevice device, UsbDeviceConnection connection, UsbInterface dongleInterface, UsbEndpoint in, UsbEndpoint out, int timeout, boolean ledger) {
 		this.connection = connection;
@@ -130,16 +132,16 @@ public class BTChipTransportAndroidHID implements BTChipTransport {
 			responseData = response.toByteArray();
 		}
 		else {			
-			while ((responseData = LedgerWrapper.unwrapResponseAPDU(LEDGER_DEFAULT_CHANNEL, response.toByteArray(), HID_BUFFER_SIZE)) == null) {
+			// Reassemble the response report by report
+			framer.reset();
+			do {
 				responseBuffer.clear();
 				if (!request.queue(responseBuffer, HID_BUFFER_SIZE)) {
 					throw new BTChipException("I/O error");
 				}
 				connection.requestWait();
-				responseBuffer.rewind();
-				responseBuffer.get(transferBuffer, 0, HID_BUFFER_SIZE);
-				response.write(transferBuffer, 0, HID_BUFFER_SIZE);				
-			}						
+			} while (!framer.feed(responseBuffer.array(), 0, HID_BUFFER_SIZE));
+			responseData = framer.getResponse();
 		}		
 		request.close();
 		if (debug) {
@@ -1,5 +1,7 @@
 package com.greenaddress.greenbits.wallets;
 
+import android.util.Log;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
@@ -18,6 +20,7 @@ import com.blockstream.libwally.Wally;
 import com.btchip.BTChipConstants;
 import com.btchip.BTChipDongle;
 import com.btchip.BTChipException;
+import com.btchip.BTChipTransactionSigner;
 import com.btchip.BitcoinTransaction;
 import com.btchip.comm.android.BTChipTransportAndroid;
 import com.btchip.comm.android.BTChipTransportAndroidHID;
@@ -45,6 +48,7 @@ import kotlinx.coroutines.flow.StateFlow;
 
 
 public class BTChipHWWallet extends HWWallet {
+    private static final String TAG = BTChipHWWallet.class.getSimpleName();
     private static final byte SIGHASH_ALL = 1;
 
     private static final ListeningExecutorService mExecutor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
@@ -106,32 +110,44 @@ public class BTChipHWWallet extends HWWallet {
 
     @Override
     public synchronized void disconnect() {
-        // No-op
+        // Trusted inputs are only valid for this connection
+        mDongle.clearTrustedInputCache();
     }
 
     @NonNull
     @Override
     public synchronized List<String> getXpubs(@NonNull Network network, @Nullable HardwareWalletInteraction hwInteraction, @NonNull List<? extends List<Integer>> paths) {
-        final List<String> xpubs = new ArrayList<>(paths.size());
         try {
-            for (final List<Integer> path : paths) {
-                final String key = Joiner.on("/").join(path);
-                if (!mUserXPubs.containsKey(key)) {
-                    final BTChipDongle.BTChipPublicKey pubKey = mDongle.getWalletPublicKey(path, false, false);
-                    final byte[] compressed = KeyUtils.compressPublicKey(pubKey.getPublicKey());
-                    final Object hdkey = Wally.bip32_key_init(network.getVerPublic(), 1 /*FIXME: wally bug*/, 0,
-                                                              pubKey.getChainCode(), compressed,null, null, null);
-                    mUserXPubs.put(key, Wally.bip32_key_to_base58(hdkey, Wally.BIP32_FLAG_KEY_PUBLIC));
-                    Wally.bip32_key_free(hdkey);
+            // Only the hardened prefixes are fetched from the device, non-hardened children are derived on the host
+            return XpubDerivationPlanner.getXpubs(paths, devicePaths -> {
+                final List<String> xpubs = new ArrayList<>(devicePaths.size());
+                for (final List<Integer> path : devicePaths) {
+                    final String key = Joiner.on("/").join(path);
+                    if (!mUserXPubs.containsKey(key)) {
+                        final BTChipDongle.BTChipPublicKey pubKey = mDongle.getWalletPublicKey(path, false, false);
+                        final byte[] compressed = KeyUtils.compressPublicKey(pubKey.getPublicKey());
+                        mUserXPubs.put(key, encodeXpub(network, pubKey.getChainCode(), compressed));
+                    }
+                    xpubs.add(mUserXPubs.get(key));
                 }
-                xpubs.add(mUserXPubs.get(key));
-            }
-            return xpubs;
+                return xpubs;
+            }, XpubDerivationPlanner.wallyDeriver(hdkey ->
+                    // Same metadata as the xpubs fetched from the device
+                    encodeXpub(network, Wally.bip32_key_get_chain_code(hdkey), Wally.bip32_key_get_pub_key(hdkey))
+            ));
         } catch (final Exception e) {
             throw new RuntimeException(e.getMessage());
         }
     }
 
+    private static String encodeXpub(@NonNull final Network network, final byte[] chainCode, final byte[] publicKey) {
+        final Object hdkey = Wally.bip32_key_init(network.getVerPublic(), 1 /*FIXME: wally bug*/, 0,
+                                                  chainCode, publicKey, null, null, null);
+        final String xpub = Wally.bip32_key_to_base58(hdkey, Wally.BIP32_FLAG_KEY_PUBLIC);
+        Wally.bip32_key_free(hdkey);
+        return xpub;
+    }
+
     @NonNull
     @Override
     public synchronized String getMasterBlindingKey(@Nullable HardwareWalletInteraction hwInteraction) {
@@ -359,25 +375,41 @@ public class BTChipHWWallet extends HWWallet {
 
                 boolean sw = false;
                 boolean p2sh = false;
-                for (final InputOutput in : inputs) {
+                final boolean[] segwit = new boolean[inputs.size()];
+                final byte[][] scripts = new byte[inputs.size()][];
+                final List<List<Integer>> paths = new ArrayList<>(inputs.size());
+                for (int i = 0; i < segwit.length; ++i) {
+                    final InputOutput in = inputs.get(i);
                     if (in.isSegwit()) {
                         sw = true;
                     } else {
                         p2sh = true;
                     }
+                    segwit[i] = in.isSegwit();
+                    scripts[i] = Wally.hex_to_bytes(in.getPrevoutScript());
+                    paths.add(in.getUserPathAsInts());
                 }
 
                 // Sanity check on the firmware version, in case devices have been swapped
                 if (sw && !mDongle.shouldUseNewSigningApi())
                     throw new RuntimeException("Segwit not supported");
 
-                final List<byte[]> swSigs = sw ? signSW(hwInteraction, wallyTx, inputs, outputs, transactions) : new ArrayList<>();
-                final List<byte[]> p2shSigs = p2sh ? signNonSW(hwInteraction, wallyTx, inputs, outputs,
-                        transactions) : new ArrayList<>();
+                final BTChipTransactionSigner signer = new BTChipTransactionSigner(mDongle,
+                        Wally.tx_get_version(wallyTx), Wally.tx_get_locktime(wallyTx), segwit, scripts, paths,
+                        outputBytes(outputs),
+                        sw ? getHwInputs(inputs, transactions, true) : null,
+                        p2sh ? getHwInputs(inputs, transactions, false) : null);
+
+                Log.d(TAG, String.format("Signing %d inputs, expecting %d segwit and %d legacy APDUs", inputs.size(),
+                        signer.estimateApdus(BTChipTransactionSigner.Strategy.SEGWIT),
+                        signer.estimateApdus(BTChipTransactionSigner.Strategy.LEGACY)));
 
                 final List<String> sigs = new ArrayList<>(inputs.size());
-                for (final InputOutput in : inputs) {
-                    final byte[] sig = (in.isSegwit() ? swSigs : p2shSigs).remove(0);
+                for (final byte[] sig : signer.sign(() -> {
+                    if (mDongle.supportScreen() && hwInteraction != null) {
+                        hwInteraction.interactionRequest(this, null, null);
+                    }
+                })) {
                     sigs.add(Wally.hex_from_bytes(sig));
                 }
                 return new SignTransactionResult(sigs, null);
@@ -395,14 +427,25 @@ public class BTChipHWWallet extends HWWallet {
         final boolean preferTrustedInputs = !segwit || mDongle.shouldUseTrustedInputForSegwit();
 
         if (preferTrustedInputs && mDongle.supportScreen()) {
+            // Inputs often share a previous transaction, parse each one once
+            final Map<String, BitcoinTransaction> prevTxs = new HashMap<>();
             for (int i = 0; i < hwInputs.length; ++i) {
                 final InputOutput in = inputs.get(i);
-                final String txHex = transactions.get(in.getTxHash());
-                if (txHex == null)
-                    throw new BTChipException(String.format("previous transaction %s not found", in.getTxHash()));
-
-                final ByteArrayInputStream is = new ByteArrayInputStream(Wally.hex_to_bytes(txHex));
-                hwInputs[i] = mDongle.getTrustedInput(new BitcoinTransaction(is), in.getPtIdxInt(),
+                hwInputs[i] = mDongle.getCachedTrustedInput(in.getTxHash(), in.getPtIdxInt(), in.getSequenceInt(), segwit);
+                if (hwInputs[i] != null)
+                    continue;
+
+                BitcoinTransaction prevTx = prevTxs.get(in.getTxHash());
+                if (prevTx == null) {
+                    final String txHex = transactions.get(in.getTxHash());
+                    if (txHex == null)
+                        throw new BTChipException(String.format("previous transaction %s not found", in.getTxHash()));
+
+                    final ByteArrayInputStream is = new ByteArrayInputStream(Wally.hex_to_bytes(txHex));
+                    prevTx = new BitcoinTransaction(is);
+                    prevTxs.put(in.getTxHash(), prevTx);
+                }
+                hwInputs[i] = mDongle.getTrustedInput(in.getTxHash(), prevTx, in.getPtIdxInt(),
                                                       in.getSequenceInt(), segwit);
             }
         } else {
@@ -415,69 +458,6 @@ public class BTChipHWWallet extends HWWallet {
         return hwInputs;
     }
 
-    private List<byte[]> signSW(final HardwareWalletInteraction hwInteraction, final Object wallyTx,
-                                final List<InputOutput> inputs,
-                                final List<InputOutput> outputs,
-                                final Map<String, String> transactions) throws BTChipException {
-        final BTChipDongle.BTChipInput[] hwInputs = getHwInputs(inputs, transactions, true);
-
-        // Prepare the pseudo transaction
-        // Provide the first script instead of a null script to initialize the P2SH confirmation logic
-        final long version = Wally.tx_get_version(wallyTx);
-        final byte[] script0 = Wally.hex_to_bytes(inputs.get(0).getPrevoutScript());
-        mDongle.startUntrustedTransaction(version, true, 0, hwInputs, script0, true);
-
-        if (mDongle.supportScreen() && hwInteraction != null) {
-            hwInteraction.interactionRequest(this, null, null);
-        }
-        mDongle.finalizeInputFull(outputBytes(outputs));
-
-        final long locktime = Wally.tx_get_locktime(wallyTx);
-
-        // Sign each input
-        final BTChipDongle.BTChipInput[] singleInput = new BTChipDongle.BTChipInput[1];
-        final List<byte[]> sigs = new ArrayList<>(hwInputs.length);
-
-        for (int i = 0; i < hwInputs.length; ++i) {
-            final InputOutput in = inputs.get(i);
-            if (!in.isSegwit())
-                continue; // sign segwit only
-            singleInput[0] = hwInputs[i];
-            final byte[] script = Wally.hex_to_bytes(in.getPrevoutScript());
-            mDongle.startUntrustedTransaction(version, false, 0, singleInput, script, true);
-            sigs.add(mDongle.untrustedHashSign(in.getUserPathAsInts(),"0", locktime, SIGHASH_ALL));
-        }
-        return sigs;
-    }
-
-    private List<byte[]> signNonSW(final HardwareWalletInteraction hwInteraction, final Object wallyTx,
-                                   final List<InputOutput> inputs,
-                                   final List<InputOutput> outputs,
-                                   final Map<String, String> transactions) throws BTChipException {
-        final BTChipDongle.BTChipInput[] hwInputs = getHwInputs(inputs, transactions, false);
-
-        final long locktime = Wally.tx_get_locktime(wallyTx);
-        final long version = Wally.tx_get_version(wallyTx);
-
-        final byte[] outputData = outputBytes(outputs);
-        final List<byte[]> sigs = new ArrayList<>(hwInputs.length);
-
-        for (int i = 0; i < hwInputs.length; ++i) {
-            final InputOutput in = inputs.get(i);
-            final byte[] script = Wally.hex_to_bytes(in.getPrevoutScript());
-
-            mDongle.startUntrustedTransaction(version, i == 0, i, hwInputs, script, false);
-            if (mDongle.supportScreen() && hwInteraction != null) {
-                hwInteraction.interactionRequest(this, null, null);
-            }
-            mDongle.finalizeInputFull(outputData);
-
-            if (!in.isSegwit()) // sign p2sh/non-segwit only
-                sigs.add(mDongle.untrustedHashSign(in.getUserPathAsInts(),"0", locktime, SIGHASH_ALL));
-        }
-        return sigs;
-    }
-
     private byte[] outputBytes(final List<InputOutput> outputs) {
         final ByteArrayOutputStream os = new ByteArrayOutputStream(outputs.size() * (8 + 256));
         putVarInt(os, outputs.size());
@@ -36,6 +36,7 @@ import com.greenaddress.greenapi.HWWallet;
 import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -202,14 +203,18 @@ abstract public class JadeHWWalletJava extends HWWallet {
 
         final String canonicalNetworkId = network.getCanonicalNetworkId();
         try {
-            // paths.stream.map(jade::get_xpub).collect(Collectors.toList());
-            final List<String> xpubs = new ArrayList<>(paths.size());
-            for (final List<Integer> path : paths) {
-                final List<Long> unsignedPath = getUnsignedPath(path);
-                final String xpub = this.jade.getXpub(canonicalNetworkId, unsignedPath);
-                Log.d(TAG, "Got xpub for " + path + ": " + xpub);
-                xpubs.add(xpub);
-            }
+            // Only the hardened prefixes are fetched from Jade, non-hardened children are derived on the host
+            final List<String> xpubs = XpubDerivationPlanner.getXpubs(paths, devicePaths -> {
+                // paths.stream.map(jade::get_xpub).collect(Collectors.toList());
+                final List<String> deviceXpubs = new ArrayList<>(devicePaths.size());
+                for (final List<Integer> path : devicePaths) {
+                    final List<Long> unsignedPath = getUnsignedPath(path);
+                    final String xpub = this.jade.getXpub(canonicalNetworkId, unsignedPath);
+                    Log.d(TAG, "Got xpub for " + path + ": " + xpub);
+                    deviceXpubs.add(xpub);
+                }
+                return deviceXpubs;
+            }, XpubDerivationPlanner.wallyDeriver(null));
 
             Log.d(TAG, "getXpubs() returning " + xpubs.size() + " xpubs");
             return xpubs;
@@ -359,6 +364,8 @@ abstract public class JadeHWWalletJava extends HWWallet {
                 }
 
                 // Get the inputs in the form Jade expects
+                // Each previous transaction is decoded once and shared by all inputs spending from it
+                final Map<String, byte[]> inputTxs = new HashMap<>();
                 final List<TxInput> txInputs = new ArrayList<>(inputs.size());
                 for (final InputOutput input : inputs) {
                     final boolean swInput = input.isSegwit();
@@ -376,11 +383,15 @@ abstract public class JadeHWWalletJava extends HWWallet {
                     } else {
                         // Non-SegWit input or there are several inputs - in which case we always send
                         // the entire prior transaction up to Jade (so it can verify the spend amounts).
-                        final String txhex = transactions.get(input.getTxHash());
-                        if (txhex == null) {
-                            throw new RuntimeException("Required input transaction not found: " + input.getTxHash());
+                        byte[] inputTx = inputTxs.get(input.getTxHash());
+                        if (inputTx == null) {
+                            final String txhex = transactions.get(input.getTxHash());
+                            if (txhex == null) {
+                                throw new RuntimeException("Required input transaction not found: " + input.getTxHash());
+                            }
+                            inputTx = hexToBytes(txhex);
+                            inputTxs.put(input.getTxHash(), inputTx);
                         }
-                        final byte[] inputTx = hexToBytes(txhex);
                         txInputs.add(new TxInputBtc(swInput,
                                 inputTx,
                                 script,
@@ -467,6 +478,44 @@ abstract public class JadeHWWalletJava extends HWWallet {
         }
     }
 
+    @NonNull
+    @Override
+    public synchronized List<String> getBlindingKeys(@Nullable HardwareWalletInteraction hwInteraction, @NonNull List<String> scriptHexes) {
+        Log.d(TAG, "getBlindingKeys() for " + scriptHexes.size() + " scripts");
+
+        try {
+            final List<byte[]> scripts = new ArrayList<>(scriptHexes.size());
+            for (final String scriptHex : scriptHexes) {
+                scripts.add(hexToBytes(scriptHex));
+            }
+            final List<String> keys = hexFromBytes(this.jade.getBlindingKeys(scripts));
+            Log.d(TAG, "getBlindingKeys() returning " + keys.size() + " keys");
+            return keys;
+        } catch (final Exception e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
+    @NonNull
+    @Override
+    public synchronized List<String> getBlindingNonces(@Nullable HardwareWalletInteraction hwInteraction, @NonNull List<String> pubkeys, @NonNull List<String> scriptHexes) {
+        Log.d(TAG, "getBlindingNonces() for " + scriptHexes.size() + " scripts");
+
+        try {
+            final List<byte[]> scripts = new ArrayList<>(scriptHexes.size());
+            final List<byte[]> pkeys = new ArrayList<>(pubkeys.size());
+            for (int i = 0; i < scriptHexes.size(); ++i) {
+                scripts.add(hexToBytes(scriptHexes.get(i)));
+                pkeys.add(hexToBytes(pubkeys.get(i)));
+            }
+            final List<String> nonces = hexFromBytes(this.jade.getSharedNonces(scripts, pkeys));
+            Log.d(TAG, "getBlindingNonces() returning " + nonces.size() + " nonces");
+            return nonces;
+        } catch (final Exception e) {
+            throw new RuntimeException(e.getMessage());
+        }
+    }
+
     private static byte[] sliceReversed(final byte[] data, final int offset, final int len) {
         final byte[] result = new byte[len];
         for (int i = 0; i < len; ++i) {
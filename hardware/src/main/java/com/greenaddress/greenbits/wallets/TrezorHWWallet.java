@@ -17,6 +17,7 @@ import com.blockstream.common.gdk.device.DeviceBrand;
 import com.blockstream.common.gdk.device.HardwareWalletInteraction;
 import com.blockstream.common.gdk.device.SignMessageResult;
 import com.blockstream.common.gdk.device.SignTransactionResult;
+import com.blockstream.hardware.BuildConfig;
 import com.blockstream.libwally.Wally;
 import com.google.common.base.Joiner;
 import com.google.protobuf.ByteString;
@@ -50,6 +51,7 @@ public class TrezorHWWallet extends HWWallet {
     public TrezorHWWallet(final Gdk gdk, final Trezor t, final Device device, final String firmwareVersion) {
         mGdk = gdk;
         mTrezor = t;
+        mTrezor.setDebug(BuildConfig.DEBUG);
         mDevice = device;
         mFirmwareVersion = firmwareVersion;
         mModel = "Trezor " + mTrezor.getModel();
@@ -0,0 +1,113 @@
+package com.greenaddress.greenbits.wallets;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.blockstream.libwally.Wally;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans the device requests of a getXpubs call.
+ *
+ * Public keys of non-hardened children can be derived from the parent xpub alone, so requested paths are
+ * grouped by their deepest hardened prefix, only those prefixes are fetched from the device and the
+ * non-hardened suffixes are derived on the host.
+ */
+public final class XpubDerivationPlanner {
+
+    public interface XpubSource {
+        // Return the xpubs for each path, in order, as computed by the device
+        @NonNull
+        List<String> getXpubs(@NonNull List<List<Integer>> paths) throws Exception;
+    }
+
+    public interface ChildDeriver {
+        // Return the xpub derived from parentXpub following the non-hardened suffix path
+        @NonNull
+        String derive(@NonNull String parentXpub, @NonNull List<Integer> suffix);
+    }
+
+    public interface KeyEncoder {
+        // Encode a derived wally ext_key, the same way the wallet encodes the xpubs it gets from the device
+        @NonNull
+        String encode(@NonNull Object hdkey);
+    }
+
+    private XpubDerivationPlanner() {
+    }
+
+    private static boolean isHardened(final int child) {
+        // Hardened children have the high bit set, ie. are negative as java ints
+        return child < 0;
+    }
+
+    // The path up to and including its last hardened child, empty if the path has no hardened children
+    @NonNull
+    public static List<Integer> hardenedPrefix(@NonNull final List<Integer> path) {
+        int end = 0;
+        for (int i = 0; i < path.size(); i++) {
+            if (isHardened(path.get(i))) {
+                end = i + 1;
+            }
+        }
+        return new ArrayList<>(path.subList(0, end));
+    }
+
+    // The distinct paths to be fetched from the device, in order of first use
+    @NonNull
+    public static List<List<Integer>> devicePaths(@NonNull final List<? extends List<Integer>> paths) {
+        final Map<List<Integer>, Boolean> prefixes = new LinkedHashMap<>();
+        for (final List<Integer> path : paths) {
+            prefixes.put(hardenedPrefix(path), true);
+        }
+        return new ArrayList<>(prefixes.keySet());
+    }
+
+    @NonNull
+    public static List<String> getXpubs(@NonNull final List<? extends List<Integer>> paths,
+                                        @NonNull final XpubSource device,
+                                        @NonNull final ChildDeriver deriver) throws Exception {
+        final List<List<Integer>> devicePaths = devicePaths(paths);
+        final List<String> deviceXpubs = device.getXpubs(devicePaths);
+
+        final Map<List<Integer>, String> prefixXpubs = new LinkedHashMap<>();
+        for (int i = 0; i < devicePaths.size(); i++) {
+            prefixXpubs.put(devicePaths.get(i), deviceXpubs.get(i));
+        }
+
+        final List<String> xpubs = new ArrayList<>(paths.size());
+        for (final List<Integer> path : paths) {
+            final List<Integer> prefix = hardenedPrefix(path);
+            final String parent = prefixXpubs.get(prefix);
+            if (prefix.size() == path.size()) {
+                xpubs.add(parent);
+            } else {
+                xpubs.add(deriver.derive(parent, Collections.unmodifiableList(path.subList(prefix.size(), path.size()))));
+            }
+        }
+        return xpubs;
+    }
+
+    // Public derivation with wally, encoder is null to encode the derived key as a regular base58 xpub
+    @NonNull
+    public static ChildDeriver wallyDeriver(@Nullable final KeyEncoder encoder) {
+        return (parentXpub, suffix) -> {
+            Object key = Wally.bip32_key_from_base58(parentXpub);
+            try {
+                for (final Integer child : suffix) {
+                    final Object next = Wally.bip32_key_from_parent(key, child & 0xffffffffL, Wally.BIP32_FLAG_KEY_PUBLIC);
+                    Wally.bip32_key_free(key);
+                    key = next;
+                }
+                return encoder != null ? encoder.encode(key) : Wally.bip32_key_to_base58(key, Wally.BIP32_FLAG_KEY_PUBLIC);
+            } finally {
+                Wally.bip32_key_free(key);
+            }
+        };
+    }
+}
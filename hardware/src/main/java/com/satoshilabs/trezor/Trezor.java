@@ -12,8 +12,10 @@ import android.util.Log;
 
 import com.blockstream.libwally.Wally;
 import com.google.common.collect.ImmutableList;
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
+import com.satoshilabs.trezor.protobuf.TrezorMessage;
 import com.satoshilabs.trezor.protobuf.TrezorMessage.Address;
 import com.satoshilabs.trezor.protobuf.TrezorMessage.ButtonRequest;
 import com.satoshilabs.trezor.protobuf.TrezorMessage.Entropy;
@@ -31,10 +33,13 @@ import com.satoshilabs.trezor.protobuf.TrezorMessage.Success;
 import com.satoshilabs.trezor.protobuf.TrezorMessage.TxRequest;
 import com.satoshilabs.trezor.protobuf.TrezorMessage.TxSize;
 import com.satoshilabs.trezor.protobuf.TrezorMessage.WordRequest;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 public class Trezor {
@@ -46,6 +51,34 @@ public class Trezor {
     private final UsbDeviceConnection mConn;
     private final String mSerial;
     private final UsbEndpoint mReadEndpoint, mWriteEndpoint;
+    private boolean mDebug;
+
+    // Interrupt endpoint packets are '?' followed by 63 bytes of the frame
+    private static final int PACKET_SIZE = 64;
+    private static final int PACKET_DATA_SIZE = 63;
+    private static final int FRAME_HEADER_SIZE = 8;
+    // Packets kept in flight on an endpoint
+    private static final int MAX_QUEUED_REQUESTS = 8;
+
+    private static final int INITIAL_FRAME_SIZE = 4096;
+    private static final int MAX_RETAINED_FRAME_SIZE = 64 * 1024;
+
+    // Reused for reading and writing frames, grown as needed
+    private byte[] mFrame = new byte[INITIAL_FRAME_SIZE];
+
+    // Message class -> MessageType id, for all messages in TrezorMessage
+    private static final Map<Class<?>, Integer> MESSAGE_IDS = new ConcurrentHashMap<>();
+
+    static {
+        for (final MessageType type : MessageType.values()) {
+            final String name = type.name().substring("MessageType_".length());
+            try {
+                MESSAGE_IDS.put(Class.forName(TrezorMessage.class.getName() + "$" + name), type.getNumber());
+            } catch (final ClassNotFoundException e) {
+                // Message not defined in TrezorMessage, resolved on first use
+            }
+        }
+    }
 
     public static Trezor getDevice(final Context context) {
         final UsbManager manager = (UsbManager)context.getSystemService(Context.USB_SERVICE);
@@ -143,46 +176,127 @@ public class Trezor {
         return mProductId;
     }
 
-    private void logData(final String prefix, final byte[] data) {
-        Log.d(TAG, prefix + Wally.hex_from_bytes(data));
+    public void setDebug(final boolean debug) {
+        mDebug = debug;
+    }
+
+    private void logData(final String prefix, final byte[] data, final int offset, final int length) {
+        if (mDebug) {
+            Log.d(TAG, prefix + Wally.hex_from_bytes(Arrays.copyOfRange(data, offset, offset + length)));
+        }
+    }
+
+    private static int messageId(final Message msg) {
+        final Integer id = MESSAGE_IDS.get(msg.getClass());
+        if (id != null) {
+            return id;
+        }
+        // Not a TrezorMessage inner class - resolve by name and remember it
+        final int resolved = MessageType.valueOf("MessageType_" + msg.getClass().getSimpleName()).getNumber();
+        MESSAGE_IDS.put(msg.getClass(), resolved);
+        return resolved;
+    }
+
+    // Returns the pooled frame buffer, grown to hold at least 'size' bytes
+    private byte[] frameBuffer(final int size) {
+        if (mFrame.length < size) {
+            int capacity = mFrame.length;
+            while (capacity < size) {
+                capacity <<= 1;
+            }
+            mFrame = new byte[capacity];
+        }
+        return mFrame;
+    }
+
+    // Don't hold on to the memory of a one-off large message
+    private void releaseFrameBuffer() {
+        if (mFrame.length > MAX_RETAINED_FRAME_SIZE) {
+            mFrame = new byte[INITIAL_FRAME_SIZE];
+        }
+    }
+
+    private UsbRequest[] openRequests(final UsbEndpoint endpoint, final int count) {
+        final UsbRequest[] requests = new UsbRequest[count];
+        for (int i = 0; i < count; ++i) {
+            requests[i] = new UsbRequest();
+            requests[i].initialize(mConn, endpoint);
+            requests[i].setClientData(ByteBuffer.allocate(PACKET_SIZE));
+        }
+        return requests;
+    }
+
+    private static void closeRequests(final UsbRequest[] requests) {
+        for (final UsbRequest request : requests) {
+            request.close();
+        }
+    }
+
+    // Wait for the next queued request to complete - requests on the same endpoint complete in order
+    private UsbRequest awaitRequest() {
+        final UsbRequest request = mConn.requestWait();
+        if (request == null) {
+            throw new IllegalStateException("Trezor USB request failed");
+        }
+        return request;
     }
 
     private void messageWrite(final Message msg) {
         final int msg_size = msg.getSerializedSize();
-        final String msg_name = msg.getClass().getSimpleName();
-        final int msg_id = MessageType.valueOf("MessageType_" + msg_name).getNumber();
-        Log.d(TAG, String.format("Got message: %s (%d bytes)", msg_name, msg_size));
-        final ByteBuffer data = ByteBuffer.allocate(32768);
-        data.put((byte)'#');
-        data.put((byte)'#');
-        data.put((byte)((msg_id >> 8) & 0xFF));
-        data.put((byte)(msg_id & 0xFF));
-        data.put((byte)((msg_size >> 24) & 0xFF));
-        data.put((byte)((msg_size >> 16) & 0xFF));
-        data.put((byte)((msg_size >> 8) & 0xFF));
-        data.put((byte)(msg_size & 0xFF));
-        data.put(msg.toByteArray());
-        while (data.position() % 63 > 0)
-            data.put((byte)0);
-        final UsbRequest request = new UsbRequest();
-        request.initialize(mConn, mWriteEndpoint);
-        final int chunks = data.position() / 63;
+        final int msg_id = messageId(msg);
+        Log.d(TAG, String.format("Got message: %s (%d bytes)", msg.getClass().getSimpleName(), msg_size));
+
+        // Frame is '##', message id (2 bytes), message size (4 bytes) and the message, padded to whole packets
+        final int frame_size = FRAME_HEADER_SIZE + msg_size;
+        final int chunks = (frame_size + PACKET_DATA_SIZE - 1) / PACKET_DATA_SIZE;
+        final byte[] frame = frameBuffer(chunks * PACKET_DATA_SIZE);
+        frame[0] = (byte)'#';
+        frame[1] = (byte)'#';
+        frame[2] = (byte)((msg_id >> 8) & 0xFF);
+        frame[3] = (byte)(msg_id & 0xFF);
+        frame[4] = (byte)((msg_size >> 24) & 0xFF);
+        frame[5] = (byte)((msg_size >> 16) & 0xFF);
+        frame[6] = (byte)((msg_size >> 8) & 0xFF);
+        frame[7] = (byte)(msg_size & 0xFF);
+        try {
+            final CodedOutputStream output = CodedOutputStream.newInstance(frame, FRAME_HEADER_SIZE, msg_size);
+            msg.writeTo(output);
+            output.checkNoSpaceLeft();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        Arrays.fill(frame, frame_size, chunks * PACKET_DATA_SIZE, (byte)0);
+        logData("write:", frame, 0, frame_size);
+
+        // Keep several packets in flight
         Log.d(TAG, String.format("Writing %d chunks", chunks));
-        data.rewind();
-        for (int i = 0; i < chunks; ++i) {
-            final byte[] buffer = new byte[64];
-            buffer[0] = (byte)'?';
-            data.get(buffer, 1, 63);
-            //logData("chunk:", buffer);
-            request.queue(ByteBuffer.wrap(buffer), 64);
-            mConn.requestWait();
+        final UsbRequest[] requests = openRequests(mWriteEndpoint, Math.min(chunks, MAX_QUEUED_REQUESTS));
+        try {
+            int queued = 0, completed = 0;
+            while (completed < chunks) {
+                if (queued < chunks && queued - completed < requests.length) {
+                    final UsbRequest request = requests[queued % requests.length];
+                    final ByteBuffer packet = (ByteBuffer) request.getClientData();
+                    packet.clear();
+                    packet.put((byte)'?');
+                    packet.put(frame, queued * PACKET_DATA_SIZE, PACKET_DATA_SIZE);
+                    if (!request.queue(packet, PACKET_SIZE)) {
+                        throw new IllegalStateException("Trezor USB write failed");
+                    }
+                    ++queued;
+                } else {
+                    awaitRequest();
+                    ++completed;
+                }
+            }
+        } finally {
+            closeRequests(requests);
+            releaseFrameBuffer();
         }
-        request.close();
     }
 
     private Message parseMessageFromBytes(final MessageType type, final byte[] data) {
         Log.d(TAG, String.format("Parsing %s (%d bytes):", type, data.length));
-        logData("data:", data);
 
         try {
             switch (type.getNumber()) {
@@ -212,47 +326,63 @@ public class Trezor {
     }
 
     private Message messageRead() {
-        final ByteBuffer data = ByteBuffer.allocate(32768);
-        final ByteBuffer buffer = ByteBuffer.allocate(64);
-        final ByteBuffer cur63 = ByteBuffer.allocate(64);
-        final UsbRequest request = new UsbRequest();
-        request.initialize(mConn, mReadEndpoint);
-        MessageType type;
-        int msg_size;
-        for (;;) {
-            buffer.clear();
-            if (!request.queue(buffer, 64)) continue;
-            mConn.requestWait();
-            final byte[] b = new byte[64];
-            buffer.rewind();
-            buffer.get(b);
-            Log.d(TAG, String.format("Read chunk: %d bytes", b.length));
-            if (b.length < 9) continue;
-            //logData("read:", b);
-
-            final int rem = cur63.remaining(), len = b[0]&0xFF;
-            cur63.put(b, 1, Math.min(len, rem));
-            if (cur63.position() >= 63) {
-                final byte[] b2 = cur63.array();
-                if (b2[0] != (byte) '#' || b2[1] != (byte) '#') continue;
-                type = MessageType.valueOf((b2[2] << 8) + b2[3]);
-                msg_size = ((b2[4] & 0xFF) << 24) + ((b2[5] & 0xFF) << 16) + ((b2[6] & 0xFF) << 8) + (b2[7] & 0xFF);
+        final UsbRequest[] requests = openRequests(mReadEndpoint, MAX_QUEUED_REQUESTS);
+        try {
+            // The first packet carries the frame header, which tells how many packets follow
+            MessageType type = null;
+            int msg_size = 0;
+            while (type == null) {
+                final byte[] packet = readPacket(requests[0]);
+                if (packet[0] != (byte)'?' || packet[1] != (byte)'#' || packet[2] != (byte)'#') {
+                    continue;
+                }
+                type = MessageType.valueOf(((packet[3] & 0xFF) << 8) + (packet[4] & 0xFF));
+                msg_size = ((packet[5] & 0xFF) << 24) + ((packet[6] & 0xFF) << 16) + ((packet[7] & 0xFF) << 8) + (packet[8] & 0xFF);
                 Log.d(TAG, String.format("msg_size: %d bytes", msg_size));
-                data.put(b2, 8, cur63.position() - 8);
-                if (rem < len) data.put(b, rem + 1, len - rem);
-                break;
+                if (type == null || msg_size < 0) {
+                    throw new IllegalStateException("Invalid Trezor message header");
+                }
+
+                final byte[] data = frameBuffer(msg_size);
+                int received = Math.min(msg_size, PACKET_DATA_SIZE - FRAME_HEADER_SIZE);
+                System.arraycopy(packet, 1 + FRAME_HEADER_SIZE, data, 0, received);
+
+                // Queue exactly the remaining packets, keeping several in flight
+                final int chunks = (msg_size - received + PACKET_DATA_SIZE - 1) / PACKET_DATA_SIZE;
+                int queued = 0, completed = 0;
+                while (completed < chunks) {
+                    if (queued < chunks && queued - completed < requests.length) {
+                        queueRead(requests[queued % requests.length]);
+                        ++queued;
+                    } else {
+                        final ByteBuffer buffer = (ByteBuffer) awaitRequest().getClientData();
+                        final int len = Math.min(msg_size - received, PACKET_DATA_SIZE);
+                        System.arraycopy(buffer.array(), 1, data, received, len);
+                        received += len;
+                        ++completed;
+                    }
+                }
             }
+
+            logData("read:", mFrame, 0, msg_size);
+            return parseMessageFromBytes(type, Arrays.copyOf(mFrame, msg_size));
+        } finally {
+            closeRequests(requests);
+            releaseFrameBuffer();
         }
-        while (data.position() < msg_size) {
-            request.queue(buffer, 64);
-            mConn.requestWait();
-            final byte[] b = buffer.array();
-            //Log.d(TAG, String.format("Read chunk (cont): %d bytes msg size %d", b.length, msg_size));
-            //logData("read(cont):", b);
-            data.put(b, 1, b[0] & 0xFF);
+    }
+
+    private void queueRead(final UsbRequest request) {
+        final ByteBuffer buffer = (ByteBuffer) request.getClientData();
+        buffer.clear();
+        if (!request.queue(buffer, PACKET_SIZE)) {
+            throw new IllegalStateException("Trezor USB read failed");
         }
-        request.close();
-        return parseMessageFromBytes(type, Arrays.copyOfRange(data.array(), 0, msg_size));
+    }
+
+    private byte[] readPacket(final UsbRequest request) {
+        queueRead(request);
+        return ((ByteBuffer) awaitRequest().getClientData()).array();
     }
 
     public Message io(Message.Builder m) {
@@ -0,0 +1,63 @@
+package com.btchip;
+
+import com.btchip.comm.BTChipTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Simulated Ledger transport recording the APDUs it receives.
+ * Every APDU succeeds, firmware version is a Nano S/X running the bitcoin app 1.6.0.
+ */
+class MockBTChipTransport implements BTChipTransport {
+    static final int TRUSTED_INPUT_SIZE = 56;
+
+    final List<byte[]> apdus = new ArrayList<>();
+
+    @Override
+    public Future<byte[]> exchange(final byte[] command) {
+        apdus.add(command);
+        final byte[] response;
+        switch (command[1]) {
+            case BTChipConstants.BTCHIP_INS_GET_FIRMWARE_VERSION:
+                response = new byte[]{0x01, BTChipConstants.BTCHIP_ARCH_NANO_SX, 1, 6, 0, (byte) 0x90, 0x00};
+                break;
+            case BTChipConstants.BTCHIP_INS_GET_TRUSTED_INPUT:
+                response = new byte[TRUSTED_INPUT_SIZE + 2];
+                // Tag the trusted input with the number of the APDU returning it
+                response[0] = (byte) apdus.size();
+                response[TRUSTED_INPUT_SIZE] = (byte) 0x90;
+                break;
+            default:
+                // Empty output confirmation, dummy signature
+                response = new byte[72 + 2];
+                response[72] = (byte) 0x90;
+        }
+        return CompletableFuture.completedFuture(response);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void setDebug(final boolean debugFlag) {
+    }
+
+    @Override
+    public Boolean isUsb() {
+        return true;
+    }
+
+    int count(final byte ins) {
+        int count = 0;
+        for (final byte[] apdu : apdus) {
+            if (apdu[1] == ins) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,157 @@
+package com.btchip;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * APDUs exchanged to sign legacy, segwit and mixed transactions.
+ */
+@RunWith(JUnit4.class)
+public class TransactionSignerTest {
+    // 2of2 multisig redeem script
+    private static final int SCRIPT_SIZE = 71;
+    // 2 outputs
+    private static final int OUTPUTS_SIZE = 1 + 2 * (8 + 1 + 25);
+
+    private MockBTChipTransport transport;
+    private BTChipDongle dongle;
+
+    @Before
+    public void setup() {
+        transport = new MockBTChipTransport();
+        dongle = new BTChipDongle(transport, true);
+    }
+
+    private BTChipTransactionSigner signer(final boolean[] segwit) {
+        final int numInputs = segwit.length;
+        final byte[][] scripts = new byte[numInputs][];
+        final List<List<Integer>> paths = new ArrayList<>(numInputs);
+        final BTChipDongle.BTChipInput[] segwitInputs = new BTChipDongle.BTChipInput[numInputs];
+        final BTChipDongle.BTChipInput[] legacyInputs = new BTChipDongle.BTChipInput[numInputs];
+        for (int i = 0; i < numInputs; ++i) {
+            scripts[i] = new byte[SCRIPT_SIZE];
+            paths.add(Arrays.asList(1, i));
+            segwitInputs[i] = dongle.createInput(new byte[36 + 8], new byte[4], false, true);
+            legacyInputs[i] = dongle.createInput(new byte[MockBTChipTransport.TRUSTED_INPUT_SIZE], new byte[4], true, false);
+        }
+        return new BTChipTransactionSigner(dongle, 2, 0, segwit, scripts, paths, new byte[OUTPUTS_SIZE],
+                segwitInputs, legacyInputs);
+    }
+
+    // Sign, returning the number of APDUs exchanged, which the signer must have estimated exactly
+    private int sign(final boolean[] segwit) throws BTChipException {
+        final BTChipTransactionSigner signer = signer(segwit);
+        final long estimate = signer.estimateApdus();
+
+        final int[] confirmations = new int[1];
+        final List<byte[]> sigs = signer.sign(() -> confirmations[0]++);
+
+        Assert.assertEquals(segwit.length, sigs.size());
+        for (final byte[] sig : sigs) {
+            Assert.assertNotNull(sig);
+        }
+        Assert.assertTrue(confirmations[0] > 0);
+        Assert.assertEquals(segwit.length, transport.count(BTChipConstants.BTCHIP_INS_HASH_SIGN));
+
+        final int apdus = transport.apdus.size() - transport.count(BTChipConstants.BTCHIP_INS_GET_FIRMWARE_VERSION);
+        Assert.assertEquals(estimate, apdus);
+        return apdus;
+    }
+
+    private static boolean[] inputs(final int numSegwit, final int numLegacy) {
+        final boolean[] segwit = new boolean[numSegwit + numLegacy];
+        Arrays.fill(segwit, 0, numSegwit, true);
+        return segwit;
+    }
+
+    // Each hashing pass sends its inputs one per message: the input, then its script and sequence
+    private void assertInputFraming() {
+        int remaining = 0;
+        boolean header = true;
+        for (final byte[] apdu : transport.apdus) {
+            if (apdu[1] != BTChipConstants.BTCHIP_INS_HASH_INPUT_START) {
+                continue;
+            }
+            if (apdu[2] == 0x00) {
+                Assert.assertEquals("Previous pass is incomplete", 0, remaining);
+                remaining = apdu[5 + 4];
+                header = true;
+                continue;
+            }
+            if (header) {
+                final int type = apdu[5];
+                final int valueLength = type == 0x01 ? 1 + (apdu[6] & 0xff) : 36 + 8;
+                // Type, value and script length only
+                Assert.assertEquals(1 + valueLength + 1, apdu.length - 5);
+            } else {
+                // Script followed by the sequence, the script is either empty or the signed input's
+                final int length = apdu.length - 5;
+                Assert.assertTrue(length == 4 || length == SCRIPT_SIZE + 4);
+                remaining--;
+            }
+            header = !header;
+        }
+        Assert.assertEquals(0, remaining);
+    }
+
+    @Test
+    public void test_legacy() throws BTChipException {
+        final int numInputs = 20;
+        final int finalize = 1 + (OUTPUTS_SIZE + 254) / 255;
+        final int expected = numInputs * (1 + 2 * numInputs + finalize + 1);
+        Assert.assertEquals(expected, signer(inputs(0, numInputs)).estimateApdus(BTChipTransactionSigner.Strategy.LEGACY));
+        Assert.assertEquals(0, signer(inputs(0, numInputs)).estimateApdus(BTChipTransactionSigner.Strategy.SEGWIT));
+        // A pass over all inputs per input, two APDUs per input
+        Assert.assertEquals(expected, sign(inputs(0, numInputs)));
+        Assert.assertEquals(numInputs, countHashStarts());
+        assertInputFraming();
+    }
+
+    @Test
+    public void test_segwit() throws BTChipException {
+        final int numInputs = 20;
+        final int finalize = 1 + (OUTPUTS_SIZE + 254) / 255;
+        // One pass over all inputs, then a single input pass and a signature per input
+        final int expected = (1 + 2 * numInputs) + finalize + numInputs * (1 + 2 + 1);
+        Assert.assertEquals(expected, signer(inputs(numInputs, 0)).estimateApdus(BTChipTransactionSigner.Strategy.SEGWIT));
+        Assert.assertEquals(0, signer(inputs(numInputs, 0)).estimateApdus(BTChipTransactionSigner.Strategy.LEGACY));
+        final int apdus = sign(inputs(numInputs, 0));
+        Assert.assertEquals(expected, apdus);
+        Assert.assertEquals(transport.count(BTChipConstants.BTCHIP_INS_HASH_INPUT_START) + 2 + numInputs, apdus);
+        Assert.assertEquals(1 + numInputs, countHashStarts());
+        assertInputFraming();
+    }
+
+    @Test
+    public void test_mixed() throws BTChipException {
+        final int numInputs = 15;
+        final int finalize = 1 + (OUTPUTS_SIZE + 254) / 255;
+        final BTChipTransactionSigner signer = signer(inputs(10, 5));
+        Assert.assertEquals((1 + 2 * numInputs) + finalize + 10 * (1 + 2 + 1),
+                signer.estimateApdus(BTChipTransactionSigner.Strategy.SEGWIT));
+        Assert.assertEquals(5 * (1 + 2 * numInputs + finalize + 1),
+                signer.estimateApdus(BTChipTransactionSigner.Strategy.LEGACY));
+        sign(inputs(10, 5));
+        // A pass over all inputs for the segwit inputs, then one per segwit input and one per legacy input
+        Assert.assertEquals(1 + 10 + 5, countHashStarts());
+        assertInputFraming();
+    }
+
+    // Number of hashing passes, ie. HASH_INPUT_START headers
+    private int countHashStarts() {
+        int count = 0;
+        for (final byte[] apdu : transport.apdus) {
+            if (apdu[1] == BTChipConstants.BTCHIP_INS_HASH_INPUT_START && apdu[2] == 0x00) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,177 @@
+package com.btchip;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import com.btchip.utils.VarintUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks the APDUs exchanged to compute trusted inputs against the framing the firmware parses, and that
+ * trusted inputs are reused on the same connection.
+ */
+@RunWith(JUnit4.class)
+public class TrustedInputTest {
+
+    private MockBTChipTransport transport;
+    private BTChipDongle dongle;
+
+    @Before
+    public void setup() {
+        transport = new MockBTChipTransport();
+        dongle = new BTChipDongle(transport, true);
+    }
+
+    private static byte[] filled(final int length, final int value) {
+        final byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) value);
+        return bytes;
+    }
+
+    private static BitcoinTransaction transaction(final int numInputs, final int inputScriptSize,
+                                                  final int numOutputs, final int outputScriptSize) {
+        final BitcoinTransaction tx = new BitcoinTransaction();
+        tx.setVersion(new byte[]{2, 0, 0, 0});
+        for (int i = 0; i < numInputs; ++i) {
+            final BitcoinTransaction.BitcoinInput input = tx.new BitcoinInput();
+            input.setPrevOut(filled(36, i));
+            input.setScript(filled(inputScriptSize, 0x10 + i));
+            input.setSequence(BitcoinTransaction.DEFAULT_SEQUENCE);
+            tx.addInput(input);
+        }
+        for (int i = 0; i < numOutputs; ++i) {
+            final BitcoinTransaction.BitcoinOutput output = tx.new BitcoinOutput();
+            output.setAmount(filled(8, i));
+            output.setScript(filled(outputScriptSize, 0x40 + i));
+            tx.addOutput(output);
+        }
+        tx.setLockTime(new byte[4]);
+        return tx;
+    }
+
+    private static byte[] apdu(final int p1, final byte[] data, final int offset, final int length, final byte[] data2) {
+        final byte[] apdu = new byte[5 + length + data2.length];
+        apdu[0] = BTChipConstants.BTCHIP_CLA;
+        apdu[1] = BTChipConstants.BTCHIP_INS_GET_TRUSTED_INPUT;
+        apdu[2] = (byte) p1;
+        apdu[4] = (byte) (length + data2.length);
+        System.arraycopy(data, offset, apdu, 5, length);
+        System.arraycopy(data2, 0, apdu, 5 + length, data2.length);
+        return apdu;
+    }
+
+    // exchangeApduSplit2 framing, the last chunk of data carries data2
+    private static void split2(final List<byte[]> apdus, final byte[] data, final byte[] data2) {
+        if (data.length == 0) {
+            apdus.add(apdu(0x80, data, 0, 0, data2));
+            return;
+        }
+        final int maxBlockSize = 255 - data2.length;
+        for (int offset = 0; offset < data.length; offset += maxBlockSize) {
+            final int length = Math.min(maxBlockSize, data.length - offset);
+            final boolean lastBlock = offset + length == data.length;
+            apdus.add(apdu(0x80, data, offset, length, lastBlock ? data2 : new byte[0]));
+        }
+    }
+
+    private static byte[] varint(final long value) {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        VarintUtils.write(data, value);
+        return data.toByteArray();
+    }
+
+    private static byte[] concat(final byte[]... arrays) {
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (final byte[] array : arrays) {
+            data.write(array, 0, array.length);
+        }
+        return data.toByteArray();
+    }
+
+    // The APDUs the firmware expects, one message per field
+    private static List<byte[]> expected(final BitcoinTransaction tx, final long index) {
+        final List<byte[]> apdus = new ArrayList<>();
+        final byte[] header = concat(new byte[]{0, 0, 0, (byte) index}, tx.getVersion(), new byte[]{(byte) tx.getInputs().size()});
+        apdus.add(apdu(0x00, header, 0, header.length, new byte[0]));
+        for (final BitcoinTransaction.BitcoinInput input : tx.getInputs()) {
+            final byte[] prevOut = concat(input.getPrevOut(), varint(input.getScript().length));
+            apdus.add(apdu(0x80, prevOut, 0, prevOut.length, new byte[0]));
+            split2(apdus, input.getScript(), input.getSequence());
+        }
+        apdus.add(apdu(0x80, new byte[]{(byte) tx.getOutputs().size()}, 0, 1, new byte[0]));
+        for (final BitcoinTransaction.BitcoinOutput output : tx.getOutputs()) {
+            final byte[] amount = concat(output.getAmount(), varint(output.getScript().length));
+            apdus.add(apdu(0x80, amount, 0, amount.length, new byte[0]));
+            for (int offset = 0; offset < output.getScript().length; offset += 255) {
+                apdus.add(apdu(0x80, output.getScript(), offset, Math.min(255, output.getScript().length - offset), new byte[0]));
+            }
+        }
+        apdus.add(apdu(0x80, tx.getLockTime(), 0, tx.getLockTime().length, new byte[0]));
+        return apdus;
+    }
+
+    private void assertFraming(final BitcoinTransaction tx, final long index) throws BTChipException {
+        transport.apdus.clear();
+        dongle.getTrustedInput(tx, index, 0, false);
+
+        final List<byte[]> expected = expected(tx, index);
+        Assert.assertEquals(expected.size(), transport.apdus.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Assert.assertArrayEquals("APDU " + i, expected.get(i), transport.apdus.get(i));
+        }
+    }
+
+    @Test
+    public void test_framing() throws BTChipException {
+        final BitcoinTransaction tx = transaction(2, 107, 3, 25);
+        final BTChipDongle.BTChipInput input = dongle.getTrustedInput(tx, 1, 0xfffffffeL, false);
+
+        // Result is the response to the last APDU, ie. the locktime
+        Assert.assertEquals(MockBTChipTransport.TRUSTED_INPUT_SIZE, input.getValue().length);
+        Assert.assertEquals(transport.apdus.size(), input.getValue()[0]);
+        Assert.assertArrayEquals(new byte[]{(byte) 0xfe, (byte) 0xff, (byte) 0xff, (byte) 0xff}, input.getSequence());
+
+        assertFraming(tx, 1);
+    }
+
+    @Test
+    public void test_sequence_shares_last_script_apdu() throws BTChipException {
+        // Empty scripts, scripts ending right at or around the APDU boundary with or without the sequence
+        for (final int scriptSize : new int[]{0, 1, 250, 251, 252, 255, 256, 502, 503, 600}) {
+            assertFraming(transaction(2, scriptSize, 2, 300), 0);
+        }
+    }
+
+    @Test
+    public void test_cache() throws BTChipException {
+        final BitcoinTransaction tx = transaction(1, 107, 2, 25);
+        final String txHash = "aa";
+
+        dongle.getTrustedInput(txHash, tx, 0, 0, false);
+        final int exchanges = transport.apdus.size();
+
+        // Same output, different sequence - served from the cache
+        final BTChipDongle.BTChipInput cached = dongle.getTrustedInput(txHash, tx, 0, 1, false);
+        Assert.assertEquals(exchanges, transport.apdus.size());
+        Assert.assertArrayEquals(new byte[]{1, 0, 0, 0}, cached.getSequence());
+        Assert.assertTrue(cached.isTrusted());
+
+        // Other output or segwit flag of the same transaction
+        dongle.getTrustedInput(txHash, tx, 1, 0, false);
+        dongle.getTrustedInput(txHash, tx, 0, 0, true);
+        Assert.assertEquals(3 * exchanges, transport.apdus.size());
+
+        // Dropped when the connection changes
+        dongle.clearTrustedInputCache();
+        Assert.assertNull(dongle.getCachedTrustedInput(txHash, 0, 0, false));
+        dongle.getTrustedInput(txHash, tx, 0, 0, false);
+        Assert.assertEquals(4 * exchanges, transport.apdus.size());
+    }
+}
@@ -0,0 +1,253 @@
+package com.btchip.comm;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LedgerFramerTest {
+    private static final int HID_PACKET_SIZE = 64;
+    private static final int HID_CHANNEL = 1;
+    private static final int BLE_MTU = 153;
+    private static final int TAG_APDU = 0x05;
+
+    // GET_FIRMWARE_VERSION response over HID: 01 30 01 06 00 90 00
+    private static final String FIRMWARE_VERSION_HID = "0001050000000701300106009000";
+
+    private static byte[] hex(final String hex) {
+        final byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static byte[] random(final int length) {
+        final byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    // Frame stream as received from the device, one packet per report/notification
+    private static List<byte[]> packets(final byte[] stream, final int packetSize) {
+        final List<byte[]> packets = new ArrayList<>();
+        for (int offset = 0; offset < stream.length; offset += packetSize) {
+            packets.add(Arrays.copyOfRange(stream, offset, Math.min(stream.length, offset + packetSize)));
+        }
+        return packets;
+    }
+
+    private static byte[] reassemble(final LedgerFramer framer, final List<byte[]> packets) throws LedgerException {
+        framer.reset();
+        for (final byte[] packet : packets) {
+            if (framer.feed(packet)) {
+                return framer.getResponse();
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void test_recorded_hid_response() throws LedgerException {
+        final byte[] report = Arrays.copyOf(hex(FIRMWARE_VERSION_HID), HID_PACKET_SIZE);
+        final LedgerFramer framer = new LedgerFramer(HID_CHANNEL, true);
+        Assert.assertTrue(framer.feed(report));
+        Assert.assertArrayEquals(hex("01300106009000"), framer.getResponse());
+        Assert.assertArrayEquals(hex("01300106009000"), LedgerWrapper.unwrapResponseAPDU(HID_CHANNEL, report, HID_PACKET_SIZE));
+    }
+
+    @Test
+    public void test_wrap_layout() throws LedgerException {
+        // First packet has the length header, the following ones 2 more bytes of data
+        final byte[] command = random(57 + 59 + 1);
+        final byte[] wrapped = LedgerFramer.wrap(HID_CHANNEL, command, HID_PACKET_SIZE, true);
+        Assert.assertEquals(3 * HID_PACKET_SIZE, wrapped.length);
+        Assert.assertArrayEquals(hex("00010500000075"), Arrays.copyOf(wrapped, 7));
+        Assert.assertArrayEquals(hex("0001050001"), Arrays.copyOfRange(wrapped, 64, 69));
+        Assert.assertArrayEquals(hex("0001050002"), Arrays.copyOfRange(wrapped, 128, 133));
+        Assert.assertEquals(command[command.length - 1], wrapped[133]);
+        // Padding
+        Assert.assertEquals(0, wrapped[134]);
+    }
+
+    @Test
+    public void test_round_trip() throws LedgerException {
+        for (final int length : new int[]{0, 1, 57, 58, 116, 117, 260, 2048}) {
+            final byte[] data = random(length);
+
+            final List<byte[]> hid = packets(LedgerFramer.wrap(HID_CHANNEL, data, HID_PACKET_SIZE, true), HID_PACKET_SIZE);
+            Assert.assertArrayEquals(data, reassemble(new LedgerFramer(HID_CHANNEL, true), hid));
+
+            final List<byte[]> ble = packets(LedgerFramer.wrap(0, data, BLE_MTU, false), BLE_MTU);
+            Assert.assertArrayEquals(data, reassemble(new LedgerFramer(), ble));
+            Assert.assertArrayEquals(data, LedgerWrapper.unwrapResponseAPDU(LedgerWrapper.wrapCommandAPDU(data, BLE_MTU), BLE_MTU));
+        }
+    }
+
+    @Test
+    public void test_incomplete() throws LedgerException {
+        final byte[] stream = LedgerFramer.wrap(HID_CHANNEL, random(200), HID_PACKET_SIZE, true);
+        final LedgerFramer framer = new LedgerFramer(HID_CHANNEL, true);
+        Assert.assertFalse(framer.feed(stream, 0, HID_PACKET_SIZE));
+        Assert.assertNull(framer.getResponse());
+        Assert.assertNull(LedgerWrapper.unwrapResponseAPDU(HID_CHANNEL, Arrays.copyOf(stream, 2 * HID_PACKET_SIZE), HID_PACKET_SIZE));
+        Assert.assertNull(LedgerWrapper.unwrapResponseAPDU(HID_CHANNEL, Arrays.copyOf(stream, HID_PACKET_SIZE + 3), HID_PACKET_SIZE));
+    }
+
+    @Test(expected = LedgerException.class)
+    public void test_invalid_sequence() throws LedgerException {
+        final List<byte[]> packets = packets(LedgerFramer.wrap(HID_CHANNEL, random(200), HID_PACKET_SIZE, true), HID_PACKET_SIZE);
+        final LedgerFramer framer = new LedgerFramer(HID_CHANNEL, true);
+        framer.feed(packets.get(0));
+        framer.feed(packets.get(2));
+    }
+
+    @Test(expected = LedgerException.class)
+    public void test_invalid_channel() throws LedgerException {
+        final byte[] stream = LedgerFramer.wrap(2, random(10), HID_PACKET_SIZE, true);
+        new LedgerFramer(HID_CHANNEL, true).feed(stream);
+    }
+
+    @Test
+    public void test_large_responses() throws LedgerException {
+        // Large responses, eg. firmware or signed message chunks, reassembled one after the other by the same framer
+        final LedgerFramer framer = new LedgerFramer(HID_CHANNEL, true);
+        for (final int length : new int[]{4096, 1, 4096}) {
+            final byte[] data = random(length);
+            final byte[] stream = LedgerFramer.wrap(HID_CHANNEL, data, HID_PACKET_SIZE, true);
+            Assert.assertArrayEquals(data, reassemble(framer, packets(stream, HID_PACKET_SIZE)));
+            Assert.assertArrayEquals(data, LedgerWrapper.unwrapResponseAPDU(HID_CHANNEL, stream, HID_PACKET_SIZE));
+        }
+    }
+
+    // Reassembly as the transports did it before LedgerFramer: append each packet to the received data
+    // and unwrap all of it again, until the response is complete
+    private static byte[] reassembleAccumulated(final int channel, final List<byte[]> packets, final int packetSize,
+                                                final boolean hasChannel) throws LedgerException {
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        for (final byte[] packet : packets) {
+            received.write(packet, 0, packet.length);
+            final byte[] response = unwrapAccumulated(channel, received.toByteArray(), packetSize, hasChannel);
+            if (response != null) {
+                return response;
+            }
+        }
+        return null;
+    }
+
+    // LedgerWrapper.unwrapResponseAPDUInternal before LedgerFramer, kept here as the benchmark baseline
+    private static byte[] unwrapAccumulated(final int channel, final byte[] data, final int packetSize,
+                                            final boolean hasChannel) throws LedgerException {
+        final ByteArrayOutputStream response = new ByteArrayOutputStream();
+        int offset = 0;
+        int responseLength;
+        int sequenceIdx = 0;
+        final int headerSize = (hasChannel ? 7 : 5);
+        if ((data == null) || (data.length < headerSize)) {
+            return null;
+        }
+        if (hasChannel) {
+            if (data[offset++] != (channel >> 8)) {
+                throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid channel");
+            }
+            if (data[offset++] != (channel & 0xff)) {
+                throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid channel");
+            }
+        }
+        if (data[offset++] != TAG_APDU) {
+            throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid tag");
+        }
+        if (data[offset++] != 0x00) {
+            throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid sequence");
+        }
+        if (data[offset++] != 0x00) {
+            throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid sequence");
+        }
+        responseLength = ((data[offset++] & 0xff) << 8);
+        responseLength |= (data[offset++] & 0xff);
+        if (data.length < headerSize + responseLength) {
+            return null;
+        }
+        int blockSize = (responseLength > packetSize - headerSize ? packetSize - headerSize : responseLength);
+        response.write(data, offset, blockSize);
+        offset += blockSize;
+        while (response.size() != responseLength) {
+            sequenceIdx++;
+            if (offset == data.length) {
+                return null;
+            }
+            if (hasChannel) {
+                if (data[offset++] != (channel >> 8)) {
+                    throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid channel");
+                }
+                if (data[offset++] != (channel & 0xff)) {
+                    throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid channel");
+                }
+            }
+            if (data[offset++] != TAG_APDU) {
+                throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid tag");
+            }
+            if (data[offset++] != (sequenceIdx >> 8)) {
+                throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid sequence");
+            }
+            if (data[offset++] != (sequenceIdx & 0xff)) {
+                throw new LedgerException(LedgerException.ExceptionReason.IO_ERROR, "Invalid sequence");
+            }
+            blockSize = (responseLength - response.size() > packetSize - headerSize + 2 ? packetSize - headerSize + 2 : responseLength - response.size());
+            if (blockSize > data.length - offset) {
+                return null;
+            }
+            response.write(data, offset, blockSize);
+            offset += blockSize;
+        }
+        return response.toByteArray();
+    }
+
+    private interface Reassembly {
+        byte[] run() throws LedgerException;
+    }
+
+    // Average nanoseconds per reassembly, after a warm up
+    private static long measure(final int iterations, final byte[] expected, final Reassembly reassembly) throws LedgerException {
+        for (int i = 0; i < 200; ++i) {
+            Assert.assertArrayEquals(expected, reassembly.run());
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; ++i) {
+            reassembly.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static void benchmark(final String name, final int channel, final int packetSize, final boolean hasChannel)
+            throws LedgerException {
+        // The baseline compares sequence numbers as signed bytes, it can't reassemble more than 128 packets
+        for (final int length : new int[]{260, 2048, 7000}) {
+            final byte[] data = random(length);
+            final List<byte[]> packets = packets(LedgerFramer.wrap(channel, data, packetSize, hasChannel), packetSize);
+            final LedgerFramer framer = hasChannel ? new LedgerFramer(channel, true) : new LedgerFramer();
+
+            final long accumulated = measure(1000, data, () -> reassembleAccumulated(channel, packets, packetSize, hasChannel));
+            final long framed = measure(1000, data, () -> reassemble(framer, packets));
+
+            System.out.println(name + " " + length + " bytes, " + packets.size() + " packets: accumulate and unwrap "
+                    + accumulated + "ns, framer " + framed + "ns");
+        }
+    }
+
+    @Test
+    public void benchmark_replay() throws LedgerException {
+        Assume.assumeTrue("Run with -Pbenchmark", "true".equals(System.getProperty("benchmark")));
+
+        benchmark("HID", HID_CHANNEL, HID_PACKET_SIZE, true);
+        benchmark("BLE", 0, BLE_MTU, false);
+    }
+}
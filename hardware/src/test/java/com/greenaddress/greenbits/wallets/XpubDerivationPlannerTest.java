@@ -0,0 +1,214 @@
+package com.greenaddress.greenbits.wallets;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Checks that the planner only asks the device for hardened prefixes and that the keys derived on the
+ * host match the xpubs computed by a device, the BIP32 test vector 1 chain m/0H/1/2H/2/1000000000.
+ */
+@RunWith(JUnit4.class)
+public class XpubDerivationPlannerTest {
+
+    private static final int H = 0x80000000;
+
+    // Xpubs of BIP32 test vector 1, as a device would compute them
+    private static final Map<List<Integer>, String> DEVICE = new HashMap<>();
+
+    static {
+        DEVICE.put(Arrays.asList(H), "xpub68Gmy5EdvgibQVfPdqkBBCHxA5htiqg55crXYuXoQRKfDBFA1WEjWgP6LHhwBZeNK1VTsfTFUHCdrfp1bgwQ9xv5ski8PX9rL2dZXvgGDnw");
+        DEVICE.put(Arrays.asList(H, 1), "xpub6ASuArnXKPbfEwhqN6e3mwBcDTgzisQN1wXN9BJcM47sSikHjJf3UFHKkNAWbWMiGj7Wf5uMash7SyYq527Hqck2AxYysAA7xmALppuCkwQ");
+        DEVICE.put(Arrays.asList(H, 1, 2 | H), "xpub6D4BDPcP2GT577Vvch3R8wDkScZWzQzMMUm3PWbmWvVJrZwQY4VUNgqFJPMM3No2dFDFGTsxxpG5uJh7n7epu4trkrX7x7DogT5Uv6fcLW5");
+        DEVICE.put(Arrays.asList(H, 1, 2 | H, 2), "xpub6FHa3pjLCk84BayeJxFW2SP4XRrFd1JYnxeLeU8EqN3vDfZmbqBqaGJAyiLjTAwm6ZLRQUMv1ZACTj37sR62cfN7fe5JnJ7dh8zL4fiyLHV");
+        DEVICE.put(Arrays.asList(H, 1, 2 | H, 2, 1000000000), "xpub6H1LXWLaKsWFhvm6RVpEL9P4KfRZSW7abD2ttkWP3SSQvnyA8FSVqNTEcYFgJS2UaFcxupHiYkro49S8yGasTvXEYBVPamhGW6cFJodrTHy");
+    }
+
+    private final List<List<Integer>> requested = new ArrayList<>();
+
+    private final XpubDerivationPlanner.XpubSource device = paths -> {
+        final List<String> xpubs = new ArrayList<>();
+        for (final List<Integer> path : paths) {
+            requested.add(path);
+            xpubs.add(DEVICE.get(path));
+        }
+        return xpubs;
+    };
+
+    @Test
+    public void testHardenedPrefix() {
+        Assert.assertEquals(Arrays.asList(H, 1, 2 | H), XpubDerivationPlanner.hardenedPrefix(Arrays.asList(H, 1, 2 | H, 2, 1000000000)));
+        Assert.assertEquals(Arrays.asList(H), XpubDerivationPlanner.hardenedPrefix(Arrays.asList(H, 1)));
+        Assert.assertEquals(Arrays.asList(), XpubDerivationPlanner.hardenedPrefix(Arrays.asList(1195487518)));
+        Assert.assertEquals(Arrays.asList(), XpubDerivationPlanner.hardenedPrefix(Arrays.asList()));
+    }
+
+    @Test
+    public void testDerivedMatchDevice() throws Exception {
+        final List<List<Integer>> paths = new ArrayList<>(DEVICE.keySet());
+
+        final List<String> xpubs = XpubDerivationPlanner.getXpubs(paths, device, XpubDerivationPlannerTest::derive);
+
+        for (int i = 0; i < paths.size(); i++) {
+            // Host derived keys carry the same public key and chain code as the device ones
+            Assert.assertEquals(keyMaterial(DEVICE.get(paths.get(i))), keyMaterial(xpubs.get(i)));
+        }
+
+        // Only m/0H and m/0H/1/2H were requested to the device
+        Assert.assertEquals(2, requested.size());
+        Assert.assertTrue(requested.contains(Arrays.asList(H)));
+        Assert.assertTrue(requested.contains(Arrays.asList(H, 1, 2 | H)));
+    }
+
+    @Test
+    public void testRoundTrips() throws Exception {
+        // Account discovery like request, many non-hardened children of a few accounts
+        final List<List<Integer>> paths = new ArrayList<>();
+        for (int account = 0; account < 3; account++) {
+            for (int child = 0; child < 10; child++) {
+                paths.add(Arrays.asList(84 | H, H, account | H, 0, child));
+            }
+            paths.add(Arrays.asList(84 | H, H, account | H));
+        }
+
+        final XpubDerivationPlanner.XpubSource fake = devicePaths -> {
+            requested.addAll(devicePaths);
+            final List<String> xpubs = new ArrayList<>();
+            for (final List<Integer> path : devicePaths) {
+                xpubs.add(path.toString());
+            }
+            return xpubs;
+        };
+
+        final List<String> xpubs = XpubDerivationPlanner.getXpubs(paths, fake, (parent, suffix) -> parent + suffix);
+
+        Assert.assertEquals(3, requested.size());
+        Assert.assertEquals(paths.size(), xpubs.size());
+        Assert.assertEquals(Arrays.asList(84 | H, H, 1 | H).toString() + "[0, 7]", xpubs.get(11 + 7));
+        Assert.assertEquals(Arrays.asList(84 | H, H, 2 | H).toString(), xpubs.get(paths.size() - 1));
+    }
+
+    // Reference BIP32 public derivation (CKDpub) on secp256k1, wally does this on the device wallets
+
+    private static final BigInteger P = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEFFFFFC2F", 16);
+    private static final BigInteger N = new BigInteger("FFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFEBAAEDCE6AF48A03BBFD25E8CD0364141", 16);
+    private static final BigInteger[] G = {
+            new BigInteger("79BE667EF9DCBBAC55A06295CE870B07029BFCDB2DCE28D959F2815B16F81798", 16),
+            new BigInteger("483ADA7726A3C4655DA4FBFC0E1108A8FD17B448A68554199C47D08FFB10D4B8", 16)
+    };
+    private static final String ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    private static String derive(final String parentXpub, final List<Integer> suffix) {
+        try {
+            byte[] xpub = base58CheckDecode(parentXpub);
+            for (final int child : suffix) {
+                final byte[] chainCode = Arrays.copyOfRange(xpub, 13, 45);
+                final byte[] publicKey = Arrays.copyOfRange(xpub, 45, 78);
+
+                final Mac mac = Mac.getInstance("HmacSHA512");
+                mac.init(new SecretKeySpec(chainCode, "HmacSHA512"));
+                mac.update(publicKey);
+                final byte[] i = mac.doFinal(ByteBuffer.allocate(4).putInt(child).array());
+
+                final BigInteger[] point = add(multiply(G, new BigInteger(1, Arrays.copyOf(i, 32)).mod(N)), decompress(publicKey));
+
+                final ByteBuffer next = ByteBuffer.allocate(78);
+                next.put(Arrays.copyOf(xpub, 4)).put((byte) (xpub[4] + 1)).putInt(0 /* fingerprint unchecked */).putInt(child);
+                next.put(Arrays.copyOfRange(i, 32, 64)).put(compress(point));
+                xpub = next.array();
+            }
+            return base58CheckEncode(xpub);
+        } catch (final Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String keyMaterial(final String xpub) throws Exception {
+        final byte[] decoded = base58CheckDecode(xpub);
+        return new BigInteger(1, Arrays.copyOfRange(decoded, 13, 78)).toString(16);
+    }
+
+    private static BigInteger[] add(final BigInteger[] a, final BigInteger[] b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        final BigInteger lambda;
+        if (a[0].equals(b[0])) {
+            if (!a[1].equals(b[1])) return null;
+            lambda = a[0].pow(2).multiply(BigInteger.valueOf(3)).multiply(a[1].shiftLeft(1).modInverse(P)).mod(P);
+        } else {
+            lambda = b[1].subtract(a[1]).multiply(b[0].subtract(a[0]).modInverse(P)).mod(P);
+        }
+        final BigInteger x = lambda.pow(2).subtract(a[0]).subtract(b[0]).mod(P);
+        return new BigInteger[]{x, lambda.multiply(a[0].subtract(x)).subtract(a[1]).mod(P)};
+    }
+
+    private static BigInteger[] multiply(BigInteger[] point, final BigInteger scalar) {
+        BigInteger[] result = null;
+        for (int i = 0; i < scalar.bitLength(); i++) {
+            if (scalar.testBit(i)) result = add(result, point);
+            point = add(point, point);
+        }
+        return result;
+    }
+
+    private static BigInteger[] decompress(final byte[] publicKey) {
+        final BigInteger x = new BigInteger(1, Arrays.copyOfRange(publicKey, 1, 33));
+        BigInteger y = x.pow(3).add(BigInteger.valueOf(7)).mod(P).modPow(P.add(BigInteger.ONE).shiftRight(2), P);
+        if (y.testBit(0) != (publicKey[0] == 3)) y = P.subtract(y);
+        return new BigInteger[]{x, y};
+    }
+
+    private static byte[] compress(final BigInteger[] point) {
+        final byte[] x = point[0].toByteArray();
+        final byte[] compressed = new byte[33];
+        compressed[0] = (byte) (point[1].testBit(0) ? 3 : 2);
+        final int length = Math.min(x.length, 32);
+        System.arraycopy(x, x.length - length, compressed, 33 - length, length);
+        return compressed;
+    }
+
+    private static byte[] doubleSha256(final byte[] data) throws Exception {
+        final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        return sha256.digest(sha256.digest(data));
+    }
+
+    private static byte[] base58CheckDecode(final String encoded) throws Exception {
+        BigInteger value = BigInteger.ZERO;
+        for (final char c : encoded.toCharArray()) {
+            value = value.multiply(BigInteger.valueOf(58)).add(BigInteger.valueOf(ALPHABET.indexOf(c)));
+        }
+        final byte[] bytes = value.toByteArray();
+        final byte[] data = Arrays.copyOfRange(bytes, bytes.length - 82, bytes.length);
+        final byte[] payload = Arrays.copyOf(data, 78);
+        if (!Arrays.equals(Arrays.copyOf(doubleSha256(payload), 4), Arrays.copyOfRange(data, 78, 82))) {
+            throw new Exception("Invalid checksum");
+        }
+        return payload;
+    }
+
+    private static String base58CheckEncode(final byte[] payload) throws Exception {
+        final byte[] data = Arrays.copyOf(payload, payload.length + 4);
+        System.arraycopy(doubleSha256(payload), 0, data, payload.length, 4);
+        BigInteger value = new BigInteger(1, data);
+        final StringBuilder encoded = new StringBuilder();
+        while (value.signum() > 0) {
+            final BigInteger[] divmod = value.divideAndRemainder(BigInteger.valueOf(58));
+            encoded.append(ALPHABET.charAt(divmod[1].intValue()));
+            value = divmod[0];
+        }
+        return encoded.reverse().toString();
+    }
+}
@@ -0,0 +1,243 @@
+package com.blockstream.jade;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Incremental CBOR message framer.
+ * Data is fed in as it arrives (in whatever sized chunks) and the CBOR item structure is tracked
+ * byte-by-byte exactly once, so a complete top-level message is detected in a single linear pass.
+ * Only complete messages are handed to the ObjectMapper for parsing into a JsonNode tree.
+ * Not thread-safe - intended to be owned by a single JadeInterface.
+ */
+class CborFrameDecoder {
+    // Upper bound on a single message from Jade - anything bigger is assumed garbage/out-of-sync
+    static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;  // 1Mb
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+    private static final int INITIAL_DEPTH = 8;
+    private static final long INDEFINITE = -1;
+
+    private final ObjectMapper mapper;
+    private final int maxFrameSize;
+
+    // Buffered bytes are buf[start, end) - the current frame begins at 'start'
+    private byte[] buf;
+    private int start;
+    private int end;
+
+    // Scan state of the current (incomplete) frame
+    private int pos;            // next byte to scan
+    private long skip;          // payload bytes of a byte/text string still to skip
+    private long[] remaining;   // items outstanding in each open array/map (or INDEFINITE)
+    private int depth;
+
+    CborFrameDecoder(final ObjectMapper mapper) {
+        this(mapper, DEFAULT_MAX_FRAME_SIZE);
+    }
+
+    CborFrameDecoder(final ObjectMapper mapper, final int maxFrameSize) {
+        this.mapper = mapper;
+        this.maxFrameSize = maxFrameSize;
+        this.buf = new byte[INITIAL_BUFFER_SIZE];
+        this.remaining = new long[INITIAL_DEPTH];
+    }
+
+    // Number of bytes buffered but not yet returned as part of a message
+    int buffered() {
+        return end - start;
+    }
+
+    // Append received data to the internal buffer
+    void feed(final byte[] data, final int off, final int len) {
+        if (len <= 0) {
+            return;
+        }
+
+        if (end + len > buf.length) {
+            // Compact first, then grow if still required
+            final int pending = end - start;
+            if (start > 0) {
+                System.arraycopy(buf, start, buf, 0, pending);
+                pos -= start;
+                start = 0;
+                end = pending;
+            }
+            if (end + len > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, end + len));
+            }
+        }
+        System.arraycopy(data, off, buf, end, len);
+        end += len;
+    }
+
+    void feed(final byte[] data) {
+        feed(data, 0, data.length);
+    }
+
+    // Returns the next complete message, or null if more data is required.
+    // Throws if the buffered data is not valid cbor or a message exceeds the maximum frame size -
+    // in which case all buffered data is discarded so the caller can attempt to resync.
+    JsonNode next() throws IOException {
+        final int frameEnd;
+        try {
+            frameEnd = scan();
+        } catch (final IOException e) {
+            reset();
+            throw e;
+        }
+
+        if (frameEnd < 0) {
+            if (end - start > maxFrameSize) {
+                final int discarded = end - start;
+                reset();
+                throw new IOException("Cbor message exceeds maximum size - discarded " + discarded + " bytes");
+            }
+            return null;
+        }
+
+        // Parse the complete frame and move on to the next
+        final int frameStart = start;
+        start = frameEnd;
+        if (start == end) {
+            start = end = pos = 0;
+        }
+        return mapper.readValue(buf, frameStart, frameEnd - frameStart, JsonNode.class);
+    }
+
+    // Discards all buffered data and returns it
+    byte[] drain() {
+        final byte[] drained = Arrays.copyOfRange(buf, start, end);
+        reset();
+        return drained;
+    }
+
+    void reset() {
+        start = end = pos = 0;
+        skip = 0;
+        depth = 0;
+        if (buf.length > INITIAL_BUFFER_SIZE * 64) {
+            // Don't hang on to the memory from any one-off large message
+            buf = new byte[INITIAL_BUFFER_SIZE];
+        }
+    }
+
+    // Advance the scan over any newly buffered bytes.
+    // Returns the end offset of the current frame once it is complete, otherwise -1.
+    private int scan() throws IOException {
+        while (pos < end) {
+            // Skip over string payloads
+            if (skip > 0) {
+                final int n = (int) Math.min(skip, end - pos);
+                pos += n;
+                skip -= n;
+                if (skip > 0) {
+                    return -1;
+                }
+                if (itemComplete()) {
+                    return pos;
+                }
+                continue;
+            }
+
+            final int initial = buf[pos] & 0xff;
+            final int major = initial >>> 5;
+            final int info = initial & 0x1f;
+
+            final int headerLen;
+            if (info < 24 || info == 31) {
+                headerLen = 1;
+            } else if (info <= 27) {
+                headerLen = 1 + (1 << (info - 24));
+            } else {
+                throw new IOException("Invalid cbor additional info: " + info);
+            }
+            if (pos + headerLen > end) {
+                return -1;
+            }
+
+            long arg = info < 24 ? info : 0;
+            for (int i = 1; i < headerLen && info != 31; ++i) {
+                arg = (arg << 8) | (buf[pos + i] & 0xff);
+            }
+            pos += headerLen;
+
+            if (info == 31) {
+                if (major == 7) {
+                    // 'break' - closes the innermost indefinite-length item
+                    if (depth == 0 || remaining[depth - 1] != INDEFINITE) {
+                        throw new IOException("Unexpected cbor break");
+                    }
+                    --depth;
+                    if (itemComplete()) {
+                        return pos;
+                    }
+                } else if (major >= 2 && major <= 5) {
+                    push(INDEFINITE);
+                } else {
+                    throw new IOException("Invalid indefinite-length cbor major type: " + major);
+                }
+                continue;
+            }
+
+            switch (major) {
+                case 2: // byte string
+                case 3: // text string
+                    if (arg < 0 || arg > maxFrameSize) {
+                        throw new IOException("Cbor string length exceeds maximum size: " + arg);
+                    }
+                    skip = arg;
+                    if (skip == 0 && itemComplete()) {
+                        return pos;
+                    }
+                    break;
+                case 4: // array
+                case 5: // map
+                    final long items = major == 5 ? arg * 2 : arg;
+                    if (items < 0 || items > maxFrameSize) {
+                        throw new IOException("Cbor container size exceeds maximum size: " + arg);
+                    }
+                    if (items > 0) {
+                        push(items);
+                    } else if (itemComplete()) {
+                        return pos;
+                    }
+                    break;
+                case 6: // tag - applies to the following item
+                    break;
+                default: // integers, simple values and floats
+                    if (itemComplete()) {
+                        return pos;
+                    }
+            }
+        }
+        return -1;
+    }
+
+    private void push(final long items) {
+        if (depth == remaining.length) {
+            remaining = Arrays.copyOf(remaining, depth * 2);
+        }
+        remaining[depth++] = items;
+    }
+
+    // An item has been completed - pop any containers it completes.
+    // Returns true if the top-level item is now complete.
+    private boolean itemComplete() {
+        while (depth > 0) {
+            final long outstanding = remaining[depth - 1];
+            if (outstanding == INDEFINITE) {
+                return false;
+            }
+            if (outstanding > 1) {
+                remaining[depth - 1] = outstanding - 1;
+                return false;
+            }
+            --depth;
+        }
+        return true;
+    }
+}
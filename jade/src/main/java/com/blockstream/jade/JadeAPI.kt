@@ -51,6 +51,7 @@ class JadeAPI private constructor(
                 jade.drain()
                 val info = this.versionInfo
                 efusemac = info.efuseMac
+                jade.setWriteCapacity(info.jadeOtaMaxChunk)
                 return info
             } catch (e: Exception) {
                 // On error loop trying again
@@ -57,18 +57,23 @@ public abstract class JadeAPIJava {
     private static int TIMEOUT_USER_INTERACTION = 120000;  // 2 mins
     private static int TIMEOUT_NONE = -1;
 
+    // Default number of requests kept in flight by pipelined calls
+    static int PIPELINE_WINDOW = 8;
+
     final JadeInterface jade;
     private final Random idgen;
     private final com.blockstream.common.interfaces.HttpRequestProvider requestProvider;
 
     String efusemac;
     private boolean sync_error;
+    private int pipelineWindow;
 
     JadeAPIJava(final JadeInterface jade, final HttpRequestProvider requestProvider) {
         this.jade = jade;
         this.idgen = new Random();
         this.efusemac = null;
         this.sync_error = false;
+        this.pipelineWindow = PIPELINE_WINDOW;
         this.requestProvider = requestProvider;
     }
 
@@ -344,6 +349,45 @@ public abstract class JadeAPIJava {
         }
     }
 
+    // Helper to make a batch of pipelined rpc calls of the same method, with sequential ids from baseId.
+    // Returns the results in order, raising the first error as an exception (as jadeRpc()).
+    private List<JsonNode> jadeRpcPipelined(final String method, final List<JsonNode> params, final int baseId,
+                                            final int timeout) throws IOException {
+        final List<JsonNode> requests = new ArrayList<>(params.size());
+        for (int i = 0; i < params.size(); ++i) {
+            requests.add(buildRequest(String.valueOf(baseId + i + 1), method, params.get(i)));
+        }
+
+        final List<JsonNode> responses = this.jade.makeRpcCalls(requests, this.pipelineWindow, timeout, this.sync_error);
+
+        final List<JsonNode> results = new ArrayList<>(responses.size());
+        for (int i = 0; i < responses.size(); ++i) {
+            try {
+                results.add(getResultOrRaiseError(responses.get(i), requests.get(i).get("id").asText(), null));
+            } catch (final JadeError e) {
+                // Later requests may still be in flight
+                if (i < responses.size() - 1) {
+                    this.sync_error = true;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    // Maximum number of requests to keep in flight when pipelining.
+    // A value of 1 is equivalent to a sequence of blocking rpc calls.
+    public void setPipelineWindow(final int pipelineWindow) {
+        this.pipelineWindow = Math.max(1, pipelineWindow);
+    }
+
+    // Helper to wrap an input as request params.
+    // The input is serialised directly when the request is written, rather than first being copied
+    // into a JsonNode tree (as it may carry a large previous transaction).
+    private static JsonNode inputParams(final TxInput input) {
+        return JadeInterface.mapper().getNodeFactory().pojoNode(input);
+    }
+
     // Helper to send transaction inputs and retrieve signature responses
     private SignTxInputsResult signTxInputs(final int baseId, final List<? extends TxInput> inputs,
                                             final boolean useAeProtocol) throws IOException {
@@ -355,27 +399,27 @@ public abstract class JadeAPIJava {
              * Once all n input messages are sent, we can request the actual signatures
              * (as the user has a chance to confirm/cancel at this point).
              * We request the signatures passing the host-entropy for each one.
+             * NOTE: both phases are pipelined - several requests are kept in flight and
+             * the replies are matched up by id.
              */
-            // Send inputs one at a time, receiving 'signer-commitment' in reply
-            final List<byte[]> signerCommitments = new ArrayList<>(inputs.size());
-            int i = 0;
+            // Send inputs, receiving 'signer-commitment' in reply
+            final List<JsonNode> inputParams = new ArrayList<>(inputs.size());
             for (final TxInput input : inputs) {
-                final String id = String.valueOf(baseId + i + 1);
-                ++i;
-
-                final JsonNode params = JadeInterface.mapper().valueToTree(input);
-                final JsonNode signerCommitment = this.jadeRpc("tx_input", params, id, TIMEOUT_AUTONOMOUS_LONG);
+                inputParams.add(inputParams(input));
+            }
+            final List<byte[]> signerCommitments = new ArrayList<>(inputs.size());
+            for (final JsonNode signerCommitment : this.jadeRpcPipelined("tx_input", inputParams, baseId, TIMEOUT_AUTONOMOUS_LONG)) {
                 signerCommitments.add(signerCommitment.binaryValue());
             }
 
-            // Request the signatures one at a time, sending the entropy
-            final List<byte[]> signatures = new ArrayList<>(inputs.size());
+            // Request the signatures, sending the entropy
             final int newBaseId = Math.round((baseId + inputs.size() + 500)/1000)*1000;
-            i = 0;
+            final List<JsonNode> entropyParams = new ArrayList<>(inputs.size());
             for (final TxInput input : inputs) {
-                final String id = String.valueOf(newBaseId + i + 1);
-                final JsonNode params = makeParams("ae_host_entropy", input.getAeHostEntropy());
-                final JsonNode signature = this.jadeRpc("get_signature", params, id, TIMEOUT_USER_INTERACTION);
+                entropyParams.add(makeParams("ae_host_entropy", input.getAeHostEntropy()));
+            }
+            final List<byte[]> signatures = new ArrayList<>(inputs.size());
+            for (final JsonNode signature : this.jadeRpcPipelined("get_signature", entropyParams, newBaseId, TIMEOUT_USER_INTERACTION)) {
                 signatures.add(signature.binaryValue());
             }
             return new SignTxInputsResult(signatures, signerCommitments);
@@ -394,12 +438,13 @@ public abstract class JadeAPIJava {
                 final String id = String.valueOf(baseId + i + 1);
                 ++i;
 
-                final JsonNode params = JadeInterface.mapper().valueToTree(input);
-                final JsonNode request = buildRequest(id, "tx_input", params);
-                this.jade.writeRequest(request);
+                final JsonNode request = buildRequest(id, "tx_input", inputParams(input));
+                this.jade.writeRequest(request, TIMEOUT_AUTONOMOUS_LONG);
 
-                // FIXME - pause to not flood buffers
-                android.os.SystemClock.sleep(100);
+                // FIXME - pause to not flood buffers, unless the transport flow-controls writes
+                if (!this.jade.reportsWriteCompletion()) {
+                    android.os.SystemClock.sleep(100);
+                }
             }
 
             // Receive all n signatures
@@ -452,6 +497,20 @@ public abstract class JadeAPIJava {
         return result.binaryValue();
     }
 
+    // Get blinding keys for several scripts - pipelined
+    public List<byte[]> getBlindingKeys(final List<byte[]> scripts) throws IOException {
+        final List<JsonNode> params = new ArrayList<>(scripts.size());
+        for (final byte[] script : scripts) {
+            params.add(makeParams("script", script));
+        }
+        final int baseId = 100 * (1000 + this.idgen.nextInt(8999));
+        final List<byte[]> keys = new ArrayList<>(scripts.size());
+        for (final JsonNode result : this.jadeRpcPipelined("get_blinding_key", params, baseId, TIMEOUT_AUTONOMOUS)) {
+            keys.add(result.binaryValue());
+        }
+        return keys;
+    }
+
     // Get the shared secret to unblind a tx, given the receiving script on our side
     // and the pubkey of the sender (sometimes called "nonce" in Liquid)
     public byte[] getSharedNonce(final byte[] script, final byte[] pubkey) throws IOException {
@@ -460,6 +519,20 @@ public abstract class JadeAPIJava {
         return result.binaryValue();
     }
 
+    // Get shared nonces for several script/pubkey pairs - pipelined
+    public List<byte[]> getSharedNonces(final List<byte[]> scripts, final List<byte[]> pubkeys) throws IOException {
+        final List<JsonNode> params = new ArrayList<>(scripts.size());
+        for (int i = 0; i < scripts.size(); ++i) {
+            params.add(makeParams("script", scripts.get(i)).put("their_pubkey", pubkeys.get(i)));
+        }
+        final int baseId = 100 * (1000 + this.idgen.nextInt(8999));
+        final List<byte[]> nonces = new ArrayList<>(scripts.size());
+        for (final JsonNode result : this.jadeRpcPipelined("get_shared_nonce", params, baseId, TIMEOUT_AUTONOMOUS)) {
+            nonces.add(result.binaryValue());
+        }
+        return nonces;
+    }
+
     // Get a "trusted" blinding factor to blind an output. Normally the blinding
     // factors are generated and returned in the `get_commitments` call, but
     // for the last output the VBF must be generated on the host side, so this
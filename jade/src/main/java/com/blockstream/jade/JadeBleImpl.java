@@ -167,14 +167,23 @@ public class JadeBleImpl extends JadeConnectionImpl {
         this.connection = null;
     }
 
+    @Override
+    public boolean reportsWriteCompletion() {
+        return true;
+    }
+
     @Override
     public int write(final byte[] bytes) {
+        // Track bytes in flight until the long-write completes, for flow-control
+        onWriteQueued(bytes.length);
         this.disposable.add(this.connection
                 .flatMap(rxConn -> rxConn.createNewLongWriteBuilder()
                         .setMaxBatchSize(512)
                         .setCharacteristicUuid(IO_TX_CHAR_UUID)
                         .setBytes(bytes)
                         .build())
+                .take(1)
+                .doFinally(() -> onWriteComplete(bytes.length))
                 .subscribe(this::onBytesSent,
                            this::onSendFailure)
         );
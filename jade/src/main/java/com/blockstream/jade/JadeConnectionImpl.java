@@ -4,13 +4,8 @@ import android.util.Log;
 
 import androidx.annotation.Nullable;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 
 import io.reactivex.rxjava3.subjects.PublishSubject;
@@ -23,13 +18,18 @@ import kotlinx.coroutines.flow.StateFlow;
 public abstract class JadeConnectionImpl {
     private final static String TAG = "JadeConnectionImpl";
 
-    // Derived classes push incoming/received data into this queue
-    private final BlockingQueue<byte[]> dataReceived;
-    private ByteArrayInputStream dataToRead;
+    // Derived classes push incoming/received data into this buffer
+    private final ReceiveBuffer dataReceived;
+
+    // Bytes passed to write() which the transport has not yet reported as sent
+    private final Object writeLock = new Object();
+    private int pendingWriteBytes;
+
+    // Request bytes Jade can buffer - unknown (zero) until set from the version info
+    private volatile int writeCapacity;
 
     public JadeConnectionImpl() {
-        this.dataReceived = new LinkedBlockingQueue<>();
-        this.dataToRead = new ByteArrayInputStream(new byte[0]);
+        this.dataReceived = new ReceiveBuffer();
     }
 
     @Override
@@ -54,85 +54,117 @@ public abstract class JadeConnectionImpl {
     @Nullable
     abstract public StateFlow<Boolean> getDisconnectEvent();
 
-    // Function to push data into the dataReceived queue
-    protected void onDataReceived(final byte[] data) {
-        Log.d(TAG, "Received " + data.length + " bytes");
-        this.dataReceived.add(data);
+    // Maximum number of request bytes which may be outstanding on the connection (ie. written but
+    // not yet sent by the transport, or sent but not yet consumed/replied to by Jade).
+    // Used to flow-control pipelined requests.  Zero if unknown, in which case only one request
+    // is outstanding at a time.
+    public int getWriteCapacity() {
+        return this.writeCapacity;
     }
-/*
-    // Expose the data received as an InputStream.  The timeout refers to the timeout between
-    // byte fetches from the underlying stream/interface.
-    // If the timeout is zero bytes must be present immediately.
-    // A timeout of less than zero and the calls block until a byte is received.
-    // The read call will return -1 if the timeout expires and no byte is available.
-    public InputStream getInputStream(final int timeout) {
-        final JadeConnectionImpl parent = this;
-        return new InputStream() {
-            @Override
-            public int read() throws IOException {
-                final Byte next = parent.read(timeout);
-                return next != null ? next : -1;
-            }
-        };
+
+    // Set from the largest message Jade accepts, ie. JADE_OTA_MAX_CHUNK in its version info
+    public void setWriteCapacity(final int writeCapacity) {
+        this.writeCapacity = Math.max(0, writeCapacity);
     }
-*/
-    // Read a single byte, waiting for the timeout period (ms) if necessary.
-    // If the timeout is zero data must be present immediately.
-    // A timeout of less than zero and the call blocks until a byte is received.
-    // Returns null if the timeout expires and no byte is available.
-    public Byte read(final int timeout) {
-        // If available, just read from output stream
-        if (this.dataToRead.available() > 0) {
-            return (byte)this.dataToRead.read();
+
+    // Whether the transport calls onWriteQueued()/onWriteComplete(), ie. whether awaitWriteCapacity()
+    // actually waits for earlier writes to be sent.  If not, callers writing several requests without
+    // awaiting replies must pace the writes themselves.
+    public boolean reportsWriteCompletion() {
+        return false;
+    }
+
+    // Derived classes with asynchronous writes should call this when queueing bytes to send ...
+    protected void onWriteQueued(final int length) {
+        synchronized (this.writeLock) {
+            this.pendingWriteBytes += length;
         }
+    }
+
+    // ... and this when the transport has sent them (or failed to).
+    protected void onWriteComplete(final int length) {
+        synchronized (this.writeLock) {
+            this.pendingWriteBytes = Math.max(0, this.pendingWriteBytes - length);
+            this.writeLock.notifyAll();
+        }
+    }
 
-        // Otherwise, reload output stream from queue
-        final int pollTimeout = (timeout >= 0) ? timeout : 10000;
-        while (true) {
-            try {
-                final byte[] data = this.dataReceived.poll(pollTimeout, TimeUnit.MILLISECONDS);
-                if (data != null) {
-                    // Refresh byte stream from next byte array, and call self again
-                    this.dataToRead = new ByteArrayInputStream(data);
-                    return read(timeout);
-                } else if (timeout >= 0) {
-                    // Timed out
-                    Log.w(TAG, "read() timed-out - timeout(ms): " + timeout);
-                    return null;
+    // Block until the transport has capacity to accept 'length' more bytes, waiting for the timeout
+    // period (ms) if necessary.  A timeout of less than zero and the call blocks until capacity is
+    // available.  If nothing is pending the call always succeeds, regardless of 'length'.
+    // Returns false if the timeout expires before capacity is available.
+    public boolean awaitWriteCapacity(final int length, final int timeout) throws InterruptedIOException {
+        final int capacity = getWriteCapacity();
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        try {
+            synchronized (this.writeLock) {
+                while (this.pendingWriteBytes > 0 && this.pendingWriteBytes + length > capacity) {
+                    if (timeout < 0) {
+                        this.writeLock.wait();
+                    } else {
+                        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                        if (remaining <= 0) {
+                            Log.w(TAG, "awaitWriteCapacity() timed-out - timeout(ms): " + timeout);
+                            return false;
+                        }
+                        this.writeLock.wait(remaining);
+                    }
                 }
-                // else no timeout, so loop waiting
-            } catch (final InterruptedException e) {
-                // Just go round the while loop again
-                Log.w(TAG, "Ignoring read() loop interruption - " + e.getMessage());
+                return true;
             }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("awaitWriteCapacity() interrupted");
         }
     }
 
-    // Reads all the data that is currently outstanding (ie. that has been received).
-    // Returns empty byte array if no data received/present.
-    public byte[] drain() {
-        try {
-            final ByteArrayOutputStream drained = new ByteArrayOutputStream();
+    // Function to push data into the dataReceived buffer
+    protected void onDataReceived(final byte[] data) {
+        Log.d(TAG, "Received " + data.length + " bytes");
+        this.dataReceived.write(data, 0, data.length);
+    }
 
-            // Drain the 'to read next' stream
-            if (this.dataToRead != null && dataToRead.available() > 0) {
-                IOUtils.copy(this.dataToRead, drained);
-            }
+    // Number of bytes received and not yet read
+    public int available() {
+        return this.dataReceived.available();
+    }
 
-            // Drain the queue of data received
-            final List<byte[]> received = new ArrayList<>(this.dataReceived.size());
-            this.dataReceived.drainTo(received);
-            for (final byte[] bytes : received) {
-                drained.write(bytes);
+    // Read up to 'len' bytes into the passed array, waiting for the timeout period (ms) if necessary.
+    // If the timeout is zero data must be present immediately.
+    // A timeout of less than zero and the call blocks until data is received.
+    // Returns the number of bytes read, or -1 if the timeout expires and no data is available.
+    // If the calling thread is interrupted the interrupt status is preserved and an
+    // InterruptedIOException is thrown.
+    public int read(final byte[] buffer, final int offset, final int len, final int timeout) throws InterruptedIOException {
+        try {
+            final int read = this.dataReceived.read(buffer, offset, len, timeout);
+            if (read < 0) {
+                Log.w(TAG, "read() timed-out - timeout(ms): " + timeout);
             }
+            return read;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("read() interrupted");
+        }
+    }
 
-            // Return as one large byte array
-            return drained.toByteArray();
-        } catch (final IOException e) {
-            // This exception can happen with IO-Streams in general and hence is in the signature,
-            // but should not occur with Byte-Streams as there is no real underlying IO happening.
-            Log.e(TAG, "IOException should not occur with ByteStream ! - " + e.getMessage());
-            return new byte[0];
+    // As above, but reads up to buffer.remaining() bytes into the ByteBuffer
+    public int read(final ByteBuffer buffer, final int timeout) throws InterruptedIOException {
+        try {
+            final int read = this.dataReceived.read(buffer, timeout);
+            if (read < 0) {
+                Log.w(TAG, "read() timed-out - timeout(ms): " + timeout);
+            }
+            return read;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("read() interrupted");
         }
     }
+
+    // Reads all the data that is currently outstanding (ie. that has been received).
+    // Returns empty byte array if no data received/present.
+    public byte[] drain() {
+        return this.dataReceived.drain();
+    }
 }
@@ -6,15 +6,17 @@ import android.hardware.usb.UsbManager;
 import android.util.Log;
 
 import com.blockstream.jade.connection.JadeSerial;
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
 import com.polidea.rxandroidble3.RxBleDevice;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import kotlinx.coroutines.flow.MutableStateFlow;
 import kotlinx.coroutines.flow.StateFlow;
@@ -29,13 +31,22 @@ public class JadeInterface {
     private final static String TAG = "JadeInterface";
     private final static String HWTAG = "JadeInterface-hw";
 
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int WRITE_CHUNK_SIZE = 4096;
+    private static final int WRITE_CAPACITY_TIMEOUT = 10000;  // 10 secs
+
     // The object mapper used to crease/parse the serialised format
     private static final ObjectMapper objectMapper = new ObjectMapper(new CBORFactory());
 
     private final JadeConnectionImpl connection;
 
-    private JadeInterface(final JadeConnectionImpl connection) {
+    // Incremental parser of the incoming byte stream into cbor messages
+    private final CborFrameDecoder decoder;
+    private final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+
+    JadeInterface(final JadeConnectionImpl connection) {
         this.connection = connection;
+        this.decoder = new CborFrameDecoder(objectMapper);
     }
 
     public static JadeInterface createSerial(final UsbManager usbManager, final UsbDevice usbDevice, final int baud) {
@@ -69,20 +80,121 @@ public class JadeInterface {
         this.connection.disconnect();
     }
 
+    // See JadeConnectionImpl.setWriteCapacity()
+    public void setWriteCapacity(final int writeCapacity) {
+        this.connection.setWriteCapacity(writeCapacity);
+    }
+
+    public boolean reportsWriteCompletion() {
+        return this.connection.reportsWriteCompletion();
+    }
+
     public synchronized void writeRequest(final JsonNode request) throws IOException {
+        this.writeRequest(request, WRITE_CAPACITY_TIMEOUT);
+    }
+
+    // Write a request once the connection has capacity to accept it, rather than flooding its buffers.
+    // The request is serialised straight to the connection in chunks, waiting up to the timeout period
+    // (ms) before each chunk for earlier writes to be sent.
+    // Returns the number of bytes written.
+    public synchronized int writeRequest(final JsonNode request, final int timeout) throws IOException {
+        if (!isConnected()) {
+            throw new IOException("JadeInterface not connected");
+        }
+
+        logRequest(request);
+        final RequestOutputStream out = new RequestOutputStream(timeout);
+        mapper().writeValue(out, request);
+        Log.d(TAG, "Sent " + out.written + " bytes");
+        return out.written;
+    }
+
+    // As above, for a request already serialised by the caller
+    private int writeRequest(final JsonNode request, final byte[] serialised, final int timeout) throws IOException {
         if (!isConnected()) {
             throw new IOException("JadeInterface not connected");
         }
 
-        Log.i(TAG, "Sending request:" + request);
-        final byte[] bytes = mapper().writeValueAsBytes(request);
-        Log.d(TAG, "Sending " + bytes.length + " bytes");
-        this.connection.write(bytes);
+        logRequest(request);
+        final RequestOutputStream out = new RequestOutputStream(timeout);
+        out.write(serialised, 0, serialised.length);
+        out.close();
+        Log.d(TAG, "Sent " + out.written + " bytes");
+        return out.written;
+    }
+
+    private static void logRequest(final JsonNode request) {
+        if (JadeAPI.isDebug) {
+            Log.i(TAG, "Sending request:" + request);
+        } else {
+            // Avoid rendering potentially large binary params (eg. previous transactions) as text
+            Log.i(TAG, "Sending request: " + request.get("method") + " (id: " + request.get("id") + ")");
+        }
     }
 
-    public byte[] drain() {
+    // Streams serialised request bytes to the connection in chunks of at most WRITE_CHUNK_SIZE, waiting
+    // for write capacity before each, so a large request is never held as one contiguous message.
+    private class RequestOutputStream extends OutputStream {
+        private final int timeout;
+        private final byte[] chunk = new byte[WRITE_CHUNK_SIZE];
+        private int length;
+        private int written;
+
+        RequestOutputStream(final int timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+            this.chunk[this.length++] = (byte) b;
+            if (this.length == this.chunk.length) {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(final byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final int n = Math.min(len, this.chunk.length - this.length);
+                System.arraycopy(b, off, this.chunk, this.length, n);
+                this.length += n;
+                off += n;
+                len -= n;
+                if (this.length == this.chunk.length) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (this.length == 0) {
+                return;
+            }
+            if (!connection.awaitWriteCapacity(this.length, this.timeout)) {
+                throw new IOException("Timeout awaiting connection write capacity");
+            }
+            connection.write(Arrays.copyOf(this.chunk, this.length));
+            this.written += this.length;
+            this.length = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    public synchronized byte[] drain() {
         Log.d(TAG, "Draining interface");
-        return this.connection.drain();
+        final byte[] buffered = this.decoder.drain();
+        final byte[] received = this.connection.drain();
+        if (buffered.length == 0) {
+            return received;
+        }
+        final byte[] drained = Arrays.copyOf(buffered, buffered.length + received.length);
+        System.arraycopy(received, 0, drained, buffered.length, received.length);
+        return drained;
     }
 
     public synchronized JsonNode readResponse(final int timeout) throws IOException {
@@ -91,71 +203,76 @@ public class JadeInterface {
         }
 
         Log.d(TAG, "Awaiting response - timeout(ms): " + timeout);
-        final ByteArrayOutputStream collected = new ByteArrayOutputStream(515);
         while (true) {
-            // Collect response bytes so we can try to parse them as a cbor message
-            final Byte next = this.connection.read(timeout);
-            if (next == null) {
-                // Timeout or other critical error
-                Log.w(TAG, "read() operation returned no next byte - timeout(ms): " + timeout);
-                return null;
+            final JsonNode response;
+            try {
+                // Return any complete message already buffered
+                response = this.decoder.next();
+            } catch (final IOException e) {
+                // Invalid or oversized message - the decoder has discarded the buffered bytes
+                Log.w(TAG, "Error when attempting to parse cbor message: " + e.getClass().getName());
+                Log.w(TAG, "Error: " + e.getMessage());
+                continue;
             }
-            collected.write(next);
 
-            try {
-                // Try to parse as into response message
-                final JsonNode response = mapper().readTree(collected.toByteArray());
-
-                // Is it a response to a request ?
-                if (response.has("id")) {
-                    // A proper response
-                    Log.i(TAG, "Response received: " + response);
-                    return response;
+            if (response == null) {
+                // Collect the next chunk of response bytes
+                final int read = this.connection.read(this.readBuffer, 0, this.readBuffer.length, timeout);
+                if (read < 0) {
+                    // Timeout or other critical error
+                    Log.w(TAG, "read() operation returned no data - timeout(ms): " + timeout);
+                    return null;
                 }
+                this.decoder.feed(this.readBuffer, 0, read);
+                continue;
+            }
 
-                // Is it a log message ?
-                if (response.has("log")) {
-                    // A log message
-                    final String logmsg = new String(response.get("log").binaryValue());
-                    if (logmsg.length() > 1 && logmsg.charAt(1) == ' ') {
-                        switch (logmsg.charAt(0)) {
-                            case 'V':
-                                Log.v(HWTAG, logmsg);
-                                break;
-                            case 'D':
-                                Log.d(HWTAG, logmsg);
-                                break;
-                            case 'I':
-                                Log.i(HWTAG, logmsg);
-                                break;
-                            case 'W':
-                                Log.w(HWTAG, logmsg);
-                                break;
-                            case 'E':
-                                Log.e(HWTAG, logmsg);
-                                break;
-                            default:
-                                Log.e(HWTAG, "Unrecognised log level: " + logmsg);
-                        }
-                    } else {
-                        Log.e(TAG, "Unrecognised log message: " + logmsg);
-                    }
-                } else {
-                    // Unknown message
-                    Log.e(TAG, "Unrecognised message received - discarding: " + response);
+            // Is it a response to a request ?
+            if (response.has("id")) {
+                // A proper response
+                Log.i(TAG, "Response received: " + response);
+                return response;
+            }
+
+            // Is it a log message ?
+            if (response.has("log")) {
+                // A log message
+                try {
+                    logMessage(response.get("log").binaryValue());
+                } catch (final Exception e) {
+                    Log.e(TAG, "Unrecognised log message: " + response);
                 }
+            } else {
+                // Unknown message
+                Log.e(TAG, "Unrecognised message received - discarding: " + response);
+            }
+        }
+    }
 
-                // Clear the collected bytes
-                collected.reset();
-            } catch (final JsonParseException | MismatchedInputException | NullPointerException e) {
-                // Not yet a parsable message - wait for more data
-                // Log.w(TAG, e.getMessage());
-            } catch (final Exception e) {
-                Log.w(TAG, "Error when attempting to parse cbor message: " + e.getClass().getName());
-                Log.w(TAG, "Error: " + e.getMessage());
-                //e.printStackTrace();
+    private static void logMessage(final byte[] log) {
+        final String logmsg = new String(log);
+        if (logmsg.length() > 1 && logmsg.charAt(1) == ' ') {
+            switch (logmsg.charAt(0)) {
+                case 'V':
+                    Log.v(HWTAG, logmsg);
+                    break;
+                case 'D':
+                    Log.d(HWTAG, logmsg);
+                    break;
+                case 'I':
+                    Log.i(HWTAG, logmsg);
+                    break;
+                case 'W':
+                    Log.w(HWTAG, logmsg);
+                    break;
+                case 'E':
+                    Log.e(HWTAG, logmsg);
+                    break;
+                default:
+                    Log.e(HWTAG, "Unrecognised log level: " + logmsg);
             }
-            // TODO: discard if 'collected' gets too big ?
+        } else {
+            Log.e(TAG, "Unrecognised log message: " + logmsg);
         }
     }
 /*
@@ -240,6 +357,69 @@ public class JadeInterface {
         return response;
     }
 
+    // Pipelined rpc calls.
+    // Keeps up to 'window' requests in flight - further bounded by the connection's write capacity -
+    // and matches responses to requests by id as they arrive.
+    // Returns the responses in request order.  Stops at the first error response, unmatched response
+    // or timeout, in which case that response (or null for timeout) is placed at the index of the
+    // oldest unanswered request and the remaining entries are null.  The caller should then treat
+    // the connection as out-of-sync, as other requests may still be in flight.
+    public synchronized final List<JsonNode> makeRpcCalls(final List<JsonNode> requests, final int window,
+                                                          final int timeout, final boolean drain) throws IOException {
+        final int count = requests.size();
+        final JsonNode[] responses = new JsonNode[count];
+        final int[] sizes = new int[count];
+        final Map<String, Integer> pending = new HashMap<>();
+        final int capacity = this.connection.getWriteCapacity();
+        final int maxInFlight = Math.max(1, window);
+
+        if (!isConnected()) {
+            throw new IOException("JadeInterface not connected");
+        }
+
+        // If requested, drain any existing outstanding messages first
+        if (drain) {
+            this.drain();
+        }
+
+        int oldest = 0;
+        int sent = 0;
+        int bytesInFlight = 0;
+        // The next request to send, serialised once for both the capacity check and the write
+        byte[] serialised = null;
+        while (oldest < count) {
+            // Top up the requests in flight - waiting for replies to free capacity as required
+            while (sent < count && pending.size() < maxInFlight) {
+                final JsonNode request = requests.get(sent);
+                if (serialised == null) {
+                    serialised = mapper().writeValueAsBytes(request);
+                }
+                if (!pending.isEmpty() && bytesInFlight + serialised.length > capacity) {
+                    break;
+                }
+                sizes[sent] = this.writeRequest(request, serialised, timeout);
+                serialised = null;
+                pending.put(request.get("id").asText(), sent);
+                bytesInFlight += sizes[sent];
+                ++sent;
+            }
+
+            // Await the next response and match it to its request
+            final JsonNode response = readResponse(timeout);
+            final Integer index = response != null ? pending.remove(response.get("id").asText()) : null;
+            if (index == null || response.has("error")) {
+                responses[index != null ? index : oldest] = response;
+                return Arrays.asList(responses);
+            }
+            responses[index] = response;
+            bytesInFlight -= sizes[index];
+            while (oldest < count && responses[oldest] != null) {
+                ++oldest;
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
     public StateFlow<Boolean> getBleDisconnectEvent() {
         return connection.getDisconnectEvent();
     }
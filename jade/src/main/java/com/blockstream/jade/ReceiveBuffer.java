@@ -0,0 +1,132 @@
+package com.blockstream.jade;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Growable ring buffer of bytes received from Jade.
+ * Written by the transport callback thread(s), read in bulk by the JadeInterface thread.
+ * Reads copy directly out of the ring - there is no per-packet or per-byte allocation.
+ */
+class ReceiveBuffer {
+    private static final int INITIAL_CAPACITY = 4096;  // power of two
+
+    private byte[] buf;
+    private int head;   // index of next byte to read
+    private int size;   // number of bytes available
+
+    ReceiveBuffer() {
+        this.buf = new byte[INITIAL_CAPACITY];
+    }
+
+    synchronized int available() {
+        return size;
+    }
+
+    synchronized void write(final byte[] src, final int off, final int len) {
+        if (len <= 0) {
+            return;
+        }
+        ensureCapacity(size + len);
+
+        final int mask = buf.length - 1;
+        final int tail = (head + size) & mask;
+        final int first = Math.min(len, buf.length - tail);
+        System.arraycopy(src, off, buf, tail, first);
+        System.arraycopy(src, off + first, buf, 0, len - first);
+        size += len;
+
+        notifyAll();
+    }
+
+    // Read up to 'len' bytes into dst, waiting for the timeout period (ms) if necessary.
+    // If the timeout is zero data must be present immediately.
+    // A timeout of less than zero and the call blocks until data is received.
+    // Returns the number of bytes read, or -1 if the timeout expires and no data is available.
+    synchronized int read(final byte[] dst, final int off, final int len, final int timeout) throws InterruptedException {
+        if (len <= 0) {
+            return 0;
+        }
+        if (!awaitData(timeout)) {
+            return -1;
+        }
+
+        final int n = Math.min(len, size);
+        final int first = Math.min(n, buf.length - head);
+        System.arraycopy(buf, head, dst, off, first);
+        System.arraycopy(buf, 0, dst, off + first, n - first);
+        consume(n);
+        return n;
+    }
+
+    // As above, but reads up to dst.remaining() bytes into the ByteBuffer
+    synchronized int read(final ByteBuffer dst, final int timeout) throws InterruptedException {
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (!awaitData(timeout)) {
+            return -1;
+        }
+
+        final int n = Math.min(dst.remaining(), size);
+        final int first = Math.min(n, buf.length - head);
+        dst.put(buf, head, first);
+        dst.put(buf, 0, n - first);
+        consume(n);
+        return n;
+    }
+
+    // Returns and discards all buffered data
+    synchronized byte[] drain() {
+        final byte[] drained = new byte[size];
+        final int first = Math.min(size, buf.length - head);
+        System.arraycopy(buf, head, drained, 0, first);
+        System.arraycopy(buf, 0, drained, first, size - first);
+        head = 0;
+        size = 0;
+        return drained;
+    }
+
+    private boolean awaitData(final int timeout) throws InterruptedException {
+        if (timeout < 0) {
+            while (size == 0) {
+                wait();
+            }
+            return true;
+        }
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        while (size == 0) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    private void consume(final int n) {
+        size -= n;
+        head = size == 0 ? 0 : (head + n) & (buf.length - 1);
+    }
+
+    private void ensureCapacity(final int required) {
+        if (required <= buf.length) {
+            return;
+        }
+
+        int capacity = buf.length;
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+
+        // Unwrap existing contents into the new buffer
+        final byte[] grown = new byte[capacity];
+        final int first = Math.min(size, buf.length - head);
+        System.arraycopy(buf, head, grown, 0, first);
+        System.arraycopy(buf, 0, grown, first, size - first);
+        buf = grown;
+        head = 0;
+    }
+}
@@ -0,0 +1,128 @@
+package com.blockstream.jade;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+@RunWith(JUnit4.class)
+public class CborFrameDecoderTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+
+    private static byte[] response(final String id, final int payloadSize) throws IOException {
+        final ObjectNode root = mapper.createObjectNode().put("id", id);
+        root.putObject("result")
+                .put("signature", new byte[payloadSize])
+                .put("valid", true)
+                .put("amount", -1234567890123L)
+                .putArray("list").add(1.5).add("text").addNull();
+        return mapper.writeValueAsBytes(root);
+    }
+
+    private static byte[] log(final String msg) throws IOException {
+        return mapper.writeValueAsBytes(mapper.createObjectNode().put("log", msg.getBytes()));
+    }
+
+    @Test
+    public void test_byte_at_a_time() throws IOException {
+        final byte[] msg = response("123", 2000);
+        final CborFrameDecoder decoder = new CborFrameDecoder(mapper);
+
+        for (int i = 0; i < msg.length - 1; ++i) {
+            decoder.feed(msg, i, 1);
+            Assert.assertNull(decoder.next());
+        }
+        decoder.feed(msg, msg.length - 1, 1);
+
+        final JsonNode node = decoder.next();
+        Assert.assertNotNull(node);
+        Assert.assertEquals("123", node.get("id").asText());
+        Assert.assertEquals(2000, node.get("result").get("signature").binaryValue().length);
+        Assert.assertEquals(0, decoder.buffered());
+    }
+
+    @Test
+    public void test_multiple_messages_per_chunk() throws IOException {
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        stream.write(log("I first"));
+        stream.write(response("1", 10));
+        stream.write(log("D second"));
+        stream.write(response("2", 600));
+        final byte[] bytes = stream.toByteArray();
+
+        // Feed in arbitrary chunks which do not align with message boundaries
+        final CborFrameDecoder decoder = new CborFrameDecoder(mapper);
+        decoder.feed(bytes, 0, 5);
+        Assert.assertNull(decoder.next());
+        decoder.feed(bytes, 5, bytes.length - 9);
+
+        Assert.assertEquals("I first", new String(decoder.next().get("log").binaryValue()));
+        Assert.assertEquals("1", decoder.next().get("id").asText());
+        Assert.assertEquals("D second", new String(decoder.next().get("log").binaryValue()));
+        Assert.assertNull(decoder.next());
+
+        decoder.feed(bytes, bytes.length - 4, 4);
+        Assert.assertEquals("2", decoder.next().get("id").asText());
+        Assert.assertNull(decoder.next());
+    }
+
+    @Test
+    public void test_indefinite_length() throws IOException {
+        // {_ "id": "7", "result": [_ 1, h'0102'] }
+        final byte[] msg = new byte[]{
+                (byte) 0xbf,
+                0x62, 'i', 'd', 0x61, '7',
+                0x66, 'r', 'e', 's', 'u', 'l', 't',
+                (byte) 0x9f, 0x01, 0x42, 0x01, 0x02, (byte) 0xff,
+                (byte) 0xff
+        };
+        final CborFrameDecoder decoder = new CborFrameDecoder(mapper);
+        decoder.feed(msg, 0, msg.length - 1);
+        Assert.assertNull(decoder.next());
+        decoder.feed(msg, msg.length - 1, 1);
+
+        final JsonNode node = decoder.next();
+        Assert.assertEquals("7", node.get("id").asText());
+        Assert.assertEquals(2, node.get("result").size());
+    }
+
+    @Test
+    public void test_bounded_buffer() throws IOException {
+        final byte[] msg = response("1", 4096);
+        final CborFrameDecoder decoder = new CborFrameDecoder(mapper, 1024);
+        decoder.feed(msg);
+        try {
+            decoder.next();
+            Assert.fail("Oversized message should be rejected");
+        } catch (final IOException e) {
+            // expected
+        }
+        Assert.assertEquals(0, decoder.buffered());
+
+        // Decoder recovers for subsequent messages
+        decoder.feed(response("2", 16));
+        Assert.assertEquals("2", decoder.next().get("id").asText());
+    }
+
+    @Test
+    public void test_drain() throws IOException {
+        final byte[] msg = response("1", 32);
+        final CborFrameDecoder decoder = new CborFrameDecoder(mapper);
+        decoder.feed(msg, 0, 10);
+        Assert.assertNull(decoder.next());
+        Assert.assertEquals(10, decoder.drain().length);
+        Assert.assertEquals(0, decoder.buffered());
+
+        decoder.feed(msg);
+        Assert.assertEquals("1", decoder.next().get("id").asText());
+    }
+}
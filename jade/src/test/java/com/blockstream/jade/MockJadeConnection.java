@@ -0,0 +1,170 @@
+package com.blockstream.jade;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import kotlinx.coroutines.flow.StateFlow;
+
+/**
+ * Simulated Jade connection for host-side tests and benchmarks.
+ * Requests are 'transmitted' with a one-way link latency, processed one at a time by the simulated
+ * device (taking 'processingMs' each) and replies returned after the link latency again.
+ * Understands enough of the signing protocol to answer sign_tx/sign_liquid_tx, tx_input, get_signature
+ * and get_blinding_key.
+ */
+class MockJadeConnection extends JadeConnectionImpl {
+    private final int latencyMs;
+    private final int processingMs;
+    private final ScheduledExecutorService link = Executors.newSingleThreadScheduledExecutor();
+
+    private final CborFrameDecoder decoder = new CborFrameDecoder(JadeInterface.mapper());
+    private final AtomicInteger requestsReceived = new AtomicInteger();
+    // Requests received and not yet replied to
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger maxOutstanding = new AtomicInteger();
+    private boolean connected;
+    private long deviceFreeAt;
+
+    // Signing session state
+    private boolean useAeSignatures;
+    private int numInputs;
+    private final List<String> legacyInputIds = new ArrayList<>();
+
+    MockJadeConnection(final int latencyMs, final int processingMs) {
+        this.latencyMs = latencyMs;
+        this.processingMs = processingMs;
+    }
+
+    int getRequestsReceived() {
+        return requestsReceived.get();
+    }
+
+    int getMaxOutstanding() {
+        return maxOutstanding.get();
+    }
+
+    void resetMaxOutstanding() {
+        maxOutstanding.set(outstanding.get());
+    }
+
+    // Writes are processed synchronously
+    @Override
+    public boolean reportsWriteCompletion() {
+        return true;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void connect() {
+        connected = true;
+    }
+
+    @Override
+    public void disconnect() {
+        connected = false;
+        link.shutdownNow();
+    }
+
+    @Override
+    public synchronized int write(final byte[] bytes) {
+        // Requests may be written in several chunks
+        decoder.feed(bytes);
+        try {
+            JsonNode request;
+            while ((request = decoder.next()) != null) {
+                receive(request);
+            }
+        } catch (final IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return bytes.length;
+    }
+
+    private void receive(final JsonNode request) {
+        requestsReceived.incrementAndGet();
+
+        // Device processes requests strictly in order of arrival
+        final long now = System.currentTimeMillis();
+        final long start = Math.max(now + latencyMs, deviceFreeAt);
+        deviceFreeAt = start + processingMs;
+        final long replyAt = deviceFreeAt + latencyMs;
+
+        maxOutstanding.accumulateAndGet(outstanding.incrementAndGet(), Math::max);
+
+        // Legacy tx_input requests are answered all at once, by the last one
+        for (final JsonNode reply : process(request)) {
+            final byte[] replyBytes;
+            try {
+                replyBytes = JadeInterface.mapper().writeValueAsBytes(reply);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            link.schedule(() -> {
+                outstanding.decrementAndGet();
+                onDataReceived(replyBytes);
+            }, replyAt - now, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public StateFlow<Boolean> getDisconnectEvent() {
+        return null;
+    }
+
+    private List<JsonNode> process(final JsonNode request) {
+        final String id = request.get("id").asText();
+        final String method = request.get("method").asText();
+        final JsonNode params = request.get("params");
+        final List<JsonNode> replies = new ArrayList<>();
+
+        switch (method) {
+            case "sign_tx":
+            case "sign_liquid_tx":
+                useAeSignatures = params.get("use_ae_signatures").asBoolean();
+                numInputs = params.get("num_inputs").asInt();
+                legacyInputIds.clear();
+                replies.add(result(id).put("result", true));
+                break;
+            case "tx_input":
+                if (useAeSignatures) {
+                    replies.add(result(id).put("result", new byte[32]));
+                } else {
+                    // Legacy protocol - all signatures returned once all inputs are received
+                    legacyInputIds.add(id);
+                    if (legacyInputIds.size() == numInputs) {
+                        for (final String inputId : legacyInputIds) {
+                            replies.add(result(inputId).put("result", new byte[71]));
+                        }
+                    }
+                }
+                break;
+            case "get_signature":
+                replies.add(result(id).put("result", new byte[64]));
+                break;
+            case "get_blinding_key":
+                replies.add(result(id).put("result", new byte[33]));
+                break;
+            default:
+                final ObjectNode error = result(id);
+                error.putObject("error").put("code", -32601).put("message", "Unknown method: " + method);
+                replies.add(error);
+        }
+        return replies;
+    }
+
+    private static ObjectNode result(final String id) {
+        return JadeInterface.mapper().createObjectNode().put("id", id);
+    }
+}
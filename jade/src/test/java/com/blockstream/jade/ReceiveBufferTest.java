@@ -0,0 +1,94 @@
+package com.blockstream.jade;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+
+@RunWith(JUnit4.class)
+public class ReceiveBufferTest {
+
+    private static byte[] sequence(final int start, final int len) {
+        final byte[] bytes = new byte[len];
+        for (int i = 0; i < len; ++i) {
+            bytes[i] = (byte) (start + i);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void test_wraparound_and_growth() throws InterruptedException {
+        final ReceiveBuffer buffer = new ReceiveBuffer();
+        final byte[] out = new byte[8192];
+        int expected = 0;
+        int written = 0;
+
+        // Interleave writes and partial reads so the ring wraps and then grows
+        for (int i = 0; i < 40; ++i) {
+            buffer.write(sequence(written, 700), 0, 700);
+            written += 700;
+
+            final int read = buffer.read(out, 0, 500, 0);
+            Assert.assertEquals(500, read);
+            for (int j = 0; j < read; ++j) {
+                Assert.assertEquals((byte) (expected + j), out[j]);
+            }
+            expected += read;
+        }
+
+        Assert.assertEquals(written - expected, buffer.available());
+        final byte[] drained = buffer.drain();
+        Assert.assertEquals(written - expected, drained.length);
+        for (int j = 0; j < drained.length; ++j) {
+            Assert.assertEquals((byte) (expected + j), drained[j]);
+        }
+        Assert.assertEquals(0, buffer.available());
+    }
+
+    @Test
+    public void test_bytebuffer_read() throws InterruptedException {
+        final ReceiveBuffer buffer = new ReceiveBuffer();
+        buffer.write(sequence(0, 10), 0, 10);
+
+        final ByteBuffer dst = ByteBuffer.allocate(4);
+        Assert.assertEquals(4, buffer.read(dst, 0));
+        Assert.assertEquals(0, buffer.read(dst, 0));
+        Assert.assertEquals(6, buffer.available());
+        Assert.assertArrayEquals(sequence(0, 4), dst.array());
+    }
+
+    @Test
+    public void test_timeout() throws InterruptedException {
+        final ReceiveBuffer buffer = new ReceiveBuffer();
+        final byte[] out = new byte[16];
+        Assert.assertEquals(-1, buffer.read(out, 0, out.length, 0));
+        Assert.assertEquals(-1, buffer.read(out, 0, out.length, 20));
+    }
+
+    @Test
+    public void test_blocking_read_wakes_on_write() throws InterruptedException {
+        final ReceiveBuffer buffer = new ReceiveBuffer();
+        final Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (final InterruptedException e) {
+                return;
+            }
+            buffer.write(sequence(1, 3), 0, 3);
+        });
+        writer.start();
+
+        final byte[] out = new byte[16];
+        Assert.assertEquals(3, buffer.read(out, 0, out.length, -1));
+        writer.join();
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void test_interrupt() throws InterruptedException {
+        final ReceiveBuffer buffer = new ReceiveBuffer();
+        Thread.currentThread().interrupt();
+        buffer.read(new byte[1], 0, 1, -1);
+    }
+}
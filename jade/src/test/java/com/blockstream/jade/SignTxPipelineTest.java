@@ -0,0 +1,137 @@
+package com.blockstream.jade;
+
+import com.blockstream.jade.data.JadeNetworks;
+import com.blockstream.jade.data.JadeState;
+import com.blockstream.jade.data.VersionInfo;
+import com.blockstream.jade.entities.SignTxInputsResult;
+import com.blockstream.jade.entities.TxInput;
+import com.blockstream.jade.entities.TxInputBtc;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Signing over a simulated high-latency connection, checking the requests kept in flight are bounded
+ * by the pipeline window and by the write capacity Jade reports.
+ */
+@RunWith(JUnit4.class)
+public class SignTxPipelineTest {
+    private static final int NUM_INPUTS = 50;
+    private static final int LATENCY_MS = 10;
+    private static final int PROCESSING_MS = 1;
+
+    private static class MockJadeAPI extends JadeAPIJava {
+        MockJadeAPI(final JadeInterface jade) {
+            super(jade, null);
+            this.efusemac = "mock";
+        }
+
+        @Override
+        public VersionInfo getVersionInfo() {
+            return new VersionInfo("1.0.0", 4096, "BLE", "JADE", "", "", "", "mock",
+                    JadeState.READY, JadeNetworks.ALL, true);
+        }
+    }
+
+    private MockJadeConnection connection;
+    private JadeAPIJava api;
+
+    @Before
+    public void setup() {
+        connection = new MockJadeConnection(LATENCY_MS, PROCESSING_MS);
+        final JadeInterface jade = new JadeInterface(connection);
+        jade.connect();
+        // As reported by Jade in JADE_OTA_MAX_CHUNK
+        jade.setWriteCapacity(4096);
+        api = new MockJadeAPI(jade);
+    }
+
+    @After
+    public void teardown() {
+        connection.disconnect();
+    }
+
+    private static List<TxInput> inputs(final boolean useAeProtocol, final byte[] inputTx) {
+        final List<TxInput> inputs = new ArrayList<>(NUM_INPUTS);
+        for (int i = 0; i < NUM_INPUTS; ++i) {
+            inputs.add(new TxInputBtc(true, inputTx, new byte[34], 1000L + i, Arrays.asList(0L, (long) i),
+                    useAeProtocol ? new byte[32] : null, useAeProtocol ? new byte[32] : null));
+        }
+        return inputs;
+    }
+
+    private void signTx(final int window, final boolean useAeProtocol) throws IOException {
+        signTx(window, useAeProtocol, null);
+    }
+
+    private void signTx(final int window, final boolean useAeProtocol, final byte[] inputTx) throws IOException {
+        api.setPipelineWindow(window);
+        connection.resetMaxOutstanding();
+        final SignTxInputsResult result = api.signTx("testnet", useAeProtocol, new byte[100],
+                inputs(useAeProtocol, inputTx), Collections.emptyList());
+
+        Assert.assertEquals(NUM_INPUTS, result.getSignatures().size());
+        if (useAeProtocol) {
+            Assert.assertEquals(NUM_INPUTS, result.getSignerCommitments().size());
+        }
+    }
+
+    @Test
+    public void test_ae_pipelined() throws IOException {
+        signTx(JadeAPIJava.PIPELINE_WINDOW, true);
+        // sign_tx, n inputs, n signatures
+        Assert.assertEquals(1 + 2 * NUM_INPUTS, connection.getRequestsReceived());
+        // Several requests in flight, never more than the window
+        Assert.assertTrue(connection.getMaxOutstanding() > 1);
+        Assert.assertTrue(connection.getMaxOutstanding() <= JadeAPIJava.PIPELINE_WINDOW);
+    }
+
+    @Test
+    public void test_ae_sequential() throws IOException {
+        signTx(1, true);
+        Assert.assertEquals(1, connection.getMaxOutstanding());
+    }
+
+    @Test
+    public void test_unknown_write_capacity() throws IOException {
+        // Until the version info is known requests are not pipelined
+        connection.setWriteCapacity(0);
+        signTx(JadeAPIJava.PIPELINE_WINDOW, true);
+        Assert.assertEquals(1, connection.getMaxOutstanding());
+    }
+
+    @Test
+    public void test_write_capacity() throws IOException {
+        // At most 2 requests with a 900 byte script fit a 2000 byte capacity
+        connection.setWriteCapacity(2000);
+        api.setPipelineWindow(JadeAPIJava.PIPELINE_WINDOW);
+        final List<byte[]> scripts = Collections.nCopies(NUM_INPUTS, new byte[900]);
+        Assert.assertEquals(NUM_INPUTS, api.getBlindingKeys(scripts).size());
+        Assert.assertEquals(2, connection.getMaxOutstanding());
+    }
+
+    @Test
+    public void test_legacy_signing() throws IOException {
+        signTx(JadeAPIJava.PIPELINE_WINDOW, false);
+        // sign_tx, n inputs
+        Assert.assertEquals(1 + NUM_INPUTS, connection.getRequestsReceived());
+    }
+
+    @Test
+    public void test_large_input_tx() throws IOException {
+        // Previous tx much larger than a single write chunk - streamed to the connection in pieces
+        signTx(JadeAPIJava.PIPELINE_WINDOW, true, new byte[20000]);
+        // sign_tx, n inputs, n signatures
+        Assert.assertEquals(1 + 2 * NUM_INPUTS, connection.getRequestsReceived());
+    }
+}